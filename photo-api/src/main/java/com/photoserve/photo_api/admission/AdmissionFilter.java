@@ -0,0 +1,72 @@
+package com.photoserve.photo_api.admission;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Admits uploads and downloads through their bulkheads before any of the request body is read,
+ * so multipart parsing of a rejected upload never touches the disk. The ZIP export streams from an
+ * async task that outlives this filter, so its download permit is taken by the export controller.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private final Bulkheads bulkheads;
+
+    public AdmissionFilter(Bulkheads bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Bulkhead bulkhead = select(request);
+        if (bulkhead == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        try {
+            bulkhead.acquire();
+        } catch (BulkheadFullException e) {
+            reject(response, e);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private Bulkhead select(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if ("POST".equals(request.getMethod())
+                && (path.equals("/photos/upload") || path.equals("/photos/import"))) {
+            return bulkheads.upload();
+        }
+        if ("GET".equals(request.getMethod()) && path.startsWith("/photos/download/")) {
+            return bulkheads.download();
+        }
+        return null;
+    }
+
+    static void reject(HttpServletResponse response, BulkheadFullException e) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Server is busy, please retry later\"}");
+    }
+}
@@ -0,0 +1,108 @@
+package com.photoserve.photo_api.admission;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded concurrency limit for one kind of work. Callers beyond {@code maxConcurrent} wait in a
+ * queue of at most {@code maxQueued} for up to {@code queueTimeoutMillis}; anything past that is
+ * rejected with a {@link BulkheadFullException} instead of holding a thread indefinitely.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long queueTimeoutMillis;
+    private final int retryAfterSeconds;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    public Bulkhead(String name, int maxConcurrent, int maxQueued, long queueTimeoutMillis, int retryAfterSeconds) {
+        if (maxConcurrent < 1 || maxQueued < 0 || queueTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Invalid limits for bulkhead " + name);
+        }
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Takes a permit, waiting in the queue if necessary. Every successful call must be paired
+     * with {@link #release()}.
+     */
+    public void acquire() {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            throw reject("queue full");
+        }
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            queued.decrementAndGet();
+        }
+        if (!acquired) {
+            throw reject("timed out after " + queueTimeoutMillis + "ms in queue");
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public <T, E extends Throwable> T call(Admitted<T, E> work) throws E {
+        acquire();
+        try {
+            return work.call();
+        } finally {
+            release();
+        }
+    }
+
+    @FunctionalInterface
+    public interface Admitted<T, E extends Throwable> {
+        T call() throws E;
+    }
+
+    private BulkheadFullException reject(String reason) {
+        rejected.increment();
+        return new BulkheadFullException(name, reason, retryAfterSeconds);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public int getActive() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
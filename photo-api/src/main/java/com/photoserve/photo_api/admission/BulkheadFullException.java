@@ -0,0 +1,25 @@
+package com.photoserve.photo_api.admission;
+
+/**
+ * Thrown when a {@link Bulkhead} cannot admit more work; surfaced to clients as
+ * {@code 503 Service Unavailable} with a {@code Retry-After} header.
+ */
+public class BulkheadFullException extends RuntimeException {
+
+    private final String bulkhead;
+    private final int retryAfterSeconds;
+
+    public BulkheadFullException(String bulkhead, String reason, int retryAfterSeconds) {
+        super("Bulkhead '" + bulkhead + "' is full: " + reason);
+        this.bulkhead = bulkhead;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getBulkhead() {
+        return bulkhead;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,73 @@
+package com.photoserve.photo_api.admission;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * The separate concurrency limits for upload writes, download streaming and repository calls, so
+ * a burst of large uploads cannot take every request thread or every JDBC connection. Each is
+ * exported as {@code bulkhead.active}, {@code bulkhead.queued}, {@code bulkhead.limit} and
+ * {@code bulkhead.rejected}, tagged with its name.
+ */
+@Component
+public class Bulkheads implements MeterBinder {
+
+    private final Bulkhead upload;
+    private final Bulkhead download;
+    private final Bulkhead repository;
+
+    public Bulkheads(@Value("${photo.bulkhead.upload.max-concurrent:4}") int uploadConcurrent,
+                     @Value("${photo.bulkhead.upload.max-queued:16}") int uploadQueued,
+                     @Value("${photo.bulkhead.upload.queue-timeout-ms:5000}") long uploadTimeout,
+                     @Value("${photo.bulkhead.download.max-concurrent:32}") int downloadConcurrent,
+                     @Value("${photo.bulkhead.download.max-queued:64}") int downloadQueued,
+                     @Value("${photo.bulkhead.download.queue-timeout-ms:2000}") long downloadTimeout,
+                     @Value("${photo.bulkhead.repository.max-concurrent:10}") int repositoryConcurrent,
+                     @Value("${photo.bulkhead.repository.max-queued:100}") int repositoryQueued,
+                     @Value("${photo.bulkhead.repository.queue-timeout-ms:2000}") long repositoryTimeout,
+                     @Value("${photo.bulkhead.retry-after-seconds:2}") int retryAfterSeconds) {
+        this.upload = new Bulkhead("upload", uploadConcurrent, uploadQueued, uploadTimeout, retryAfterSeconds);
+        this.download = new Bulkhead("download", downloadConcurrent, downloadQueued, downloadTimeout, retryAfterSeconds);
+        this.repository = new Bulkhead("repository", repositoryConcurrent, repositoryQueued, repositoryTimeout, retryAfterSeconds);
+    }
+
+    public Bulkhead upload() {
+        return upload;
+    }
+
+    public Bulkhead download() {
+        return download;
+    }
+
+    public Bulkhead repository() {
+        return repository;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Bulkhead bulkhead : List.of(upload, download, repository)) {
+            Gauge.builder("bulkhead.active", bulkhead, Bulkhead::getActive)
+                    .tag("name", bulkhead.getName())
+                    .description("Calls currently holding a permit")
+                    .register(registry);
+            Gauge.builder("bulkhead.queued", bulkhead, Bulkhead::getQueued)
+                    .tag("name", bulkhead.getName())
+                    .description("Calls waiting for a permit")
+                    .register(registry);
+            Gauge.builder("bulkhead.limit", bulkhead, Bulkhead::getMaxConcurrent)
+                    .tag("name", bulkhead.getName())
+                    .register(registry);
+            FunctionCounter.builder("bulkhead.rejected", bulkhead, Bulkhead::getRejected)
+                    .tag("name", bulkhead.getName())
+                    .description("Calls turned away because the queue was full or timed out")
+                    .register(registry);
+        }
+    }
+}
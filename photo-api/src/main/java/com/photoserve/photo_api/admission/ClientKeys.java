@@ -0,0 +1,45 @@
+package com.photoserve.photo_api.admission;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Identifies the client of a request for rate limiting and idempotency scoping. A request is
+ * keyed by its {@code X-API-Key} only when that key is one of {@code photo.ratelimit.api-keys};
+ * any other key is ignored and the request is keyed by its address, so a client cannot escape its
+ * limits, or reach into another scope of idempotency keys, by sending made-up header values.
+ * One instance is shared by {@link RateLimitFilter} and {@link IdempotencyFilter}, so both always
+ * identify a client the same way.
+ */
+@Component
+public class ClientKeys {
+
+    static final String API_KEY_HEADER = "X-API-Key";
+
+    private final Set<String> apiKeys = new HashSet<>();
+
+    public ClientKeys(@Value("${photo.ratelimit.api-keys:}") String apiKeys) {
+        for (String apiKey : apiKeys.split(",")) {
+            if (!apiKey.isBlank()) {
+                this.apiKeys.add(apiKey.trim());
+            }
+        }
+    }
+
+    /**
+     * The remote address is the connecting peer; behind a proxy set
+     * {@code server.forward-headers-strategy} so it reflects the real client.
+     */
+    String of(HttpServletRequest request) {
+        String apiKey = request.getHeader(API_KEY_HEADER);
+        if (apiKey != null && apiKeys.contains(apiKey)) {
+            return "key:" + apiKey;
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,246 @@
+package com.photoserve.photo_api.admission;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Honours an {@code Idempotency-Key} header on uploads and photo creation. A retry with the key of
+ * a completed request gets the original response back, marked {@code Idempotent-Replayed: true};
+ * a retry while the original is still running gets 409. Either way the retry is answered without
+ * running it, ahead of the bulkheads and multipart parsing, so it never stores another file.
+ *
+ * Keys are scoped to the client (as identified for rate limiting, see {@link ClientKeys}) and the
+ * path. Server errors are not kept, so a request that failed on the server runs again when retried.
+ *
+ * A key also remembers a fingerprint of its request: method, path, media type, Content-Length and,
+ * for photo creation, a hash of the JSON body (read here and handed on from memory). Reusing a key
+ * for a different request gets 422 instead of the other request's response. Upload bodies are not
+ * hashed, as that would mean reading the file before the retry could be turned away.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 7)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    static final String KEY_HEADER = "Idempotency-Key";
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    // Upload and create answers are well under a kilobyte; anything much larger is not kept
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    // Photo creation bodies are small JSON documents; a keyed one larger than this is refused, not buffered
+    private static final int MAX_HASHED_BODY_BYTES = 1024 * 1024;
+
+    private final ClientKeys clientKeys;
+    private final IdempotencyStore store;
+
+    public IdempotencyFilter(ClientKeys clientKeys,
+                             @Value("${photo.idempotency.max-entries:10000}") int maxEntries,
+                             @Value("${photo.idempotency.max-bytes:16777216}") long maxBytes,
+                             @Value("${photo.idempotency.ttl-ms:86400000}") long ttlMillis) {
+        this.clientKeys = clientKeys;
+        this.store = new IdempotencyStore(maxEntries, maxBytes, TimeUnit.MILLISECONDS.toNanos(ttlMillis));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod()) || request.getHeader(KEY_HEADER) == null) {
+            return true;
+        }
+        String path = path(request);
+        return !path.equals("/photos") && !path.equals("/photos/upload");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(KEY_HEADER);
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST, "Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        String path = path(request);
+        String key = clientKeys.of(request) + " " + path + " " + idempotencyKey;
+
+        MessageDigest fingerprint = sha256();
+        update(fingerprint, request.getMethod());
+        update(fingerprint, path);
+        update(fingerprint, mediaType(request.getContentType()));
+        update(fingerprint, Long.toString(request.getContentLengthLong()));
+        HttpServletRequest forwarded = request;
+        if (path.equals("/photos")) {
+            byte[] body = request.getInputStream().readNBytes(MAX_HASHED_BODY_BYTES + 1);
+            if (body.length > MAX_HASHED_BODY_BYTES) {
+                writeError(response, HttpStatus.PAYLOAD_TOO_LARGE, "Request body too large for an Idempotency-Key");
+                return;
+            }
+            fingerprint.update(body);
+            forwarded = new BufferedBodyRequest(request, body);
+        }
+
+        IdempotencyStore.Claim claim = store.claim(key, HexFormat.of().formatHex(fingerprint.digest()), System.nanoTime());
+        if (claim.outcome() == IdempotencyStore.Outcome.MISMATCH) {
+            writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    "This Idempotency-Key was already used for a different request");
+            return;
+        }
+        if (claim.outcome() == IdempotencyStore.Outcome.COMPLETED) {
+            replay(response, claim.response());
+            return;
+        }
+        if (claim.outcome() == IdempotencyStore.Outcome.IN_PROGRESS) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            writeError(response, HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress");
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(forwarded, wrapper);
+            int status = wrapper.getStatus();
+            byte[] body = wrapper.getContentAsByteArray();
+            // A request turned away (429, or 503 from a full bulkhead) did not run; let its retry through
+            if (status < 500 && status != HttpStatus.TOO_MANY_REQUESTS.value() && body.length <= MAX_BODY_BYTES) {
+                store.complete(key, new IdempotencyStore.StoredResponse(status, wrapper.getContentType(),
+                        wrapper.getHeader(HttpHeaders.LOCATION), body), System.nanoTime());
+                completed = true;
+            }
+            wrapper.copyBodyToResponse();
+        } finally {
+            if (!completed) {
+                store.release(key);
+            }
+        }
+    }
+
+    private static void replay(HttpServletResponse response, IdempotencyStore.StoredResponse stored) throws IOException {
+        response.setStatus(stored.status());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        if (stored.location() != null) {
+            response.setHeader(HttpHeaders.LOCATION, stored.location());
+        }
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private static void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"" + message + "\"}");
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    /**
+     * The media type without parameters: a client's retries of one multipart upload each get a
+     * new boundary.
+     */
+    private static String mediaType(String contentType) {
+        if (contentType == null) {
+            return "";
+        }
+        int semicolon = contentType.indexOf(';');
+        return (semicolon < 0 ? contentType : contentType.substring(0, semicolon)).trim().toLowerCase();
+    }
+
+    private static void update(MessageDigest digest, String field) {
+        digest.update(field.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** A request whose body was already read into memory. */
+    private static final class BufferedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        BufferedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The whole body is already here: report it available and read at once
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return in.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding == null ? StandardCharsets.ISO_8859_1 : Charset.forName(encoding);
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.photoserve.photo_api.admission;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Recent idempotency keys and the responses sent for them. A key is claimed when its first
+ * request starts and completed with the response once it is sent; retries with the same key then
+ * get that response back, or learn that the first request is still running. Each key remembers
+ * the fingerprint of its first request, and a different request reusing the key is refused.
+ *
+ * Bounded by entry count and by stored body bytes: past either limit the least recently used
+ * completed keys are dropped. Keys still in flight are never dropped, so a retry cannot overtake
+ * a running request; there are at most as many of them as requests being processed. A completed
+ * key also expires {@code ttlNanos} after it was completed.
+ */
+public class IdempotencyStore {
+
+    public enum Outcome { STARTED, IN_PROGRESS, COMPLETED, MISMATCH }
+
+    /** What a retry is answered with; {@code location} is null when the response had none. */
+    public record StoredResponse(int status, String contentType, String location, byte[] body) {
+    }
+
+    /** {@code response} is set only for {@link Outcome#COMPLETED}. */
+    public record Claim(Outcome outcome, StoredResponse response) {
+    }
+
+    private static final class Entry {
+        String fingerprint;
+        // Null while the first request is in flight
+        StoredResponse response;
+        long completedNanos;
+    }
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlNanos;
+    // Access order, so iteration starts at the least recently used key
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long storedBytes;
+
+    public IdempotencyStore(int maxEntries, long maxBytes, long ttlNanos) {
+        if (maxEntries < 1 || maxBytes < 1 || ttlNanos < 1) {
+            throw new IllegalArgumentException("Invalid limits for idempotency store");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttlNanos;
+    }
+
+    /**
+     * Claims {@code key} for a new request unless it is already known. The caller must follow a
+     * {@link Outcome#STARTED} claim with {@link #complete} or {@link #release}.
+     *
+     * @param fingerprint identifies the request; a known key claimed with another one gets
+     *                    {@link Outcome#MISMATCH}
+     */
+    public synchronized Claim claim(String key, String fingerprint, long nowNanos) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.response != null && nowNanos - entry.completedNanos >= ttlNanos) {
+            remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            entry = new Entry();
+            entry.fingerprint = fingerprint;
+            entries.put(key, entry);
+            evict();
+            return new Claim(Outcome.STARTED, null);
+        }
+        if (!entry.fingerprint.equals(fingerprint)) {
+            return new Claim(Outcome.MISMATCH, null);
+        }
+        if (entry.response == null) {
+            return new Claim(Outcome.IN_PROGRESS, null);
+        }
+        return new Claim(Outcome.COMPLETED, entry.response);
+    }
+
+    /**
+     * Records the response of a claimed key. A response larger than the whole store is not kept,
+     * and the key is released instead.
+     */
+    public synchronized void complete(String key, StoredResponse response, long nowNanos) {
+        Entry claimed = entries.get(key);
+        if (claimed == null || claimed.response != null) {
+            return;
+        }
+        entries.remove(key);
+        if (response.body().length > maxBytes) {
+            return;
+        }
+        Entry entry = new Entry();
+        entry.fingerprint = claimed.fingerprint;
+        entry.response = response;
+        entry.completedNanos = nowNanos;
+        entries.put(key, entry);
+        storedBytes += response.body().length;
+        evict();
+    }
+
+    /**
+     * Forgets a claimed key whose response is not worth replaying (e.g. a server error), so a
+     * retry runs again.
+     */
+    public synchronized void release(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.response == null) {
+            entries.remove(key);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long storedBytes() {
+        return storedBytes;
+    }
+
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null && entry.response != null) {
+            storedBytes -= entry.response.body().length;
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || storedBytes > maxBytes) && iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            if (entry.response != null) {
+                iterator.remove();
+                storedBytes -= entry.response.body().length;
+            }
+        }
+    }
+}
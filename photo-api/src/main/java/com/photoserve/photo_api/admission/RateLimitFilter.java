@@ -0,0 +1,114 @@
+package com.photoserve.photo_api.admission;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limits each client (its configured {@code X-API-Key}, or its address, see {@link ClientKeys})
+ * separately for uploads, full listings and everything else under {@code /photos}. Runs ahead of the
+ * bulkheads so a throttled client never takes a queue slot.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final ClientKeys clientKeys;
+    private final boolean enabled;
+    private final RateLimiter upload;
+    private final RateLimiter listing;
+    private final RateLimiter other;
+    private final long idleNanos;
+    private final ScheduledExecutorService evictor;
+
+    public RateLimitFilter(ClientKeys clientKeys,
+                           @Value("${photo.ratelimit.enabled:true}") boolean enabled,
+                           @Value("${photo.ratelimit.upload.rate-per-second:2}") double uploadRate,
+                           @Value("${photo.ratelimit.upload.burst:20}") int uploadBurst,
+                           @Value("${photo.ratelimit.listing.rate-per-second:5}") double listingRate,
+                           @Value("${photo.ratelimit.listing.burst:20}") int listingBurst,
+                           @Value("${photo.ratelimit.default.rate-per-second:100}") double defaultRate,
+                           @Value("${photo.ratelimit.default.burst:200}") int defaultBurst,
+                           @Value("${photo.ratelimit.idle-eviction-ms:300000}") long idleMillis) {
+        this.clientKeys = clientKeys;
+        this.enabled = enabled;
+        this.upload = new RateLimiter("upload", uploadRate, uploadBurst);
+        this.listing = new RateLimiter("listing", listingRate, listingBurst);
+        this.other = new RateLimiter("default", defaultRate, defaultBurst);
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, idleMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        evictor.shutdownNow();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RateLimiter limiter = select(request);
+        if (limiter != null) {
+            long waitNanos = limiter.tryAcquire(clientKeys.of(request), System.nanoTime());
+            if (waitNanos > 0) {
+                long retryAfter = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                response.getWriter().write("{\"error\":\"Too many requests, please slow down\"}");
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private RateLimiter select(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.equals("/photos") && !path.startsWith("/photos/")) {
+            return null;
+        }
+        if ("POST".equals(request.getMethod())
+                && (path.equals("/photos/upload") || path.equals("/photos/import"))) {
+            return upload;
+        }
+        if ("GET".equals(request.getMethod())
+                && (path.equals("/photos") || path.equals("/photos/export") || path.startsWith("/photos/sprites"))) {
+            return listing;
+        }
+        return other;
+    }
+
+    void evictIdle() {
+        long now = System.nanoTime();
+        upload.evictIdle(now, idleNanos);
+        listing.evictIdle(now, idleNanos);
+        other.evictIdle(now, idleNanos);
+    }
+}
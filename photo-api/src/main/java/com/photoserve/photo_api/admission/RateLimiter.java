@@ -0,0 +1,66 @@
+package com.photoserve.photo_api.admission;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-client token bucket, implemented as GCRA (generic cell rate algorithm): each client's whole
+ * state is one "theoretical arrival time" held in an {@link AtomicLong} and updated with a
+ * compare-and-set, so checking a request takes no lock. The map itself is a
+ * {@link ConcurrentHashMap}, whose bins are locked independently only when a client is first seen.
+ *
+ * A client may send {@code burst} requests at once and then {@code ratePerSecond} on average.
+ */
+public class RateLimiter {
+
+    private final String name;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    public RateLimiter(String name, double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Invalid limits for rate limiter " + name);
+        }
+        this.name = name;
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * burst;
+    }
+
+    /**
+     * @return 0 if the request is allowed, otherwise how long the client should wait, in nanoseconds
+     */
+    public long tryAcquire(String client, long nowNanos) {
+        AtomicLong arrival = buckets.computeIfAbsent(client, key -> new AtomicLong(nowNanos));
+        while (true) {
+            long current = arrival.get();
+            long next = Math.max(current, nowNanos) + emissionIntervalNanos;
+            long excess = next - nowNanos - burstToleranceNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drops clients whose bucket has been full for at least {@code idleNanos}. Such a client
+     * behaves exactly like one never seen before, so removing it loses nothing.
+     */
+    public int evictIdle(long nowNanos, long idleNanos) {
+        int before = buckets.size();
+        buckets.values().removeIf(arrival -> nowNanos - arrival.get() >= idleNanos);
+        return before - buckets.size();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+}
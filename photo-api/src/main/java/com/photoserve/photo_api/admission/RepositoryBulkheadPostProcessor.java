@@ -0,0 +1,41 @@
+package com.photoserve.photo_api.admission;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Routes every Spring Data repository call through the repository bulkhead, keeping the number
+ * of threads waiting on the JDBC pool bounded. The limit should not exceed the pool size.
+ */
+@Component
+public class RepositoryBulkheadPostProcessor implements BeanPostProcessor {
+
+    // Resolved lazily; post-processors are created before ordinary beans
+    private final ObjectProvider<Bulkheads> bulkheads;
+
+    public RepositoryBulkheadPostProcessor(ObjectProvider<Bulkheads> bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof Repository)) {
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setTarget(bean);
+        for (Class<?> type : ClassUtils.getAllInterfaces(bean)) {
+            if (Repository.class.isAssignableFrom(type)) {
+                proxyFactory.addInterface(type);
+            }
+        }
+        proxyFactory.addAdvice((MethodInterceptor) invocation ->
+                bulkheads.getObject().repository().call(invocation::proceed));
+        return proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,58 @@
+package com.photoserve.photo_api.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent hashing of keys onto a fixed set of members. Each member is placed on the ring at
+ * {@code virtualNodes} points, so keys spread evenly and adding or removing a member only moves
+ * the keys of that member.
+ */
+public final class HashRing {
+
+    private final List<String> members;
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    public HashRing(List<String> members, int virtualNodes) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one member");
+        }
+        this.members = List.copyOf(members);
+        for (String member : this.members) {
+            for (int i = 0; i < Math.max(1, virtualNodes); i++) {
+                ring.put(hash(member + "#" + i), member);
+            }
+        }
+    }
+
+    public String ownerOf(String key) {
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public List<String> getMembers() {
+        return members;
+    }
+
+    /**
+     * First eight bytes of MD5. Every node must place keys identically, so the hash has to be
+     * well spread and fixed across JVMs.
+     */
+    static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xff);
+            }
+            return hash;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.photoserve.photo_api.cluster;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Splits derivative caches across the API replicas. Every node knows the same static member list
+ * ({@code photo.peers.members}, base URLs) and places each key on a {@link HashRing}; a key is
+ * computed and cached only by its owner, and the other nodes ask the owner over HTTP. A peer that
+ * does not answer is skipped for {@code retryAfterMillis}, and callers compute locally meanwhile.
+ *
+ * With no members configured every key is local, which is the single-node behaviour. With members,
+ * a shared {@code photo.peers.token} is required: peers send it on every request and the internal
+ * peer endpoints refuse requests without it. A node without a token refuses all peer requests.
+ */
+@Component
+public class PeerCache implements MeterBinder {
+
+    public static final String TOKEN_HEADER = "X-Peer-Token";
+
+    private static final Logger log = LoggerFactory.getLogger(PeerCache.class);
+
+    /** Status and body of a peer's answer. */
+    public record Response(int status, byte[] body) {
+    }
+
+    private final String self;
+    // Null when running as a single node
+    private final HashRing ring;
+    private final Duration timeout;
+    private final long retryAfterNanos;
+    private final String token;
+    private final HttpClient http;
+    private final Map<String, Long> downUntil = new ConcurrentHashMap<>();
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public PeerCache(@Value("${photo.peers.self:}") String self,
+                     @Value("${photo.peers.members:}") String members,
+                     @Value("${photo.peers.virtual-nodes:160}") int virtualNodes,
+                     @Value("${photo.peers.timeout-ms:2000}") long timeoutMillis,
+                     @Value("${photo.peers.retry-after-ms:5000}") long retryAfterMillis,
+                     @Value("${photo.peers.token:}") String token) {
+        List<String> memberList = new ArrayList<>();
+        for (String member : members.split(",")) {
+            if (!member.isBlank()) {
+                memberList.add(normalize(member));
+            }
+        }
+        this.self = normalize(self);
+        if (memberList.isEmpty()) {
+            this.ring = null;
+        } else {
+            if (token.isBlank()) {
+                throw new IllegalStateException("photo.peers.token must be set when photo.peers.members is");
+            }
+            if (!memberList.contains(this.self)) {
+                throw new IllegalStateException("photo.peers.self '" + self + "' must be one of photo.peers.members " + memberList);
+            }
+            this.ring = new HashRing(memberList, virtualNodes);
+            log.info("Partitioning derivative caches over {} peers as {}", memberList.size(), this.self);
+        }
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.retryAfterNanos = Duration.ofMillis(retryAfterMillis).toNanos();
+        this.token = token;
+        this.http = HttpClient.newBuilder().connectTimeout(this.timeout).build();
+    }
+
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    /**
+     * @return the base URL of the peer that owns {@code key}, or null if this node owns it or the
+     *         owner is currently marked down
+     */
+    public String remoteOwnerOf(String key) {
+        if (ring == null) {
+            return null;
+        }
+        String owner = ring.ownerOf(key);
+        if (owner.equals(self)) {
+            return null;
+        }
+        Long until = downUntil.get(owner);
+        if (until != null) {
+            if (System.nanoTime() - until < 0) {
+                return null;
+            }
+            downUntil.remove(owner, until);
+        }
+        return owner;
+    }
+
+    /**
+     * @param path absolute path with query, already encoded
+     * @return the peer's answer, or null if it could not be reached (it is then marked down)
+     */
+    public Response get(String owner, String path) {
+        HttpResponse<byte[]> response = send(owner, "GET", path, HttpResponse.BodyHandlers.ofByteArray());
+        if (response == null) {
+            return null;
+        }
+        if (response.statusCode() == 200) {
+            remoteHits.increment();
+        }
+        return new Response(response.statusCode(), response.body());
+    }
+
+    /**
+     * Best-effort DELETE, for invalidations; a peer that misses one serves the stale entry until
+     * its own cache evicts it.
+     */
+    public void delete(String owner, String path) {
+        send(owner, "DELETE", path, HttpResponse.BodyHandlers.discarding());
+    }
+
+    /**
+     * @return whether a request to an internal peer endpoint carries the shared token; always false
+     *         when no token is set
+     */
+    public boolean isAuthorized(String presentedToken) {
+        return !token.isEmpty() && presentedToken != null
+                && MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), presentedToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private <T> HttpResponse<T> send(String owner, String method, String path, HttpResponse.BodyHandler<T> handler) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(owner + path))
+                .timeout(timeout)
+                .method(method, HttpRequest.BodyPublishers.noBody());
+        if (!token.isEmpty()) {
+            request.header(TOKEN_HEADER, token);
+        }
+        try {
+            return http.send(request.build(), handler);
+        } catch (IOException e) {
+            markDown(owner, e);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private void markDown(String owner, IOException cause) {
+        failures.increment();
+        if (downUntil.put(owner, System.nanoTime() + retryAfterNanos) == null) {
+            log.warn("Peer {} unreachable, computing its keys locally for now: {}", owner, cause.toString());
+        }
+    }
+
+    private static String normalize(String url) {
+        String trimmed = url.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+
+    public long getRemoteHits() {
+        return remoteHits.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("peer.cache.remote", this, PeerCache::getRemoteHits)
+                .description("Derivatives served by the owning peer")
+                .register(registry);
+        FunctionCounter.builder("peer.cache.failures", this, PeerCache::getFailures)
+                .description("Requests to a peer that could not be completed")
+                .register(registry);
+    }
+}
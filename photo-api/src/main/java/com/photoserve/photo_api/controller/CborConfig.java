@@ -0,0 +1,42 @@
+package com.photoserve.photo_api.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Serves every JSON response as CBOR ({@code application/cbor}) to clients that ask for it in
+ * {@code Accept}. The listing is written straight from the entities by a streaming generator, with
+ * the same fields and names as the JSON, but with binary numbers and length-prefixed strings, so
+ * there is no quoting, escaping or number parsing to undo on the client.
+ */
+@Configuration
+public class CborConfig implements WebMvcConfigurer {
+
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    public CborConfig(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.objectMapperBuilder = objectMapperBuilder;
+    }
+
+    /**
+     * Same modules and settings as the application's JSON mapper, over a CBOR factory.
+     */
+    static ObjectMapper cborMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.factory(new CBORFactory()).build();
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Replace the framework's default CBOR converter, which ignores spring.jackson.* settings
+        converters.removeIf(MappingJackson2CborHttpMessageConverter.class::isInstance);
+        converters.add(new MappingJackson2CborHttpMessageConverter(cborMapper(objectMapperBuilder)));
+    }
+}
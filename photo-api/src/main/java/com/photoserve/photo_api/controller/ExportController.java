@@ -0,0 +1,95 @@
+package com.photoserve.photo_api.controller;
+
+import com.photoserve.photo_api.admission.Bulkhead;
+import com.photoserve.photo_api.admission.Bulkheads;
+import com.photoserve.photo_api.model.Photo;
+import com.photoserve.photo_api.repository.PhotoRepository;
+import com.photoserve.photo_api.service.ZipExportService;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@RestController
+@RequestMapping("/photos")
+@CrossOrigin(origins = "*", allowedHeaders = "*", methods = {RequestMethod.GET, RequestMethod.OPTIONS})
+public class ExportController {
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private ZipExportService zipExportService;
+
+    @Autowired
+    private Bulkheads bulkheads;
+
+    @Value("${photo.export.timeout-ms:3600000}")
+    private long timeoutMillis;
+
+    /**
+     * Streams a ZIP of the selected photos. Select either explicit {@code ids} or every photo whose
+     * filename starts with {@code prefix} (e.g. {@code PXL_202510} for a trip).
+     *
+     * The archive is written from an async task with its own {@code photo.export.timeout-ms}, so a
+     * large export is not cut off by the short timeout every other async request keeps. It streams
+     * originals like a download, so it holds a download bulkhead permit until the task ends; the
+     * admission filter cannot, as its permit would be returned when the request goes async.
+     */
+    @SuppressWarnings("null")
+    @GetMapping("/export")
+    public WebAsyncTask<Void> exportPhotos(
+            @RequestParam(value = "ids", required = false) List<Long> ids,
+            @RequestParam(value = "prefix", required = false) String prefix,
+            HttpServletResponse response) {
+        if ((ids == null || ids.isEmpty()) == (prefix == null || prefix.isEmpty())) {
+            // The response is written by the async task, so errors go through ResponseStatusException
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Provide either 'ids' or 'prefix'");
+        }
+
+        List<Photo> photos;
+        if (ids != null && !ids.isEmpty()) {
+            photos = new ArrayList<>();
+            photoRepository.findAllById(ids).forEach(photos::add);
+        } else {
+            photos = photoRepository.findByFilenameStartingWithOrderByIdAsc(prefix);
+        }
+        if (photos.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No photos match the selection");
+        }
+
+        // Rejected with 503 and Retry-After before anything is written
+        Bulkhead bulkhead = bulkheads.download();
+        bulkhead.acquire();
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                bulkhead.release();
+            }
+        };
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"photos-export.zip\"");
+        WebAsyncTask<Void> task = new WebAsyncTask<>(timeoutMillis, () -> {
+            try {
+                zipExportService.writeZip(photos, response.getOutputStream());
+                return null;
+            } finally {
+                release.run();
+            }
+        });
+        // Also covers a task that never started
+        task.onCompletion(release);
+        return task;
+    }
+}
@@ -0,0 +1,60 @@
+package com.photoserve.photo_api.controller;
+
+import com.photoserve.photo_api.service.ImportProgress;
+import com.photoserve.photo_api.service.ImportService;
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/photos")
+@CrossOrigin(origins = "*", allowedHeaders = "*", methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.OPTIONS})
+public class ImportController {
+
+    @Autowired
+    private ImportService importService;
+
+    /**
+     * Imports every image in a ZIP, TAR or TAR.GZ sent as the raw request body (not multipart, so
+     * the archive is never buffered or size-limited by multipart handling). Pass an
+     * {@code importId} to poll {@code /photos/imports/{importId}} while the upload is running.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importArchive(@RequestParam(value = "importId", required = false) String importId,
+                                           HttpServletRequest request) {
+        String id = (importId == null || importId.isBlank()) ? UUID.randomUUID().toString() : importId;
+        ImportProgress progress = importService.begin(id);
+        if (progress == null) {
+            Map<String, String> error = new HashMap<>();
+            error.put("importId", "An import with this id is already running");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        }
+
+        try {
+            return ResponseEntity.ok(importService.importArchive(progress, request.getInputStream()));
+        } catch (IOException | RuntimeException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Failed to import archive: " + e.getMessage());
+            error.put("progress", progress);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
+    @GetMapping("/imports/{importId}")
+    public ResponseEntity<?> getImportProgress(@PathVariable String importId) {
+        ImportProgress progress = importService.getProgress(importId);
+        if (progress == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Import " + importId + " not found.");
+        }
+        return ResponseEntity.ok(progress);
+    }
+}
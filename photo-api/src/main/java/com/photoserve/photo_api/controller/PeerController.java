@@ -0,0 +1,60 @@
+package com.photoserve.photo_api.controller;
+
+import com.photoserve.photo_api.admission.BulkheadFullException;
+import com.photoserve.photo_api.cluster.PeerCache;
+import com.photoserve.photo_api.service.ThumbnailService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Endpoints the replicas call on each other to share derivative caches. They always answer from
+ * this node, so a request is never forwarded twice even when peers disagree on membership.
+ */
+@RestController
+@RequestMapping("/internal/peer")
+public class PeerController {
+
+    @Autowired
+    private PeerCache peerCache;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @GetMapping("/thumbnails/{filename}")
+    public ResponseEntity<byte[]> getThumbnail(@PathVariable String filename,
+                                               @RequestParam("size") int size,
+                                               @RequestHeader(value = PeerCache.TOKEN_HEADER, required = false) String token) {
+        if (!peerCache.isAuthorized(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (size < ThumbnailService.MIN_SIZE || size > ThumbnailService.MAX_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        byte[] thumbnail;
+        try {
+            thumbnail = thumbnailService.getLocalThumbnail(filename, size);
+        } catch (BulkheadFullException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        if (thumbnail == null) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+        }
+        return ResponseEntity.ok().contentType(MediaType.IMAGE_JPEG).body(thumbnail);
+    }
+
+    @DeleteMapping("/thumbnails/{filename}")
+    public ResponseEntity<Void> evictThumbnails(@PathVariable String filename,
+                                                @RequestHeader(value = PeerCache.TOKEN_HEADER, required = false) String token) {
+        if (!peerCache.isAuthorized(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        thumbnailService.evictLocal(filename);
+        return ResponseEntity.noContent().build();
+    }
+}
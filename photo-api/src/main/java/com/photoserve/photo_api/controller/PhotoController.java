@@ -1,8 +1,19 @@
 package com.photoserve.photo_api.controller;
 
+import com.photoserve.photo_api.admission.BulkheadFullException;
+import com.photoserve.photo_api.model.IngestJob;
 import com.photoserve.photo_api.model.Photo;
 import com.photoserve.photo_api.repository.PhotoRepository;
+import com.photoserve.photo_api.repository.TimelineCountRepository;
+import com.photoserve.photo_api.service.ChangeLogService;
 import com.photoserve.photo_api.service.FileStorageService;
+import com.photoserve.photo_api.service.FilenameIndex;
+import com.photoserve.photo_api.service.GeoIndex;
+import com.photoserve.photo_api.service.IngestJobService;
+import com.photoserve.photo_api.service.IngestService;
+import com.photoserve.photo_api.service.PhotoEventBroadcaster;
+import com.photoserve.photo_api.service.SimilarityIndex;
+import com.photoserve.photo_api.service.TrashService;
 import jakarta.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,8 +29,11 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.net.MalformedURLException;
+import java.net.URI;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -36,9 +50,73 @@ public class PhotoController {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private IngestService ingestService;
+
+    @Autowired
+    private SimilarityIndex similarityIndex;
+
+    @Autowired
+    private IngestJobService ingestJobService;
+
+    @Autowired
+    private ChangeLogService changeLogService;
+
+    @Autowired
+    private PhotoEventBroadcaster photoEventBroadcaster;
+
+    @Autowired
+    private TrashService trashService;
+
+    @Autowired
+    private FilenameIndex filenameIndex;
+
+    @Autowired
+    private GeoIndex geoIndex;
+
+    @Autowired
+    private TimelineCountRepository timelineCountRepository;
+
+    /** One entry of the similar photos list. */
+    public record SimilarPhoto(Photo photo, int distance) {
+    }
+
+    /**
+     * Also returns the change log position in {@code X-Change-Seq}, read before the listing, for
+     * clients that continue with {@link #getChanges}. Changes made during the listing are then
+     * delivered again, which is harmless since each one carries the photo's state.
+     */
     @GetMapping
-    public List<Photo> getAllPhotos() {
-        return photoRepository.findAll();
+    public ResponseEntity<List<Photo>> getAllPhotos() {
+        long position = changeLogService.latestSeq();
+        return ResponseEntity.ok()
+            .header("X-Change-Seq", Long.toString(position))
+            .body(photoRepository.findAll());
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(@RequestParam("since") long since,
+                                        @RequestParam(value = "limit", defaultValue = "500") int limit) {
+        if (since < 0 || limit < 1 || limit > ChangeLogService.MAX_LIMIT) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "since must not be negative and limit must be between 1 and " + ChangeLogService.MAX_LIMIT);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+        ChangeLogService.ChangePage page = changeLogService.changesSince(since, limit);
+        if (page == null) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Changes after " + since + " are no longer available; resync from GET /photos");
+            return ResponseEntity.status(HttpStatus.GONE).body(error);
+        }
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping("/storage/savings")
+    public Map<String, Object> getStorageSavings() {
+        Map<String, Object> savings = new HashMap<>();
+        savings.put("totalBytesSaved", photoRepository.sumBytesSaved());
+        savings.put("optimizedPhotos", photoRepository.countByOptimizedAtIsNotNull());
+        return savings;
     }
 
     @SuppressWarnings("null")
@@ -50,6 +128,108 @@ public class PhotoController {
                 .body("Photo with ID " + id + " not found."));
     }
 
+    @SuppressWarnings("null")
+    @GetMapping("/id/{id}/similar")
+    public ResponseEntity<?> getSimilarPhotos(@PathVariable Long id,
+                                              @RequestParam(value = "maxDistance", defaultValue = "10") int maxDistance) {
+        Optional<Photo> photoOptional = photoRepository.findById(id);
+        if (!photoOptional.isPresent()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Photo with ID " + id + " not found.");
+        }
+        Long hash = photoOptional.get().getPerceptualHash();
+        if (hash == null) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Photo with ID " + id + " has no perceptual hash");
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(error);
+        }
+        if (maxDistance < 0 || maxDistance > 64) {
+            Map<String, String> error = new HashMap<>();
+            error.put("maxDistance", "maxDistance must be between 0 and 64");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+
+        Map<Long, Integer> distances = new LinkedHashMap<>();
+        for (SimilarityIndex.Match match : similarityIndex.search(hash, maxDistance)) {
+            if (match.photoId() != id) {
+                distances.put(match.photoId(), match.distance());
+            }
+        }
+        Map<Long, Photo> photos = new HashMap<>();
+        photoRepository.findAllById(distances.keySet()).forEach(photo -> photos.put(photo.getId(), photo));
+
+        List<SimilarPhoto> similar = new ArrayList<>();
+        distances.forEach((photoId, distance) -> {
+            Photo photo = photos.get(photoId);
+            if (photo != null) {
+                similar.add(new SimilarPhoto(photo, distance));
+            }
+        });
+        return ResponseEntity.ok(similar);
+    }
+
+    /**
+     * Type-ahead over filenames, answered from {@link FilenameIndex} without a database query.
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggest(@RequestParam("q") String query,
+                                     @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        if (query.isBlank() || query.length() > 255 || limit < 1 || limit > FilenameIndex.MAX_LIMIT) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "q must be 1 to 255 characters and limit must be between 1 and " + FilenameIndex.MAX_LIMIT);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+        return ResponseEntity.ok(filenameIndex.suggest(query, limit));
+    }
+
+    /**
+     * Photo counts per map cell for a map view, answered from {@link GeoIndex}. {@code bbox} is
+     * {@code west,south,east,north} in degrees; {@code zoom} is the map's zoom level.
+     */
+    @GetMapping("/geo")
+    public ResponseEntity<?> getClusters(@RequestParam("bbox") String bbox, @RequestParam("zoom") int zoom) {
+        double[] box = parseBbox(bbox);
+        if (box == null || zoom < 0 || zoom > GeoIndex.MAX_ZOOM) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "bbox must be west,south,east,north in degrees and zoom must be between 0 and " + GeoIndex.MAX_ZOOM);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+        return ResponseEntity.ok(geoIndex.clusters(box[0], box[1], box[2], box[3], zoom));
+    }
+
+    /**
+     * Photo counts by capture date from the timeline rollups: the years without {@code period},
+     * the months of a year with {@code period=2025}, the days of a month with
+     * {@code period=2025-10}. Empty periods and photos without a capture time are left out.
+     */
+    @GetMapping("/timeline")
+    public ResponseEntity<?> getTimeline(@RequestParam(value = "period", required = false) String period) {
+        if (period != null && !period.matches("\\d{4}(-\\d{2})?")) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "period must be a year (2025) or a month (2025-10)");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+        String pattern = period == null ? "____" : period + "-__";
+        return ResponseEntity.ok(timelineCountRepository.findNonEmpty(pattern));
+    }
+
+    private static double[] parseBbox(String bbox) {
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) {
+            return null;
+        }
+        double[] box = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                box[i] = Double.parseDouble(parts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        boolean longitudesValid = Math.abs(box[0]) <= 180 && Math.abs(box[2]) <= 180;
+        boolean latitudesValid = Math.abs(box[1]) <= 90 && Math.abs(box[3]) <= 90 && box[1] <= box[3];
+        return longitudesValid && latitudesValid ? box : null;
+    }
+
     @GetMapping("/file/{filename}")
     public ResponseEntity<?> getPhotoByFilename(@PathVariable String filename) {
         return photoRepository.findByFilename(filename)
@@ -77,8 +257,14 @@ public class PhotoController {
         }
 
         try {
+            trashService.discard(photo.getFilename());
             Photo savedPhoto = photoRepository.save(photo);
+            ingestService.onSaved(savedPhoto);
+            photoEventBroadcaster.publish(PhotoEventBroadcaster.CREATED, savedPhoto);
             return ResponseEntity.status(HttpStatus.CREATED).body(savedPhoto);
+        } catch (BulkheadFullException e) {
+            // Repository bulkhead full; answered with 503 and Retry-After
+            throw e;
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to save photo: " + e.getMessage());
@@ -89,16 +275,26 @@ public class PhotoController {
     @DeleteMapping("/id/{id}")
     public ResponseEntity<?> deletePhotoById(@PathVariable Long id) {
         return photoRepository.findById(id).map(photo -> {
-            photoRepository.delete(photo);
+            trashService.trash(photo);
+            photoEventBroadcaster.publish(PhotoEventBroadcaster.DELETED, photo);
             return ResponseEntity.ok("Photo with ID " + id + " deleted successfully.");
         }).orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
             .body("Photo with ID " + id + " not found."));
     }
     @SuppressWarnings("null")
+    @PostMapping("/id/{id}/restore")
+    public ResponseEntity<?> restorePhoto(@PathVariable Long id) {
+        return trashService.restore(id)
+            .<ResponseEntity<?>>map(photo -> ResponseEntity.ok(photo))
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body("Deleted photo with ID " + id + " not found."));
+    }
+    @SuppressWarnings("null")
     @DeleteMapping("/file/{filename}")
     public ResponseEntity<?> deletePhotoByFilename(@PathVariable String filename) {
         return photoRepository.findByFilename(filename).map(photo -> {
-            photoRepository.delete(photo);
+            trashService.trash(photo);
+            photoEventBroadcaster.publish(PhotoEventBroadcaster.DELETED, photo);
             return ResponseEntity.ok("Photo with filename '" + filename + "' deleted successfully.");
         }).orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
             .body("Photo with filename '" + filename + "' not found."));
@@ -106,7 +302,12 @@ public class PhotoController {
 
     @PostMapping("/upload")
     public ResponseEntity<?> uploadPhoto(@RequestParam("file") MultipartFile file,
-                                        @RequestParam(value = "useOriginalName", defaultValue = "false") boolean useOriginalName) {
+                                        @RequestParam(value = "useOriginalName", defaultValue = "false") boolean useOriginalName,
+                                        @RequestParam(value = "async", defaultValue = "false") boolean async) {
+        String storedFilename = null;
+        // A generated name is this upload's own; an original name may still be another photo's file
+        boolean ownsFile = !useOriginalName;
+        boolean handedOff = false;
         try {
             // Validate file
             if (file.isEmpty()) {
@@ -124,8 +325,10 @@ public class PhotoController {
             }
 
             // Store the file
-            String storedFilename;
             if (useOriginalName) {
+                // The name now belongs to this upload, even if a deleted photo had it; it is taken over
+                // before the file is written, so the trash collector cannot remove the new file
+                trashService.discard(fileStorageService.originalFilename(file));
                 storedFilename = fileStorageService.storeFileWithOriginalName(file);
             } else {
                 storedFilename = fileStorageService.storeFile(file);
@@ -137,10 +340,29 @@ public class PhotoController {
                 error.put("filename", "A photo with this filename already exists in database");
                 return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
             }
+            ownsFile = true;
+
+            // Async mode: the raw file is stored, post-processing and the photo row are left to a job
+            if (async) {
+                IngestJob job = ingestJobService.submit(storedFilename, originalFilename);
+                handedOff = true;
+                Map<String, Object> response = new HashMap<>();
+                response.put("jobId", job.getId());
+                response.put("status", job.getStatus());
+                response.put("statusUrl", "/photos/jobs/" + job.getId());
+                response.put("originalFilename", originalFilename);
+                response.put("storedFilename", storedFilename);
+                response.put("fileSize", file.getSize());
+                return ResponseEntity.accepted().location(URI.create("/photos/jobs/" + job.getId())).body(response);
+            }
 
             // Save photo metadata to database
             Photo photo = new Photo(storedFilename);
+            ingestService.analyze(photo);
             Photo savedPhoto = photoRepository.save(photo);
+            handedOff = true;
+            ingestService.onSaved(savedPhoto);
+            photoEventBroadcaster.publish(PhotoEventBroadcaster.CREATED, savedPhoto);
 
             // Create response with file info
             Map<String, Object> response = new HashMap<>();
@@ -152,6 +374,12 @@ public class PhotoController {
 
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
 
+        } catch (BulkheadFullException e) {
+            // Answered with 503 and Retry-After; the retry stores the file again, so drop this copy
+            if (storedFilename != null && ownsFile && !handedOff) {
+                fileStorageService.deleteFile(storedFilename);
+            }
+            throw e;
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to upload file: " + e.getMessage());
@@ -159,6 +387,15 @@ public class PhotoController {
         }
     }
 
+    @SuppressWarnings("null")
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<?> getIngestJob(@PathVariable Long id) {
+        return ingestJobService.getJob(id)
+            .<ResponseEntity<?>>map(job -> ResponseEntity.ok(job))
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body("Job with ID " + id + " not found."));
+    }
+
     @SuppressWarnings("null")
     @GetMapping("/download/file/{filename}")
     public ResponseEntity<Resource> downloadPhoto(@PathVariable String filename) {
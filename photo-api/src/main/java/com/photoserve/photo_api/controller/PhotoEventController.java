@@ -0,0 +1,42 @@
+package com.photoserve.photo_api.controller;
+
+import com.photoserve.photo_api.service.PhotoEventBroadcaster;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/photos")
+@CrossOrigin(origins = "*", allowedHeaders = "*", methods = {RequestMethod.GET, RequestMethod.OPTIONS})
+public class PhotoEventController {
+
+    @Autowired
+    private PhotoEventBroadcaster photoEventBroadcaster;
+
+    /**
+     * Server-Sent Events stream of {@code photo-created}, {@code photo-updated} and
+     * {@code photo-deleted} events ({@code {"id", "filename"}}), and {@code resync} when the
+     * client missed events and has to reload the list.
+     *
+     * The body type must stay {@link SseEmitter} rather than a wildcard: Spring picks the streaming
+     * return value handler from the declared generic type.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamEvents(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        SseEmitter emitter = photoEventBroadcaster.subscribe(lastEventId);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .build();
+        }
+        return ResponseEntity.ok()
+            .header("X-Accel-Buffering", "no")
+            .body(emitter);
+    }
+}
@@ -0,0 +1,203 @@
+package com.photoserve.photo_api.controller;
+
+import com.photoserve.photo_api.admission.BulkheadFullException;
+import com.photoserve.photo_api.model.Photo;
+import com.photoserve.photo_api.repository.PhotoRepository;
+import com.photoserve.photo_api.service.SpriteService;
+import com.photoserve.photo_api.service.ThumbnailService;
+import com.photoserve.photo_api.service.TileService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/photos")
+@CrossOrigin(origins = "*", allowedHeaders = "*", methods = {RequestMethod.GET, RequestMethod.OPTIONS})
+public class ThumbnailController {
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private SpriteService spriteService;
+
+    @Autowired
+    private TileService tileService;
+
+    @SuppressWarnings("null")
+    @GetMapping("/id/{id}/thumbnail")
+    public ResponseEntity<?> getThumbnail(@PathVariable Long id,
+                                          @RequestParam(value = "size", defaultValue = "256") int size) {
+        if (size < ThumbnailService.MIN_SIZE || size > ThumbnailService.MAX_SIZE) {
+            return badRequest("size", "size must be between " + ThumbnailService.MIN_SIZE + " and " + ThumbnailService.MAX_SIZE);
+        }
+        return photoRepository.findById(id).<ResponseEntity<?>>map(photo -> {
+            byte[] thumbnail;
+            try {
+                thumbnail = thumbnailService.getThumbnail(photo.getFilename(), size);
+            } catch (BulkheadFullException e) {
+                // Decode budget exhausted; answered with 503 and Retry-After
+                throw e;
+            } catch (RuntimeException e) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+            if (thumbnail == null) {
+                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.IMAGE_JPEG)
+                    .cacheControl(CacheControl.maxAge(1, TimeUnit.DAYS))
+                    .body(thumbnail);
+        }).orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+            .body("Photo with ID " + id + " not found."));
+    }
+
+    /**
+     * Deep Zoom descriptor in its JSON form, which viewers such as OpenSeadragon accept as a tile
+     * source. Tiles are at {@code Url + level + "/" + column + "_" + row + ".jpg"}.
+     */
+    @SuppressWarnings("null")
+    @GetMapping("/id/{id}/tiles")
+    public ResponseEntity<?> getTileDescriptor(@PathVariable Long id) {
+        return photoRepository.findById(id).<ResponseEntity<?>>map(photo -> {
+            TileService.Pyramid pyramid;
+            try {
+                pyramid = tileService.getPyramid(photo.getFilename());
+            } catch (BulkheadFullException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+            if (pyramid == null) {
+                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+            }
+            Map<String, Object> image = new LinkedHashMap<>();
+            image.put("xmlns", "http://schemas.microsoft.com/deepzoom/2008");
+            image.put("Url", "/photos/id/" + id + "/tiles/");
+            image.put("Format", "jpg");
+            image.put("Overlap", pyramid.overlap());
+            image.put("TileSize", pyramid.tileSize());
+            image.put("Size", Map.of("Width", pyramid.width(), "Height", pyramid.height()));
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS))
+                    .body(Map.of("Image", image));
+        }).orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+            .body("Photo with ID " + id + " not found."));
+    }
+
+    @SuppressWarnings("null")
+    @GetMapping({"/id/{id}/tiles/{level}/{column:\\d+}_{row:\\d+}", "/id/{id}/tiles/{level}/{column:\\d+}_{row:\\d+}.jpg"})
+    public ResponseEntity<?> getTile(@PathVariable Long id, @PathVariable int level,
+                                     @PathVariable int column, @PathVariable int row) {
+        return photoRepository.findById(id).<ResponseEntity<?>>map(photo -> {
+            byte[] tile;
+            try {
+                tile = tileService.getTile(photo.getFilename(), level, column, row);
+            } catch (BulkheadFullException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                // Outside the pyramid, or the file is gone
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+            if (tile == null) {
+                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.IMAGE_JPEG)
+                    .cacheControl(CacheControl.maxAge(1, TimeUnit.DAYS))
+                    .body(tile);
+        }).orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+            .body("Photo with ID " + id + " not found."));
+    }
+
+    /**
+     * Coordinate map for a page of photos. The sprite itself is served by
+     * {@link #getSpriteImage} for the same parameters, so clients make one image request per page.
+     */
+    @GetMapping("/sprites")
+    public ResponseEntity<?> getSprite(@RequestParam("ids") List<Long> ids,
+                                       @RequestParam(value = "tile", defaultValue = "128") int tile) {
+        ResponseEntity<?> invalid = validate(ids, tile);
+        if (invalid != null) {
+            return invalid;
+        }
+        SpriteService.SpriteSheet layout = spriteService.getLayout(loadInOrder(ids), tile);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("sprite", "/photos/sprites/image?ids=" + joinIds(ids) + "&tile=" + tile);
+        response.put("tile", layout.tile());
+        response.put("width", layout.width());
+        response.put("height", layout.height());
+        response.put("tiles", layout.tiles());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/sprites/image")
+    public ResponseEntity<?> getSpriteImage(@RequestParam("ids") List<Long> ids,
+                                            @RequestParam(value = "tile", defaultValue = "128") int tile) {
+        ResponseEntity<?> invalid = validate(ids, tile);
+        if (invalid != null) {
+            return invalid;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS))
+                .body(spriteService.getImage(loadInOrder(ids), tile));
+    }
+
+    private ResponseEntity<?> validate(List<Long> ids, int tile) {
+        if (ids.isEmpty() || ids.size() > SpriteService.MAX_PHOTOS) {
+            return badRequest("ids", "Between 1 and " + SpriteService.MAX_PHOTOS + " photo IDs are required");
+        }
+        if (tile < ThumbnailService.MIN_SIZE || tile > ThumbnailService.MAX_SIZE / 2) {
+            return badRequest("tile", "tile must be between " + ThumbnailService.MIN_SIZE + " and " + ThumbnailService.MAX_SIZE / 2);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("null")
+    private List<Photo> loadInOrder(List<Long> ids) {
+        Map<Long, Photo> byId = new HashMap<>();
+        photoRepository.findAllById(ids).forEach(photo -> byId.put(photo.getId(), photo));
+        List<Photo> photos = new ArrayList<>();
+        for (Long id : ids) {
+            Photo photo = byId.remove(id);
+            if (photo != null) {
+                photos.add(photo);
+            }
+        }
+        return photos;
+    }
+
+    private static String joinIds(List<Long> ids) {
+        StringBuilder joined = new StringBuilder();
+        for (Long id : ids) {
+            if (joined.length() > 0) {
+                joined.append(',');
+            }
+            joined.append(id);
+        }
+        return joined.toString();
+    }
+
+    private static ResponseEntity<?> badRequest(String field, String message) {
+        Map<String, String> error = new HashMap<>();
+        error.put(field, message);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+}
@@ -1,12 +1,20 @@
 package com.photoserve.photo_api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.SQLRestriction;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "photos")
+@EntityListeners(PhotoChangeListener.class)
+// Deleted photos stay in the table until the trash collector purges them, hidden from every query
+@SQLRestriction("deleted_at IS NULL")
 public class Photo {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -20,6 +28,42 @@ public class Photo {
              message = "Invalid filename format. Must be a valid image file")
     private String filename;
 
+    // Set by the background storage optimizer once the file has been processed
+    @Column(name = "optimized_at")
+    private LocalDateTime optimizedAt;
+
+    @Column(name = "bytes_saved")
+    private Long bytesSaved;
+
+    // BlurHash computed once at upload, lets clients paint before the image loads
+    @Column(name = "placeholder", length = 64)
+    private String placeholder;
+
+    // 64-bit dHash used for near-duplicate search, internal only
+    @JsonIgnore
+    @Column(name = "perceptual_hash")
+    private Long perceptualHash;
+
+    // Set when the photo is deleted; the row and its file are kept for undelete until purged
+    @JsonIgnore
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
+    // GPS position from the EXIF data at upload, in WGS84 degrees; null when the photo has none
+    @Column(name = "latitude")
+    private Double latitude;
+
+    @Column(name = "longitude")
+    private Double longitude;
+
+    // EXIF DateTimeOriginal, the camera's local time; null when the photo has none
+    @Column(name = "captured_at")
+    private LocalDateTime capturedAt;
+
+    // Day the timeline counters hold this photo under, as of the last load or write
+    @Transient
+    private LocalDate timelineDay;
+
     public Photo() {
     // Keep this empty
     }
@@ -50,4 +94,76 @@ public class Photo {
     public void setFilename(String filename) {
         this.filename = filename;
     }
+
+    public LocalDateTime getOptimizedAt() {
+        return optimizedAt;
+    }
+
+    public void setOptimizedAt(LocalDateTime optimizedAt) {
+        this.optimizedAt = optimizedAt;
+    }
+
+    public Long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    public void setBytesSaved(Long bytesSaved) {
+        this.bytesSaved = bytesSaved;
+    }
+
+    public String getPlaceholder() {
+        return placeholder;
+    }
+
+    public void setPlaceholder(String placeholder) {
+        this.placeholder = placeholder;
+    }
+
+    public Long getPerceptualHash() {
+        return perceptualHash;
+    }
+
+    public void setPerceptualHash(Long perceptualHash) {
+        this.perceptualHash = perceptualHash;
+    }
+
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public LocalDateTime getCapturedAt() {
+        return capturedAt;
+    }
+
+    public void setCapturedAt(LocalDateTime capturedAt) {
+        this.capturedAt = capturedAt;
+    }
+
+    LocalDate getTimelineDay() {
+        return timelineDay;
+    }
+
+    void setTimelineDay(LocalDate timelineDay) {
+        this.timelineDay = timelineDay;
+    }
 }
@@ -0,0 +1,87 @@
+package com.photoserve.photo_api.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the append-only change log of the {@code photos} table, for delta sync. Entries
+ * carry the filename as of the change, so the newest entry of a photo is enough to bring a client
+ * up to date with it.
+ */
+@Entity
+@Table(name = "photo_changes", indexes = @Index(name = "idx_photo_changes_photo", columnList = "photo_id"))
+public class PhotoChange {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "seq")
+    private Long seq;
+
+    @Column(name = "photo_id", nullable = false)
+    private Long photoId;
+
+    @Column(name = "filename", nullable = false)
+    private String filename;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false, length = 16)
+    private Type type;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+
+    public PhotoChange() {
+    // Keep this empty
+    }
+
+    public PhotoChange(Long photoId, String filename, Type type, LocalDateTime changedAt) {
+        this.photoId = photoId;
+        this.filename = filename;
+        this.type = type;
+        this.changedAt = changedAt;
+    }
+
+    // Getters and Setters
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
+
+    public Long getPhotoId() {
+        return photoId;
+    }
+
+    public void setPhotoId(Long photoId) {
+        this.photoId = photoId;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public LocalDateTime getChangedAt() {
+        return changedAt;
+    }
+
+    public void setChangedAt(LocalDateTime changedAt) {
+        this.changedAt = changedAt;
+    }
+}
@@ -0,0 +1,174 @@
+package com.photoserve.photo_api.model;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Appends to {@code photo_changes} whenever a {@link Photo} is inserted, updated or deleted;
+ * moving a photo to the trash is logged as its deletion, and restoring it as an update. The
+ * callbacks run while Hibernate writes the photo, and the JDBC insert joins the same transaction,
+ * so a change is logged if and only if it commits.
+ *
+ * The same callbacks keep the {@link TimelineCount} rollups: a photo is counted under its capture
+ * day while it is not in the trash. The day it was counted under when loaded is remembered on the
+ * entity, so an update only touches the counters when the photo moves between days or in or out
+ * of the trash. Days counted by a transaction are only written back to the entity once it
+ * commits; after a rollback the same instance can be saved again and is counted again.
+ *
+ * Instantiated by Spring through Hibernate's bean container; the provider is resolved lazily
+ * because this listener is created while the entity manager factory is being built.
+ */
+public class PhotoChangeListener {
+
+    private static final String INSERT =
+            "INSERT INTO photo_changes (photo_id, filename, change_type, changed_at) VALUES (?, ?, ?, CURRENT_TIMESTAMP)";
+    // A single statement per period: an update that misses the row followed by an insert makes two
+    // first uploads of a new day take gap locks on InnoDB and deadlock on each other's insert
+    private static final String UPSERT_PERIOD_MYSQL =
+            "INSERT INTO photo_timeline (period, photo_count) VALUES (?, ?)"
+            + " ON DUPLICATE KEY UPDATE photo_count = photo_count + ?";
+    private static final String UPSERT_PERIOD_STANDARD =
+            "MERGE INTO photo_timeline t"
+            + " USING (SELECT CAST(? AS VARCHAR(10)) AS period, CAST(? AS BIGINT) AS delta) s"
+            + " ON t.period = s.period"
+            + " WHEN MATCHED THEN UPDATE SET photo_count = t.photo_count + s.delta"
+            + " WHEN NOT MATCHED THEN INSERT (period, photo_count) VALUES (s.period, s.delta)";
+    // A counted photo's periods always have a row, so taking it away never inserts
+    private static final String SUBTRACT_FROM_PERIOD =
+            "UPDATE photo_timeline SET photo_count = photo_count - ? WHERE period = ?";
+
+    private final ObjectProvider<JdbcTemplate> jdbcTemplate;
+    private volatile Boolean mysql;
+
+    public PhotoChangeListener(ObjectProvider<JdbcTemplate> jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostLoad
+    void loaded(Photo photo) {
+        photo.setTimelineDay(timelineDay(photo));
+    }
+
+    @PostPersist
+    void created(Photo photo) {
+        record(photo, PhotoChange.Type.CREATED);
+        count(photo, timelineDay(photo));
+    }
+
+    @PostUpdate
+    void updated(Photo photo) {
+        record(photo, photo.getDeletedAt() != null ? PhotoChange.Type.DELETED : PhotoChange.Type.UPDATED);
+        count(photo, timelineDay(photo));
+    }
+
+    @PostRemove
+    void deleted(Photo photo) {
+        record(photo, PhotoChange.Type.DELETED);
+        count(photo, null);
+    }
+
+    private void record(Photo photo, PhotoChange.Type type) {
+        JdbcTemplate jdbc = jdbcTemplate.getIfAvailable();
+        if (jdbc == null || photo.getId() == null) {
+            return;
+        }
+        jdbc.update(INSERT, photo.getId(), photo.getFilename(), type.name());
+    }
+
+    private static LocalDate timelineDay(Photo photo) {
+        if (photo.getDeletedAt() != null || photo.getCapturedAt() == null) {
+            return null;
+        }
+        return photo.getCapturedAt().toLocalDate();
+    }
+
+    /**
+     * Moves the photo's count from the day it was counted under to {@code day}; either may be
+     * null.
+     */
+    private void count(Photo photo, LocalDate day) {
+        PendingDays pending = PendingDays.current();
+        LocalDate counted = pending != null && pending.days.containsKey(photo)
+                ? pending.days.get(photo) : photo.getTimelineDay();
+        if (Objects.equals(counted, day)) {
+            return;
+        }
+        JdbcTemplate jdbc = jdbcTemplate.getIfAvailable();
+        if (jdbc == null) {
+            return;
+        }
+        if (counted != null) {
+            for (String period : TimelineCount.periodsOf(counted)) {
+                jdbc.update(SUBTRACT_FROM_PERIOD, 1, period);
+            }
+        }
+        if (day != null) {
+            for (String period : TimelineCount.periodsOf(day)) {
+                if (isMysql(jdbc)) {
+                    jdbc.update(UPSERT_PERIOD_MYSQL, period, 1, 1);
+                } else {
+                    jdbc.update(UPSERT_PERIOD_STANDARD, period, 1);
+                }
+            }
+        }
+        if (pending != null) {
+            pending.days.put(photo, day);
+        } else {
+            photo.setTimelineDay(day);
+        }
+    }
+
+    private boolean isMysql(JdbcTemplate jdbc) {
+        Boolean result = mysql;
+        if (result == null) {
+            String product = jdbc.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            result = product != null && (product.contains("MySQL") || product.contains("MariaDB"));
+            mysql = result;
+        }
+        return result;
+    }
+
+    /**
+     * Days counted by the current transaction, keyed by entity instance, copied onto the entities
+     * only if it commits.
+     */
+    private static final class PendingDays implements TransactionSynchronization {
+
+        final Map<Photo, LocalDate> days = new IdentityHashMap<>();
+
+        static PendingDays current() {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                return null;
+            }
+            PendingDays pending = (PendingDays) TransactionSynchronizationManager.getResource(PendingDays.class);
+            if (pending == null) {
+                pending = new PendingDays();
+                TransactionSynchronizationManager.bindResource(PendingDays.class, pending);
+                TransactionSynchronizationManager.registerSynchronization(pending);
+            }
+            return pending;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(PendingDays.class);
+            if (status == STATUS_COMMITTED) {
+                days.forEach(Photo::setTimelineDay);
+            }
+        }
+    }
+}
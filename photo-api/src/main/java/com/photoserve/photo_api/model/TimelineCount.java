@@ -0,0 +1,59 @@
+package com.photoserve.photo_api.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Number of photos captured in one year ({@code 2025}), month ({@code 2025-10}) or day
+ * ({@code 2025-10-03}). Maintained by {@link PhotoChangeListener} in the transaction that writes
+ * the photo, so the timeline is read from a handful of rows instead of grouping the whole
+ * {@code photos} table. Photos without a capture time are not counted.
+ */
+@Entity
+@Table(name = "photo_timeline")
+public class TimelineCount {
+
+    @Id
+    @Column(name = "period", length = 10)
+    private String period;
+
+    @Column(name = "photo_count", nullable = false)
+    private long photoCount;
+
+    public TimelineCount() {
+    // Keep this empty
+    }
+
+    public TimelineCount(String period, long photoCount) {
+        this.period = period;
+        this.photoCount = photoCount;
+    }
+
+    /**
+     * The year, month and day periods a photo captured on {@code day} is counted under, coarsest
+     * first.
+     */
+    public static List<String> periodsOf(LocalDate day) {
+        String date = day.toString();
+        return List.of(date.substring(0, 4), date.substring(0, 7), date);
+    }
+
+    // Getters and Setters
+    public String getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(String period) {
+        this.period = period;
+    }
+
+    public long getCount() {
+        return photoCount;
+    }
+
+    public void setCount(long count) {
+        this.photoCount = count;
+    }
+}
@@ -0,0 +1,68 @@
+package com.photoserve.photo_api.repository;
+
+import com.photoserve.photo_api.model.IngestJob;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface IngestJobRepository extends JpaRepository<IngestJob, Long> {
+    List<IngestJob> findTop100ByStatusOrderByIdAsc(IngestJob.Status status);
+
+    /**
+     * Moves a job from {@code QUEUED} to {@code RUNNING} and counts the attempt, in one conditional
+     * update so that of two workers (or two nodes) racing for the same job exactly one gets it.
+     *
+     * @return 1 if this caller claimed the job, 0 if it was no longer queued
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestJob j SET j.status = :running, j.attempts = j.attempts + 1, j.heartbeatAt = :now"
+            + " WHERE j.id = :id AND j.status = :queued")
+    int claim(@Param("id") Long id, @Param("queued") IngestJob.Status queued,
+              @Param("running") IngestJob.Status running, @Param("now") LocalDateTime now);
+
+    /**
+     * Records the outcome of the attempt that claimed a job, only if that attempt still owns it: a
+     * job requeued as stale and claimed again has another status or attempt count, and keeps them.
+     *
+     * @return 1 if the outcome was recorded, 0 if the job had been taken over
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestJob j SET j.status = :status, j.attempts = :attempts, j.photoId = :photoId,"
+            + " j.error = :error, j.finishedAt = :finishedAt"
+            + " WHERE j.id = :id AND j.status = :running AND j.attempts = :attempt")
+    int finish(@Param("id") Long id, @Param("running") IngestJob.Status running, @Param("attempt") int attempt,
+               @Param("status") IngestJob.Status status, @Param("attempts") int attempts,
+               @Param("photoId") Long photoId, @Param("error") String error,
+               @Param("finishedAt") LocalDateTime finishedAt);
+
+    /**
+     * Marks the given jobs as still being worked on.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestJob j SET j.heartbeatAt = :now WHERE j.id IN :ids AND j.status = :running")
+    int heartbeat(@Param("ids") Collection<Long> ids, @Param("running") IngestJob.Status running,
+                  @Param("now") LocalDateTime now);
+
+    /**
+     * Puts {@code RUNNING} jobs whose worker has not reported since {@code staleBefore} back in the
+     * queue. Rows written before heartbeats existed have none and count as stale.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestJob j SET j.status = :queued WHERE j.status = :running"
+            + " AND (j.heartbeatAt IS NULL OR j.heartbeatAt < :staleBefore)")
+    int requeueStale(@Param("running") IngestJob.Status running, @Param("queued") IngestJob.Status queued,
+                     @Param("staleBefore") LocalDateTime staleBefore);
+}
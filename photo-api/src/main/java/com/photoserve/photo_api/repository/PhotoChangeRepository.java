@@ -0,0 +1,43 @@
+package com.photoserve.photo_api.repository;
+
+import com.photoserve.photo_api.model.PhotoChange;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface PhotoChangeRepository extends JpaRepository<PhotoChange, Long> {
+    List<PhotoChange> findBySeqGreaterThanOrderBySeqAsc(long seq, Pageable pageable);
+
+    @Query("SELECT MIN(c.seq) FROM PhotoChange c")
+    Long findMinSeq();
+
+    @Query("SELECT MAX(c.seq) FROM PhotoChange c")
+    Long findMaxSeq();
+
+    /**
+     * Entries older than {@code before} that a later entry of the same photo supersedes, leaving
+     * out the oldest entry of the log, which marks how far back the log reaches.
+     */
+    @Query("SELECT c.seq FROM PhotoChange c WHERE c.changedAt < :before AND c.seq > :minSeq"
+            + " AND c.seq < (SELECT MAX(n.seq) FROM PhotoChange n WHERE n.photoId = c.photoId)"
+            + " ORDER BY c.seq")
+    List<Long> findSupersededSeqs(@Param("before") LocalDateTime before, @Param("minSeq") long minSeq, Pageable pageable);
+
+    /**
+     * Drops entries older than {@code before}, always keeping the newest entry so the log never
+     * becomes empty and forgets how far it reached.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PhotoChange c WHERE c.changedAt < :before AND c.seq < :maxSeq")
+    int deleteOlderThan(@Param("before") LocalDateTime before, @Param("maxSeq") long maxSeq);
+}
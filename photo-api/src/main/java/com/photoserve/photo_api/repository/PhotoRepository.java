@@ -2,12 +2,77 @@ package com.photoserve.photo_api.repository;
 
 import com.photoserve.photo_api.model.Photo;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface PhotoRepository extends JpaRepository<Photo, Long> {
     Optional<Photo> findByFilename(String filename);
+
+    List<Photo> findByFilenameStartingWithOrderByIdAsc(String prefix);
+
+    List<Photo> findTop20ByOptimizedAtIsNullAndIdGreaterThanOrderByIdAsc(long id);
+
+    /**
+     * Records the storage optimizer's result without writing the rest of the row.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Photo p SET p.optimizedAt = :optimizedAt, p.bytesSaved = :bytesSaved WHERE p.id = :id")
+    int markOptimized(@Param("id") Long id, @Param("optimizedAt") LocalDateTime optimizedAt, @Param("bytesSaved") long bytesSaved);
+
+    long countByOptimizedAtIsNotNull();
+
+    @Query("SELECT COALESCE(SUM(p.bytesSaved), 0) FROM Photo p")
+    long sumBytesSaved();
+
+    @Query("SELECT p.id, p.perceptualHash FROM Photo p WHERE p.perceptualHash IS NOT NULL")
+    List<Object[]> findAllPerceptualHashes();
+
+    @Query("SELECT p.id, p.filename FROM Photo p")
+    List<Object[]> findAllFilenames();
+
+    @Query("SELECT p.id, p.latitude, p.longitude FROM Photo p WHERE p.latitude IS NOT NULL AND p.longitude IS NOT NULL")
+    List<Object[]> findAllLocations();
+
+    // Deleted photos are filtered out of entity queries, so the trash is reached with native SQL
+
+    /**
+     * Locks a deleted photo until the end of the transaction, so it cannot be purged while it is
+     * being restored.
+     */
+    @Query(value = "SELECT * FROM photos WHERE id = :id AND deleted_at IS NOT NULL FOR UPDATE", nativeQuery = true)
+    Optional<Photo> findDeletedByIdForUpdate(@Param("id") Long id);
+
+    @Query(value = "SELECT * FROM photos WHERE deleted_at < :before ORDER BY deleted_at", nativeQuery = true)
+    List<Photo> findDeletedBefore(@Param("before") LocalDateTime before, Pageable pageable);
+
+    @Query(value = "SELECT COUNT(*) FROM photos WHERE deleted_at IS NOT NULL", nativeQuery = true)
+    long countDeleted();
+
+    /**
+     * @return 1 if the photo was still deleted before {@code before} and is now gone, 0 if it was
+     *         restored or purged in the meantime
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM photos WHERE id = :id AND deleted_at < :before", nativeQuery = true)
+    int purgeDeleted(@Param("id") Long id, @Param("before") LocalDateTime before);
+
+    /**
+     * Forgets a deleted photo without touching its file, which a new photo is taking over.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM photos WHERE filename = :filename AND deleted_at IS NOT NULL", nativeQuery = true)
+    int discardDeletedByFilename(@Param("filename") String filename);
 }
@@ -0,0 +1,20 @@
+package com.photoserve.photo_api.repository;
+
+import com.photoserve.photo_api.model.TimelineCount;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TimelineCountRepository extends JpaRepository<TimelineCount, String> {
+    /**
+     * Non-empty periods matching a LIKE pattern in order, e.g. {@code ____} for the years or
+     * {@code 2025-__} for the months of 2025; a range scan of the primary key.
+     */
+    @Query("SELECT t FROM TimelineCount t WHERE t.period LIKE :pattern AND t.photoCount > 0 ORDER BY t.period")
+    List<TimelineCount> findNonEmpty(@Param("pattern") String pattern);
+}
@@ -0,0 +1,79 @@
+package com.photoserve.photo_api.service;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Sequential reader over a ZIP, TAR or gzip-compressed TAR stream. The format is detected from
+ * the leading magic bytes. Entries are read strictly in order, without seeking and without
+ * buffering more than one read buffer, so archives of any size can be read from a request body.
+ */
+public abstract class ArchiveReader {
+
+    /**
+     * A regular file in the archive. {@code content} is only valid until the next call to
+     * {@link ArchiveReader#next()} and must not be closed by the caller.
+     */
+    public record Entry(String name, long size, InputStream content) {
+    }
+
+    /**
+     * @return the next regular file, skipping directories and links, or null at the end
+     */
+    public abstract Entry next() throws IOException;
+
+    public static ArchiveReader open(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, 64 * 1024);
+        buffered.mark(4);
+        int first = buffered.read();
+        int second = buffered.read();
+        int third = buffered.read();
+        int fourth = buffered.read();
+        buffered.reset();
+
+        if (first == 'P' && second == 'K' && third == 3 && fourth == 4) {
+            return new Zip(new ZipInputStream(buffered));
+        }
+        if (first == 0x1f && second == 0x8b) {
+            return new TarArchiveReader(new GZIPInputStream(buffered, 64 * 1024));
+        }
+        return new TarArchiveReader(buffered);
+    }
+
+    /**
+     * Wraps an entry stream so that callers closing it do not close the archive.
+     */
+    static InputStream nonClosing(InputStream input) {
+        return new FilterInputStream(input) {
+            @Override
+            public void close() {
+                // the archive owns the underlying stream
+            }
+        };
+    }
+
+    private static final class Zip extends ArchiveReader {
+
+        private final ZipInputStream zip;
+
+        Zip(ZipInputStream zip) {
+            this.zip = zip;
+        }
+
+        @Override
+        public Entry next() throws IOException {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    return new Entry(entry.getName(), entry.getSize(), nonClosing(zip));
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.photoserve.photo_api.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Encoder for <a href="https://blurha.sh">BlurHash</a> strings: a handful of DCT components of the
+ * image packed into a short base83 string that clients decode into a blurred placeholder.
+ */
+public final class BlurHash {
+
+    private static final String ALPHABET =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    private static final double[] SRGB_TO_LINEAR = new double[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            double v = i / 255.0;
+            SRGB_TO_LINEAR[i] = v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+        }
+    }
+
+    private BlurHash() {
+    }
+
+    public static String encode(BufferedImage image, int componentsX, int componentsY) {
+        if (componentsX < 1 || componentsX > 9 || componentsY < 1 || componentsY > 9) {
+            throw new IllegalArgumentException("BlurHash components must be between 1 and 9");
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] rgb = image.getRGB(0, 0, width, height, null, 0, width);
+
+        double[][] cosX = new double[componentsX][width];
+        for (int i = 0; i < componentsX; i++) {
+            for (int x = 0; x < width; x++) {
+                cosX[i][x] = Math.cos(Math.PI * i * x / width);
+            }
+        }
+        double[][] cosY = new double[componentsY][height];
+        for (int j = 0; j < componentsY; j++) {
+            for (int y = 0; y < height; y++) {
+                cosY[j][y] = Math.cos(Math.PI * j * y / height);
+            }
+        }
+
+        double[][] factors = new double[componentsX * componentsY][3];
+        for (int j = 0; j < componentsY; j++) {
+            for (int i = 0; i < componentsX; i++) {
+                double r = 0, g = 0, b = 0;
+                for (int y = 0; y < height; y++) {
+                    int row = y * width;
+                    for (int x = 0; x < width; x++) {
+                        double basis = cosX[i][x] * cosY[j][y];
+                        int pixel = rgb[row + x];
+                        r += basis * SRGB_TO_LINEAR[(pixel >> 16) & 0xff];
+                        g += basis * SRGB_TO_LINEAR[(pixel >> 8) & 0xff];
+                        b += basis * SRGB_TO_LINEAR[pixel & 0xff];
+                    }
+                }
+                double scale = (i == 0 && j == 0 ? 1.0 : 2.0) / (width * height);
+                double[] factor = factors[j * componentsX + i];
+                factor[0] = r * scale;
+                factor[1] = g * scale;
+                factor[2] = b * scale;
+            }
+        }
+
+        StringBuilder hash = new StringBuilder();
+        encode83(hash, (componentsX - 1) + (componentsY - 1) * 9, 1);
+
+        double maximumValue = 1;
+        if (factors.length > 1) {
+            double actualMaximum = 0;
+            for (int k = 1; k < factors.length; k++) {
+                for (double v : factors[k]) {
+                    actualMaximum = Math.max(actualMaximum, Math.abs(v));
+                }
+            }
+            int quantisedMaximum = (int) Math.max(0, Math.min(82, Math.floor(actualMaximum * 166 - 0.5)));
+            maximumValue = (quantisedMaximum + 1) / 166.0;
+            encode83(hash, quantisedMaximum, 1);
+        } else {
+            encode83(hash, 0, 1);
+        }
+
+        double[] dc = factors[0];
+        encode83(hash, (linearToSrgb(dc[0]) << 16) + (linearToSrgb(dc[1]) << 8) + linearToSrgb(dc[2]), 4);
+        for (int k = 1; k < factors.length; k++) {
+            double[] ac = factors[k];
+            int value = quantiseAc(ac[0], maximumValue) * 19 * 19
+                    + quantiseAc(ac[1], maximumValue) * 19
+                    + quantiseAc(ac[2], maximumValue);
+            encode83(hash, value, 2);
+        }
+        return hash.toString();
+    }
+
+    private static int quantiseAc(double value, double maximumValue) {
+        double normalised = value / maximumValue;
+        double signedRoot = Math.copySign(Math.sqrt(Math.abs(normalised)), normalised);
+        return (int) Math.max(0, Math.min(18, Math.floor(signedRoot * 9 + 9.5)));
+    }
+
+    private static int linearToSrgb(double value) {
+        double v = Math.max(0, Math.min(1, value));
+        if (v <= 0.0031308) {
+            return (int) (v * 12.92 * 255 + 0.5);
+        }
+        return (int) ((1.055 * Math.pow(v, 1 / 2.4) - 0.055) * 255 + 0.5);
+    }
+
+    private static void encode83(StringBuilder hash, int value, int length) {
+        int divisor = 1;
+        for (int i = 1; i < length; i++) {
+            divisor *= 83;
+        }
+        for (int i = 0; i < length; i++) {
+            hash.append(ALPHABET.charAt((value / divisor) % 83));
+            divisor /= 83;
+        }
+    }
+}
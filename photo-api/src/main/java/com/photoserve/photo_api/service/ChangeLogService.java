@@ -0,0 +1,188 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.model.PhotoChange;
+import com.photoserve.photo_api.repository.PhotoChangeRepository;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and maintains the {@code photo_changes} log that {@link com.photoserve.photo_api.model.PhotoChangeListener}
+ * appends to. A sync client starts from a full listing and the position returned with it, then
+ * asks for the changes after its last position.
+ *
+ * Sequence numbers are handed out on insert but become visible on commit, so a page stops before
+ * a gap that may still be filled. Gaps are judged by sequence number alone, never by the time
+ * written with the entries: this node samples the newest sequence number now and then, and a
+ * number at or below one it sampled at least {@code settleMillis} ago (by its own monotonic
+ * clock) had that long to commit. Such a gap was left by a rollback or by compaction and is
+ * skipped; a younger one is re-checked on the next read, so a page waits at most about
+ * {@code settleMillis} for it.
+ *
+ * Compaction removes entries older than {@code compactAfterMillis} that a later entry of the same
+ * photo supersedes; a client behind them still converges, since the later entry carries the
+ * current state. Entries older than {@code retentionMillis}, deletions included, are dropped, and
+ * clients that had not yet read them must resync from a full listing.
+ */
+@Service
+public class ChangeLogService {
+
+    public static final int MAX_LIMIT = 1000;
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeLogService.class);
+
+    private static final int COMPACTION_BATCH = 1000;
+
+    /**
+     * A page of changes. {@code next} is the position to ask from next time; {@code hasMore} says
+     * whether more changes are already waiting after it.
+     */
+    public record ChangePage(List<PhotoChange> changes, long next, boolean hasMore) {
+    }
+
+    private final PhotoChangeRepository photoChangeRepository;
+    private final long settleNanos;
+    private final long compactAfterMillis;
+    private final long retentionMillis;
+    private final long compactionIntervalMillis;
+    private ScheduledExecutorService compactor;
+    // Samples of (nanoTime, newest seq) younger than settleNanos, oldest first
+    private final ArrayDeque<long[]> samples = new ArrayDeque<>();
+    // Every seq up to here was handed out at least settleNanos ago
+    private long settledSeq;
+
+    public ChangeLogService(PhotoChangeRepository photoChangeRepository,
+                            @Value("${photo.changes.settle-ms:2000}") long settleMillis,
+                            @Value("${photo.changes.compact-after-ms:86400000}") long compactAfterMillis,
+                            @Value("${photo.changes.retention-ms:2592000000}") long retentionMillis,
+                            @Value("${photo.changes.compaction-interval-ms:3600000}") long compactionIntervalMillis) {
+        this.photoChangeRepository = photoChangeRepository;
+        this.settleNanos = TimeUnit.MILLISECONDS.toNanos(settleMillis);
+        this.compactAfterMillis = compactAfterMillis;
+        this.retentionMillis = retentionMillis;
+        this.compactionIntervalMillis = compactionIntervalMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (compactionIntervalMillis <= 0) {
+            return;
+        }
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactSafely, compactionIntervalMillis, compactionIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the position of the newest change, 0 if nothing was logged yet
+     */
+    public long latestSeq() {
+        Long max = photoChangeRepository.findMaxSeq();
+        return max == null ? 0 : max;
+    }
+
+    /**
+     * @return the changes after {@code since}, or null if some of them were already dropped and the
+     *         client has to resync from a full listing
+     */
+    public ChangePage changesSince(long since, int limit) {
+        return changesSince(since, limit, System.nanoTime());
+    }
+
+    ChangePage changesSince(long since, int limit, long now) {
+        Long min = photoChangeRepository.findMinSeq();
+        if (min != null && since < min - 1) {
+            return null;
+        }
+        List<PhotoChange> rows = photoChangeRepository.findBySeqGreaterThanOrderBySeqAsc(since,
+                PageRequest.of(0, limit + 1));
+        List<PhotoChange> changes = new ArrayList<>();
+        long next = since;
+        for (PhotoChange row : rows) {
+            if (changes.size() == limit) {
+                break;
+            }
+            if (row.getSeq() != next + 1 && row.getSeq() - 1 > settledSeq(now)) {
+                break;
+            }
+            changes.add(row);
+            next = row.getSeq();
+        }
+        return new ChangePage(changes, next, rows.size() > changes.size());
+    }
+
+    /**
+     * @return the highest sequence number known to have been handed out at least settleNanos ago
+     */
+    private synchronized long settledSeq(long now) {
+        long[] newest = samples.peekLast();
+        // A few samples per settle period bound both the memory and the extra wait
+        if (newest == null || now - newest[0] >= settleNanos / 4) {
+            samples.addLast(new long[]{now, latestSeq()});
+        }
+        while (!samples.isEmpty() && now - samples.peekFirst()[0] >= settleNanos) {
+            settledSeq = Math.max(settledSeq, samples.pollFirst()[1]);
+        }
+        return settledSeq;
+    }
+
+    private void compactSafely() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            log.warn("Change log compaction failed", e);
+        }
+    }
+
+    /**
+     * @return the number of entries removed
+     */
+    int compact() {
+        LocalDateTime now = LocalDateTime.now();
+        Long min = photoChangeRepository.findMinSeq();
+        Long max = photoChangeRepository.findMaxSeq();
+        if (min == null) {
+            return 0;
+        }
+        int removed = photoChangeRepository.deleteOlderThan(now.minusNanos(retentionMillis * 1_000_000), max);
+
+        min = photoChangeRepository.findMinSeq();
+        LocalDateTime compactBefore = now.minusNanos(compactAfterMillis * 1_000_000);
+        List<Long> superseded;
+        do {
+            superseded = photoChangeRepository.findSupersededSeqs(compactBefore, min, PageRequest.of(0, COMPACTION_BATCH));
+            photoChangeRepository.deleteAllByIdInBatch(superseded);
+            removed += superseded.size();
+        } while (superseded.size() == COMPACTION_BATCH);
+
+        if (removed > 0) {
+            log.info("Compacted change log: removed {} entries", removed);
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,214 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.admission.BulkheadFullException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decodes stored images for every pixel-processing feature, so the heap taken by decoded pixels
+ * is bounded for the whole process instead of per request.
+ *
+ * The header is read first and the decode uses the largest source subsampling that still gives
+ * the caller the resolution it asked for, optionally limited to a source region, so the raster
+ * allocated is sized by the output rather than by the original. Before decoding, the output's
+ * cost (four bytes per pixel, doubled for the scaled or converted copy callers usually make) is
+ * taken from a global budget of {@code photo.decode.budget-bytes}, a quarter of the maximum heap
+ * by default, and held until the caller's function has finished with the image. Work that does
+ * not fit waits in a fair queue for up to {@code photo.decode.wait-ms} and is then rejected with a
+ * {@link BulkheadFullException}. An image costing more than the whole budget is admitted alone.
+ */
+@Service
+public class DecodeService implements MeterBinder {
+
+    /**
+     * Uses a decoded image; the budget it takes is returned when this returns.
+     */
+    public interface ImageFunction<T> {
+        T apply(BufferedImage image) throws IOException;
+    }
+
+    private static final long BYTES_PER_PIXEL = 4;
+    private static final long COPIES = 2;
+    // Budget accounting unit, so large budgets fit in the semaphore's int permits
+    private static final long UNIT_BYTES = 1024;
+    private static final int RETRY_AFTER_SECONDS = 2;
+
+    private final int totalUnits;
+    private final long waitMillis;
+    private final Semaphore budget;
+    private final LongAdder rejected = new LongAdder();
+
+    public DecodeService(@Value("${photo.decode.budget-bytes:0}") long budgetBytes,
+                         @Value("${photo.decode.wait-ms:10000}") long waitMillis) {
+        long bytes = budgetBytes > 0 ? budgetBytes : Runtime.getRuntime().maxMemory() / 4;
+        this.totalUnits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, bytes / UNIT_BYTES));
+        this.waitMillis = waitMillis;
+        this.budget = new Semaphore(totalUnits, true);
+    }
+
+    /**
+     * Reads the dimensions from the file header without decoding any pixels.
+     *
+     * @return the size, or null if no reader understands the file
+     */
+    public Dimension readSize(Path file) throws IOException {
+        return withReader(file, reader -> new Dimension(reader.getWidth(0), reader.getHeight(0)));
+    }
+
+    /**
+     * Decodes {@code file} with the largest integer subsampling that keeps the longer edge at or
+     * above {@code maxEdge} pixels, and applies {@code function} to it.
+     *
+     * @return the function's result, or null if no reader understands the file
+     */
+    public <T> T decodeToFit(Path file, int maxEdge, ImageFunction<T> function) throws IOException {
+        return withReader(file, reader -> {
+            int longEdge = Math.max(reader.getWidth(0), reader.getHeight(0));
+            int subsampling = Math.max(1, longEdge / Math.max(1, maxEdge));
+            return decode(reader, null, subsampling, function);
+        });
+    }
+
+    /**
+     * Decodes only {@code region} of the image, keeping every {@code subsampling}-th pixel of it
+     * in both directions, and applies {@code function} to it.
+     *
+     * @return the function's result, or null if no reader understands the file
+     */
+    public <T> T decodeRegion(Path file, Rectangle region, int subsampling, ImageFunction<T> function)
+            throws IOException {
+        return withReader(file, reader -> decode(reader, region, subsampling, function));
+    }
+
+    /**
+     * Decodes the whole image at full resolution, for work that has to keep every pixel.
+     *
+     * @return the function's result, or null if no reader understands the file
+     */
+    public <T> T decodeFull(Path file, ImageFunction<T> function) throws IOException {
+        return withReader(file, reader -> decode(reader, null, 1, function));
+    }
+
+    /**
+     * Allocates a blank RGB canvas of {@code width} by {@code height} under the same budget as
+     * decoded images, for work that composes a large image of its own, and applies
+     * {@code function} to it.
+     */
+    public <T> T drawCanvas(int width, int height, ImageFunction<T> function) throws IOException {
+        int units = units((long) width * height);
+        acquire(units);
+        try {
+            return function.apply(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+        } finally {
+            budget.release(units);
+        }
+    }
+
+    public long getBudgetBytes() {
+        return totalUnits * UNIT_BYTES;
+    }
+
+    public long getUsedBytes() {
+        return (totalUnits - budget.availablePermits()) * UNIT_BYTES;
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("decode.budget.used", this, DecodeService::getUsedBytes)
+                .description("Bytes of decoded pixels currently admitted")
+                .register(registry);
+        Gauge.builder("decode.budget.limit", this, DecodeService::getBudgetBytes).register(registry);
+        FunctionCounter.builder("decode.rejected", this, DecodeService::getRejected)
+                .description("Decodes that waited too long for the budget")
+                .register(registry);
+    }
+
+    private <T> T decode(ImageReader reader, Rectangle region, int subsampling, ImageFunction<T> function)
+            throws IOException {
+        long width = region != null ? region.width : reader.getWidth(0);
+        long height = region != null ? region.height : reader.getHeight(0);
+        int units = units(ceilDiv(width, subsampling) * ceilDiv(height, subsampling));
+
+        acquire(units);
+        try {
+            ImageReadParam param = reader.getDefaultReadParam();
+            if (region != null) {
+                param.setSourceRegion(region);
+            }
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            BufferedImage image = reader.read(0, param);
+            return function.apply(image);
+        } finally {
+            budget.release(units);
+        }
+    }
+
+    private int units(long pixels) {
+        return (int) Math.min(totalUnits, Math.max(1, ceilDiv(pixels * BYTES_PER_PIXEL * COPIES, UNIT_BYTES)));
+    }
+
+    private void acquire(int units) {
+        boolean acquired;
+        try {
+            acquired = budget.tryAcquire(units, waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw new BulkheadFullException("decode",
+                    "no room for " + units * UNIT_BYTES + " bytes after " + waitMillis + "ms", RETRY_AFTER_SECONDS);
+        }
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    private interface ReaderAction<T> {
+        T apply(ImageReader reader) throws IOException;
+    }
+
+    private static <T> T withReader(Path file, ReaderAction<T> action) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return action.apply(reader);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.photoserve.photo_api.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded in-memory LRU cache for encoded derivatives (thumbnails, sprites, tiles), weighed by
+ * byte size rather than entry count.
+ */
+public class DerivativeCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+    private long hits;
+    private long misses;
+
+    public DerivativeCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized byte[] get(String key) {
+        byte[] value = entries.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Checks for a key without counting a hit or refreshing its recency.
+     */
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    public synchronized void put(String key, byte[] value) {
+        if (value.length > maxBytes) {
+            return;
+        }
+        byte[] previous = entries.put(key, value);
+        if (previous != null) {
+            currentBytes -= previous.length;
+        }
+        currentBytes += value.length;
+        Iterator<Map.Entry<String, byte[]>> eldest = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            currentBytes -= eldest.next().getValue().length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Returns the cached value or computes and caches it. The computation runs outside the lock,
+     * so two concurrent misses for the same key may both compute; the last one wins.
+     */
+    public byte[] computeIfAbsent(String key, Function<String, byte[]> loader) {
+        byte[] value = get(key);
+        if (value != null) {
+            return value;
+        }
+        value = loader.apply(key);
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    public synchronized void invalidatePrefix(String prefix) {
+        Iterator<Map.Entry<String, byte[]>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, byte[]> entry = iterator.next();
+            if (entry.getKey().startsWith(prefix)) {
+                currentBytes -= entry.getValue().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized long size() {
+        return currentBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
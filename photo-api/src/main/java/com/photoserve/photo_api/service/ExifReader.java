@@ -0,0 +1,208 @@
+package com.photoserve.photo_api.service;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Minimal EXIF reader for JPEG files. Only what ingest needs: the GPS position and the capture
+ * time. The markers before the image data are scanned for the APP1 {@code Exif} segment and its
+ * TIFF structure is walked from IFD0 to the GPS and Exif IFDs; no pixels are read.
+ */
+public final class ExifReader {
+
+    /** Metadata found in a file; fields are null when the file does not carry them. */
+    public record Exif(Double latitude, Double longitude, LocalDateTime capturedAt) {
+    }
+
+    private static final int SOI = 0xD8;
+    private static final int SOS = 0xDA;
+    private static final int EOI = 0xD9;
+    private static final int APP1 = 0xE1;
+    private static final byte[] EXIF_HEADER = {'E', 'x', 'i', 'f', 0, 0};
+
+    private static final int TAG_EXIF_IFD = 0x8769;
+    private static final int TAG_GPS_IFD = 0x8825;
+    private static final int TAG_DATE_TIME_ORIGINAL = 0x9003;
+    private static final int TAG_LATITUDE_REF = 1;
+    private static final int TAG_LATITUDE = 2;
+    private static final int TAG_LONGITUDE_REF = 3;
+    private static final int TAG_LONGITUDE = 4;
+    private static final int TYPE_ASCII = 2;
+    private static final int TYPE_RATIONAL = 5;
+    // Local time of the camera, without a zone
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss");
+
+    private ExifReader() {
+    }
+
+    /**
+     * @return the metadata, or null if the file is not a JPEG or has no EXIF segment
+     */
+    public static Exif read(Path file) throws IOException {
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(file))) {
+            byte[] tiff = findExifSegment(new DataInputStream(input));
+            if (tiff == null) {
+                return null;
+            }
+            return parse(tiff);
+        }
+    }
+
+    static Exif parse(byte[] tiff) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(tiff);
+            if (tiff[0] == 'I' && tiff[1] == 'I') {
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+            } else if (tiff[0] != 'M' || tiff[1] != 'M') {
+                return null;
+            }
+            if (buffer.getShort(2) != 42) {
+                return null;
+            }
+            int ifd0 = buffer.getInt(4);
+            Double latitude = null;
+            Double longitude = null;
+            int gpsEntry = findEntry(buffer, ifd0, TAG_GPS_IFD);
+            if (gpsEntry >= 0) {
+                int gps = buffer.getInt(gpsEntry + 8);
+                Double gpsLatitude = coordinate(buffer, gps, TAG_LATITUDE, TAG_LATITUDE_REF, 'S', 90);
+                Double gpsLongitude = coordinate(buffer, gps, TAG_LONGITUDE, TAG_LONGITUDE_REF, 'W', 180);
+                if (gpsLatitude != null && gpsLongitude != null) {
+                    latitude = gpsLatitude;
+                    longitude = gpsLongitude;
+                }
+            }
+            LocalDateTime capturedAt = null;
+            int exifEntry = findEntry(buffer, ifd0, TAG_EXIF_IFD);
+            if (exifEntry >= 0) {
+                capturedAt = dateTime(buffer, buffer.getInt(exifEntry + 8), TAG_DATE_TIME_ORIGINAL);
+            }
+            return new Exif(latitude, longitude, capturedAt);
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            // Offsets pointing outside the segment
+            return null;
+        }
+    }
+
+    private static byte[] findExifSegment(DataInputStream input) throws IOException {
+        try {
+            if (input.readUnsignedByte() != 0xFF || input.readUnsignedByte() != SOI) {
+                return null;
+            }
+            while (true) {
+                if (input.readUnsignedByte() != 0xFF) {
+                    return null;
+                }
+                int marker = input.readUnsignedByte();
+                while (marker == 0xFF) {
+                    // Fill bytes before a marker
+                    marker = input.readUnsignedByte();
+                }
+                if (marker == SOS || marker == EOI) {
+                    return null;
+                }
+                int length = input.readUnsignedShort() - 2;
+                if (length < 0) {
+                    return null;
+                }
+                if (marker == APP1 && length > EXIF_HEADER.length) {
+                    byte[] segment = new byte[length];
+                    input.readFully(segment);
+                    if (startsWith(segment, EXIF_HEADER)) {
+                        byte[] tiff = new byte[length - EXIF_HEADER.length];
+                        System.arraycopy(segment, EXIF_HEADER.length, tiff, 0, tiff.length);
+                        return tiff.length < 8 ? null : tiff;
+                    }
+                    // An XMP segment also uses APP1; keep looking
+                } else {
+                    input.skipNBytes(length);
+                }
+            }
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the value field offset of the entry with {@code tag} in the IFD at {@code offset},
+     *         or -1 if there is none
+     */
+    private static int findEntry(ByteBuffer buffer, int offset, int tag) {
+        int count = buffer.getShort(offset) & 0xFFFF;
+        for (int i = 0; i < count; i++) {
+            int entry = offset + 2 + i * 12;
+            if ((buffer.getShort(entry) & 0xFFFF) == tag) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private static Double coordinate(ByteBuffer buffer, int ifd, int valueTag, int refTag, char negative, double limit) {
+        int value = findEntry(buffer, ifd, valueTag);
+        int ref = findEntry(buffer, ifd, refTag);
+        if (value < 0 || ref < 0
+                || (buffer.getShort(value + 2) & 0xFFFF) != TYPE_RATIONAL || buffer.getInt(value + 4) != 3
+                || (buffer.getShort(ref + 2) & 0xFFFF) != TYPE_ASCII) {
+            return null;
+        }
+        // Degrees, minutes and seconds, each an unsigned numerator/denominator pair
+        int rationals = buffer.getInt(value + 8);
+        double degrees = 0;
+        double unit = 1;
+        for (int i = 0; i < 3; i++) {
+            long numerator = buffer.getInt(rationals + i * 8) & 0xFFFFFFFFL;
+            long denominator = buffer.getInt(rationals + i * 8 + 4) & 0xFFFFFFFFL;
+            if (denominator == 0) {
+                return null;
+            }
+            degrees += (double) numerator / denominator / unit;
+            unit *= 60;
+        }
+        if (degrees > limit) {
+            return null;
+        }
+        // A count of at most four bytes is stored in the value field itself
+        char hemisphere = (char) buffer.get(ref + 8);
+        return hemisphere == negative ? -degrees : degrees;
+    }
+
+    private static LocalDateTime dateTime(ByteBuffer buffer, int ifd, int tag) {
+        int entry = findEntry(buffer, ifd, tag);
+        // "yyyy:MM:dd HH:mm:ss" and a terminating NUL, too long to sit in the value field
+        if (entry < 0 || (buffer.getShort(entry + 2) & 0xFFFF) != TYPE_ASCII || buffer.getInt(entry + 4) < 20) {
+            return null;
+        }
+        int offset = buffer.getInt(entry + 8);
+        char[] text = new char[19];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = (char) (buffer.get(offset + i) & 0xFF);
+        }
+        try {
+            return LocalDateTime.parse(new String(text), DATE_TIME);
+        } catch (DateTimeParseException e) {
+            // Unknown dates are written as blanks or zeros
+            return null;
+        }
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,23 +1,61 @@
 package com.photoserve.photo_api.service;
 
+import com.photoserve.photo_api.storage.HotTier;
+import com.photoserve.photo_api.storage.LocalStorageBackend;
+import com.photoserve.photo_api.storage.StorageBackend;
+import com.photoserve.photo_api.tracing.RequestTrace;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.Optional;
 import java.util.UUID;
 
+/**
+ * Stores originals in the upload directory and, when the configured {@link StorageBackend} lives
+ * elsewhere (a bucket, a shared mount), publishes every write to it. In that case the upload
+ * directory is a local working copy: {@link #loadFile} fetches files it does not have yet, so
+ * code that needs a {@link Path} to decode or stream keeps working on any node.
+ *
+ * With a {@link HotTier} configured, {@link #loadFile} returns the fast copy of popular files and
+ * every write to a file drops its hot copy.
+ */
 @Service
 public class FileStorageService {
 
     private final Path fileStorageLocation;
+    private final StorageBackend backend;
+    // False when the backend is the upload directory itself
+    private final boolean remote;
+    // Null when no hot tier is configured
+    private final HotTier hotTier;
+
+    public FileStorageService(String uploadDir) {
+        this(uploadDir, null, (HotTier) null);
+    }
+
+    public FileStorageService(String uploadDir, StorageBackend backend) {
+        this(uploadDir, backend, (HotTier) null);
+    }
+
+    @Autowired
+    public FileStorageService(@Value("${file.upload-dir}") String uploadDir, StorageBackend backend,
+                              Optional<HotTier> hotTier) {
+        this(uploadDir, backend, hotTier.orElse(null));
+    }
 
-    public FileStorageService(@Value("${file.upload-dir}") String uploadDir) {
+    public FileStorageService(String uploadDir, StorageBackend backend, HotTier hotTier) {
         this.fileStorageLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
 
         try {
@@ -25,6 +63,11 @@ public class FileStorageService {
         } catch (IOException ex) {
             throw new RuntimeException("Could not create upload directory!", ex);
         }
+
+        this.backend = backend != null ? backend : new LocalStorageBackend(this.fileStorageLocation);
+        this.remote = !(this.backend instanceof LocalStorageBackend local
+                && local.getRoot().equals(this.fileStorageLocation));
+        this.hotTier = hotTier;
     }
 
     public String storeFile(MultipartFile file) {
@@ -51,7 +94,9 @@ public class FileStorageService {
 
             // Copy file to the target location
             Path targetLocation = this.fileStorageLocation.resolve(uniqueFilename);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+            RequestTrace.time("storage.copy", () ->
+                    Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING));
+            publish(uniqueFilename, targetLocation);
 
             return uniqueFilename;
         } catch (IOException ex) {
@@ -59,20 +104,30 @@ public class FileStorageService {
         }
     }
 
-    public String storeFileWithOriginalName(MultipartFile file) {
+    /**
+     * The name {@link #storeFileWithOriginalName} stores {@code file} under.
+     */
+    public String originalFilename(MultipartFile file) {
         String rawFilename = file.getOriginalFilename();
         if (rawFilename == null || rawFilename.isEmpty()) {
             throw new RuntimeException("Filename cannot be null or empty");
         }
         String originalFilename = StringUtils.cleanPath(rawFilename);
+        if (originalFilename.contains("..")) {
+            throw new RuntimeException("Invalid path sequence in filename: " + originalFilename);
+        }
+        return originalFilename;
+    }
 
-        try {
-            if (originalFilename.contains("..")) {
-                throw new RuntimeException("Invalid path sequence in filename: " + originalFilename);
-            }
+    public String storeFileWithOriginalName(MultipartFile file) {
+        String originalFilename = originalFilename(file);
 
+        try {
             Path targetLocation = this.fileStorageLocation.resolve(originalFilename);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+            RequestTrace.time("storage.copy", () ->
+                    Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING));
+            invalidateHot(originalFilename);
+            publish(originalFilename, targetLocation);
 
             return originalFilename;
         } catch (IOException ex) {
@@ -80,6 +135,34 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * Stores a stream under {@code filename} without closing it, for callers that feed several
+     * files from one stream (archive imports). Unlike the upload methods this never overwrites an
+     * existing file, and a partially written file is removed if the copy fails.
+     */
+    public String storeStream(String filename, InputStream input) {
+        String cleanFilename = StringUtils.cleanPath(filename);
+        if (cleanFilename.contains("..") || cleanFilename.contains("/")) {
+            throw new RuntimeException("Invalid path sequence in filename: " + cleanFilename);
+        }
+
+        Path targetLocation = this.fileStorageLocation.resolve(cleanFilename);
+        try {
+            RequestTrace.time("storage.copy", () -> Files.copy(input, targetLocation));
+            publish(cleanFilename, targetLocation);
+            return cleanFilename;
+        } catch (FileAlreadyExistsException ex) {
+            throw new RuntimeException("File already exists: " + cleanFilename, ex);
+        } catch (IOException ex) {
+            try {
+                Files.deleteIfExists(targetLocation);
+            } catch (IOException ignored) {
+                // the original failure is the one worth reporting
+            }
+            throw new RuntimeException("Could not store file " + cleanFilename + ". Please try again!", ex);
+        }
+    }
+
     public Path getFileStorageLocation() {
         return fileStorageLocation;
     }
@@ -88,16 +171,112 @@ public class FileStorageService {
         try {
             Path filePath = this.fileStorageLocation.resolve(filename).normalize();
             Files.deleteIfExists(filePath);
+            invalidateHot(filename);
+            if (remote) {
+                backend.delete(filename);
+            }
         } catch (IOException ex) {
             throw new RuntimeException("Could not delete file " + filename + ". Please try again!", ex);
         }
     }
 
+    /**
+     * Creates an empty scratch file inside the storage directory, so it can later be moved over
+     * a stored file with {@link #replaceFile} as a same-filesystem atomic rename.
+     */
+    public Path createWorkFile(String suffix) {
+        try {
+            return Files.createTempFile(this.fileStorageLocation, ".work-", suffix);
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not create work file. Please try again!", ex);
+        }
+    }
+
+    /**
+     * Atomically replaces a stored file with {@code replacement}. Readers that already opened the
+     * old file keep reading it; new readers see the replacement.
+     */
+    public void replaceFile(String filename, Path replacement) {
+        Path target = this.fileStorageLocation.resolve(filename).normalize();
+        if (!target.startsWith(this.fileStorageLocation) || !Files.exists(target)) {
+            throw new RuntimeException("File not found: " + filename);
+        }
+        try {
+            Files.move(replacement, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            invalidateHot(filename);
+            if (remote) {
+                RequestTrace.run("storage.publish", () -> backend.put(filename, target));
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not replace file " + filename + ". Please try again!", ex);
+        }
+    }
+
     public Path loadFile(String filename) {
+        if (hotTier != null) {
+            Path hot = hotTier.lookup(filename);
+            if (hot != null) {
+                return hot;
+            }
+        }
         Path filePath = this.fileStorageLocation.resolve(filename).normalize();
-        if (!Files.exists(filePath)) {
-            throw new RuntimeException("File not found: " + filename);
+        if (!RequestTrace.time("storage.stat", () -> Files.exists(filePath))) {
+            if (!remote || !filePath.startsWith(this.fileStorageLocation) || !fetch(filename, filePath)) {
+                throw new RuntimeException("File not found: " + filename);
+            }
+        }
+        if (hotTier != null && filePath.getParent().equals(this.fileStorageLocation)) {
+            hotTier.recordAccess(filename, filePath);
         }
         return filePath;
     }
+
+    public StorageBackend getBackend() {
+        return backend;
+    }
+
+    private void invalidateHot(String filename) {
+        if (hotTier != null) {
+            hotTier.invalidate(filename);
+        }
+    }
+
+    private void publish(String filename, Path stored) throws IOException {
+        if (!remote) {
+            return;
+        }
+        try {
+            RequestTrace.run("storage.publish", () -> backend.put(filename, stored));
+        } catch (IOException ex) {
+            // Never keep a local file the other nodes cannot see
+            Files.deleteIfExists(stored);
+            throw ex;
+        }
+    }
+
+    /**
+     * Copies a file from the backend into the working copy. Concurrent fetches of the same file
+     * each write their own temp file; the last rename wins with identical content.
+     */
+    private boolean fetch(String filename, Path target) {
+        Path work = null;
+        try (InputStream in = RequestTrace.time("storage.fetch", () -> backend.get(filename))) {
+            work = Files.createTempFile(this.fileStorageLocation, ".fetch-", ".tmp");
+            Files.copy(in, work, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(work, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (NoSuchFileException ex) {
+            return false;
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not fetch file " + filename + " from storage. Please try again!", ex);
+        } finally {
+            if (work != null) {
+                try {
+                    Files.deleteIfExists(work);
+                } catch (IOException ignored) {
+                    // best effort; a stray temp file is harmless
+                }
+            }
+        }
+    }
 }
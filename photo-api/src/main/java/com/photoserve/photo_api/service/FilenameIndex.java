@@ -0,0 +1,299 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.repository.PhotoRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index over photo filenames for type-ahead lookups such as {@code PXL_202510} or
+ * {@code IMG_58}, answering without touching the database. Built from the database when the
+ * application starts and kept current by the upload and delete paths.
+ *
+ * Matching is case-insensitive. Prefixes are answered from a radix trie (edges carry whole runs
+ * of characters, so the shared {@code IMG_}/{@code PXL_2025} stems are stored once) in filename
+ * order. Fragments from the middle of a name are answered from a trigram index: candidates come
+ * from the query trigram with the fewest photos and are confirmed against the full name.
+ */
+@Service
+public class FilenameIndex {
+
+    public static final int MAX_LIMIT = 50;
+
+    private static final Logger log = LoggerFactory.getLogger(FilenameIndex.class);
+
+    private static final int GRAM = 3;
+    private static final long NONE = -1;
+
+    private final PhotoRepository photoRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, String> filenames = new HashMap<>();
+    private final Map<String, Set<Long>> grams = new HashMap<>();
+    private Node root = new Node("");
+
+    public FilenameIndex(PhotoRepository photoRepository) {
+        this.photoRepository = photoRepository;
+    }
+
+    public record Suggestion(long id, String filename) {
+    }
+
+    private static final class Node {
+        String label;
+        TreeMap<Character, Node> children;
+        long photoId = NONE;
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Object[]> rows = photoRepository.findAllFilenames();
+        lock.writeLock().lock();
+        try {
+            filenames.clear();
+            grams.clear();
+            root = new Node("");
+            for (Object[] row : rows) {
+                insert(((Number) row[0]).longValue(), (String) row[1]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Filename index built with {} photos", rows.size());
+    }
+
+    public void add(long photoId, String filename) {
+        lock.writeLock().lock();
+        try {
+            String previous = filenames.get(photoId);
+            if (previous != null) {
+                delete(photoId, previous);
+            }
+            insert(photoId, filename);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long photoId) {
+        lock.writeLock().lock();
+        try {
+            String filename = filenames.get(photoId);
+            if (filename != null) {
+                delete(photoId, filename);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return up to {@code limit} photos whose filename starts with {@code query}, in filename
+     *         order, followed by photos whose filename contains it elsewhere
+     */
+    public List<Suggestion> suggest(String query, int limit) {
+        String key = query.toLowerCase(Locale.ROOT);
+        List<Suggestion> suggestions = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            collectPrefix(key, limit, suggestions);
+            if (suggestions.size() < limit && key.length() >= GRAM) {
+                collectInfix(key, limit, suggestions);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return suggestions;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return filenames.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void collectPrefix(String key, int limit, List<Suggestion> suggestions) {
+        Node node = root;
+        int matched = 0;
+        while (matched < key.length()) {
+            Node child = node.children == null ? null : node.children.get(key.charAt(matched));
+            if (child == null) {
+                return;
+            }
+            int common = commonPrefix(child.label, key, matched);
+            if (matched + common == key.length()) {
+                // The query ends inside or at the end of this edge
+                node = child;
+                break;
+            }
+            if (common < child.label.length()) {
+                return;
+            }
+            matched += common;
+            node = child;
+        }
+        List<Node> pending = new ArrayList<>();
+        pending.add(node);
+        while (!pending.isEmpty() && suggestions.size() < limit) {
+            Node next = pending.remove(pending.size() - 1);
+            if (next.photoId != NONE) {
+                suggestions.add(new Suggestion(next.photoId, filenames.get(next.photoId)));
+            }
+            if (next.children != null) {
+                // Pushed in reverse so the smallest child is visited first
+                for (Node child : next.children.descendingMap().values()) {
+                    pending.add(child);
+                }
+            }
+        }
+    }
+
+    private void collectInfix(String key, int limit, List<Suggestion> suggestions) {
+        Set<Long> candidates = null;
+        for (int i = 0; i + GRAM <= key.length(); i++) {
+            Set<Long> photoIds = grams.get(key.substring(i, i + GRAM));
+            if (photoIds == null) {
+                return;
+            }
+            if (candidates == null || photoIds.size() < candidates.size()) {
+                candidates = photoIds;
+            }
+        }
+        List<Suggestion> infix = new ArrayList<>();
+        for (Long photoId : candidates) {
+            String filename = filenames.get(photoId);
+            String name = filename.toLowerCase(Locale.ROOT);
+            // Names starting with the query were all taken by the prefix walk
+            if (!name.startsWith(key) && name.contains(key)) {
+                infix.add(new Suggestion(photoId, filename));
+                if (suggestions.size() + infix.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        infix.sort(Comparator.comparing(Suggestion::filename));
+        suggestions.addAll(infix);
+    }
+
+    private void insert(long photoId, String filename) {
+        String key = filename.toLowerCase(Locale.ROOT);
+        filenames.put(photoId, filename);
+        for (String gram : gramsOf(key)) {
+            grams.computeIfAbsent(gram, g -> new HashSet<>()).add(photoId);
+        }
+
+        Node node = root;
+        int matched = 0;
+        while (true) {
+            if (matched == key.length()) {
+                node.photoId = photoId;
+                return;
+            }
+            if (node.children == null) {
+                node.children = new TreeMap<>();
+            }
+            Node child = node.children.get(key.charAt(matched));
+            if (child == null) {
+                Node leaf = new Node(key.substring(matched));
+                leaf.photoId = photoId;
+                node.children.put(key.charAt(matched), leaf);
+                return;
+            }
+            int common = commonPrefix(child.label, key, matched);
+            if (common < child.label.length()) {
+                // Split the edge where the new key leaves it
+                Node split = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                split.children = new TreeMap<>();
+                split.children.put(child.label.charAt(0), child);
+                node.children.put(split.label.charAt(0), split);
+                child = split;
+            }
+            matched += common;
+            node = child;
+        }
+    }
+
+    private void delete(long photoId, String filename) {
+        String key = filename.toLowerCase(Locale.ROOT);
+        filenames.remove(photoId);
+        for (String gram : gramsOf(key)) {
+            Set<Long> photoIds = grams.get(gram);
+            if (photoIds != null && photoIds.remove(photoId) && photoIds.isEmpty()) {
+                grams.remove(gram);
+            }
+        }
+
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int matched = 0;
+        while (matched < key.length()) {
+            Node child = node.children == null ? null : node.children.get(key.charAt(matched));
+            if (child == null || !key.startsWith(child.label, matched)) {
+                return;
+            }
+            path.add(node);
+            matched += child.label.length();
+            node = child;
+        }
+        if (node.photoId != photoId) {
+            return;
+        }
+        node.photoId = NONE;
+        // Drop the emptied leaf, then merge a parent left with one child and no photo into it
+        for (int i = path.size() - 1; i >= 0 && node.photoId == NONE; i--) {
+            Node parent = path.get(i);
+            if (node.children == null || node.children.isEmpty()) {
+                parent.children.remove(node.label.charAt(0));
+            } else if (node.children.size() == 1) {
+                Node only = node.children.firstEntry().getValue();
+                only.label = node.label + only.label;
+                parent.children.put(only.label.charAt(0), only);
+            } else {
+                return;
+            }
+            node = parent;
+            if (node == root) {
+                return;
+            }
+        }
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int length = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < length && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static Set<String> gramsOf(String key) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM <= key.length(); i++) {
+            result.add(key.substring(i, i + GRAM));
+        }
+        return result;
+    }
+}
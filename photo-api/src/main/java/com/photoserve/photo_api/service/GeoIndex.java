@@ -0,0 +1,242 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.repository.PhotoRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory grid over photo locations, answering "how many photos are where" for a map view
+ * without scanning the table. Built from the database when the application starts and kept
+ * current by the upload and delete paths, and by the change log tail in
+ * {@link PhotoEventBroadcaster} for positions written elsewhere (HEIC conversions, other replicas).
+ * Each photo's indexed position is remembered, so applying the same change twice is harmless.
+ *
+ * Cells follow the Web Mercator tile pyramid used by map clients: level {@code l} splits the map
+ * into 2^l x 2^l cells. Every level up to {@link #MAX_LEVEL} keeps a count, coordinate sums and an
+ * id sum per non-empty cell, so adding or removing a photo touches one cell per level and a query
+ * reads at most one entry per cell it returns. A map at zoom {@code z} is answered from level
+ * {@code z + 2}, i.e. cells a quarter of a 256 pixel tile wide.
+ */
+@Service
+public class GeoIndex {
+
+    public static final int MAX_ZOOM = 22;
+
+    private static final Logger log = LoggerFactory.getLogger(GeoIndex.class);
+
+    // Level 18 cells are about 150 m wide at the equator; deeper zooms reuse them
+    private static final int MAX_LEVEL = 18;
+    private static final int CLUSTER_LEVELS = 2;
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    private final PhotoRepository photoRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Map<Long, Cell>> levels = new ArrayList<>();
+    // {latitude, longitude} of each indexed photo, to take it out of the cells it was added to
+    private final Map<Long, double[]> positions = new HashMap<>();
+
+    public GeoIndex(PhotoRepository photoRepository) {
+        this.photoRepository = photoRepository;
+        for (int level = 0; level <= MAX_LEVEL; level++) {
+            levels.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Photos of one cell: their count, the mean of their coordinates, and the photo id when the
+     * cell holds a single photo.
+     */
+    public record Cluster(double latitude, double longitude, int count, Long photoId) {
+    }
+
+    private static final class Cell {
+        int count;
+        double latitudeSum;
+        double longitudeSum;
+        // Equals the photo id while the cell holds exactly one photo
+        long idSum;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Object[]> locations = photoRepository.findAllLocations();
+        lock.writeLock().lock();
+        try {
+            levels.forEach(Map::clear);
+            positions.clear();
+            for (Object[] row : locations) {
+                put(((Number) row[0]).longValue(), ((Number) row[1]).doubleValue(), ((Number) row[2]).doubleValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Geo index built with {} photos", locations.size());
+    }
+
+    /**
+     * Indexes the photo at this position, moving it if it was indexed elsewhere.
+     */
+    public void add(long photoId, double latitude, double longitude) {
+        lock.writeLock().lock();
+        try {
+            put(photoId, latitude, longitude);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Takes the photo out of the index; a photo that is not indexed is ignored.
+     */
+    public void remove(long photoId) {
+        lock.writeLock().lock();
+        try {
+            double[] position = positions.remove(photoId);
+            if (position != null) {
+                update(photoId, position[0], position[1], -1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Clusters of the photos in the cells that intersect the box, largest first. A box with
+     * {@code west > east} crosses the antimeridian.
+     */
+    public List<Cluster> clusters(double west, double south, double east, double north, int zoom) {
+        int level = Math.min(zoom + CLUSTER_LEVELS, MAX_LEVEL);
+        int top = cellY(north, level);
+        int bottom = cellY(south, level);
+        int left = cellX(west, level);
+        int right = cellX(east, level);
+        List<int[]> columns = new ArrayList<>();
+        if (west > east) {
+            columns.add(new int[]{left, (1 << level) - 1});
+            columns.add(new int[]{0, right});
+        } else {
+            columns.add(new int[]{left, right});
+        }
+
+        List<Cluster> clusters = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<Long, Cell> cells = levels.get(level);
+            long boxCells = 0;
+            for (int[] range : columns) {
+                boxCells += (long) (range[1] - range[0] + 1) * (bottom - top + 1);
+            }
+            if (boxCells <= cells.size()) {
+                for (int[] range : columns) {
+                    for (int x = range[0]; x <= range[1]; x++) {
+                        for (int y = top; y <= bottom; y++) {
+                            Cell cell = cells.get(key(x, y));
+                            if (cell != null) {
+                                clusters.add(toCluster(cell));
+                            }
+                        }
+                    }
+                }
+            } else {
+                // A wide box at a deep level: fewer photos than cells, so filter the photos' cells
+                for (Map.Entry<Long, Cell> entry : cells.entrySet()) {
+                    int x = (int) (entry.getKey() >>> 32);
+                    int y = (int) (long) entry.getKey();
+                    if (y >= top && y <= bottom && inColumns(columns, x)) {
+                        clusters.add(toCluster(entry.getValue()));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        clusters.sort(Comparator.comparingInt(Cluster::count).reversed());
+        return clusters;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return positions.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(long photoId, double latitude, double longitude) {
+        double[] previous = positions.put(photoId, new double[]{latitude, longitude});
+        if (previous != null) {
+            if (previous[0] == latitude && previous[1] == longitude) {
+                return;
+            }
+            update(photoId, previous[0], previous[1], -1);
+        }
+        update(photoId, latitude, longitude, 1);
+    }
+
+    private void update(long photoId, double latitude, double longitude, int sign) {
+        int x = cellX(longitude, MAX_LEVEL);
+        int y = cellY(latitude, MAX_LEVEL);
+        for (int level = MAX_LEVEL; level >= 0; level--) {
+            int shift = MAX_LEVEL - level;
+            Map<Long, Cell> cells = levels.get(level);
+            long key = key(x >> shift, y >> shift);
+            Cell cell = cells.get(key);
+            if (cell == null) {
+                cell = new Cell();
+                cells.put(key, cell);
+            }
+            cell.count += sign;
+            cell.latitudeSum += sign * latitude;
+            cell.longitudeSum += sign * longitude;
+            cell.idSum += sign * photoId;
+            if (cell.count == 0) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    private static Cluster toCluster(Cell cell) {
+        return new Cluster(cell.latitudeSum / cell.count, cell.longitudeSum / cell.count, cell.count,
+                cell.count == 1 ? cell.idSum : null);
+    }
+
+    private static boolean inColumns(List<int[]> columns, int x) {
+        for (int[] range : columns) {
+            if (x >= range[0] && x <= range[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long key(int x, int y) {
+        return (long) x << 32 | y;
+    }
+
+    private static int cellX(double longitude, int level) {
+        int cells = 1 << level;
+        int x = (int) Math.floor((longitude + 180) / 360 * cells);
+        return Math.max(0, Math.min(cells - 1, x));
+    }
+
+    private static int cellY(double latitude, int level) {
+        int cells = 1 << level;
+        double sin = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude))));
+        double mercator = 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+        int y = (int) Math.floor(mercator * cells);
+        return Math.max(0, Math.min(cells - 1, y));
+    }
+}
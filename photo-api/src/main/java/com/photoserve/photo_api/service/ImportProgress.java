@@ -0,0 +1,103 @@
+package com.photoserve.photo_api.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live counters of one archive import, readable while the import is still running.
+ */
+public class ImportProgress {
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    private static final int MAX_ERRORS = 20;
+
+    private final String id;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final AtomicLong entriesRead = new AtomicLong();
+    private final AtomicLong imported = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final List<String> errors = new ArrayList<>();
+    private volatile Status status = Status.RUNNING;
+    private volatile LocalDateTime finishedAt;
+
+    public ImportProgress(String id) {
+        this.id = id;
+    }
+
+    void entryRead() {
+        entriesRead.incrementAndGet();
+    }
+
+    void imported(int count) {
+        imported.addAndGet(count);
+    }
+
+    void skipped() {
+        skipped.incrementAndGet();
+    }
+
+    void stored(long bytes) {
+        bytesWritten.addAndGet(bytes);
+    }
+
+    void failed(String entry, String reason) {
+        failed.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(entry + ": " + reason);
+            }
+        }
+    }
+
+    void finish(Status status) {
+        this.status = status;
+        this.finishedAt = LocalDateTime.now();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getEntriesRead() {
+        return entriesRead.get();
+    }
+
+    public long getImported() {
+        return imported.get();
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<>(errors);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.admission.BulkheadFullException;
+import com.photoserve.photo_api.model.Photo;
+import com.photoserve.photo_api.repository.PhotoRepository;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Imports photos from a ZIP/TAR stream, e.g. an export from another photo service.
+ *
+ * The archive is read strictly sequentially and each entry is written to storage as it arrives.
+ * Decoding for placeholders and hashes, the expensive part, runs on a bounded worker pool while
+ * the next entries are read; at most {@code 2 * workers} entries are in flight, so memory use does
+ * not depend on the archive size. Rows are saved in batches of {@code photo.import.batch-size},
+ * one transaction per batch.
+ */
+@Service
+public class ImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportService.class);
+
+    private static final Pattern IMAGE_FILENAME =
+            Pattern.compile(".*\\.(jpg|jpeg|png|gif|webp|heic)$", Pattern.CASE_INSENSITIVE);
+    private static final int MAX_TRACKED_IMPORTS = 100;
+
+    private final PhotoRepository photoRepository;
+    private final FileStorageService fileStorageService;
+    private final IngestService ingestService;
+    private final int batchSize;
+    private final ExecutorService workers;
+    private final Semaphore inFlight;
+    private final Map<String, ImportProgress> imports = new LinkedHashMap<>();
+
+    public ImportService(PhotoRepository photoRepository,
+                         FileStorageService fileStorageService,
+                         IngestService ingestService,
+                         @Value("${photo.import.workers:4}") int workerCount,
+                         @Value("${photo.import.batch-size:100}") int batchSize) {
+        this.photoRepository = photoRepository;
+        this.fileStorageService = fileStorageService;
+        this.ingestService = ingestService;
+        this.batchSize = batchSize;
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "import-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.inFlight = new Semaphore(workerCount * 2);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    public ImportProgress getProgress(String importId) {
+        synchronized (imports) {
+            return imports.get(importId);
+        }
+    }
+
+    /**
+     * Registers a new import so its progress can be polled while {@link #importArchive} runs.
+     *
+     * @return null if an import with this id is already running
+     */
+    public ImportProgress begin(String importId) {
+        synchronized (imports) {
+            ImportProgress existing = imports.get(importId);
+            if (existing != null && existing.getStatus() == ImportProgress.Status.RUNNING) {
+                return null;
+            }
+            ImportProgress progress = new ImportProgress(importId);
+            imports.remove(importId);
+            imports.put(importId, progress);
+            Iterator<ImportProgress> oldest = imports.values().iterator();
+            while (imports.size() > MAX_TRACKED_IMPORTS && oldest.hasNext()) {
+                if (oldest.next().getStatus() != ImportProgress.Status.RUNNING) {
+                    oldest.remove();
+                }
+            }
+            return progress;
+        }
+    }
+
+    public ImportProgress importArchive(ImportProgress progress, InputStream archive) throws IOException {
+        List<Future<Photo>> pending = new ArrayList<>();
+        try {
+            ArchiveReader reader = ArchiveReader.open(archive);
+            ArchiveReader.Entry entry;
+            while ((entry = reader.next()) != null) {
+                progress.entryRead();
+                String filename = toFilename(entry.name());
+                if (filename == null || photoRepository.findByFilename(filename).isPresent()) {
+                    progress.skipped();
+                    continue;
+                }
+
+                String storedFilename;
+                try {
+                    storedFilename = fileStorageService.storeStream(filename, entry.content());
+                    progress.stored(Files.size(fileStorageService.loadFile(storedFilename)));
+                } catch (RuntimeException e) {
+                    progress.failed(entry.name(), e.getMessage());
+                    continue;
+                }
+
+                String analyzedFilename = storedFilename;
+                inFlight.acquire();
+                pending.add(workers.submit(() -> {
+                    try {
+                        Photo photo = new Photo(analyzedFilename);
+                        analyze(photo);
+                        return photo;
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+                if (pending.size() >= batchSize) {
+                    flush(pending, progress);
+                }
+            }
+            flush(pending, progress);
+            progress.finish(ImportProgress.Status.COMPLETED);
+        } catch (IOException | RuntimeException e) {
+            flushQuietly(pending, progress);
+            progress.finish(ImportProgress.Status.FAILED);
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.finish(ImportProgress.Status.FAILED);
+            throw new IOException("Import interrupted", e);
+        }
+        log.info("Import {} finished: {} imported, {} skipped, {} failed",
+                progress.getId(), progress.getImported(), progress.getSkipped(), progress.getFailed());
+        return progress;
+    }
+
+    /**
+     * Flattens archive paths to a storable filename: the last path segment, with characters the
+     * photo filename rules do not allow replaced by underscores.
+     *
+     * @return null for entries that are not images or are archiver metadata
+     */
+    static String toFilename(String entryName) {
+        String name = entryName.replace('\\', '/');
+        if (name.contains("__MACOSX/")) {
+            return null;
+        }
+        name = name.substring(name.lastIndexOf('/') + 1);
+        if (name.startsWith(".") || !IMAGE_FILENAME.matcher(name).matches()) {
+            return null;
+        }
+        name = name.replaceAll("[^a-zA-Z0-9_\\-.]", "_");
+        return name.length() > 255 ? null : name;
+    }
+
+    /**
+     * Analyses a stored entry, waiting out a full decode budget: an import is background work and
+     * a photo saved without its placeholder and hash would never get them.
+     */
+    private void analyze(Photo photo) throws InterruptedException {
+        while (true) {
+            try {
+                ingestService.analyze(photo);
+                return;
+            } catch (BulkheadFullException e) {
+                TimeUnit.SECONDS.sleep(Math.max(1, e.getRetryAfterSeconds()));
+            }
+        }
+    }
+
+    private void flush(List<Future<Photo>> pending, ImportProgress progress) throws InterruptedException {
+        List<Photo> batch = new ArrayList<>(pending.size());
+        for (Future<Photo> future : pending) {
+            try {
+                batch.add(future.get());
+            } catch (ExecutionException e) {
+                progress.failed("analysis", e.getCause().getMessage());
+            }
+        }
+        pending.clear();
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Photo> saved;
+        try {
+            saved = photoRepository.saveAll(batch);
+        } catch (RuntimeException e) {
+            // One bad row fails the whole batch; retry individually so only that row is lost
+            saved = new ArrayList<>();
+            for (Photo photo : batch) {
+                try {
+                    saved.add(photoRepository.save(unsavedCopy(photo)));
+                } catch (RuntimeException rowFailure) {
+                    progress.failed(photo.getFilename(), rowFailure.getMessage());
+                    fileStorageService.deleteFile(photo.getFilename());
+                }
+            }
+        }
+        saved.forEach(ingestService::onSaved);
+        progress.imported(saved.size());
+    }
+
+    /**
+     * The rolled back batch insert left identity ids on its photos; saved as they are, they would
+     * be merged into rows that do not exist.
+     */
+    private static Photo unsavedCopy(Photo photo) {
+        Photo copy = new Photo(photo.getFilename());
+        copy.setPlaceholder(photo.getPlaceholder());
+        copy.setPerceptualHash(photo.getPerceptualHash());
+        copy.setLatitude(photo.getLatitude());
+        copy.setLongitude(photo.getLongitude());
+        copy.setCapturedAt(photo.getCapturedAt());
+        return copy;
+    }
+
+    private void flushQuietly(List<Future<Photo>> pending, ImportProgress progress) {
+        try {
+            flush(pending, progress);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Could not save the last batch of import {}", progress.getId(), e);
+        }
+    }
+}
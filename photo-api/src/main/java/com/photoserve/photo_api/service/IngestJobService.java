@@ -0,0 +1,231 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.admission.BulkheadFullException;
+import com.photoserve.photo_api.model.IngestJob;
+import com.photoserve.photo_api.model.Photo;
+import com.photoserve.photo_api.repository.IngestJobRepository;
+import com.photoserve.photo_api.repository.PhotoRepository;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the post-processing of asynchronous uploads. The {@code ingest_jobs} table is the queue:
+ * a job is written before the upload returns, handed to a fixed worker pool, and only leaves the
+ * {@code QUEUED} state once a worker has claimed it with a conditional update, so each attempt
+ * runs on exactly one worker even when several nodes share the table. Jobs that do not fit in the
+ * pool's bounded queue and jobs waiting for a retry are found again by a periodic sweep of the
+ * table. The sweep also refreshes the heartbeat of the jobs this node is running and requeues
+ * {@code RUNNING} jobs whose heartbeat is older than {@code photo.ingest.stale-after-ms}, which is
+ * what recovers the jobs of a node that stopped mid-job without touching those of live nodes. An
+ * attempt records its outcome only if the job was not requeued and claimed by another worker
+ * meanwhile. A job that fails for good has its stored file deleted, as no photo row refers to it.
+ */
+@Service
+public class IngestJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestJobService.class);
+
+    private final IngestJobRepository ingestJobRepository;
+    private final PhotoRepository photoRepository;
+    private final IngestService ingestService;
+    private final FileStorageService fileStorageService;
+    private final int maxAttempts;
+    private final long sweepIntervalMillis;
+    private final long staleAfterMillis;
+    private final ThreadPoolExecutor workers;
+    private final Set<Long> enqueued = ConcurrentHashMap.newKeySet();
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService sweeper;
+
+    public IngestJobService(IngestJobRepository ingestJobRepository,
+                            PhotoRepository photoRepository,
+                            IngestService ingestService,
+                            FileStorageService fileStorageService,
+                            @Value("${photo.ingest.workers:2}") int workerCount,
+                            @Value("${photo.ingest.queue-capacity:200}") int queueCapacity,
+                            @Value("${photo.ingest.max-attempts:3}") int maxAttempts,
+                            @Value("${photo.ingest.sweep-interval-ms:30000}") long sweepIntervalMillis,
+                            @Value("${photo.ingest.stale-after-ms:300000}") long staleAfterMillis) {
+        this.ingestJobRepository = ingestJobRepository;
+        this.photoRepository = photoRepository;
+        this.ingestService = ingestService;
+        this.fileStorageService = fileStorageService;
+        this.maxAttempts = maxAttempts;
+        this.sweepIntervalMillis = sweepIntervalMillis;
+        this.staleAfterMillis = staleAfterMillis;
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "ingest-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Starts the periodic sweep. Its first run picks up the queued jobs a previous run left behind.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ingest-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweepSafely, 0, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+        workers.shutdownNow();
+    }
+
+    /**
+     * Records a job for a file that is already in storage and queues it. Returns as soon as the
+     * job row is written; the photo row appears once a worker has processed the job.
+     */
+    public IngestJob submit(String storedFilename, String originalFilename) {
+        IngestJob job = ingestJobRepository.save(new IngestJob(storedFilename, originalFilename));
+        enqueue(job.getId());
+        return job;
+    }
+
+    public Optional<IngestJob> getJob(Long id) {
+        return ingestJobRepository.findById(id);
+    }
+
+    private void sweepSafely() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.warn("Ingest job sweep failed", e);
+        }
+    }
+
+    /**
+     * Keeps this node's running jobs alive, requeues the jobs of workers that stopped reporting,
+     * then hands queued jobs to the workers until the pool's queue is full. Processing is
+     * idempotent, so a requeued job simply runs again.
+     */
+    void sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        if (!running.isEmpty()) {
+            ingestJobRepository.heartbeat(List.copyOf(running), IngestJob.Status.RUNNING, now);
+        }
+        int stale = ingestJobRepository.requeueStale(IngestJob.Status.RUNNING, IngestJob.Status.QUEUED,
+                now.minus(staleAfterMillis, ChronoUnit.MILLIS));
+        if (stale > 0) {
+            log.info("Requeued {} ingest jobs whose worker stopped reporting", stale);
+        }
+
+        for (IngestJob job : ingestJobRepository.findTop100ByStatusOrderByIdAsc(IngestJob.Status.QUEUED)) {
+            if (!enqueue(job.getId())) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return false if the worker queue is full; the job stays queued in the table for the next sweep
+     */
+    private boolean enqueue(Long jobId) {
+        if (!enqueued.add(jobId)) {
+            return true;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    process(jobId);
+                } finally {
+                    enqueued.remove(jobId);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            enqueued.remove(jobId);
+            return false;
+        }
+    }
+
+    void process(Long jobId) {
+        if (ingestJobRepository.claim(jobId, IngestJob.Status.QUEUED, IngestJob.Status.RUNNING,
+                LocalDateTime.now()) == 0) {
+            return;
+        }
+        running.add(jobId);
+        try {
+            IngestJob job = ingestJobRepository.findById(jobId).orElse(null);
+            if (job != null) {
+                run(job);
+            }
+        } finally {
+            running.remove(jobId);
+        }
+    }
+
+    private void run(IngestJob job) {
+        int attempt = job.getAttempts();
+        // Known to have no photo row; a failed lookup proves nothing
+        boolean unreferenced = false;
+        try {
+            // A previous attempt may have saved the row and stopped before finishing the job
+            Photo photo = photoRepository.findByFilename(job.getFilename()).orElse(null);
+            if (photo == null) {
+                unreferenced = true;
+                photo = new Photo(job.getFilename());
+                ingestService.analyze(photo);
+                photo = photoRepository.save(photo);
+                unreferenced = false;
+                ingestService.onSaved(photo);
+            }
+            job.setPhotoId(photo.getId());
+            job.setStatus(IngestJob.Status.COMPLETED);
+            job.setError(null);
+        } catch (BulkheadFullException e) {
+            // The decode budget is taken by other work; not a failure of this job, so it does not
+            // use up an attempt and is picked up again by a later sweep
+            log.debug("Ingest job {} postponed: {}", job.getId(), e.getMessage());
+            job.setAttempts(job.getAttempts() - 1);
+            job.setStatus(IngestJob.Status.QUEUED);
+        } catch (RuntimeException e) {
+            log.warn("Ingest job {} failed (attempt {}): {}", job.getId(), job.getAttempts(), e.getMessage());
+            String message = String.valueOf(e.getMessage());
+            job.setError(message.length() > 500 ? message.substring(0, 500) : message);
+            job.setStatus(job.getAttempts() >= maxAttempts ? IngestJob.Status.FAILED : IngestJob.Status.QUEUED);
+        }
+        if (job.getStatus() != IngestJob.Status.QUEUED) {
+            job.setFinishedAt(LocalDateTime.now());
+        }
+        if (ingestJobRepository.finish(job.getId(), IngestJob.Status.RUNNING, attempt, job.getStatus(),
+                job.getAttempts(), job.getPhotoId(), job.getError(), job.getFinishedAt()) == 0) {
+            log.info("Ingest job {} was taken over during attempt {}; leaving it to the new attempt",
+                    job.getId(), attempt);
+            return;
+        }
+        if (job.getStatus() == IngestJob.Status.FAILED && unreferenced) {
+            log.warn("Ingest job {} failed for good; deleting its stored file {}", job.getId(), job.getFilename());
+            fileStorageService.deleteFile(job.getFilename());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.admission.BulkheadFullException;
+import com.photoserve.photo_api.model.Photo;
+import com.photoserve.photo_api.tracing.RequestTrace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Derives per-photo metadata from a stored upload and keeps the in-memory indexes in step with
+ * the photos table. The file is decoded once, subsampled through the {@link DecodeService}, and
+ * every derivative is computed from that small image.
+ */
+@Service
+public class IngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestService.class);
+
+    private static final int ANALYSIS_EDGE = 64;
+
+    private final FileStorageService fileStorageService;
+    private final DecodeService decodeService;
+    private final PlaceholderService placeholderService;
+    private final SimilarityIndex similarityIndex;
+    private final FilenameIndex filenameIndex;
+    private final GeoIndex geoIndex;
+    private final ThumbnailService thumbnailService;
+
+    public IngestService(FileStorageService fileStorageService,
+                         DecodeService decodeService,
+                         PlaceholderService placeholderService,
+                         SimilarityIndex similarityIndex,
+                         FilenameIndex filenameIndex,
+                         GeoIndex geoIndex,
+                         ThumbnailService thumbnailService) {
+        this.fileStorageService = fileStorageService;
+        this.decodeService = decodeService;
+        this.placeholderService = placeholderService;
+        this.similarityIndex = similarityIndex;
+        this.filenameIndex = filenameIndex;
+        this.geoIndex = geoIndex;
+        this.thumbnailService = thumbnailService;
+    }
+
+    /**
+     * Fills in the placeholder, perceptual hash, GPS position and capture time of a photo whose
+     * file is already stored. Files that cannot be decoded (e.g. HEIC) are left without them.
+     *
+     * @throws BulkheadFullException if the decode budget stays taken; the caller answers 503 or
+     *                               retries rather than save a photo that is never analysed
+     */
+    public void analyze(Photo photo) {
+        try {
+            ExifReader.Exif exif = RequestTrace.time("ingest.exif", () ->
+                    ExifReader.read(fileStorageService.loadFile(photo.getFilename())));
+            if (exif != null && exif.latitude() != null) {
+                photo.setLatitude(exif.latitude());
+                photo.setLongitude(exif.longitude());
+            }
+            if (exif != null) {
+                photo.setCapturedAt(exif.capturedAt());
+            }
+        } catch (Exception e) {
+            log.debug("Could not read EXIF of {}: {}", photo.getFilename(), e.getMessage());
+        }
+        try {
+            RequestTrace.time("ingest.decode", () -> decodeService.decodeToFit(
+                    fileStorageService.loadFile(photo.getFilename()), ANALYSIS_EDGE, image -> {
+                photo.setPlaceholder(placeholderService.compute(image));
+                photo.setPerceptualHash(PerceptualHash.dHash(image));
+                return image;
+            }));
+        } catch (BulkheadFullException e) {
+            throw e;
+        } catch (Exception e) {
+            log.debug("Could not decode {}: {}", photo.getFilename(), e.getMessage());
+        }
+    }
+
+    public void onSaved(Photo photo) {
+        if (photo.getId() == null) {
+            return;
+        }
+        filenameIndex.add(photo.getId(), photo.getFilename());
+        if (photo.getLatitude() != null && photo.getLongitude() != null) {
+            geoIndex.add(photo.getId(), photo.getLatitude(), photo.getLongitude());
+        }
+        if (photo.getPerceptualHash() != null) {
+            similarityIndex.add(photo.getId(), photo.getPerceptualHash());
+        }
+    }
+
+    public void onDeleted(Photo photo) {
+        thumbnailService.evict(photo.getFilename());
+        if (photo.getId() != null) {
+            filenameIndex.remove(photo.getId());
+            geoIndex.remove(photo.getId());
+        }
+        if (photo.getId() != null && photo.getPerceptualHash() != null) {
+            similarityIndex.remove(photo.getId(), photo.getPerceptualHash());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.photoserve.photo_api.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * 64-bit difference hash (dHash). The image is reduced to a 9x8 grid of average luminance and
+ * each bit records whether a cell is brighter than its right neighbour. Re-encoded, resized or
+ * slightly edited copies of a picture end up a few bits apart.
+ */
+public final class PerceptualHash {
+
+    private static final int GRID_WIDTH = 9;
+    private static final int GRID_HEIGHT = 8;
+
+    private PerceptualHash() {
+    }
+
+    public static long dHash(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] rgb = image.getRGB(0, 0, width, height, null, 0, width);
+
+        double[] sums = new double[GRID_WIDTH * GRID_HEIGHT];
+        int[] counts = new int[GRID_WIDTH * GRID_HEIGHT];
+        for (int y = 0; y < height; y++) {
+            int cellY = y * GRID_HEIGHT / height;
+            for (int x = 0; x < width; x++) {
+                int cellX = x * GRID_WIDTH / width;
+                int pixel = rgb[y * width + x];
+                int cell = cellY * GRID_WIDTH + cellX;
+                sums[cell] += 0.299 * ((pixel >> 16) & 0xff) + 0.587 * ((pixel >> 8) & 0xff) + 0.114 * (pixel & 0xff);
+                counts[cell]++;
+            }
+        }
+
+        long hash = 0;
+        for (int y = 0; y < GRID_HEIGHT; y++) {
+            for (int x = 0; x < GRID_WIDTH - 1; x++) {
+                int left = y * GRID_WIDTH + x;
+                double leftAverage = counts[left] == 0 ? 0 : sums[left] / counts[left];
+                double rightAverage = counts[left + 1] == 0 ? 0 : sums[left + 1] / counts[left + 1];
+                hash = (hash << 1) | (leftAverage > rightAverage ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
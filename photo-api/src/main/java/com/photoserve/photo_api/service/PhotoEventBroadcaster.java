@@ -0,0 +1,424 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.model.Photo;
+import com.photoserve.photo_api.model.PhotoChange;
+import com.photoserve.photo_api.repository.PhotoRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes photo events to Server-Sent Events subscribers so pages can update in place.
+ *
+ * The photo controller publishes creations and deletions as they happen. The change log is also
+ * tailed, which adds updates (such as HEIC conversions, made outside the API) and the writes of
+ * other replicas; a creation or deletion seen both ways is sent once. The tail also keeps the
+ * {@link FilenameIndex} in step with those renames and remote writes, and the {@link GeoIndex}
+ * with the positions they set (a converted HEIC file only gets its coordinates then), re-reading
+ * the changed photos once per batch.
+ *
+ * Each subscriber has a bounded queue drained by a small sender pool, so a slow client never
+ * blocks a publisher. A subscriber whose queue overflows is dropped; its browser reconnects with
+ * {@code Last-Event-ID} and gets the missed events from a short replay buffer, or a
+ * {@code resync} event if they are gone.
+ */
+@Service
+public class PhotoEventBroadcaster implements MeterBinder {
+
+    public static final String CREATED = "photo-created";
+    public static final String UPDATED = "photo-updated";
+    public static final String DELETED = "photo-deleted";
+    public static final String RESYNC = "resync";
+
+    private static final Logger log = LoggerFactory.getLogger(PhotoEventBroadcaster.class);
+
+    private static final int DEDUP_ENTRIES = 4096;
+    private static final int TAIL_BATCH = 500;
+
+    /** Payload of the photo events. */
+    public record PhotoEvent(Long id, String filename) {
+    }
+
+    // A null name is a keep-alive comment
+    private record Event(long id, String name, Object data) {
+    }
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final ArrayBlockingQueue<Event> queue;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, int bufferSize) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+
+    private final ChangeLogService changeLogService;
+    private final FilenameIndex filenameIndex;
+    private final GeoIndex geoIndex;
+    private final PhotoRepository photoRepository;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final int replaySize;
+    private final long timeoutMillis;
+    private final long heartbeatMillis;
+    private final long pollMillis;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // Guarded by itself; also orders event ids with enqueueing
+    private final ArrayDeque<Event> recent = new ArrayDeque<>();
+    private final Map<String, Boolean> published = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > DEDUP_ENTRIES;
+        }
+    };
+    private final ExecutorService senders;
+    private final LongAdder dropped = new LongAdder();
+    // Event ids are only meaningful to the process that issued them (and replicas each have their own)
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private ScheduledExecutorService scheduler;
+    private long nextId = 1;
+    private long position;
+
+    public PhotoEventBroadcaster(ChangeLogService changeLogService,
+                                 FilenameIndex filenameIndex,
+                                 GeoIndex geoIndex,
+                                 PhotoRepository photoRepository,
+                                 @Value("${photo.events.buffer-size:64}") int bufferSize,
+                                 @Value("${photo.events.max-subscribers:1000}") int maxSubscribers,
+                                 @Value("${photo.events.replay-size:256}") int replaySize,
+                                 @Value("${photo.events.timeout-ms:1800000}") long timeoutMillis,
+                                 @Value("${photo.events.heartbeat-ms:15000}") long heartbeatMillis,
+                                 @Value("${photo.events.poll-ms:1000}") long pollMillis,
+                                 @Value("${photo.events.sender-threads:4}") int senderThreads) {
+        this.changeLogService = changeLogService;
+        this.filenameIndex = filenameIndex;
+        this.geoIndex = geoIndex;
+        this.photoRepository = photoRepository;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.replaySize = replaySize;
+        this.timeoutMillis = timeoutMillis;
+        this.heartbeatMillis = heartbeatMillis;
+        this.pollMillis = pollMillis;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "sse-sender-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        position = changeLogService.latestSeq();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sse-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::tailSafely, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        for (Subscriber subscriber : subscribers) {
+            close(subscriber);
+            subscriber.emitter.complete();
+        }
+        senders.shutdownNow();
+    }
+
+    /**
+     * @param lastEventId the {@code Last-Event-ID} of a reconnecting client, or null
+     * @return the stream, or null if the subscriber limit is reached
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber;
+        synchronized (recent) {
+            List<Event> missed = missedSince(lastEventId);
+            // Room for the whole replay on top of the usual buffer, so none of it is dropped
+            subscriber = new Subscriber(emitter, bufferSize + (missed == null ? 1 : missed.size()));
+            if (missed == null) {
+                subscriber.queue.offer(new Event(nextId - 1, RESYNC, Map.of()));
+            } else {
+                missed.forEach(subscriber.queue::offer);
+            }
+            subscribers.add(subscriber);
+        }
+        emitter.onCompletion(() -> close(subscriber));
+        emitter.onTimeout(() -> close(subscriber));
+        emitter.onError(error -> close(subscriber));
+        schedule(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Sends a creation or deletion made by this node, unless the change log tail already did.
+     */
+    public void publish(String name, Photo photo) {
+        if (markPublished(name, photo.getId())) {
+            broadcast(name, new PhotoEvent(photo.getId(), photo.getFilename()));
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("events.subscribers", this, PhotoEventBroadcaster::subscriberCount).register(registry);
+        FunctionCounter.builder("events.dropped", this, PhotoEventBroadcaster::getDropped)
+                .description("Subscribers dropped because they could not keep up")
+                .register(registry);
+    }
+
+    /**
+     * @return the events after {@code lastEventId}, or null if some are no longer buffered
+     */
+    private List<Event> missedSince(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return List.of();
+        }
+        String prefix = epoch + "-";
+        if (!lastEventId.startsWith(prefix)) {
+            return null;
+        }
+        long lastId;
+        try {
+            lastId = Long.parseLong(lastEventId.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (lastId == nextId - 1) {
+            return List.of();
+        }
+        if (lastId > nextId - 1) {
+            return null;
+        }
+        if (recent.isEmpty() || recent.peekFirst().id() > lastId + 1 || nextId - 1 - lastId > replaySize) {
+            return null;
+        }
+        List<Event> missed = new ArrayList<>();
+        for (Event event : recent) {
+            if (event.id() > lastId) {
+                missed.add(event);
+            }
+        }
+        return missed;
+    }
+
+    private boolean markPublished(String name, Long photoId) {
+        synchronized (published) {
+            return published.put(name + ":" + photoId, Boolean.TRUE) == null;
+        }
+    }
+
+    private void forgetPublished(String name, Long photoId) {
+        synchronized (published) {
+            published.remove(name + ":" + photoId);
+        }
+    }
+
+    private void broadcast(String name, Object data) {
+        List<Subscriber> slow = new ArrayList<>();
+        synchronized (recent) {
+            Event event = new Event(nextId++, name, data);
+            recent.addLast(event);
+            if (recent.size() > replaySize) {
+                recent.removeFirst();
+            }
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.queue.offer(event)) {
+                    schedule(subscriber);
+                } else {
+                    slow.add(subscriber);
+                }
+            }
+        }
+        for (Subscriber subscriber : slow) {
+            dropped.increment();
+            log.debug("Dropping slow event stream subscriber");
+            close(subscriber);
+            // Completing waits for a send in progress, which is what is slow; never do it here
+            try {
+                senders.execute(subscriber.emitter::complete);
+            } catch (RuntimeException e) {
+                // shutting down
+            }
+        }
+    }
+
+    private void heartbeat() {
+        Event keepAlive = new Event(0, null, null);
+        for (Subscriber subscriber : subscribers) {
+            // A full queue means events are pending anyway
+            if (subscriber.queue.offer(keepAlive)) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    private void tailSafely() {
+        try {
+            tail();
+        } catch (RuntimeException e) {
+            log.warn("Could not read the change log for events", e);
+        }
+    }
+
+    /**
+     * Publishes the change log entries written since the last call.
+     */
+    void tail() {
+        ChangeLogService.ChangePage page = changeLogService.changesSince(position, TAIL_BATCH);
+        if (page == null) {
+            // Fell behind the retained log; pages have to reload
+            position = changeLogService.latestSeq();
+            broadcast(RESYNC, Map.of());
+            return;
+        }
+        Map<Long, Photo> photos = changedPhotos(page.changes());
+        for (PhotoChange change : page.changes()) {
+            PhotoEvent event = new PhotoEvent(change.getPhotoId(), change.getFilename());
+            if (change.getType() == PhotoChange.Type.DELETED) {
+                filenameIndex.remove(change.getPhotoId());
+            } else {
+                filenameIndex.add(change.getPhotoId(), change.getFilename());
+            }
+            Photo photo = photos.get(change.getPhotoId());
+            if (photo != null && photo.getLatitude() != null && photo.getLongitude() != null) {
+                geoIndex.add(photo.getId(), photo.getLatitude(), photo.getLongitude());
+            } else {
+                geoIndex.remove(change.getPhotoId());
+            }
+            switch (change.getType()) {
+                case CREATED:
+                    if (markPublished(CREATED, change.getPhotoId())) {
+                        broadcast(CREATED, event);
+                    }
+                    break;
+                case DELETED:
+                    if (markPublished(DELETED, change.getPhotoId())) {
+                        broadcast(DELETED, event);
+                    }
+                    break;
+                default:
+                    // A restored photo can be deleted again
+                    forgetPublished(DELETED, change.getPhotoId());
+                    broadcast(UPDATED, event);
+            }
+        }
+        position = page.next();
+    }
+
+    /**
+     * The current rows of the photos created or updated in this batch; deleted and trashed photos
+     * are not among them.
+     */
+    private Map<Long, Photo> changedPhotos(List<PhotoChange> changes) {
+        Set<Long> ids = new TreeSet<>();
+        for (PhotoChange change : changes) {
+            if (change.getType() != PhotoChange.Type.DELETED) {
+                ids.add(change.getPhotoId());
+            }
+        }
+        Map<Long, Photo> photos = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Photo photo : photoRepository.findAllById(ids)) {
+                photos.put(photo.getId(), photo);
+            }
+        }
+        return photos;
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.closed && subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RuntimeException e) {
+                subscriber.scheduled.set(false);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        do {
+            Event event;
+            while (!subscriber.closed && (event = subscriber.queue.poll()) != null) {
+                if (!send(subscriber, event)) {
+                    return;
+                }
+            }
+            subscriber.scheduled.set(false);
+        } while (!subscriber.queue.isEmpty() && !subscriber.closed && subscriber.scheduled.compareAndSet(false, true));
+    }
+
+    private boolean send(Subscriber subscriber, Event event) {
+        try {
+            if (event.name() == null) {
+                subscriber.emitter.send(SseEmitter.event().comment("keep-alive"));
+            } else {
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(epoch + "-" + event.id())
+                        .name(event.name())
+                        .data(event.data()));
+            }
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the container reports it through onError/onCompletion as well
+            close(subscriber);
+            return false;
+        }
+    }
+
+    private void close(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.remove(subscriber);
+        subscriber.queue.clear();
+    }
+}
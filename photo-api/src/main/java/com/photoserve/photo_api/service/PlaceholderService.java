@@ -0,0 +1,31 @@
+package com.photoserve.photo_api.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Computes the BlurHash placeholder stored on each photo at ingest, so listings can paint a
+ * blurred preview before any image request is made.
+ */
+@Service
+public class PlaceholderService {
+
+    private final int componentsX;
+    private final int componentsY;
+
+    public PlaceholderService(@Value("${photo.placeholder.components-x:4}") int componentsX,
+                              @Value("${photo.placeholder.components-y:3}") int componentsY) {
+        this.componentsX = componentsX;
+        this.componentsY = componentsY;
+    }
+
+    /**
+     * @param image a small, subsampled decode of the photo; BlurHash only keeps a few
+     *              low-frequency components so 64px on the long edge is plenty
+     */
+    public String compute(BufferedImage image) {
+        return BlurHash.encode(image, componentsX, componentsY);
+    }
+}
@@ -0,0 +1,169 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.repository.PhotoRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory BK-tree over photo perceptual hashes, answering "which photos are within Hamming
+ * distance k of this one" without scanning the table. Built from the database when the
+ * application starts and kept current by the upload and delete paths.
+ *
+ * Removing a photo only drops its id from its node; the node keeps routing for its subtree.
+ */
+@Service
+public class SimilarityIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SimilarityIndex.class);
+
+    private final PhotoRepository photoRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root;
+    private int size;
+
+    public SimilarityIndex(PhotoRepository photoRepository) {
+        this.photoRepository = photoRepository;
+    }
+
+    public record Match(long photoId, int distance) {
+    }
+
+    private static final class Node {
+        final long hash;
+        final List<Long> photoIds = new ArrayList<>(1);
+        Map<Integer, Node> children;
+
+        Node(long hash) {
+            this.hash = hash;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Object[]> hashes = photoRepository.findAllPerceptualHashes();
+        lock.writeLock().lock();
+        try {
+            root = null;
+            size = 0;
+            for (Object[] row : hashes) {
+                insert(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Similarity index built with {} photos", hashes.size());
+    }
+
+    public void add(long photoId, long hash) {
+        lock.writeLock().lock();
+        try {
+            insert(photoId, hash);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long photoId, long hash) {
+        lock.writeLock().lock();
+        try {
+            Node node = root;
+            while (node != null) {
+                int distance = PerceptualHash.distance(node.hash, hash);
+                if (distance == 0) {
+                    if (node.photoIds.remove(Long.valueOf(photoId))) {
+                        size--;
+                    }
+                    return;
+                }
+                node = node.children == null ? null : node.children.get(distance);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return photos within {@code maxDistance} of {@code hash}, nearest first
+     */
+    public List<Match> search(long hash, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (root == null) {
+                return matches;
+            }
+            List<Node> pending = new ArrayList<>();
+            pending.add(root);
+            while (!pending.isEmpty()) {
+                Node node = pending.remove(pending.size() - 1);
+                int distance = PerceptualHash.distance(node.hash, hash);
+                if (distance <= maxDistance) {
+                    for (Long photoId : node.photoIds) {
+                        matches.add(new Match(photoId, distance));
+                    }
+                }
+                if (node.children != null) {
+                    // Triangle inequality: only subtrees at |d - k| .. d + k can hold matches
+                    for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                        if (Math.abs(child.getKey() - distance) <= maxDistance) {
+                            pending.add(child.getValue());
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort(Comparator.comparingInt(Match::distance).thenComparingLong(Match::photoId));
+        return matches;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(long photoId, long hash) {
+        size++;
+        if (root == null) {
+            root = new Node(hash);
+            root.photoIds.add(photoId);
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = PerceptualHash.distance(node.hash, hash);
+            if (distance == 0) {
+                node.photoIds.add(photoId);
+                return;
+            }
+            if (node.children == null) {
+                node.children = new HashMap<>();
+            }
+            Node child = node.children.get(distance);
+            if (child == null) {
+                child = new Node(hash);
+                child.photoIds.add(photoId);
+                node.children.put(distance, child);
+                return;
+            }
+            node = child;
+        }
+    }
+}
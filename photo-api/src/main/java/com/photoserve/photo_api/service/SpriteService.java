@@ -0,0 +1,157 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.model.Photo;
+import com.photoserve.photo_api.tracing.RequestTrace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Packs the thumbnails of a page of photos into one sprite image, so a gallery page costs one
+ * image request instead of one per tile. Sprites are built from cached thumbnails and cached
+ * themselves per page (photo ids + tile size). The canvas, up to {@link #MAX_PHOTOS} tiles, is
+ * taken from the {@link DecodeService} budget like any decoded image.
+ */
+@Service
+public class SpriteService {
+
+    private static final Logger log = LoggerFactory.getLogger(SpriteService.class);
+
+    public static final int MAX_PHOTOS = 200;
+    private static final int COLUMNS = 10;
+    private static final float QUALITY = 0.8f;
+
+    private final ThumbnailService thumbnailService;
+    private final DecodeService decodeService;
+    private final DerivativeCache imageCache;
+    private final Map<String, SpriteSheet> layouts = new ConcurrentHashMap<>();
+
+    public SpriteService(ThumbnailService thumbnailService,
+                         DecodeService decodeService,
+                         @Value("${photo.sprite.cache-bytes:33554432}") long cacheBytes) {
+        this.thumbnailService = thumbnailService;
+        this.decodeService = decodeService;
+        this.imageCache = new DerivativeCache(cacheBytes);
+    }
+
+    public record Tile(int x, int y, int w, int h) {
+    }
+
+    /**
+     * Layout of a sprite: tile coordinates keyed by photo id, in request order. Photos whose
+     * thumbnail cannot be rendered are left out.
+     */
+    public record SpriteSheet(int tile, int width, int height, Map<Long, Tile> tiles) {
+    }
+
+    public SpriteSheet getLayout(List<Photo> photos, int tile) {
+        String key = cacheKey(photos, tile);
+        SpriteSheet layout = layouts.get(key);
+        if (layout == null || !imageCache.contains(key)) {
+            layout = build(key, photos, tile).layout();
+        }
+        return layout;
+    }
+
+    public byte[] getImage(List<Photo> photos, int tile) {
+        String key = cacheKey(photos, tile);
+        byte[] image = imageCache.get(key);
+        if (image == null) {
+            image = build(key, photos, tile).image();
+        }
+        return image;
+    }
+
+    private record Built(SpriteSheet layout, byte[] image) {
+    }
+
+    private static String cacheKey(List<Photo> photos, int tile) {
+        return tile + ":" + photos.stream().map(photo -> photo.getId() + "/" + photo.getFilename())
+                .collect(Collectors.joining(","));
+    }
+
+    private Built build(String key, List<Photo> photos, int tile) {
+        return RequestTrace.time("sprite.build", () -> {
+            // Only the encoded thumbnails are held; each is decoded when it is drawn
+            Map<Long, byte[]> thumbnails = new LinkedHashMap<>();
+            for (Photo photo : photos) {
+                byte[] thumbnail = loadThumbnail(photo.getFilename(), tile);
+                if (thumbnail != null) {
+                    thumbnails.put(photo.getId(), thumbnail);
+                }
+            }
+
+            int columns = Math.max(1, Math.min(COLUMNS, thumbnails.size()));
+            int rows = Math.max(1, (thumbnails.size() + columns - 1) / columns);
+            Map<Long, Tile> tiles = new LinkedHashMap<>();
+            byte[] image;
+            try {
+                image = decodeService.drawCanvas(columns * tile, rows * tile, sprite -> {
+                    Graphics2D graphics = sprite.createGraphics();
+                    try {
+                        graphics.setColor(Color.WHITE);
+                        graphics.fillRect(0, 0, sprite.getWidth(), sprite.getHeight());
+                        int index = 0;
+                        for (Map.Entry<Long, byte[]> entry : thumbnails.entrySet()) {
+                            BufferedImage thumbnail = decode(entry.getValue());
+                            if (thumbnail == null) {
+                                continue;
+                            }
+                            int x = (index % columns) * tile;
+                            int y = (index / columns) * tile;
+                            ImageEncoding.drawCover(graphics, thumbnail, x, y, tile);
+                            tiles.put(entry.getKey(), new Tile(x, y, tile, tile));
+                            index++;
+                        }
+                    } finally {
+                        graphics.dispose();
+                    }
+                    return ImageEncoding.toJpeg(sprite, QUALITY);
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not encode sprite", e);
+            }
+
+            SpriteSheet layout = new SpriteSheet(tile, columns * tile, rows * tile, tiles);
+            imageCache.put(key, image);
+            // Layouts are tiny but must not outlive their images
+            layouts.keySet().removeIf(existing -> !imageCache.contains(existing));
+            layouts.put(key, layout);
+            return new Built(layout, image);
+        });
+    }
+
+    private byte[] loadThumbnail(String filename, int tile) {
+        try {
+            // Twice the tile so the shorter edge still covers the square after cropping
+            return thumbnailService.getThumbnail(filename, Math.min(ThumbnailService.MAX_SIZE, tile * 2));
+        } catch (RuntimeException e) {
+            log.debug("Leaving {} out of sprite: {}", filename, e.getMessage());
+            return null;
+        }
+    }
+
+    private static BufferedImage decode(byte[] thumbnail) {
+        try {
+            return ImageIO.read(new ByteArrayInputStream(thumbnail));
+        } catch (IOException e) {
+            log.debug("Leaving an undecodable thumbnail out of sprite: {}", e.getMessage());
+            return null;
+        }
+    }
+}
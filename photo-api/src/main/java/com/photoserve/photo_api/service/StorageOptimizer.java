@@ -0,0 +1,245 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.model.Photo;
+import com.photoserve.photo_api.repository.PhotoRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background job that shrinks stored originals without changing their pixels.
+ *
+ * JPEGs are rewritten with {@code jpegtran -optimize -progressive} (optimized Huffman tables,
+ * progressive scans, all markers kept). PNGs above {@code photo.optimizer.png-min-bytes} can
+ * optionally be re-encoded at maximum deflate level. A result is only kept if it is smaller, and
+ * it replaces the original with an atomic rename. The job runs on a single minimum-priority
+ * thread and sleeps between files so that it never reads more than
+ * {@code photo.optimizer.max-bytes-per-second} on average.
+ *
+ * A photo is only marked as optimized once the outcome is final. Photos skipped for a passing
+ * reason (jpegtran missing, file unreadable, a timeout) are passed over for the rest of the run
+ * and tried again by the next one.
+ */
+@Service
+public class StorageOptimizer {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageOptimizer.class);
+
+    // Outcome of optimize() when the photo should be tried again in a later run
+    static final long RETRY_LATER = -1;
+
+    private final PhotoRepository photoRepository;
+    private final FileStorageService fileStorageService;
+    private final DecodeService decodeService;
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final long maxBytesPerSecond;
+    private final String jpegtranCommand;
+    private final boolean recompressPng;
+    private final long pngMinBytes;
+
+    private volatile boolean jpegtranAvailable = true;
+    private ScheduledExecutorService executor;
+    // Highest photo id visited in the current run
+    private long cursor;
+
+    public StorageOptimizer(PhotoRepository photoRepository,
+                            FileStorageService fileStorageService,
+                            DecodeService decodeService,
+                            @Value("${photo.optimizer.enabled:true}") boolean enabled,
+                            @Value("${photo.optimizer.interval-ms:600000}") long intervalMillis,
+                            @Value("${photo.optimizer.max-bytes-per-second:4194304}") long maxBytesPerSecond,
+                            @Value("${photo.optimizer.jpegtran-command:jpegtran}") String jpegtranCommand,
+                            @Value("${photo.optimizer.recompress-png:false}") boolean recompressPng,
+                            @Value("${photo.optimizer.png-min-bytes:2097152}") long pngMinBytes) {
+        this.photoRepository = photoRepository;
+        this.fileStorageService = fileStorageService;
+        this.decodeService = decodeService;
+        this.enabled = enabled;
+        this.intervalMillis = intervalMillis;
+        this.maxBytesPerSecond = maxBytesPerSecond;
+        this.jpegtranCommand = jpegtranCommand;
+        this.recompressPng = recompressPng;
+        this.pngMinBytes = pngMinBytes;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "storage-optimizer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::runSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void runSafely() {
+        cursor = 0;
+        // Check again every run, in case jpegtran has been installed since
+        jpegtranAvailable = true;
+        try {
+            while (runBatch() > 0 && !Thread.currentThread().isInterrupted()) {
+                // keep draining until every photo has been visited
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Storage optimizer run failed", e);
+        }
+    }
+
+    /**
+     * Optimizes the next batch of unvisited photos.
+     *
+     * @return the number of photos visited
+     */
+    int runBatch() throws InterruptedException {
+        List<Photo> batch = photoRepository.findTop20ByOptimizedAtIsNullAndIdGreaterThanOrderByIdAsc(cursor);
+        for (Photo photo : batch) {
+            cursor = photo.getId();
+            long start = System.nanoTime();
+            long bytesRead = 0;
+            long saved = RETRY_LATER;
+            try {
+                Path path = fileStorageService.loadFile(photo.getFilename());
+                bytesRead = Files.size(path);
+                saved = optimize(photo.getFilename(), path);
+            } catch (RuntimeException | IOException e) {
+                log.debug("Skipping optimization of {}: {}", photo.getFilename(), e.getMessage());
+            }
+            if (saved != RETRY_LATER) {
+                // Only these two columns; the photo may have been renamed or trashed meanwhile
+                photoRepository.markOptimized(photo.getId(), LocalDateTime.now(), saved);
+            }
+            throttle(bytesRead, System.nanoTime() - start);
+        }
+        return batch.size();
+    }
+
+    private void throttle(long bytesRead, long elapsedNanos) throws InterruptedException {
+        if (maxBytesPerSecond <= 0) {
+            return;
+        }
+        long budgetNanos = TimeUnit.SECONDS.toNanos(1) * bytesRead / maxBytesPerSecond;
+        if (budgetNanos > elapsedNanos) {
+            TimeUnit.NANOSECONDS.sleep(budgetNanos - elapsedNanos);
+        }
+    }
+
+    /**
+     * @return bytes saved, 0 when the file was left untouched for good, or {@link #RETRY_LATER}
+     */
+    long optimize(String filename, Path path) throws IOException, InterruptedException {
+        String lowerFilename = filename.toLowerCase();
+        if (lowerFilename.endsWith(".jpg") || lowerFilename.endsWith(".jpeg")) {
+            return optimizeJpeg(filename, path);
+        }
+        if (recompressPng && lowerFilename.endsWith(".png") && Files.size(path) >= pngMinBytes) {
+            return recompressPng(filename, path);
+        }
+        return 0;
+    }
+
+    private long optimizeJpeg(String filename, Path path) throws IOException, InterruptedException {
+        if (!jpegtranAvailable) {
+            return RETRY_LATER;
+        }
+        Path work = fileStorageService.createWorkFile(".jpg");
+        try {
+            Process process;
+            try {
+                process = new ProcessBuilder(jpegtranCommand, "-copy", "all", "-optimize", "-progressive",
+                        "-outfile", work.toString(), path.toString())
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .start();
+            } catch (IOException e) {
+                jpegtranAvailable = false;
+                log.warn("'{}' is not available, JPEG optimization skipped until the next run", jpegtranCommand);
+                return RETRY_LATER;
+            }
+            if (!process.waitFor(2, TimeUnit.MINUTES)) {
+                process.destroyForcibly();
+                return RETRY_LATER;
+            }
+            if (process.exitValue() != 0) {
+                // jpegtran rejects the file itself (e.g. a corrupt JPEG); trying again would not help
+                return 0;
+            }
+            return keepIfSmaller(filename, path, work);
+        } finally {
+            Files.deleteIfExists(work);
+        }
+    }
+
+    private long recompressPng(String filename, Path path) throws IOException {
+        // Re-encoding has to keep every pixel, so this takes the full image from the decode budget
+        Long saved = decodeService.decodeFull(path, image -> writePng(filename, path, image));
+        return saved == null ? 0 : saved;
+    }
+
+    private long writePng(String filename, Path path, BufferedImage image) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("png");
+        if (!writers.hasNext()) {
+            return 0;
+        }
+        ImageWriter writer = writers.next();
+        Path work = fileStorageService.createWorkFile(".png");
+        try {
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(work.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                // For PNG, quality 0 maps to the highest deflate level; the encoding stays lossless
+                param.setCompressionQuality(0.0f);
+                writer.setOutput(output);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            return keepIfSmaller(filename, path, work);
+        } finally {
+            Files.deleteIfExists(work);
+        }
+    }
+
+    private long keepIfSmaller(String filename, Path original, Path candidate) throws IOException {
+        long before = Files.size(original);
+        long after = Files.size(candidate);
+        if (after <= 0 || after >= before) {
+            return 0;
+        }
+        fileStorageService.replaceFile(filename, candidate);
+        return before - after;
+    }
+}
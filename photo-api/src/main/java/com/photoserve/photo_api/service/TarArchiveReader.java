@@ -0,0 +1,210 @@
+package com.photoserve.photo_api.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal streaming reader for ustar/GNU/pax TAR archives. Only what an import needs: regular
+ * file names (including GNU long names and pax {@code path} records) and their contents.
+ */
+public class TarArchiveReader extends ArchiveReader {
+
+    private static final int BLOCK = 512;
+
+    private final InputStream input;
+    private final byte[] header = new byte[BLOCK];
+    private long remaining;
+    private long padding;
+
+    public TarArchiveReader(InputStream input) {
+        this.input = input;
+    }
+
+    @Override
+    public Entry next() throws IOException {
+        skipCurrent();
+        String longName = null;
+        while (true) {
+            if (!readBlock(header)) {
+                return null;
+            }
+            if (isZeroBlock(header)) {
+                // end-of-archive marker
+                return null;
+            }
+
+            String name = string(header, 0, 100);
+            long size = octal(header, 124, 12);
+            char type = (char) header[156];
+            String magic = string(header, 257, 6);
+            if (magic.startsWith("ustar")) {
+                String prefix = string(header, 345, 155);
+                if (!prefix.isEmpty()) {
+                    name = prefix + "/" + name;
+                }
+            }
+            startEntry(size);
+
+            if (type == 'L') {
+                // GNU long name: the next entry's name is the content of this one
+                longName = new String(readContent(), StandardCharsets.UTF_8).trim();
+                continue;
+            }
+            if (type == 'x') {
+                String path = paxPath(readContent());
+                if (path != null) {
+                    longName = path;
+                }
+                continue;
+            }
+            if (type != '0' && type != '\0' && type != '7') {
+                // directories, links, devices, global pax headers
+                skipCurrent();
+                continue;
+            }
+            if (longName != null) {
+                name = longName;
+            }
+            return new Entry(name, size, nonClosing(new EntryStream()));
+        }
+    }
+
+    private void startEntry(long size) {
+        remaining = size;
+        padding = (BLOCK - size % BLOCK) % BLOCK;
+    }
+
+    private void skipCurrent() throws IOException {
+        skipFully(remaining + padding);
+        remaining = 0;
+        padding = 0;
+    }
+
+    private byte[] readContent() throws IOException {
+        if (remaining > 1024 * 1024) {
+            throw new IOException("TAR metadata entry too large");
+        }
+        byte[] content = new byte[(int) remaining];
+        int offset = 0;
+        while (offset < content.length) {
+            int read = input.read(content, offset, content.length - offset);
+            if (read == -1) {
+                throw new IOException("Unexpected end of TAR archive");
+            }
+            offset += read;
+        }
+        remaining = 0;
+        skipCurrent();
+        return content;
+    }
+
+    private static String paxPath(byte[] records) {
+        // Records look like "<length> <key>=<value>\n"
+        String text = new String(records, StandardCharsets.UTF_8);
+        for (String record : text.split("\n")) {
+            int space = record.indexOf(' ');
+            if (space > 0 && record.startsWith("path=", space + 1)) {
+                return record.substring(space + 1 + "path=".length());
+            }
+        }
+        return null;
+    }
+
+    private boolean readBlock(byte[] block) throws IOException {
+        int offset = 0;
+        while (offset < block.length) {
+            int read = input.read(block, offset, block.length - offset);
+            if (read == -1) {
+                if (offset == 0) {
+                    return false;
+                }
+                throw new IOException("Truncated TAR header");
+            }
+            offset += read;
+        }
+        return true;
+    }
+
+    private void skipFully(long bytes) throws IOException {
+        while (bytes > 0) {
+            long skipped = input.skip(bytes);
+            if (skipped <= 0) {
+                if (input.read() == -1) {
+                    throw new IOException("Unexpected end of TAR archive");
+                }
+                skipped = 1;
+            }
+            bytes -= skipped;
+        }
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String string(byte[] block, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && block[end] != 0) {
+            end++;
+        }
+        return new String(block, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static long octal(byte[] block, int offset, int length) throws IOException {
+        if ((block[offset] & 0x80) != 0) {
+            // GNU base-256 encoding for sizes over 8GB
+            long value = block[offset] & 0x7f;
+            for (int i = offset + 1; i < offset + length; i++) {
+                value = (value << 8) | (block[i] & 0xff);
+            }
+            return value;
+        }
+        String text = string(block, offset, length).trim();
+        if (text.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(text, 8);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid TAR header", e);
+        }
+    }
+
+    /**
+     * Exposes exactly the current entry's bytes.
+     */
+    private final class EntryStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = input.read();
+            if (b == -1) {
+                throw new IOException("Unexpected end of TAR archive");
+            }
+            remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = input.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read == -1) {
+                throw new IOException("Unexpected end of TAR archive");
+            }
+            remaining -= read;
+            return read;
+        }
+    }
+}
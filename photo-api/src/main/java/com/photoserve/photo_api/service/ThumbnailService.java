@@ -0,0 +1,148 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.cluster.PeerCache;
+import com.photoserve.photo_api.storage.PackStore;
+import com.photoserve.photo_api.tracing.RequestTrace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Produces JPEG thumbnails that fit inside a square of the requested size. Thumbnails are decoded
+ * with source subsampling through the {@link DecodeService} and kept in a byte-bounded LRU cache
+ * keyed by filename and size, backed by a memory-mapped {@link PackStore} so they survive
+ * restarts without one file per thumbnail.
+ *
+ * With several replicas, the thumbnails of a file are owned by one node chosen by the
+ * {@link PeerCache}; the other nodes fetch them from it rather than rendering and caching their own.
+ */
+@Service
+public class ThumbnailService {
+
+    public static final int MIN_SIZE = 32;
+    public static final int MAX_SIZE = 1024;
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+
+    private static final float QUALITY = 0.82f;
+
+    private final FileStorageService fileStorageService;
+    private final DecodeService decodeService;
+    private final DerivativeCache cache;
+    // Null keeps thumbnails in memory only
+    private final PackStore pack;
+    // Null renders everything locally
+    private final PeerCache peerCache;
+
+    public ThumbnailService(FileStorageService fileStorageService,
+                            DecodeService decodeService,
+                            @Qualifier("thumbnailPack") PackStore thumbnailPack,
+                            PeerCache peerCache,
+                            @Value("${photo.thumbnail.cache-bytes:67108864}") long cacheBytes) {
+        this.fileStorageService = fileStorageService;
+        this.decodeService = decodeService;
+        this.pack = thumbnailPack;
+        this.peerCache = peerCache;
+        this.cache = new DerivativeCache(cacheBytes);
+    }
+
+    /**
+     * @return the encoded thumbnail, or null if the file cannot be decoded
+     */
+    public byte[] getThumbnail(String filename, int size) {
+        String owner = peerCache != null ? peerCache.remoteOwnerOf(filename) : null;
+        if (owner != null) {
+            PeerCache.Response response = RequestTrace.time("thumbnail.peer",
+                    () -> peerCache.get(owner, peerPath(filename) + "?size=" + size));
+            if (response != null) {
+                switch (response.status()) {
+                    case 200:
+                        return response.body();
+                    case 404:
+                        throw new RuntimeException("File not found: " + filename);
+                    case 422:
+                        return null;
+                    default:
+                        log.warn("Peer {} answered {} for thumbnail {}@{}", owner, response.status(), filename, size);
+                }
+            }
+        }
+        return getLocalThumbnail(filename, size);
+    }
+
+    /**
+     * Renders or returns the cached thumbnail on this node, whoever owns it. Serves the requests
+     * of the other peers.
+     */
+    public byte[] getLocalThumbnail(String filename, int size) {
+        return cache.computeIfAbsent(cacheKey(filename, size), key -> load(key, filename, size));
+    }
+
+    public void evict(String filename) {
+        evictLocal(filename);
+        String owner = peerCache != null ? peerCache.remoteOwnerOf(filename) : null;
+        if (owner != null) {
+            peerCache.delete(owner, peerPath(filename));
+        }
+    }
+
+    public void evictLocal(String filename) {
+        cache.invalidatePrefix(filename + "@");
+        if (pack != null) {
+            try {
+                pack.deletePrefix(filename + "@");
+            } catch (IOException e) {
+                log.warn("Could not remove packed thumbnails of {}", filename, e);
+            }
+        }
+    }
+
+    public DerivativeCache getCache() {
+        return cache;
+    }
+
+    private static String peerPath(String filename) {
+        return "/internal/peer/thumbnails/" + UriUtils.encodePathSegment(filename, StandardCharsets.UTF_8);
+    }
+
+    private static String cacheKey(String filename, int size) {
+        return filename + "@" + size;
+    }
+
+    private byte[] load(String key, String filename, int size) {
+        if (pack == null) {
+            return render(filename, size);
+        }
+        byte[] packed = RequestTrace.time("thumbnail.pack", () -> pack.getBytes(key));
+        if (packed != null) {
+            return packed;
+        }
+        byte[] rendered = render(filename, size);
+        if (rendered != null) {
+            try {
+                pack.put(key, rendered);
+            } catch (IOException | IllegalArgumentException e) {
+                log.warn("Could not pack thumbnail {}", key, e);
+            }
+        }
+        return rendered;
+    }
+
+    private byte[] render(String filename, int size) {
+        try {
+            return RequestTrace.time("thumbnail.render", () -> decodeService.decodeToFit(
+                    fileStorageService.loadFile(filename), size,
+                    decoded -> ImageEncoding.toJpeg(ImageEncoding.fit(decoded, size), QUALITY)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not render thumbnail for " + filename, e);
+        }
+    }
+}
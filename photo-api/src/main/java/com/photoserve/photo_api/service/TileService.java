@@ -0,0 +1,213 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.storage.PackStore;
+import com.photoserve.photo_api.tracing.RequestTrace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Deep Zoom (DZI) tile pyramids, so viewers of large photos download only the visible part at
+ * the zoom level they show. Level {@code maxLevel} is the original size and every level below
+ * halves it, down to a single pixel at level 0. Each level is cut into {@code tileSize} squares,
+ * extended by {@code overlap} pixels on every side that has a neighbour.
+ *
+ * Nothing is built ahead of time: a tile is decoded from the original on first request, reading
+ * only the rectangle it covers. Reads are subsampled to within twice the level's size and then
+ * halved with filtering, which keeps memory per tile small without the aliasing of plain
+ * decimation. Encoded tiles are kept in a byte-bounded LRU cache backed by a {@link PackStore}.
+ */
+@Service
+public class TileService {
+
+    private static final Logger log = LoggerFactory.getLogger(TileService.class);
+
+    private static final float QUALITY = 0.85f;
+    private static final int MAX_PYRAMIDS = 1024;
+
+    /**
+     * Geometry of one photo's pyramid.
+     */
+    public record Pyramid(int width, int height, int tileSize, int overlap, int maxLevel) {
+
+        public int levelWidth(int level) {
+            return scaledDown(width, level);
+        }
+
+        public int levelHeight(int level) {
+            return scaledDown(height, level);
+        }
+
+        public int columns(int level) {
+            return (levelWidth(level) + tileSize - 1) / tileSize;
+        }
+
+        public int rows(int level) {
+            return (levelHeight(level) + tileSize - 1) / tileSize;
+        }
+
+        public boolean contains(int level, int column, int row) {
+            return level >= 0 && level <= maxLevel
+                    && column >= 0 && column < columns(level)
+                    && row >= 0 && row < rows(level);
+        }
+
+        private int scaledDown(int size, int level) {
+            long divisor = 1L << (maxLevel - level);
+            return (int) ((size + divisor - 1) / divisor);
+        }
+    }
+
+    private final FileStorageService fileStorageService;
+    private final DecodeService decodeService;
+    private final int tileSize;
+    private final int overlap;
+    private final DerivativeCache cache;
+    // Null keeps tiles in memory only
+    private final PackStore pack;
+    private final Map<String, Pyramid> pyramids = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Pyramid> eldest) {
+            return size() > MAX_PYRAMIDS;
+        }
+    };
+
+    public TileService(FileStorageService fileStorageService,
+                       DecodeService decodeService,
+                       @Qualifier("tilePack") PackStore tilePack,
+                       @Value("${photo.tiles.tile-size:254}") int tileSize,
+                       @Value("${photo.tiles.overlap:1}") int overlap,
+                       @Value("${photo.tiles.cache-bytes:67108864}") long cacheBytes) {
+        this.fileStorageService = fileStorageService;
+        this.decodeService = decodeService;
+        this.pack = tilePack;
+        this.tileSize = tileSize;
+        this.overlap = overlap;
+        this.cache = new DerivativeCache(cacheBytes);
+    }
+
+    /**
+     * @return the pyramid of the file, or null if the file cannot be decoded
+     */
+    public Pyramid getPyramid(String filename) {
+        synchronized (pyramids) {
+            Pyramid pyramid = pyramids.get(filename);
+            if (pyramid != null) {
+                return pyramid;
+            }
+        }
+        Dimension size;
+        try {
+            size = decodeService.readSize(fileStorageService.loadFile(filename));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the size of " + filename, e);
+        }
+        if (size == null) {
+            return null;
+        }
+        int longEdge = Math.max(size.width, size.height);
+        int maxLevel = longEdge <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(longEdge - 1);
+        Pyramid pyramid = new Pyramid(size.width, size.height, tileSize, overlap, maxLevel);
+        synchronized (pyramids) {
+            pyramids.put(filename, pyramid);
+        }
+        return pyramid;
+    }
+
+    /**
+     * @return the encoded tile, or null if the file cannot be decoded
+     * @throws IllegalArgumentException if the tile is outside the pyramid
+     */
+    public byte[] getTile(String filename, int level, int column, int row) {
+        Pyramid pyramid = getPyramid(filename);
+        if (pyramid == null) {
+            return null;
+        }
+        if (!pyramid.contains(level, column, row)) {
+            throw new IllegalArgumentException("No tile " + level + "/" + column + "_" + row + " in " + filename);
+        }
+        return cache.computeIfAbsent(cacheKey(filename, level, column, row),
+                key -> load(key, filename, pyramid, level, column, row));
+    }
+
+    public void evict(String filename) {
+        synchronized (pyramids) {
+            pyramids.remove(filename);
+        }
+        cache.invalidatePrefix(filename + "@");
+        if (pack != null) {
+            try {
+                pack.deletePrefix(filename + "@");
+            } catch (IOException e) {
+                log.warn("Could not remove packed tiles of {}", filename, e);
+            }
+        }
+    }
+
+    public DerivativeCache getCache() {
+        return cache;
+    }
+
+    private static String cacheKey(String filename, int level, int column, int row) {
+        return filename + "@" + level + "/" + column + "_" + row;
+    }
+
+    private byte[] load(String key, String filename, Pyramid pyramid, int level, int column, int row) {
+        if (pack == null) {
+            return render(filename, pyramid, level, column, row);
+        }
+        byte[] packed = RequestTrace.time("tile.pack", () -> pack.getBytes(key));
+        if (packed != null) {
+            return packed;
+        }
+        byte[] rendered = render(filename, pyramid, level, column, row);
+        if (rendered != null) {
+            try {
+                pack.put(key, rendered);
+            } catch (IOException | IllegalArgumentException e) {
+                log.warn("Could not pack tile {}", key, e);
+            }
+        }
+        return rendered;
+    }
+
+    private byte[] render(String filename, Pyramid pyramid, int level, int column, int row) {
+        int scale = 1 << (pyramid.maxLevel() - level);
+        int left = Math.max(0, column * tileSize - overlap);
+        int top = Math.max(0, row * tileSize - overlap);
+        int right = Math.min(pyramid.levelWidth(level), (column + 1) * tileSize + overlap);
+        int bottom = Math.min(pyramid.levelHeight(level), (row + 1) * tileSize + overlap);
+        Rectangle region = new Rectangle(left * scale, top * scale,
+                Math.min(pyramid.width(), right * scale) - left * scale,
+                Math.min(pyramid.height(), bottom * scale) - top * scale);
+        try {
+            return RequestTrace.time("tile.render", () -> decodeService.decodeRegion(
+                    fileStorageService.loadFile(filename), region, Math.max(1, scale / 2), decoded -> {
+                BufferedImage tile = new BufferedImage(right - left, bottom - top, BufferedImage.TYPE_INT_RGB);
+                Graphics2D graphics = tile.createGraphics();
+                try {
+                    graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    graphics.drawImage(decoded, 0, 0, tile.getWidth(), tile.getHeight(), null);
+                } finally {
+                    graphics.dispose();
+                }
+                return ImageEncoding.toJpeg(tile, QUALITY);
+            }));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not render tile " + level + "/" + column + "_" + row + " of " + filename, e);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.model.Photo;
+import com.photoserve.photo_api.repository.PhotoRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Soft delete. Deleting a photo only stamps {@code deleted_at}, which hides it from every query
+ * and answers the request at once. For {@code photo.trash.grace-ms} it can still be restored;
+ * after that a background collector removes the original, its thumbnails and tiles, and the row.
+ *
+ * The collector runs on a single minimum-priority thread, reads the trash in batches of
+ * {@code photo.trash.batch-size} and sleeps between files so it never deletes more than
+ * {@code photo.trash.files-per-second}, keeping the disk free for requests after a large delete.
+ * It removes the row before the files: a restore racing with it either wins, and the row is no
+ * longer eligible, or finds nothing to restore. A new photo taking over a deleted photo's filename
+ * {@link #discard discards} it before writing its file; on this node that waits for a purge of
+ * the same filename in progress, so the collector never deletes the new file.
+ */
+@Service
+public class TrashService implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(TrashService.class);
+
+    private final PhotoRepository photoRepository;
+    private final FileStorageService fileStorageService;
+    private final IngestService ingestService;
+    private final ThumbnailService thumbnailService;
+    private final TileService tileService;
+    private final long graceMillis;
+    private final long intervalMillis;
+    private final int batchSize;
+    private final int filesPerSecond;
+
+    // Purging a filename and discarding it exclude each other; striped so that unrelated names do not
+    private final Object[] filenameLocks = new Object[64];
+    private final AtomicLong purged = new AtomicLong();
+    private ScheduledExecutorService collector;
+
+    public TrashService(PhotoRepository photoRepository,
+                        FileStorageService fileStorageService,
+                        IngestService ingestService,
+                        ThumbnailService thumbnailService,
+                        TileService tileService,
+                        @Value("${photo.trash.grace-ms:604800000}") long graceMillis,
+                        @Value("${photo.trash.interval-ms:300000}") long intervalMillis,
+                        @Value("${photo.trash.batch-size:100}") int batchSize,
+                        @Value("${photo.trash.files-per-second:20}") int filesPerSecond) {
+        this.photoRepository = photoRepository;
+        this.fileStorageService = fileStorageService;
+        this.ingestService = ingestService;
+        this.thumbnailService = thumbnailService;
+        this.tileService = tileService;
+        this.graceMillis = graceMillis;
+        this.intervalMillis = intervalMillis;
+        this.batchSize = batchSize;
+        this.filesPerSecond = filesPerSecond;
+        Arrays.setAll(filenameLocks, i -> new Object());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (intervalMillis <= 0) {
+            return;
+        }
+        collector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trash-collector");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        collector.scheduleWithFixedDelay(this::collectSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (collector != null) {
+            collector.shutdownNow();
+        }
+    }
+
+    /**
+     * Moves a photo to the trash. Its file stays in place until the grace period is over.
+     */
+    public void trash(Photo photo) {
+        photo.setDeletedAt(LocalDateTime.now());
+        photoRepository.save(photo);
+        ingestService.onDeleted(photo);
+        tileService.evict(photo.getFilename());
+    }
+
+    /**
+     * @return the restored photo, or empty if it is not in the trash (never deleted, or purged)
+     */
+    @Transactional
+    public Optional<Photo> restore(Long id) {
+        Optional<Photo> deleted = photoRepository.findDeletedByIdForUpdate(id);
+        deleted.ifPresent(photo -> {
+            photo.setDeletedAt(null);
+            photoRepository.save(photo);
+            ingestService.onSaved(photo);
+        });
+        return deleted;
+    }
+
+    /**
+     * Drops a deleted photo's row when a new photo takes over its filename, so the collector does
+     * not later remove the new file. Call it before the new file is written: if the collector is
+     * purging that filename, this returns once the old file is gone.
+     */
+    public void discard(String filename) {
+        synchronized (filenameLock(filename)) {
+            photoRepository.discardDeletedByFilename(filename);
+        }
+    }
+
+    public long countDeleted() {
+        return photoRepository.countDeleted();
+    }
+
+    public long getPurged() {
+        return purged.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("trash.photos", this, TrashService::countDeleted)
+                .description("Deleted photos waiting to be purged")
+                .register(registry);
+        FunctionCounter.builder("trash.purged", this, TrashService::getPurged).register(registry);
+    }
+
+    private void collectSafely() {
+        try {
+            while (collect() > 0 && !Thread.currentThread().isInterrupted()) {
+                // keep draining until only photos within their grace period are left
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Trash collection failed", e);
+        }
+    }
+
+    /**
+     * Purges the next batch of photos whose grace period is over.
+     *
+     * @return the number of photos purged
+     */
+    int collect() throws InterruptedException {
+        LocalDateTime before = LocalDateTime.now().minusNanos(graceMillis * 1_000_000);
+        List<Photo> expired = photoRepository.findDeletedBefore(before, PageRequest.of(0, batchSize));
+        int count = 0;
+        for (Photo photo : expired) {
+            long start = System.nanoTime();
+            synchronized (filenameLock(photo.getFilename())) {
+                if (photoRepository.purgeDeleted(photo.getId(), before) == 0) {
+                    continue;
+                }
+                try {
+                    fileStorageService.deleteFile(photo.getFilename());
+                } catch (RuntimeException e) {
+                    log.warn("Could not delete the file of purged photo {}: {}", photo.getFilename(), e.getMessage());
+                }
+            }
+            thumbnailService.evict(photo.getFilename());
+            tileService.evict(photo.getFilename());
+            purged.incrementAndGet();
+            count++;
+            throttle(System.nanoTime() - start);
+        }
+        if (count > 0) {
+            log.info("Purged {} deleted photos", count);
+        }
+        return count;
+    }
+
+    private Object filenameLock(String filename) {
+        return filenameLocks[Math.floorMod(filename.hashCode(), filenameLocks.length)];
+    }
+
+    private void throttle(long elapsedNanos) throws InterruptedException {
+        if (filesPerSecond <= 0) {
+            return;
+        }
+        long budgetNanos = TimeUnit.SECONDS.toNanos(1) / filesPerSecond;
+        if (budgetNanos > elapsedNanos) {
+            TimeUnit.NANOSECONDS.sleep(budgetNanos - elapsedNanos);
+        }
+    }
+}
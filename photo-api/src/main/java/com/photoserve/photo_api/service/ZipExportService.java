@@ -0,0 +1,122 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.model.Photo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes photos as a ZIP archive straight to an output stream. Nothing is staged on disk and no
+ * file is held in memory: every file is read through one fixed-size buffer, so heap use does not
+ * depend on the size of the export. Archives over 4GB or 65535 entries use ZIP64 automatically.
+ *
+ * Image formats are already compressed, so they are written as STORED entries. STORED entries need
+ * their size and CRC up front, so each such file is opened once and read through one channel: a
+ * CRC pass, which leaves the file in the page cache, then the copy of exactly the bytes that were
+ * checksummed from the same open file. A file replaced or grown meanwhile cannot corrupt the entry.
+ */
+@Service
+public class ZipExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ZipExportService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "webp", "heic");
+
+    private final FileStorageService fileStorageService;
+
+    public ZipExportService(FileStorageService fileStorageService) {
+        this.fileStorageService = fileStorageService;
+    }
+
+    /**
+     * @return the number of photos written; photos whose file is missing are skipped
+     */
+    public int writeZip(List<Photo> photos, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int written = 0;
+        ZipOutputStream zip = new ZipOutputStream(out);
+        for (Photo photo : photos) {
+            Path file;
+            try {
+                file = fileStorageService.loadFile(photo.getFilename());
+            } catch (RuntimeException e) {
+                log.debug("Skipping {} in export: {}", photo.getFilename(), e.getMessage());
+                continue;
+            }
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ZipEntry entry = new ZipEntry(photo.getFilename());
+                entry.setLastModifiedTime(Files.getLastModifiedTime(file));
+                long size = channel.size();
+                if (isCompressed(photo.getFilename())) {
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(size);
+                    entry.setCompressedSize(size);
+                    entry.setCrc(crc(channel, size, buffer));
+                    channel.position(0);
+                } else {
+                    entry.setMethod(ZipEntry.DEFLATED);
+                }
+
+                zip.putNextEntry(entry);
+                copy(channel, size, buffer, zip);
+            }
+            zip.closeEntry();
+            written++;
+        }
+        zip.finish();
+        zip.flush();
+        return written;
+    }
+
+    private static boolean isCompressed(String filename) {
+        int lastDot = filename.lastIndexOf('.');
+        return lastDot > 0 && COMPRESSED_EXTENSIONS.contains(filename.substring(lastDot + 1).toLowerCase());
+    }
+
+    private static long crc(FileChannel channel, long size, byte[] buffer) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer view = ByteBuffer.wrap(buffer);
+        for (long remaining = size; remaining > 0; ) {
+            int read = read(channel, view, remaining);
+            crc.update(buffer, 0, read);
+            remaining -= read;
+        }
+        return crc.getValue();
+    }
+
+    private static void copy(FileChannel channel, long size, byte[] buffer, OutputStream out) throws IOException {
+        ByteBuffer view = ByteBuffer.wrap(buffer);
+        for (long remaining = size; remaining > 0; ) {
+            int read = read(channel, view, remaining);
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    private static int read(FileChannel channel, ByteBuffer view, long remaining) throws IOException {
+        view.clear().limit((int) Math.min(view.capacity(), remaining));
+        int read = channel.read(view);
+        if (read < 0) {
+            throw new EOFException("File was truncated during export");
+        }
+        return read;
+    }
+}
@@ -0,0 +1,322 @@
+package com.photoserve.photo_api.storage;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A small, fast directory (an SSD) holding copies of the most requested originals, in front of
+ * the large, slow upload directory.
+ *
+ * A file is promoted after {@code promoteAfter} reads; all counts are halved whenever too many
+ * files are being tracked, so only recent popularity counts (a simple LFU admission filter that
+ * keeps one-off scans from flushing the tier). Promotion copies the file on a
+ * background thread. Resident files are evicted least recently used first to stay within
+ * {@code maxBytes}. Evicted or invalidated copies are deleted after a grace period, because a
+ * caller may hold a {@link Path} from {@link #lookup} that it has not opened yet.
+ *
+ * A promotion in flight carries a generation that {@link #invalidate} bumps, and is only admitted
+ * if its generation is unchanged, so a copy of a version that was replaced while it was being
+ * copied never becomes resident.
+ */
+public class HotTier implements MeterBinder, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(HotTier.class);
+
+    private static final int MAX_TRACKED = 100_000;
+    private static final long DELETE_GRACE_SECONDS = 60;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final int promoteAfter;
+    private final LinkedHashMap<String, Long> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, AtomicInteger> accessCounts = new ConcurrentHashMap<>();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    // Generations of the promotions in flight, only ever one per file
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService worker;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder promotions = new LongAdder();
+    private long residentBytes;
+
+    public HotTier(Path directory, long maxBytes, int promoteAfter) throws IOException {
+        this.directory = directory.toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        this.promoteAfter = Math.max(1, promoteAfter);
+        Files.createDirectories(this.directory);
+        this.worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hot-tier");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs {@link #recover} on the worker thread, ahead of any promotion.
+     */
+    public void recoverInBackground(Path coldDirectory) {
+        worker.execute(() -> recover(coldDirectory));
+    }
+
+    /**
+     * Re-adopts copies left by a previous run that still match their original (size and
+     * modification time), oldest first, and deletes the rest.
+     */
+    public void recover(Path coldDirectory) {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            log.warn("Could not list hot tier {}", directory, e);
+            return;
+        }
+        files.sort((a, b) -> lastModified(a).compareTo(lastModified(b)));
+        for (Path hot : files) {
+            String filename = hot.getFileName().toString();
+            Path cold = coldDirectory.resolve(filename);
+            try {
+                if (!filename.startsWith(".") && Files.isRegularFile(cold) && sameVersion(cold, hot)) {
+                    admit(filename, Files.size(hot), null);
+                } else {
+                    Files.deleteIfExists(hot);
+                }
+            } catch (IOException e) {
+                log.debug("Dropping hot copy {}: {}", filename, e.getMessage());
+            }
+        }
+        log.info("Hot tier recovered {} files ({} bytes)", residentCount(), getResidentBytes());
+    }
+
+    /**
+     * @return the hot copy of {@code filename}, or null if it is not resident
+     */
+    public Path lookup(String filename) {
+        synchronized (this) {
+            if (resident.get(filename) == null) {
+                misses.increment();
+                return null;
+            }
+        }
+        hits.increment();
+        return directory.resolve(filename);
+    }
+
+    /**
+     * Counts a read served from the cold tier and schedules promotion once the file is popular.
+     */
+    public void recordAccess(String filename, Path cold) {
+        AtomicInteger count = accessCounts.computeIfAbsent(filename, key -> new AtomicInteger());
+        if (count.incrementAndGet() >= promoteAfter && pending.add(filename)) {
+            try {
+                worker.execute(() -> {
+                    try {
+                        promote(filename, cold);
+                    } finally {
+                        pending.remove(filename);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                pending.remove(filename);
+            }
+        }
+        if (accessCounts.size() > MAX_TRACKED) {
+            age();
+        }
+    }
+
+    /**
+     * Drops the hot copy because the original changed or was deleted.
+     */
+    public void invalidate(String filename) {
+        accessCounts.remove(filename);
+        AtomicLong generation = generations.get(filename);
+        if (generation != null) {
+            generation.incrementAndGet();
+        }
+        boolean removed;
+        synchronized (this) {
+            Long size = resident.remove(filename);
+            removed = size != null;
+            if (removed) {
+                residentBytes -= size;
+            }
+        }
+        if (removed) {
+            deleteLater(filename);
+        }
+    }
+
+    void promote(String filename, Path cold) {
+        synchronized (this) {
+            if (resident.containsKey(filename)) {
+                return;
+            }
+        }
+        AtomicLong generation = new AtomicLong();
+        generations.put(filename, generation);
+        Path work = null;
+        try {
+            long size = Files.size(cold);
+            if (size > maxBytes) {
+                return;
+            }
+            work = Files.createTempFile(directory, ".promote-", ".tmp");
+            copy(cold, work);
+            if (Files.size(cold) != size || !sameVersion(cold, work)) {
+                // Replaced while copying; a later read will promote the new version
+                return;
+            }
+            Path hot = directory.resolve(filename);
+            Files.move(work, hot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            if (!admit(filename, size, generation)) {
+                // Invalidated while copying; nothing can have looked the copy up
+                Files.deleteIfExists(hot);
+                return;
+            }
+            accessCounts.remove(filename);
+            promotions.increment();
+        } catch (IOException e) {
+            log.debug("Could not promote {}: {}", filename, e.getMessage());
+        } finally {
+            generations.remove(filename);
+            if (work != null) {
+                try {
+                    Files.deleteIfExists(work);
+                } catch (IOException ignored) {
+                    // best effort
+                }
+            }
+        }
+    }
+
+    void copy(Path cold, Path work) throws IOException {
+        Files.copy(cold, work, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+    }
+
+    /**
+     * @return false if {@code generation} was bumped since the promotion started; nothing is admitted
+     */
+    private boolean admit(String filename, long size, AtomicLong generation) {
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            if (generation != null && generation.get() != 0) {
+                return false;
+            }
+            Long previous = resident.put(filename, size);
+            residentBytes += size - (previous == null ? 0 : previous);
+            Iterator<Map.Entry<String, Long>> eldest = resident.entrySet().iterator();
+            while (residentBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                if (entry.getKey().equals(filename)) {
+                    continue;
+                }
+                residentBytes -= entry.getValue();
+                evicted.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+        evicted.forEach(this::deleteLater);
+        return true;
+    }
+
+    private void age() {
+        accessCounts.values().removeIf(count -> count.updateAndGet(value -> value / 2) == 0);
+    }
+
+    private void deleteLater(String filename) {
+        try {
+            worker.schedule(() -> {
+                synchronized (this) {
+                    // Promoted again in the meantime
+                    if (resident.containsKey(filename)) {
+                        return;
+                    }
+                }
+                try {
+                    Files.deleteIfExists(directory.resolve(filename));
+                } catch (IOException e) {
+                    log.debug("Could not delete hot copy {}: {}", filename, e.getMessage());
+                }
+            }, DELETE_GRACE_SECONDS, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            // shutting down; recover() cleans up stale copies on the next start
+        }
+    }
+
+    /**
+     * Copied modification times may lose sub-millisecond precision, depending on the filesystem.
+     */
+    private static boolean sameVersion(Path cold, Path hot) throws IOException {
+        return Files.size(cold) == Files.size(hot)
+                && Files.getLastModifiedTime(cold).toMillis() == Files.getLastModifiedTime(hot).toMillis();
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public synchronized int residentCount() {
+        return resident.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getPromotions() {
+        return promotions.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("storage.hot.bytes", this, HotTier::getResidentBytes).register(registry);
+        Gauge.builder("storage.hot.files", this, HotTier::residentCount).register(registry);
+        FunctionCounter.builder("storage.hot.hits", this, HotTier::getHits).register(registry);
+        FunctionCounter.builder("storage.hot.misses", this, HotTier::getMisses).register(registry);
+        FunctionCounter.builder("storage.hot.promotions", this, HotTier::getPromotions).register(registry);
+    }
+
+    @Override
+    public void close() {
+        worker.shutdownNow();
+    }
+}
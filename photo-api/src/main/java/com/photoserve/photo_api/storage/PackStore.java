@@ -0,0 +1,433 @@
+package com.photoserve.photo_api.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only store for many small blobs (encoded thumbnails) packed into a few large segment
+ * files, so serving one costs a map lookup and a copy out of the page cache instead of an open,
+ * a read and a close per file.
+ *
+ * Each segment is preallocated and memory-mapped whole. A record is
+ * {@code magic, crc32, keyLength, valueLength, key, value}; a delete appends a tombstone
+ * ({@code valueLength = -1}). The index maps each key to one {@code long} holding the segment id
+ * and the record offset, and is rebuilt on startup by scanning the segments oldest first. In the
+ * newest segment the scan stops at the first record whose magic or CRC does not match, which is
+ * where a crash interrupted the last write; the rest of that segment is reused.
+ *
+ * Segments whose live bytes fall below {@code compactionThreshold} are compacted in the
+ * background: their live records are appended to the current segment and the file is deleted.
+ *
+ * The store is a cache of derived data, so it is kept within {@code maxBytes} of disk by evicting
+ * whole segments, oldest first: once a new segment would take the store past the limit, the keys
+ * still pointing into the oldest segment are dropped from the index and its file is deleted. The
+ * blobs written longest ago go first; a caller renders them again on its next miss.
+ */
+public class PackStore implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(PackStore.class);
+
+    private static final int MAGIC = 0x50414B31; // "PAK1"
+    private static final int HEADER_BYTES = 4 + 4 + 2 + 4;
+    private static final int TOMBSTONE = -1;
+    private static final int OFFSET_BITS = 40;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    private final Path directory;
+    private final String prefix;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final double compactionThreshold;
+    private final NavigableMap<String, Long> index = new ConcurrentSkipListMap<>();
+    private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService compactor;
+    private Segment active;
+
+    private static final class Segment {
+        final int id;
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int writePosition;
+        long liveBytes;
+        // Tombstones stay until no older segment could still hold the key they delete
+        int tombstones;
+
+        Segment(int id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * @param maxBytes disk the segments may take, at least two segments' worth; 0 for no limit
+     */
+    public PackStore(Path directory, String prefix, int segmentBytes, long maxBytes, double compactionThreshold,
+                     long compactionIntervalMillis) throws IOException {
+        if (segmentBytes < 1024 * 1024) {
+            throw new IllegalArgumentException("Segment size must be at least 1MB");
+        }
+        this.directory = directory.toAbsolutePath().normalize();
+        this.prefix = prefix;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxBytes <= 0 ? Integer.MAX_VALUE : (int) Math.max(2, Math.min(Integer.MAX_VALUE, maxBytes / segmentBytes));
+        this.compactionThreshold = compactionThreshold;
+        Files.createDirectories(this.directory);
+        recover();
+        evictOverLimit();
+
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pack-compactor-" + prefix);
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        if (compactionIntervalMillis > 0) {
+            compactor.scheduleWithFixedDelay(this::compactSafely, compactionIntervalMillis,
+                    compactionIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return a read-only view of the stored bytes, or null if the key is absent
+     */
+    public ByteBuffer get(String key) {
+        // A concurrent compaction can move the record between the two lookups; retry once it has
+        for (int attempt = 0; attempt < 3; attempt++) {
+            Long location = index.get(key);
+            if (location == null) {
+                return null;
+            }
+            Segment segment = segments.get(segmentId(location));
+            if (segment != null) {
+                int offset = offset(location);
+                int keyLength = segment.buffer.getShort(offset + 8);
+                int valueLength = segment.buffer.getInt(offset + 10);
+                return segment.buffer.slice(offset + HEADER_BYTES + keyLength, valueLength).asReadOnlyBuffer();
+            }
+        }
+        return null;
+    }
+
+    public byte[] getBytes(String key) {
+        ByteBuffer value = get(key);
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = new byte[value.remaining()];
+        value.get(bytes);
+        return bytes;
+    }
+
+    public synchronized void put(String key, byte[] value) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Key too long");
+        }
+        if (HEADER_BYTES + keyBytes.length + (long) value.length > segmentBytes) {
+            throw new IllegalArgumentException("Blob of " + value.length + " bytes does not fit in a segment");
+        }
+        long location = append(keyBytes, value);
+        release(index.put(key, location));
+        segments.get(segmentId(location)).liveBytes += recordBytes(keyBytes.length, value.length);
+        evictOverLimit();
+    }
+
+    public synchronized boolean delete(String key) throws IOException {
+        Long previous = index.remove(key);
+        if (previous == null) {
+            return false;
+        }
+        release(previous);
+        append(key.getBytes(StandardCharsets.UTF_8), null);
+        active.tombstones++;
+        return true;
+    }
+
+    /**
+     * Deletes every key starting with {@code keyPrefix}.
+     *
+     * @return the number of keys deleted
+     */
+    public synchronized int deletePrefix(String keyPrefix) throws IOException {
+        List<String> keys = new ArrayList<>(index.subMap(keyPrefix, keyPrefix + Character.MAX_VALUE).keySet());
+        for (String key : keys) {
+            delete(key);
+        }
+        return keys.size();
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    public synchronized long diskBytes() {
+        return (long) segments.size() * segmentBytes;
+    }
+
+    /**
+     * Compacts every sealed segment whose live bytes are below the threshold.
+     *
+     * @return the number of segments removed
+     */
+    public synchronized int compact() throws IOException {
+        List<Segment> candidates = new ArrayList<>();
+        for (Segment segment : segments.values()) {
+            if (segment != active && segment.liveBytes < compactionThreshold * segment.writePosition) {
+                candidates.add(segment);
+            }
+        }
+        candidates.sort((a, b) -> Integer.compare(a.id, b.id));
+        int removed = 0;
+        for (Segment segment : candidates) {
+            compact(segment);
+            removed++;
+        }
+        return removed;
+    }
+
+    private void compact(Segment segment) throws IOException {
+        boolean olderSegmentExists = segments.keySet().stream().anyMatch(id -> id < segment.id);
+        int position = 0;
+        while (position < segment.writePosition) {
+            int keyLength = segment.buffer.getShort(position + 8);
+            int valueLength = segment.buffer.getInt(position + 10);
+            byte[] keyBytes = new byte[keyLength];
+            segment.buffer.get(position + HEADER_BYTES, keyBytes);
+            String key = new String(keyBytes, StandardCharsets.UTF_8);
+
+            if (valueLength == TOMBSTONE) {
+                if (olderSegmentExists && !index.containsKey(key)) {
+                    append(keyBytes, null);
+                    active.tombstones++;
+                }
+            } else if (Long.valueOf(location(segment.id, position)).equals(index.get(key))) {
+                byte[] value = new byte[valueLength];
+                segment.buffer.get(position + HEADER_BYTES + keyLength, value);
+                long moved = append(keyBytes, value);
+                index.put(key, moved);
+                segments.get(segmentId(moved)).liveBytes += recordBytes(keyLength, valueLength);
+            }
+            position += recordBytes(keyLength, Math.max(valueLength, 0));
+        }
+        active.buffer.force();
+        segments.remove(segment.id);
+        segment.channel.close();
+        Files.deleteIfExists(segment.path);
+        log.info("Compacted pack segment {}", segment.path.getFileName());
+    }
+
+    private void evictOverLimit() throws IOException {
+        while (segments.size() > maxSegments) {
+            Segment oldest = null;
+            for (Segment segment : segments.values()) {
+                if (segment != active && (oldest == null || segment.id < oldest.id)) {
+                    oldest = segment;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            evict(oldest);
+        }
+    }
+
+    /**
+     * Drops a segment with the keys still stored in it. Its tombstones can only delete keys of
+     * older segments, and there are none, so nothing is resurrected.
+     */
+    private void evict(Segment segment) throws IOException {
+        int dropped = 0;
+        int position = 0;
+        while (position < segment.writePosition) {
+            int keyLength = segment.buffer.getShort(position + 8);
+            int valueLength = segment.buffer.getInt(position + 10);
+            if (valueLength != TOMBSTONE) {
+                byte[] keyBytes = new byte[keyLength];
+                segment.buffer.get(position + HEADER_BYTES, keyBytes);
+                if (index.remove(new String(keyBytes, StandardCharsets.UTF_8), location(segment.id, position))) {
+                    dropped++;
+                }
+            }
+            position += recordBytes(keyLength, Math.max(valueLength, 0));
+        }
+        segments.remove(segment.id);
+        segment.channel.close();
+        Files.deleteIfExists(segment.path);
+        log.info("Evicted pack segment {} with {} blobs to stay within {} segments",
+                segment.path.getFileName(), dropped, maxSegments);
+    }
+
+    private void compactSafely() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Pack compaction of {} failed", prefix, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        compactor.shutdownNow();
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+            segment.channel.close();
+        }
+        segments.clear();
+        index.clear();
+    }
+
+    private long append(byte[] keyBytes, byte[] value) throws IOException {
+        int valueLength = value == null ? TOMBSTONE : value.length;
+        int length = recordBytes(keyBytes.length, Math.max(valueLength, 0));
+        if (active == null || active.writePosition + length > segmentBytes) {
+            if (active != null) {
+                active.buffer.force();
+            }
+            active = openSegment(active == null ? 1 : active.id + 1);
+        }
+
+        CRC32 crc = new CRC32();
+        ByteBuffer lengths = ByteBuffer.allocate(6).putShort((short) keyBytes.length).putInt(valueLength).flip();
+        crc.update(lengths);
+        crc.update(keyBytes);
+        if (value != null) {
+            crc.update(value);
+        }
+
+        int offset = active.writePosition;
+        MappedByteBuffer buffer = active.buffer;
+        // The magic goes last, so a record torn by a crash never looks complete
+        buffer.putInt(offset + 4, (int) crc.getValue());
+        buffer.putShort(offset + 8, (short) keyBytes.length);
+        buffer.putInt(offset + 10, valueLength);
+        buffer.put(offset + HEADER_BYTES, keyBytes);
+        if (value != null) {
+            buffer.put(offset + HEADER_BYTES + keyBytes.length, value);
+        }
+        buffer.putInt(offset, MAGIC);
+        active.writePosition += length;
+        return location(active.id, offset);
+    }
+
+    private void release(Long location) {
+        if (location == null) {
+            return;
+        }
+        Segment segment = segments.get(segmentId(location));
+        if (segment != null) {
+            int offset = offset(location);
+            segment.liveBytes -= recordBytes(segment.buffer.getShort(offset + 8), segment.buffer.getInt(offset + 10));
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "-*.pack")) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+
+        for (Iterator<Path> it = files.iterator(); it.hasNext(); ) {
+            Path file = it.next();
+            String name = file.getFileName().toString();
+            int id = Integer.parseInt(name.substring(prefix.length() + 1, name.length() - ".pack".length()));
+            Segment segment = openSegment(id);
+            scan(segment, !it.hasNext());
+            active = segment;
+        }
+        log.info("Pack store {} recovered {} blobs from {} segments", prefix, index.size(), segments.size());
+    }
+
+    private void scan(Segment segment, boolean newest) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_BYTES <= segmentBytes && buffer.getInt(position) == MAGIC) {
+            int keyLength = buffer.getShort(position + 8);
+            int valueLength = buffer.getInt(position + 10);
+            int length = recordBytes(keyLength, Math.max(valueLength, 0));
+            if (keyLength < 0 || valueLength < TOMBSTONE || position + (long) length > segmentBytes) {
+                break;
+            }
+            if (newest && !checksumMatches(buffer, position, keyLength, valueLength)) {
+                break;
+            }
+            byte[] keyBytes = new byte[keyLength];
+            buffer.get(position + HEADER_BYTES, keyBytes);
+            String key = new String(keyBytes, StandardCharsets.UTF_8);
+            if (valueLength == TOMBSTONE) {
+                release(index.remove(key));
+                segment.tombstones++;
+            } else {
+                release(index.put(key, location(segment.id, position)));
+                segment.liveBytes += length;
+            }
+            position += length;
+        }
+        segment.writePosition = position;
+        if (newest && position + HEADER_BYTES <= segmentBytes && buffer.getInt(position) != 0) {
+            // Torn write: clear the magic so the next append does not leave a stale header behind
+            buffer.putInt(position, 0);
+            log.warn("Pack segment {} had an incomplete record at offset {}; truncated", segment.path.getFileName(), position);
+        }
+    }
+
+    private static boolean checksumMatches(ByteBuffer buffer, int position, int keyLength, int valueLength) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(position + 8, 6 + keyLength + Math.max(valueLength, 0)));
+        return (int) crc.getValue() == buffer.getInt(position + 4);
+    }
+
+    private Segment openSegment(int id) throws IOException {
+        Path path = directory.resolve(String.format("%s-%06d.pack", prefix, id));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        Segment segment = new Segment(id, path, channel, buffer);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private static int recordBytes(int keyLength, int valueLength) {
+        return HEADER_BYTES + keyLength + Math.max(valueLength, 0);
+    }
+
+    private static long location(int segmentId, int offset) {
+        return ((long) segmentId << OFFSET_BITS) | offset;
+    }
+
+    private static int segmentId(long location) {
+        return (int) (location >>> OFFSET_BITS);
+    }
+
+    private static int offset(long location) {
+        return (int) (location & OFFSET_MASK);
+    }
+}
@@ -0,0 +1,227 @@
+package com.photoserve.photo_api.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Objects in a bucket of an S3-compatible store (AWS S3, MinIO, Ceph RGW, ...), spoken to over
+ * plain HTTP with SigV4 signing. Files larger than {@code partSize} are sent as a multipart
+ * upload, one part in memory at a time; ranged reads use the {@code Range} header.
+ */
+public class S3StorageBackend implements StorageBackend {
+
+    /** S3 rejects parts smaller than this, except the last one. */
+    static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+    private static final Duration TIMEOUT = Duration.ofMinutes(5);
+
+    private final HttpClient http;
+    private final URI endpoint;
+    private final String bucket;
+    private final boolean pathStyle;
+    private final long partSize;
+    private final SigV4Signer signer;
+
+    public S3StorageBackend(String endpoint, String region, String bucket, String accessKey, String secretKey,
+                            boolean pathStyle, long partSize) {
+        if (partSize < MIN_PART_SIZE || partSize > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("S3 part size must be between " + MIN_PART_SIZE + " bytes and 2GB");
+        }
+        this.endpoint = URI.create(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint);
+        this.bucket = bucket;
+        this.pathStyle = pathStyle;
+        this.partSize = partSize;
+        this.signer = new SigV4Signer(accessKey, secretKey, region, "s3");
+        this.http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        long size = Files.size(source);
+        if (size <= partSize) {
+            HttpResponse<String> response = send("PUT", key, null, Map.of(),
+                    HttpRequest.BodyPublishers.ofFile(source), HttpResponse.BodyHandlers.ofString());
+            check(response, "PUT", key);
+            return;
+        }
+        putMultipart(key, source, size);
+    }
+
+    private void putMultipart(String key, Path source, long size) throws IOException {
+        HttpResponse<String> created = send("POST", key, "uploads", Map.of(),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofString());
+        check(created, "CreateMultipartUpload", key);
+        Matcher matcher = UPLOAD_ID.matcher(created.body());
+        if (!matcher.find()) {
+            throw new IOException("S3 CreateMultipartUpload for " + key + " returned no UploadId");
+        }
+        String uploadId = matcher.group(1);
+        String encodedUploadId = SigV4Signer.encode(uploadId, false);
+
+        try {
+            List<String> etags = new ArrayList<>();
+            byte[] part = new byte[(int) partSize];
+            try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+                for (long offset = 0; offset < size; offset += partSize) {
+                    int length = (int) Math.min(partSize, size - offset);
+                    ByteBuffer buffer = ByteBuffer.wrap(part, 0, length);
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer, offset + buffer.position()) < 0) {
+                            throw new IOException("File " + source + " shrank during upload");
+                        }
+                    }
+                    int partNumber = etags.size() + 1;
+                    HttpResponse<String> uploaded = send("PUT", key,
+                            "partNumber=" + partNumber + "&uploadId=" + encodedUploadId, Map.of(),
+                            HttpRequest.BodyPublishers.ofByteArray(part, 0, length), HttpResponse.BodyHandlers.ofString());
+                    check(uploaded, "UploadPart", key);
+                    etags.add(uploaded.headers().firstValue("ETag")
+                            .orElseThrow(() -> new IOException("S3 UploadPart for " + key + " returned no ETag")));
+                }
+            }
+
+            StringBuilder complete = new StringBuilder("<CompleteMultipartUpload>");
+            for (int i = 0; i < etags.size(); i++) {
+                complete.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                        .append(etags.get(i).replace("&", "&amp;").replace("<", "&lt;"))
+                        .append("</ETag></Part>");
+            }
+            complete.append("</CompleteMultipartUpload>");
+            HttpResponse<String> completed = send("POST", key, "uploadId=" + encodedUploadId, Map.of(),
+                    HttpRequest.BodyPublishers.ofString(complete.toString(), StandardCharsets.UTF_8),
+                    HttpResponse.BodyHandlers.ofString());
+            check(completed, "CompleteMultipartUpload", key);
+            // CompleteMultipartUpload can fail after the 200 status line has been sent
+            if (completed.body().contains("<Error>")) {
+                throw new IOException("S3 CompleteMultipartUpload for " + key + " failed: " + abbreviate(completed.body()));
+            }
+        } catch (IOException | RuntimeException e) {
+            abort(key, encodedUploadId, e);
+            throw e;
+        }
+    }
+
+    private void abort(String key, String encodedUploadId, Exception cause) {
+        try {
+            send("DELETE", key, "uploadId=" + encodedUploadId, Map.of(),
+                    HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.discarding());
+        } catch (IOException | RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return read(key, Map.of(), "GET");
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        if (length <= 0) {
+            return InputStream.nullInputStream();
+        }
+        return read(key, Map.of("range", "bytes=" + offset + "-" + (offset + length - 1)), "GET range");
+    }
+
+    private InputStream read(String key, Map<String, String> headers, String operation) throws IOException {
+        HttpResponse<InputStream> response = send("GET", key, null, headers,
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() == 404) {
+            response.body().close();
+            throw new NoSuchFileException(key);
+        }
+        if (response.statusCode() == 416) {
+            // Range starts past the end of the object
+            response.body().close();
+            return InputStream.nullInputStream();
+        }
+        if (response.statusCode() / 100 != 2) {
+            String body;
+            try (InputStream in = response.body()) {
+                body = new String(in.readNBytes(1024), StandardCharsets.UTF_8);
+            }
+            throw new IOException("S3 " + operation + " " + key + " failed with status " + response.statusCode() + ": " + body);
+        }
+        return response.body();
+    }
+
+    @Override
+    public ObjectInfo stat(String key) throws IOException {
+        HttpResponse<Void> response = send("HEAD", key, null, Map.of(),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return null;
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("S3 HEAD " + key + " failed with status " + response.statusCode());
+        }
+        long size = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        Instant lastModified = response.headers().firstValue("Last-Modified")
+                .map(value -> ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant())
+                .orElse(null);
+        return new ObjectInfo(key, size, lastModified);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        HttpResponse<String> response = send("DELETE", key, null, Map.of(),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 404) {
+            check(response, "DELETE", key);
+        }
+    }
+
+    URI objectUri(String key, String rawQuery) {
+        String path = SigV4Signer.encode(key, true);
+        String base = pathStyle
+                ? endpoint + "/" + bucket + "/" + path
+                : endpoint.getScheme() + "://" + bucket + "." + endpoint.getRawAuthority() + "/" + path;
+        return URI.create(rawQuery == null ? base : base + "?" + rawQuery);
+    }
+
+    private <T> HttpResponse<T> send(String method, String key, String rawQuery, Map<String, String> headers,
+                                     HttpRequest.BodyPublisher body, HttpResponse.BodyHandler<T> handler) throws IOException {
+        URI uri = objectUri(key, rawQuery);
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(TIMEOUT).method(method, body);
+        String payloadHash = body.contentLength() == 0 ? SigV4Signer.EMPTY_PAYLOAD : SigV4Signer.UNSIGNED_PAYLOAD;
+        signer.sign(method, uri, headers, payloadHash, Instant.now()).forEach(request::header);
+        try {
+            return http.send(request.build(), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during S3 " + method + " " + key, e);
+        }
+    }
+
+    private static void check(HttpResponse<String> response, String operation, String key) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("S3 " + operation + " " + key + " failed with status " + response.statusCode()
+                    + ": " + abbreviate(response.body()));
+        }
+    }
+
+    private static String abbreviate(String body) {
+        return body == null ? "" : body.length() > 500 ? body.substring(0, 500) : body;
+    }
+}
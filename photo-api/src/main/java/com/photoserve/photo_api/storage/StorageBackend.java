@@ -0,0 +1,42 @@
+package com.photoserve.photo_api.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * Where photo originals are kept. Keys are the stored filenames. The upload directory of
+ * {@link com.photoserve.photo_api.service.FileStorageService} is either the backend itself
+ * ({@link LocalStorageBackend} on the same directory) or a local working copy of it.
+ *
+ * Reads of a missing key throw {@link java.nio.file.NoSuchFileException}.
+ */
+public interface StorageBackend {
+
+    record ObjectInfo(String key, long size, Instant lastModified) {
+    }
+
+    /**
+     * Stores the file at {@code source} under {@code key}, replacing any existing object. Readers
+     * never see a partially written object.
+     */
+    void put(String key, Path source) throws IOException;
+
+    InputStream get(String key) throws IOException;
+
+    /**
+     * @return the {@code length} bytes starting at {@code offset}, fewer if the object ends first
+     */
+    InputStream getRange(String key, long offset, long length) throws IOException;
+
+    /**
+     * @return null if there is no object under {@code key}
+     */
+    ObjectInfo stat(String key) throws IOException;
+
+    /**
+     * Deletes the object; deleting a missing key is not an error.
+     */
+    void delete(String key) throws IOException;
+}
@@ -0,0 +1,85 @@
+package com.photoserve.photo_api.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+@Configuration
+public class StorageConfig {
+
+    /**
+     * {@code photo.storage.backend=local} keeps originals in {@code photo.storage.local.root}
+     * (the upload directory unless set, i.e. today's single-node layout); {@code s3} keeps them
+     * in a bucket and uses the upload directory as a local working copy.
+     */
+    @Bean
+    public StorageBackend storageBackend(@Value("${photo.storage.backend:local}") String backend,
+                                         @Value("${file.upload-dir}") String uploadDir,
+                                         @Value("${photo.storage.local.root:}") String localRoot,
+                                         @Value("${photo.storage.s3.endpoint:http://localhost:9000}") String endpoint,
+                                         @Value("${photo.storage.s3.region:us-east-1}") String region,
+                                         @Value("${photo.storage.s3.bucket:photos}") String bucket,
+                                         @Value("${photo.storage.s3.access-key:}") String accessKey,
+                                         @Value("${photo.storage.s3.secret-key:}") String secretKey,
+                                         @Value("${photo.storage.s3.path-style:true}") boolean pathStyle,
+                                         @Value("${photo.storage.s3.part-size-bytes:16777216}") long partSize) {
+        switch (backend) {
+            case "local":
+                return new LocalStorageBackend(Paths.get(localRoot.isEmpty() ? uploadDir : localRoot));
+            case "s3":
+                return new S3StorageBackend(endpoint, region, bucket, accessKey, secretKey, pathStyle, partSize);
+            default:
+                throw new IllegalArgumentException("Unknown photo.storage.backend '" + backend + "', expected local or s3");
+        }
+    }
+
+    /**
+     * Encoded thumbnails, persisted so a restart does not re-render them. Kept on local disk per
+     * node: they are derived data and cheap to rebuild.
+     */
+    @Bean(destroyMethod = "close")
+    public PackStore thumbnailPack(@Value("${file.upload-dir}") String uploadDir,
+                                   @Value("${photo.pack.dir:}") String packDir,
+                                   @Value("${photo.pack.segment-bytes:67108864}") int segmentBytes,
+                                   @Value("${photo.pack.thumbnail-max-bytes:2147483648}") long maxBytes,
+                                   @Value("${photo.pack.compaction-threshold:0.5}") double compactionThreshold,
+                                   @Value("${photo.pack.compaction-interval-ms:3600000}") long compactionIntervalMillis)
+            throws IOException {
+        return new PackStore(packDir.isEmpty() ? Paths.get(uploadDir, ".derivatives") : Paths.get(packDir),
+                "thumbs", segmentBytes, maxBytes, compactionThreshold, compactionIntervalMillis);
+    }
+
+    /**
+     * Deep zoom tiles, next to the thumbnails in segments of their own.
+     */
+    @Bean(destroyMethod = "close")
+    public PackStore tilePack(@Value("${file.upload-dir}") String uploadDir,
+                              @Value("${photo.pack.dir:}") String packDir,
+                              @Value("${photo.pack.segment-bytes:67108864}") int segmentBytes,
+                              @Value("${photo.pack.tile-max-bytes:4294967296}") long maxBytes,
+                              @Value("${photo.pack.compaction-threshold:0.5}") double compactionThreshold,
+                              @Value("${photo.pack.compaction-interval-ms:3600000}") long compactionIntervalMillis)
+            throws IOException {
+        return new PackStore(packDir.isEmpty() ? Paths.get(uploadDir, ".derivatives") : Paths.get(packDir),
+                "tiles", segmentBytes, maxBytes, compactionThreshold, compactionIntervalMillis);
+    }
+
+    /**
+     * Fast copies of the most requested originals; only created when {@code photo.hot-tier.dir}
+     * is set, which should point at a faster disk than the upload directory.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnExpression("!'${photo.hot-tier.dir:}'.isEmpty()")
+    public HotTier hotTier(@Value("${file.upload-dir}") String uploadDir,
+                           @Value("${photo.hot-tier.dir}") String hotDir,
+                           @Value("${photo.hot-tier.max-bytes:10737418240}") long maxBytes,
+                           @Value("${photo.hot-tier.promote-after:2}") int promoteAfter) throws IOException {
+        HotTier hotTier = new HotTier(Paths.get(hotDir), maxBytes, promoteAfter);
+        hotTier.recoverInBackground(Paths.get(uploadDir).toAbsolutePath().normalize());
+        return hotTier;
+    }
+}
@@ -0,0 +1,28 @@
+package com.photoserve.photo_api.tracing;
+
+import com.photoserve.photo_api.repository.PhotoRepository;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Wraps the photo repository so every call shows up as a {@code repository.<method>} stage.
+ */
+@Component
+public class RepositoryTracingPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof PhotoRepository)) {
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setTarget(bean);
+        proxyFactory.setInterfaces(PhotoRepository.class);
+        proxyFactory.addAdvice((MethodInterceptor) invocation ->
+                RequestTrace.time("repository." + invocation.getMethod().getName(), invocation::proceed));
+        return proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,28 @@
+package com.photoserve.photo_api.tracing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering a whole HTTP request, from the servlet filter to the last byte written.
+ */
+@Name("com.photoserve.Request")
+@Label("Photo API Request")
+@Category({"Photo API", "Requests"})
+@Description("A complete photo API request")
+@StackTrace(false)
+public class RequestEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("URI")
+    String uri;
+
+    @Label("Status")
+    int status;
+}
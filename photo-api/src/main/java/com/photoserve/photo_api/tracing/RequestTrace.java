@@ -0,0 +1,149 @@
+package com.photoserve.photo_api.tracing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request stage timings. A trace is opened by {@link RequestTraceFilter} for each request
+ * and bound to the handling thread; code anywhere below the controller can then wrap a piece of
+ * work in {@link #time(String, TracedCall)} to emit a {@link StageEvent} and record the stage in
+ * the current trace for the slow-request log.
+ *
+ * Stages timed outside of a request (background jobs, startup) still emit JFR events.
+ */
+public final class RequestTrace {
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    private final String method;
+    private final String uri;
+    private final long startNanos;
+    private final List<Stage> stages = new ArrayList<>();
+
+    private RequestTrace(String method, String uri) {
+        this.method = method;
+        this.uri = uri;
+        this.startNanos = System.nanoTime();
+    }
+
+    @FunctionalInterface
+    public interface TracedCall<T, E extends Throwable> {
+        T call() throws E;
+    }
+
+    @FunctionalInterface
+    public interface TracedRun<E extends Throwable> {
+        void run() throws E;
+    }
+
+    public record Stage(String name, long nanos, boolean failed) {
+        public long millis() {
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+    }
+
+    public static RequestTrace begin(String method, String uri) {
+        RequestTrace trace = new RequestTrace(method, uri);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Records the time elapsed since the request entered the filter chain as a stage. Used when
+     * the work happened in framework code we cannot wrap, e.g. multipart parsing before dispatch.
+     */
+    public static void mark(String stage) {
+        RequestTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.record(stage, System.nanoTime() - trace.startNanos, false);
+        }
+    }
+
+    public static <T, E extends Throwable> T time(String stage, TracedCall<T, E> call) throws E {
+        RequestTrace trace = CURRENT.get();
+        StageEvent event = new StageEvent();
+        long start = System.nanoTime();
+        boolean failed = true;
+        event.begin();
+        try {
+            T result = call.call();
+            failed = false;
+            return result;
+        } finally {
+            event.end();
+            long elapsed = System.nanoTime() - start;
+            if (trace != null) {
+                trace.record(stage, elapsed, failed);
+            }
+            if (event.shouldCommit()) {
+                event.stage = stage;
+                event.failed = failed;
+                if (trace != null) {
+                    event.method = trace.method;
+                    event.uri = trace.uri;
+                }
+                event.commit();
+            }
+        }
+    }
+
+    public static <E extends Throwable> void run(String stage, TracedRun<E> run) throws E {
+        time(stage, () -> {
+            run.run();
+            return null;
+        });
+    }
+
+    private synchronized void record(String stage, long nanos, boolean failed) {
+        stages.add(new Stage(stage, nanos, failed));
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public synchronized List<Stage> getStages() {
+        return Collections.unmodifiableList(new ArrayList<>(stages));
+    }
+
+    /**
+     * Formats the trace as a single key=value log line, e.g.
+     * {@code method=POST uri=/photos/upload status=201 total_ms=8123 request.dispatch=7012 storage.copy=1040}.
+     */
+    public String format(int status, long totalNanos) {
+        StringBuilder line = new StringBuilder()
+                .append("method=").append(method)
+                .append(" uri=").append(uri)
+                .append(" status=").append(status)
+                .append(" total_ms=").append(TimeUnit.NANOSECONDS.toMillis(totalNanos));
+        for (Stage stage : getStages()) {
+            line.append(' ').append(stage.name()).append('=').append(stage.millis());
+            if (stage.failed()) {
+                line.append("(failed)");
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package com.photoserve.photo_api.tracing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opens a {@link RequestTrace} for every request, emits a {@link RequestEvent} when it completes
+ * and writes a structured log line for requests slower than {@code photo.trace.slow-request-ms}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestTraceFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestTraceFilter.class);
+
+    private final long slowRequestNanos;
+
+    public RequestTraceFilter(@Value("${photo.trace.slow-request-ms:1000}") long slowRequestMillis) {
+        this.slowRequestNanos = TimeUnit.MILLISECONDS.toNanos(slowRequestMillis);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestTrace trace = RequestTrace.begin(request.getMethod(), request.getRequestURI());
+        RequestEvent event = new RequestEvent();
+        event.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            event.end();
+            long total = trace.elapsedNanos();
+            if (event.shouldCommit()) {
+                event.method = trace.getMethod();
+                event.uri = trace.getUri();
+                event.status = response.getStatus();
+                event.commit();
+            }
+            if (total >= slowRequestNanos) {
+                log.warn("slow request {}", trace.format(response.getStatus(), total));
+            }
+            RequestTrace.clear();
+        }
+    }
+}
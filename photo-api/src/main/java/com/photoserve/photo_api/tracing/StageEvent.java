@@ -0,0 +1,32 @@
+package com.photoserve.photo_api.tracing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event emitted for every traced stage of a request (storage copy, repository call, ...).
+ * The event duration is the time spent in the stage.
+ */
+@Name("com.photoserve.Stage")
+@Label("Photo API Stage")
+@Category({"Photo API", "Stages"})
+@Description("Time spent in a single stage of a photo API request")
+@StackTrace(false)
+public class StageEvent extends Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Method")
+    String method;
+
+    @Label("URI")
+    String uri;
+
+    @Label("Failed")
+    boolean failed;
+}
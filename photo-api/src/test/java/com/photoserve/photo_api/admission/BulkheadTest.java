@@ -0,0 +1,118 @@
+package com.photoserve.photo_api.admission;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BulkheadTest {
+
+    @Test
+    void acquire_WhenQueueTimesOut_ShouldRejectAndCount() {
+        // Arrange
+        Bulkhead bulkhead = new Bulkhead("upload", 1, 1, 10, 3);
+        bulkhead.acquire();
+
+        // Act & Assert
+        BulkheadFullException exception = assertThrows(BulkheadFullException.class, bulkhead::acquire);
+        assertEquals("upload", exception.getBulkhead());
+        assertEquals(3, exception.getRetryAfterSeconds());
+        assertEquals(1, bulkhead.getRejected());
+        assertEquals(1, bulkhead.getActive());
+        assertEquals(0, bulkhead.getQueued());
+    }
+
+    @Test
+    void acquire_WhenQueueIsFull_ShouldRejectWithoutWaiting() {
+        // Arrange
+        Bulkhead bulkhead = new Bulkhead("download", 1, 0, 60000, 1);
+        bulkhead.acquire();
+
+        // Act
+        long start = System.nanoTime();
+        assertThrows(BulkheadFullException.class, bulkhead::acquire);
+
+        // Assert
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+    }
+
+    @Test
+    void acquire_WhenPermitReleasedWhileQueued_ShouldAdmit() throws Exception {
+        // Arrange
+        Bulkhead bulkhead = new Bulkhead("repository", 1, 1, 5000, 1);
+        bulkhead.acquire();
+        CountDownLatch admitted = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            bulkhead.acquire();
+            admitted.countDown();
+        });
+        waiter.start();
+
+        // Act
+        while (bulkhead.getQueued() == 0) {
+            Thread.onSpinWait();
+        }
+        bulkhead.release();
+
+        // Assert
+        assertTrue(admitted.await(5, TimeUnit.SECONDS));
+        assertEquals(0, bulkhead.getRejected());
+    }
+
+    @Test
+    void call_ShouldReleasePermitWhenWorkThrows() {
+        // Arrange
+        Bulkhead bulkhead = new Bulkhead("repository", 1, 0, 0, 1);
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> bulkhead.call(() -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        // Assert
+        assertEquals(0, bulkhead.getActive());
+    }
+
+    @Test
+    void admissionFilter_WhenUploadBulkheadFull_ShouldReturn503WithRetryAfter() throws Exception {
+        // Arrange
+        Bulkheads bulkheads = new Bulkheads(1, 0, 0, 1, 0, 0, 1, 0, 0, 7);
+        AdmissionFilter filter = new AdmissionFilter(bulkheads);
+        bulkheads.upload().acquire();
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(new MockHttpServletRequest("POST", "/photos/upload"), response, chain);
+
+        // Assert
+        assertEquals(503, response.getStatus());
+        assertEquals("7", response.getHeader("Retry-After"));
+        verify(chain, never()).doFilter(any(), any());
+    }
+
+    @Test
+    void admissionFilter_ShouldNotLimitUnrelatedRequests() throws Exception {
+        // Arrange
+        Bulkheads bulkheads = new Bulkheads(1, 0, 0, 1, 0, 0, 1, 0, 0, 7);
+        AdmissionFilter filter = new AdmissionFilter(bulkheads);
+        bulkheads.upload().acquire();
+        bulkheads.download().acquire();
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(new MockHttpServletRequest("GET", "/photos"), response, chain);
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        verify(chain, times(1)).doFilter(any(), any());
+    }
+}
@@ -0,0 +1,274 @@
+package com.photoserve.photo_api.admission;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyFilterTest {
+
+    private final IdempotencyFilter filter = new IdempotencyFilter(new ClientKeys("k-mobile"), 100, 1 << 20, 60_000);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final FilterChain created = (request, response) -> {
+        calls.incrementAndGet();
+        HttpServletResponse http = (HttpServletResponse) response;
+        http.setStatus(202);
+        http.setHeader("Location", "/photos/jobs/7");
+        http.setContentType("application/json");
+        http.getWriter().write("{\"jobId\":7}");
+    };
+
+    private static MockHttpServletRequest upload(String key, String address) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/photos/upload");
+        request.addHeader(IdempotencyFilter.KEY_HEADER, key);
+        request.setRemoteAddr(address);
+        return request;
+    }
+
+    private static MockHttpServletRequest create(String key, String json) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/photos");
+        request.addHeader(IdempotencyFilter.KEY_HEADER, key);
+        request.setContentType("application/json");
+        request.setContent(json.getBytes(StandardCharsets.UTF_8));
+        request.setRemoteAddr("10.0.0.1");
+        return request;
+    }
+
+    @Test
+    void retry_WithSameKey_ShouldReplayResponseWithoutRunningRequest() throws Exception {
+        // Arrange
+        filter.doFilter(upload("a1b2", "10.0.0.1"), new MockHttpServletResponse(), created);
+
+        // Act
+        MockHttpServletResponse retry = new MockHttpServletResponse();
+        filter.doFilter(upload("a1b2", "10.0.0.1"), retry, created);
+
+        // Assert
+        assertEquals(1, calls.get());
+        assertEquals(202, retry.getStatus());
+        assertEquals("{\"jobId\":7}", retry.getContentAsString());
+        assertEquals("/photos/jobs/7", retry.getHeader("Location"));
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void firstRequest_ShouldPassResponseThrough() throws Exception {
+        // Act
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(upload("a1b2", "10.0.0.1"), response, created);
+
+        // Assert
+        assertEquals(202, response.getStatus());
+        assertEquals("{\"jobId\":7}", response.getContentAsString());
+        assertNull(response.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void retry_AfterServerError_ShouldRunAgain() throws Exception {
+        // Arrange
+        FilterChain failing = (request, response) -> {
+            calls.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(503);
+        };
+        filter.doFilter(upload("a1b2", "10.0.0.1"), new MockHttpServletResponse(), failing);
+
+        // Act
+        MockHttpServletResponse retry = new MockHttpServletResponse();
+        filter.doFilter(upload("a1b2", "10.0.0.1"), retry, created);
+
+        // Assert
+        assertEquals(2, calls.get());
+        assertEquals(202, retry.getStatus());
+    }
+
+    @Test
+    void sameKey_FromAnotherClient_ShouldRunSeparately() throws Exception {
+        // Act
+        filter.doFilter(upload("a1b2", "10.0.0.1"), new MockHttpServletResponse(), created);
+        filter.doFilter(upload("a1b2", "10.0.0.2"), new MockHttpServletResponse(), created);
+
+        // Assert
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void sameKey_WithUnknownApiKeyFromSameAddress_ShouldReplay() throws Exception {
+        // Arrange: a made-up API key does not give the request a scope of its own
+        MockHttpServletRequest forged = upload("a1b2", "10.0.0.1");
+        forged.addHeader(ClientKeys.API_KEY_HEADER, "made-up");
+        filter.doFilter(upload("a1b2", "10.0.0.1"), new MockHttpServletResponse(), created);
+
+        // Act
+        MockHttpServletResponse retry = new MockHttpServletResponse();
+        filter.doFilter(forged, retry, created);
+
+        // Assert
+        assertEquals(1, calls.get());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void sameKey_WithConfiguredApiKeyFromAnotherAddress_ShouldReplay() throws Exception {
+        // Arrange: a configured API key identifies the client wherever it connects from
+        MockHttpServletRequest first = upload("a1b2", "10.0.0.1");
+        first.addHeader(ClientKeys.API_KEY_HEADER, "k-mobile");
+        MockHttpServletRequest roamed = upload("a1b2", "10.0.0.2");
+        roamed.addHeader(ClientKeys.API_KEY_HEADER, "k-mobile");
+        filter.doFilter(first, new MockHttpServletResponse(), created);
+
+        // Act
+        MockHttpServletResponse retry = new MockHttpServletResponse();
+        filter.doFilter(roamed, retry, created);
+
+        // Assert
+        assertEquals(1, calls.get());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void retry_WhileFirstIsRunning_ShouldReturnConflict() throws Exception {
+        // Arrange
+        MockHttpServletResponse retry = new MockHttpServletResponse();
+        FilterChain slow = (request, response) -> {
+            calls.incrementAndGet();
+            filter.doFilter(upload("a1b2", "10.0.0.1"), retry, created);
+            ((HttpServletResponse) response).setStatus(201);
+        };
+
+        // Act
+        filter.doFilter(upload("a1b2", "10.0.0.1"), new MockHttpServletResponse(), slow);
+
+        // Assert
+        assertEquals(1, calls.get());
+        assertEquals(409, retry.getStatus());
+        assertEquals("1", retry.getHeader("Retry-After"));
+    }
+
+    @Test
+    void create_WithSameKeyAndBody_ShouldReplayAndPassBodyOnToFirst() throws Exception {
+        // Arrange
+        StringBuilder received = new StringBuilder();
+        FilterChain reading = (request, response) -> {
+            received.append(new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+            created.doFilter(request, response);
+        };
+        filter.doFilter(create("c1", "{\"filename\":\"a.jpg\"}"), new MockHttpServletResponse(), reading);
+
+        // Act
+        MockHttpServletResponse retry = new MockHttpServletResponse();
+        filter.doFilter(create("c1", "{\"filename\":\"a.jpg\"}"), retry, reading);
+
+        // Assert
+        assertEquals(1, calls.get());
+        assertEquals("{\"filename\":\"a.jpg\"}", received.toString());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void create_WithReadListener_ShouldHandBodyOnAsReadyAndComplete() throws Exception {
+        // Arrange: a non-blocking reader of the body the filter already buffered
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        AtomicBoolean allRead = new AtomicBoolean();
+        FilterChain reading = (request, response) -> {
+            ServletInputStream in = request.getInputStream();
+            in.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    byte[] buffer = new byte[8];
+                    while (in.isReady() && !in.isFinished()) {
+                        int read = in.read(buffer);
+                        received.write(buffer, 0, read);
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allRead.set(true);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    fail(t);
+                }
+            });
+            created.doFilter(request, response);
+        };
+
+        // Act
+        filter.doFilter(create("c1", "{\"filename\":\"a.jpg\"}"), new MockHttpServletResponse(), reading);
+
+        // Assert
+        assertEquals("{\"filename\":\"a.jpg\"}", received.toString(StandardCharsets.UTF_8));
+        assertTrue(allRead.get());
+    }
+
+    @Test
+    void create_WithSameKeyAndDifferentBody_ShouldReturnUnprocessableEntity() throws Exception {
+        // Arrange
+        filter.doFilter(create("c1", "{\"filename\":\"a.jpg\"}"), new MockHttpServletResponse(), created);
+
+        // Act: same length, different photo
+        MockHttpServletResponse reuse = new MockHttpServletResponse();
+        filter.doFilter(create("c1", "{\"filename\":\"b.jpg\"}"), reuse, created);
+
+        // Assert
+        assertEquals(1, calls.get());
+        assertEquals(422, reuse.getStatus());
+        assertNull(reuse.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void upload_WithSameKeyAndDifferentLength_ShouldReturnUnprocessableEntity() throws Exception {
+        // Arrange
+        MockHttpServletRequest first = upload("a1b2", "10.0.0.1");
+        first.setContentType("multipart/form-data; boundary=one");
+        first.setContent(new byte[100]);
+        MockHttpServletRequest other = upload("a1b2", "10.0.0.1");
+        other.setContentType("multipart/form-data; boundary=two");
+        other.setContent(new byte[200]);
+        filter.doFilter(first, new MockHttpServletResponse(), created);
+
+        // Act
+        MockHttpServletResponse reuse = new MockHttpServletResponse();
+        filter.doFilter(other, reuse, created);
+
+        // Assert
+        assertEquals(1, calls.get());
+        assertEquals(422, reuse.getStatus());
+    }
+
+    @Test
+    void requestsWithoutKey_ShouldAlwaysRun() throws Exception {
+        // Act
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("POST", "/photos/upload");
+            filter.doFilter(request, new MockHttpServletResponse(), created);
+        }
+
+        // Assert
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void blankKey_ShouldReturnBadRequest() throws Exception {
+        // Act
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(upload(" ", "10.0.0.1"), response, created);
+
+        // Assert
+        assertEquals(400, response.getStatus());
+        assertEquals(0, calls.get());
+    }
+}
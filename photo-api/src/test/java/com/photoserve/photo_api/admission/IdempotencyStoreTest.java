@@ -0,0 +1,126 @@
+package com.photoserve.photo_api.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final String REQUEST = "fingerprint-1";
+
+    private static IdempotencyStore.StoredResponse created(int bodyBytes) {
+        return new IdempotencyStore.StoredResponse(201, "application/json", null, new byte[bodyBytes]);
+    }
+
+    @Test
+    void claim_ShouldStartThenReportInProgressThenReplay() {
+        // Arrange
+        IdempotencyStore store = new IdempotencyStore(10, 1024, 60 * SECOND);
+        long now = 1_000 * SECOND;
+
+        // Act & Assert
+        assertEquals(IdempotencyStore.Outcome.STARTED, store.claim("k1", REQUEST, now).outcome());
+        assertEquals(IdempotencyStore.Outcome.IN_PROGRESS, store.claim("k1", REQUEST, now).outcome());
+
+        IdempotencyStore.StoredResponse response = created(12);
+        store.complete("k1", response, now);
+        IdempotencyStore.Claim retry = store.claim("k1", REQUEST, now + SECOND);
+        assertEquals(IdempotencyStore.Outcome.COMPLETED, retry.outcome());
+        assertSame(response, retry.response());
+    }
+
+    @Test
+    void release_ShouldLetRetryStartAgain() {
+        // Arrange
+        IdempotencyStore store = new IdempotencyStore(10, 1024, 60 * SECOND);
+        store.claim("k1", REQUEST, 0);
+
+        // Act
+        store.release("k1");
+
+        // Assert
+        assertEquals(IdempotencyStore.Outcome.STARTED, store.claim("k1", REQUEST, 0).outcome());
+    }
+
+    @Test
+    void claim_AfterTtl_ShouldStartAgain() {
+        // Arrange
+        IdempotencyStore store = new IdempotencyStore(10, 1024, 60 * SECOND);
+        store.claim("k1", REQUEST, 0);
+        store.complete("k1", created(10), 0);
+
+        // Act & Assert
+        assertEquals(IdempotencyStore.Outcome.COMPLETED, store.claim("k1", REQUEST, 59 * SECOND).outcome());
+        assertEquals(IdempotencyStore.Outcome.STARTED, store.claim("k1", REQUEST, 60 * SECOND).outcome());
+        assertEquals(0, store.storedBytes());
+    }
+
+    @Test
+    void claim_OverMaxEntries_ShouldDropLeastRecentlyUsedCompletedKey() {
+        // Arrange
+        IdempotencyStore store = new IdempotencyStore(3, 1024, 60 * SECOND);
+        for (String key : new String[]{"k1", "k2", "k3"}) {
+            store.claim(key, REQUEST, 0);
+            store.complete(key, created(10), 0);
+        }
+        // k1 is now more recently used than k2
+        store.claim("k1", REQUEST, 0);
+
+        // Act
+        store.claim("k4", REQUEST, 0);
+
+        // Assert
+        assertEquals(3, store.size());
+        assertEquals(IdempotencyStore.Outcome.COMPLETED, store.claim("k1", REQUEST, 0).outcome());
+        assertEquals(IdempotencyStore.Outcome.COMPLETED, store.claim("k3", REQUEST, 0).outcome());
+        assertEquals(IdempotencyStore.Outcome.STARTED, store.claim("k2", REQUEST, 0).outcome());
+    }
+
+    @Test
+    void evict_ShouldNeverDropKeysInFlight() {
+        // Arrange
+        IdempotencyStore store = new IdempotencyStore(2, 1024, 60 * SECOND);
+        store.claim("running1", REQUEST, 0);
+        store.claim("running2", REQUEST, 0);
+
+        // Act
+        store.claim("running3", REQUEST, 0);
+
+        // Assert
+        assertEquals(3, store.size());
+        assertEquals(IdempotencyStore.Outcome.IN_PROGRESS, store.claim("running1", REQUEST, 0).outcome());
+    }
+
+    @Test
+    void complete_OverMaxBytes_ShouldDropOldestBodies() {
+        // Arrange
+        IdempotencyStore store = new IdempotencyStore(100, 100, 60 * SECOND);
+        store.claim("k1", REQUEST, 0);
+        store.complete("k1", created(60), 0);
+        store.claim("k2", REQUEST, 0);
+
+        // Act
+        store.complete("k2", created(60), 0);
+
+        // Assert
+        assertEquals(60, store.storedBytes());
+        assertEquals(IdempotencyStore.Outcome.STARTED, store.claim("k1", REQUEST, 0).outcome());
+        assertEquals(IdempotencyStore.Outcome.COMPLETED, store.claim("k2", REQUEST, 0).outcome());
+    }
+
+    @Test
+    void claim_WithAnotherFingerprint_ShouldReportMismatch() {
+        // Arrange
+        IdempotencyStore store = new IdempotencyStore(10, 1024, 60 * SECOND);
+        store.claim("k1", REQUEST, 0);
+
+        // Act & Assert: refused while the first request runs and after it completed
+        assertEquals(IdempotencyStore.Outcome.MISMATCH, store.claim("k1", "fingerprint-2", 0).outcome());
+        store.complete("k1", created(10), 0);
+        assertEquals(IdempotencyStore.Outcome.MISMATCH, store.claim("k1", "fingerprint-2", 0).outcome());
+        assertEquals(IdempotencyStore.Outcome.COMPLETED, store.claim("k1", REQUEST, 0).outcome());
+    }
+}
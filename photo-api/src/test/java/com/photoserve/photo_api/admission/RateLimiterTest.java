@@ -0,0 +1,88 @@
+package com.photoserve.photo_api.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void tryAcquire_ShouldAllowBurstThenLimitToRate() {
+        // Arrange
+        RateLimiter limiter = new RateLimiter("listing", 2, 3);
+        long now = 1_000 * SECOND;
+
+        // Act & Assert
+        assertEquals(0, limiter.tryAcquire("ip:10.0.0.1", now));
+        assertEquals(0, limiter.tryAcquire("ip:10.0.0.1", now));
+        assertEquals(0, limiter.tryAcquire("ip:10.0.0.1", now));
+        long wait = limiter.tryAcquire("ip:10.0.0.1", now);
+        assertEquals(SECOND / 2, wait);
+
+        // One token refills every half second
+        assertEquals(0, limiter.tryAcquire("ip:10.0.0.1", now + SECOND / 2));
+        assertTrue(limiter.tryAcquire("ip:10.0.0.1", now + SECOND / 2) > 0);
+    }
+
+    @Test
+    void tryAcquire_ShouldTrackClientsSeparately() {
+        // Arrange
+        RateLimiter limiter = new RateLimiter("upload", 1, 1);
+        long now = 1_000 * SECOND;
+
+        // Act & Assert
+        assertEquals(0, limiter.tryAcquire("key:sync-client", now));
+        assertTrue(limiter.tryAcquire("key:sync-client", now) > 0);
+        assertEquals(0, limiter.tryAcquire("ip:10.0.0.2", now));
+    }
+
+    @Test
+    void evictIdle_ShouldDropOnlyFullBuckets() {
+        // Arrange
+        RateLimiter limiter = new RateLimiter("default", 1, 10);
+        long now = 1_000 * SECOND;
+        limiter.tryAcquire("ip:10.0.0.1", now);
+        limiter.tryAcquire("ip:10.0.0.2", now + 50 * SECOND);
+
+        // Act
+        int evicted = limiter.evictIdle(now + 60 * SECOND, 30 * SECOND);
+
+        // Assert
+        assertEquals(1, evicted);
+        assertEquals(1, limiter.size());
+    }
+
+    @Test
+    void tryAcquire_UnderContention_ShouldNotAdmitMoreThanBurst() throws Exception {
+        // Arrange
+        RateLimiter limiter = new RateLimiter("listing", 0.001, 50);
+        long now = 1_000 * SECOND;
+        AtomicInteger admitted = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 100; j++) {
+                    if (limiter.tryAcquire("ip:10.0.0.1", now) == 0) {
+                        admitted.incrementAndGet();
+                    }
+                }
+            });
+        }
+
+        // Act
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Assert
+        assertEquals(50, admitted.get());
+    }
+}
@@ -0,0 +1,65 @@
+package com.photoserve.photo_api.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashRingTest {
+
+    private static final List<String> MEMBERS = List.of("http://a:8080", "http://b:8080", "http://c:8080");
+
+    @Test
+    void ownerOf_ShouldSpreadKeysEvenly() {
+        // Arrange
+        HashRing ring = new HashRing(MEMBERS, 160);
+        Map<String, Integer> counts = new HashMap<>();
+
+        // Act
+        for (int i = 0; i < 30_000; i++) {
+            counts.merge(ring.ownerOf("IMG_" + i + ".jpg"), 1, Integer::sum);
+        }
+
+        // Assert
+        assertEquals(3, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(count > 7_000 && count < 13_000, "unbalanced: " + counts);
+        }
+    }
+
+    @Test
+    void ownerOf_WhenMemberRemoved_ShouldOnlyMoveItsKeys() {
+        // Arrange
+        HashRing before = new HashRing(MEMBERS, 160);
+        HashRing after = new HashRing(List.of("http://a:8080", "http://c:8080"), 160);
+
+        // Act & Assert
+        for (int i = 0; i < 10_000; i++) {
+            String key = "IMG_" + i + ".jpg";
+            String owner = before.ownerOf(key);
+            if (!owner.equals("http://b:8080")) {
+                assertEquals(owner, after.ownerOf(key));
+            }
+        }
+    }
+
+    @Test
+    void ownerOf_ShouldNotDependOnMemberOrder() {
+        // Arrange
+        HashRing ring = new HashRing(MEMBERS, 160);
+        HashRing reordered = new HashRing(List.of("http://c:8080", "http://a:8080", "http://b:8080"), 160);
+
+        // Act & Assert
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(ring.ownerOf("k" + i), reordered.ownerOf("k" + i));
+        }
+    }
+
+    @Test
+    void constructor_WithNoMembers_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new HashRing(List.of(), 160));
+    }
+}
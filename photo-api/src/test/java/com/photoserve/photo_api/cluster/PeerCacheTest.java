@@ -0,0 +1,141 @@
+package com.photoserve.photo_api.cluster;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs a node against a peer served by an in-process HTTP server.
+ */
+class PeerCacheTest {
+
+    private static final String SELF = "http://127.0.0.1:1";
+
+    private HttpServer server;
+    private String peer;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI()
+                    + " " + exchange.getRequestHeaders().getFirst(PeerCache.TOKEN_HEADER));
+            byte[] body = "thumb".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        peer = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private static String keyOwnedBy(PeerCache cache, String owner) {
+        for (int i = 0; ; i++) {
+            if (owner.equals(cache.remoteOwnerOf("IMG_" + i + ".jpg"))) {
+                return "IMG_" + i + ".jpg";
+            }
+        }
+    }
+
+    @Test
+    void remoteOwnerOf_WithoutMembers_ShouldKeepEveryKeyLocal() {
+        // Arrange
+        PeerCache cache = new PeerCache("", "", 160, 1000, 5000, "");
+
+        // Act & Assert
+        assertFalse(cache.isEnabled());
+        assertNull(cache.remoteOwnerOf("IMG_5586.jpg"));
+    }
+
+    @Test
+    void remoteOwnerOf_ShouldSplitKeysBetweenSelfAndPeer() {
+        // Arrange
+        PeerCache cache = new PeerCache(SELF, SELF + "," + peer + "/", 160, 1000, 5000, "secret");
+        int remote = 0;
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            if (cache.remoteOwnerOf("IMG_" + i + ".jpg") != null) {
+                remote++;
+            }
+        }
+
+        // Assert
+        assertTrue(remote > 300 && remote < 700, "remote keys: " + remote);
+    }
+
+    @Test
+    void get_ShouldFetchFromOwnerWithToken() {
+        // Arrange
+        PeerCache cache = new PeerCache(SELF, SELF + "," + peer, 160, 1000, 5000, "secret");
+        String key = keyOwnedBy(cache, peer);
+
+        // Act
+        PeerCache.Response response = cache.get(peer, "/internal/peer/thumbnails/" + key + "?size=256");
+
+        // Assert
+        assertEquals(200, response.status());
+        assertEquals("thumb", new String(response.body(), StandardCharsets.UTF_8));
+        assertEquals(List.of("GET /internal/peer/thumbnails/" + key + "?size=256 secret"), requests);
+        assertEquals(1, cache.getRemoteHits());
+    }
+
+    @Test
+    void get_WhenPeerIsDown_ShouldReturnNullAndTreatItsKeysAsLocal() {
+        // Arrange
+        PeerCache cache = new PeerCache(SELF, SELF + "," + peer, 160, 1000, 60_000, "secret");
+        String key = keyOwnedBy(cache, peer);
+        server.stop(0);
+
+        // Act
+        PeerCache.Response response = cache.get(peer, "/internal/peer/thumbnails/" + key + "?size=256");
+
+        // Assert
+        assertNull(response);
+        assertNull(cache.remoteOwnerOf(key));
+        assertEquals(1, cache.getFailures());
+    }
+
+    @Test
+    void isAuthorized_ShouldRequireConfiguredToken() {
+        // Arrange
+        PeerCache open = new PeerCache("", "", 160, 1000, 5000, "");
+        PeerCache protectedCache = new PeerCache("", "", 160, 1000, 5000, "secret");
+
+        // Act & Assert
+        assertFalse(open.isAuthorized(null));
+        assertFalse(open.isAuthorized(""));
+        assertTrue(protectedCache.isAuthorized("secret"));
+        assertFalse(protectedCache.isAuthorized(null));
+        assertFalse(protectedCache.isAuthorized("wrong"));
+    }
+
+    @Test
+    void constructor_WhenSelfIsNotAMember_ShouldThrow() {
+        assertThrows(IllegalStateException.class,
+                () -> new PeerCache("http://other:8080", SELF + "," + peer, 160, 1000, 5000, "secret"));
+    }
+
+    @Test
+    void constructor_WithMembersButNoToken_ShouldThrow() {
+        assertThrows(IllegalStateException.class,
+                () -> new PeerCache(SELF, SELF + "," + peer, 160, 1000, 5000, " "));
+    }
+}
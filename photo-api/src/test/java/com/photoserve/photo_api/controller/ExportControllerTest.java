@@ -0,0 +1,135 @@
+package com.photoserve.photo_api.controller;
+
+import com.photoserve.photo_api.admission.Bulkheads;
+import com.photoserve.photo_api.admission.ClientKeys;
+import com.photoserve.photo_api.model.Photo;
+import com.photoserve.photo_api.repository.PhotoRepository;
+import com.photoserve.photo_api.service.ZipExportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ExportController.class)
+@Import({Bulkheads.class, ClientKeys.class})
+@TestPropertySource(properties = {"photo.bulkhead.download.max-concurrent=1", "photo.bulkhead.download.max-queued=0"})
+@SuppressWarnings("null")
+class ExportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private Bulkheads bulkheads;
+
+    @MockitoBean
+    private PhotoRepository photoRepository;
+
+    @MockitoBean
+    private ZipExportService zipExportService;
+
+    @Test
+    void exportPhotos_WithIds_ShouldStreamZip() throws Exception {
+        // Arrange
+        List<Photo> photos = List.of(new Photo(1L, "a.jpg"), new Photo(2L, "b.jpg"));
+        when(photoRepository.findAllById(List.of(1L, 2L))).thenReturn(photos);
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/photos/export").param("ids", "1,2"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Type", "application/zip"))
+            .andExpect(header().string("Content-Disposition", "attachment; filename=\"photos-export.zip\""));
+        verify(zipExportService, times(1)).writeZip(eq(photos), any());
+    }
+
+    @Test
+    void exportPhotos_WithPrefix_ShouldSelectByFilename() throws Exception {
+        // Arrange
+        List<Photo> photos = List.of(new Photo(1L, "PXL_20251018_120456008.jpg"));
+        when(photoRepository.findByFilenameStartingWithOrderByIdAsc("PXL_202510")).thenReturn(photos);
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/photos/export").param("prefix", "PXL_202510"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        verify(zipExportService, times(1)).writeZip(eq(photos), any());
+    }
+
+    @Test
+    void exportPhotos_WithoutSelection_ShouldReturnBadRequest() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/photos/export"))
+            .andExpect(status().isBadRequest());
+
+        verify(zipExportService, never()).writeZip(any(), any());
+    }
+
+    @Test
+    void exportPhotos_WhenNothingMatches_ShouldReturnNotFound() throws Exception {
+        // Arrange
+        when(photoRepository.findByFilenameStartingWithOrderByIdAsc("nope")).thenReturn(Collections.emptyList());
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/export").param("prefix", "nope"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void exportPhotos_ShouldHoldDownloadPermitUntilZipIsWritten() throws Exception {
+        // Arrange
+        List<Photo> photos = List.of(new Photo(1L, "a.jpg"));
+        when(photoRepository.findAllById(List.of(1L))).thenReturn(photos);
+        doAnswer(invocation -> {
+            assertEquals(1, bulkheads.download().getActive());
+            return null;
+        }).when(zipExportService).writeZip(any(), any());
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/photos/export").param("ids", "1"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+        // Assert
+        verify(zipExportService, times(1)).writeZip(eq(photos), any());
+        assertEquals(0, bulkheads.download().getActive());
+    }
+
+    @Test
+    void exportPhotos_WhenDownloadBulkheadIsFull_ShouldReturnServiceUnavailable() throws Exception {
+        // Arrange
+        when(photoRepository.findAllById(List.of(1L))).thenReturn(List.of(new Photo(1L, "a.jpg")));
+        bulkheads.download().acquire();
+        try {
+            // Act & Assert
+            mockMvc.perform(get("/photos/export").param("ids", "1"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().exists("Retry-After"));
+        } finally {
+            bulkheads.download().release();
+        }
+
+        verify(zipExportService, never()).writeZip(any(), any());
+    }
+}
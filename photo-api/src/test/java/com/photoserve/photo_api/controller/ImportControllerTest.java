@@ -0,0 +1,82 @@
+package com.photoserve.photo_api.controller;
+
+import com.photoserve.photo_api.admission.Bulkheads;
+import com.photoserve.photo_api.admission.ClientKeys;
+import com.photoserve.photo_api.service.ImportProgress;
+import com.photoserve.photo_api.service.ImportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ImportController.class)
+@Import({Bulkheads.class, ClientKeys.class})
+@SuppressWarnings("null")
+class ImportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ImportService importService;
+
+    @Test
+    void importArchive_ShouldReturnProgress() throws Exception {
+        // Arrange
+        ImportProgress progress = new ImportProgress("trip");
+        when(importService.begin("trip")).thenReturn(progress);
+        when(importService.importArchive(eq(progress), any(InputStream.class))).thenReturn(progress);
+
+        // Act & Assert
+        mockMvc.perform(post("/photos/import").param("importId", "trip")
+                .contentType("application/zip")
+                .content(new byte[]{'P', 'K', 3, 4}))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value("trip"));
+    }
+
+    @Test
+    void importArchive_WhenAlreadyRunning_ShouldReturnConflict() throws Exception {
+        // Arrange
+        when(importService.begin("trip")).thenReturn(null);
+
+        // Act & Assert
+        mockMvc.perform(post("/photos/import").param("importId", "trip").content(new byte[0]))
+            .andExpect(status().isConflict());
+        verify(importService, never()).importArchive(any(), any());
+    }
+
+    @Test
+    void importArchive_WhenArchiveIsCorrupt_ShouldReturnBadRequestWithProgress() throws Exception {
+        // Arrange
+        ImportProgress progress = new ImportProgress("broken");
+        when(importService.begin(anyString())).thenReturn(progress);
+        when(importService.importArchive(eq(progress), any(InputStream.class)))
+            .thenThrow(new IOException("Unexpected end of archive"));
+
+        // Act & Assert
+        mockMvc.perform(post("/photos/import").content(new byte[]{1, 2, 3}))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.progress.id").value("broken"));
+    }
+
+    @Test
+    void getImportProgress_WhenUnknown_ShouldReturnNotFound() throws Exception {
+        // Arrange
+        when(importService.getProgress("missing")).thenReturn(null);
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/imports/missing"))
+            .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,58 @@
+package com.photoserve.photo_api.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.photoserve.photo_api.model.Photo;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+
+/**
+ * Times writing and reading a large photo listing as JSON and as CBOR and logs the figures. Tagged
+ * {@code benchmark}, so it is left out of the default test run; run it with {@code mvn -Pbenchmark test}.
+ * Correctness is covered by {@link ListingFormatTest}.
+ */
+@Tag("benchmark")
+class ListingFormatBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ListingFormatBenchmarkTest.class);
+
+    private static final int PHOTOS = 5_000;
+    private static final int RUNS = 20;
+
+    private static long nanosPerRun(ThrowingRunnable body) throws Exception {
+        for (int i = 0; i < RUNS; i++) {
+            body.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            body.run();
+        }
+        return (System.nanoTime() - start) / RUNS;
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+
+    @Test
+    void compareJsonAndCbor() throws Exception {
+        List<Photo> photos = ListingFormatTest.listing(PHOTOS);
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+        ObjectMapper cbor = CborConfig.cborMapper(Jackson2ObjectMapperBuilder.json());
+        byte[] jsonBytes = json.writeValueAsBytes(photos);
+        byte[] cborBytes = cbor.writeValueAsBytes(photos);
+
+        long jsonWrite = nanosPerRun(() -> json.writeValueAsBytes(photos));
+        long cborWrite = nanosPerRun(() -> cbor.writeValueAsBytes(photos));
+        long jsonRead = nanosPerRun(() -> json.readValue(jsonBytes, ListingFormatTest.LISTING));
+        long cborRead = nanosPerRun(() -> cbor.readValue(cborBytes, ListingFormatTest.LISTING));
+
+        log.info("listing of {} photos: json {} bytes, write {} us, read {} us; cbor {} bytes, write {} us, read {} us",
+                photos.size(), jsonBytes.length, jsonWrite / 1000, jsonRead / 1000,
+                cborBytes.length, cborWrite / 1000, cborRead / 1000);
+    }
+}
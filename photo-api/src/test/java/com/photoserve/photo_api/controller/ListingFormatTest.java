@@ -0,0 +1,57 @@
+package com.photoserve.photo_api.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.photoserve.photo_api.model.Photo;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that a photo listing round-trips through CBOR and that CBOR is smaller than JSON. The
+ * timings are in {@link ListingFormatBenchmarkTest}, which only runs with {@code -Pbenchmark}.
+ */
+class ListingFormatTest {
+
+    static final TypeReference<List<Photo>> LISTING = new TypeReference<>() {
+    };
+
+    static List<Photo> listing(int count) {
+        List<Photo> photos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Photo photo = new Photo((long) i + 1, "PXL_20250226_" + (231543544 + i) + ".jpg");
+            photo.setPlaceholder("LEHV6nWB2yk8pyo0adR*.7kCMdnj");
+            if (i % 2 == 0) {
+                photo.setOptimizedAt(LocalDateTime.of(2025, 2, 26, 23, 15).plusSeconds(i));
+                photo.setBytesSaved(150_000L + i * 17L);
+            }
+            photos.add(photo);
+        }
+        return photos;
+    }
+
+    @Test
+    void cbor_ShouldBeSmallerThanJsonAndRoundTrip() throws Exception {
+        // Arrange
+        List<Photo> photos = listing(100);
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+        ObjectMapper cbor = CborConfig.cborMapper(Jackson2ObjectMapperBuilder.json());
+
+        // Act
+        byte[] jsonBytes = json.writeValueAsBytes(photos);
+        byte[] cborBytes = cbor.writeValueAsBytes(photos);
+        List<Photo> decoded = cbor.readValue(cborBytes, LISTING);
+
+        // Assert
+        assertTrue(cborBytes.length < jsonBytes.length);
+        assertEquals(photos.size(), decoded.size());
+        assertEquals(photos.get(10).getFilename(), decoded.get(10).getFilename());
+        assertEquals(photos.get(10).getOptimizedAt(), decoded.get(10).getOptimizedAt());
+        assertEquals(photos.get(10).getBytesSaved(), decoded.get(10).getBytesSaved());
+    }
+}
@@ -1,29 +1,51 @@
 package com.photoserve.photo_api.controller;
 
+import com.photoserve.photo_api.admission.BulkheadFullException;
+import com.photoserve.photo_api.admission.Bulkheads;
+import com.photoserve.photo_api.admission.ClientKeys;
+import com.photoserve.photo_api.model.IngestJob;
 import com.photoserve.photo_api.model.Photo;
+import com.photoserve.photo_api.model.PhotoChange;
+import com.photoserve.photo_api.model.TimelineCount;
 import com.photoserve.photo_api.repository.PhotoRepository;
+import com.photoserve.photo_api.repository.TimelineCountRepository;
+import com.photoserve.photo_api.service.ChangeLogService;
 import com.photoserve.photo_api.service.FileStorageService;
+import com.photoserve.photo_api.service.FilenameIndex;
+import com.photoserve.photo_api.service.GeoIndex;
+import com.photoserve.photo_api.service.IngestJobService;
+import com.photoserve.photo_api.service.IngestService;
+import com.photoserve.photo_api.service.PhotoEventBroadcaster;
+import com.photoserve.photo_api.service.SimilarityIndex;
+import com.photoserve.photo_api.service.TrashService;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(PhotoController.class)
+@Import({Bulkheads.class, ClientKeys.class})
 @SuppressWarnings("null")
 class PhotoControllerTest {
 
@@ -39,6 +61,33 @@ class PhotoControllerTest {
     @MockitoBean
     private FileStorageService fileStorageService;
 
+    @MockitoBean
+    private IngestService ingestService;
+
+    @MockitoBean
+    private SimilarityIndex similarityIndex;
+
+    @MockitoBean
+    private IngestJobService ingestJobService;
+
+    @MockitoBean
+    private ChangeLogService changeLogService;
+
+    @MockitoBean
+    private PhotoEventBroadcaster photoEventBroadcaster;
+
+    @MockitoBean
+    private TrashService trashService;
+
+    @MockitoBean
+    private FilenameIndex filenameIndex;
+
+    @MockitoBean
+    private GeoIndex geoIndex;
+
+    @MockitoBean
+    private TimelineCountRepository timelineCountRepository;
+
     @Test
     void getAllPhotos_ShouldReturnAllPhotos() throws Exception {
         // Arrange
@@ -47,10 +96,12 @@ class PhotoControllerTest {
             new Photo(2L, "photo2.png")
         );
         when(photoRepository.findAll()).thenReturn(photos);
+        when(changeLogService.latestSeq()).thenReturn(42L);
 
         // Act & Assert
         mockMvc.perform(get("/photos"))
             .andExpect(status().isOk())
+            .andExpect(header().string("X-Change-Seq", "42"))
             .andExpect(jsonPath("$.length()").value(2))
             .andExpect(jsonPath("$[0].id").value(1))
             .andExpect(jsonPath("$[0].filename").value("photo1.jpg"))
@@ -60,6 +111,80 @@ class PhotoControllerTest {
         verify(photoRepository, times(1)).findAll();
     }
 
+    @Test
+    void getAllPhotos_WhenCborAccepted_ShouldReturnCbor() throws Exception {
+        // Arrange
+        Photo photo = new Photo(1L, "photo1.jpg");
+        photo.setPlaceholder("LEHV6nWB2yk8pyo0adR*.7kCMdnj");
+        when(photoRepository.findAll()).thenReturn(List.of(photo, new Photo(2L, "photo2.png")));
+
+        // Act
+        byte[] body = mockMvc.perform(get("/photos").accept("application/cbor"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/cbor"))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert
+        JsonNode photos = new ObjectMapper(new CBORFactory()).readTree(body);
+        assertEquals(2, photos.size());
+        assertEquals(1, photos.get(0).get("id").asLong());
+        assertEquals("photo1.jpg", photos.get(0).get("filename").asText());
+        assertEquals("LEHV6nWB2yk8pyo0adR*.7kCMdnj", photos.get(0).get("placeholder").asText());
+        assertEquals("photo2.png", photos.get(1).get("filename").asText());
+        assertNull(photos.get(0).get("perceptualHash"));
+    }
+
+    @Test
+    void getChanges_ShouldReturnPage() throws Exception {
+        // Arrange
+        PhotoChange change = new PhotoChange(7L, "IMG_5586.jpg", PhotoChange.Type.UPDATED, LocalDateTime.now());
+        change.setSeq(43L);
+        when(changeLogService.changesSince(42L, 500))
+            .thenReturn(new ChangeLogService.ChangePage(List.of(change), 43L, false));
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/changes").param("since", "42"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.changes.length()").value(1))
+            .andExpect(jsonPath("$.changes[0].seq").value(43))
+            .andExpect(jsonPath("$.changes[0].photoId").value(7))
+            .andExpect(jsonPath("$.changes[0].type").value("UPDATED"))
+            .andExpect(jsonPath("$.next").value(43))
+            .andExpect(jsonPath("$.hasMore").value(false));
+    }
+
+    @Test
+    void getChanges_WhenPositionWasCompacted_ShouldReturnGone() throws Exception {
+        // Arrange
+        when(changeLogService.changesSince(3L, 500)).thenReturn(null);
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/changes").param("since", "3"))
+            .andExpect(status().isGone());
+    }
+
+    @Test
+    void getChanges_WithInvalidLimit_ShouldReturnBadRequest() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/photos/changes").param("since", "0").param("limit", "0"))
+            .andExpect(status().isBadRequest());
+
+        verify(changeLogService, never()).changesSince(anyLong(), anyInt());
+    }
+
+    @Test
+    void getStorageSavings_ShouldReturnTotals() throws Exception {
+        // Arrange
+        when(photoRepository.sumBytesSaved()).thenReturn(123456L);
+        when(photoRepository.countByOptimizedAtIsNotNull()).thenReturn(7L);
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/storage/savings"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.totalBytesSaved").value(123456))
+            .andExpect(jsonPath("$.optimizedPhotos").value(7));
+    }
+
     @Test
     void getPhotoById_WhenPhotoExists_ShouldReturnPhoto() throws Exception {
         // Arrange
@@ -88,6 +213,121 @@ class PhotoControllerTest {
         verify(photoRepository, times(1)).findById(1L);
     }
 
+    @Test
+    void getSimilarPhotos_ShouldReturnMatchesExcludingPhotoItself() throws Exception {
+        // Arrange
+        Photo photo = new Photo(1L, "PXL_20250226_231543544.jpg");
+        photo.setPerceptualHash(0x0F0F0F0FL);
+        Photo variant = new Photo(2L, "PXL_20250226_231543544.PORTRAIT.jpg");
+        when(photoRepository.findById(1L)).thenReturn(Optional.of(photo));
+        when(similarityIndex.search(0x0F0F0F0FL, 10)).thenReturn(List.of(
+            new SimilarityIndex.Match(1L, 0),
+            new SimilarityIndex.Match(2L, 3)
+        ));
+        when(photoRepository.findAllById(any())).thenReturn(List.of(variant));
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/id/1/similar"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$[0].photo.id").value(2))
+            .andExpect(jsonPath("$[0].distance").value(3));
+    }
+
+    @Test
+    void getSimilarPhotos_WhenPhotoHasNoHash_ShouldReturnUnprocessableEntity() throws Exception {
+        // Arrange
+        when(photoRepository.findById(1L)).thenReturn(Optional.of(new Photo(1L, "test.heic")));
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/id/1/similar"))
+            .andExpect(status().isUnprocessableEntity());
+
+        verify(similarityIndex, never()).search(anyLong(), anyInt());
+    }
+
+    @Test
+    void suggest_ShouldReturnSuggestionsFromIndex() throws Exception {
+        // Arrange
+        when(filenameIndex.suggest("IMG_58", 10)).thenReturn(List.of(
+            new FilenameIndex.Suggestion(3L, "IMG_5801.jpg"),
+            new FilenameIndex.Suggestion(7L, "IMG_5872.jpg")));
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/suggest").param("q", "IMG_58"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$[0].id").value(3))
+            .andExpect(jsonPath("$[1].filename").value("IMG_5872.jpg"));
+
+        verifyNoInteractions(photoRepository);
+    }
+
+    @Test
+    void suggest_WithInvalidLimit_ShouldReturnBadRequest() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/photos/suggest").param("q", "IMG").param("limit", "500"))
+            .andExpect(status().isBadRequest());
+
+        verify(filenameIndex, never()).suggest(anyString(), anyInt());
+    }
+
+    @Test
+    void getClusters_ShouldReturnClustersFromIndex() throws Exception {
+        // Arrange
+        when(geoIndex.clusters(2.2, 48.8, 2.4, 48.9, 12)).thenReturn(List.of(
+            new GeoIndex.Cluster(48.86, 2.31, 12, null),
+            new GeoIndex.Cluster(48.85, 2.29, 1, 4L)));
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/geo").param("bbox", "2.2,48.8,2.4,48.9").param("zoom", "12"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$[0].count").value(12))
+            .andExpect(jsonPath("$[1].photoId").value(4));
+
+        verifyNoInteractions(photoRepository);
+    }
+
+    @Test
+    void getClusters_WithInvalidBbox_ShouldReturnBadRequest() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/photos/geo").param("bbox", "2.2,48.9,2.4,48.8").param("zoom", "12"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/photos/geo").param("bbox", "2.2,48.8,2.4").param("zoom", "12"))
+            .andExpect(status().isBadRequest());
+
+        verify(geoIndex, never()).clusters(anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyInt());
+    }
+
+    @Test
+    void getTimeline_WithMonth_ShouldReturnDaysFromRollups() throws Exception {
+        // Arrange
+        when(timelineCountRepository.findNonEmpty("2025-10-__")).thenReturn(List.of(
+            new TimelineCount("2025-10-03", 14),
+            new TimelineCount("2025-10-04", 2)));
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/timeline").param("period", "2025-10"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$[0].period").value("2025-10-03"))
+            .andExpect(jsonPath("$[0].count").value(14));
+
+        verifyNoInteractions(photoRepository);
+    }
+
+    @Test
+    void getTimeline_WithInvalidPeriod_ShouldReturnBadRequest() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/photos/timeline").param("period", "2025-10-03"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/photos/timeline").param("period", "25%"))
+            .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(timelineCountRepository);
+    }
+
     @Test
     void getPhotoByFilename_WhenPhotoExists_ShouldReturnPhoto() throws Exception {
         // Arrange
@@ -187,11 +427,10 @@ class PhotoControllerTest {
     }
 
     @Test
-    void deletePhotoById_WhenPhotoExists_ShouldDeletePhoto() throws Exception {
+    void deletePhotoById_WhenPhotoExists_ShouldMovePhotoToTrash() throws Exception {
         // Arrange
         Photo photo = new Photo(1L, "test.jpg");
         when(photoRepository.findById(1L)).thenReturn(Optional.of(photo));
-        doNothing().when(photoRepository).delete(photo);
 
         // Act & Assert
         mockMvc.perform(delete("/photos/id/1"))
@@ -199,7 +438,10 @@ class PhotoControllerTest {
             .andExpect(content().string("Photo with ID 1 deleted successfully."));
 
         verify(photoRepository, times(1)).findById(1L);
-        verify(photoRepository, times(1)).delete(photo);
+        verify(trashService, times(1)).trash(photo);
+        verify(photoRepository, never()).delete(any(Photo.class));
+        verify(fileStorageService, never()).deleteFile(anyString());
+        verify(photoEventBroadcaster).publish(PhotoEventBroadcaster.DELETED, photo);
     }
 
     @Test
@@ -213,15 +455,14 @@ class PhotoControllerTest {
             .andExpect(content().string("Photo with ID 1 not found."));
 
         verify(photoRepository, times(1)).findById(1L);
-        verify(photoRepository, never()).delete(any(Photo.class));
+        verify(trashService, never()).trash(any(Photo.class));
     }
 
     @Test
-    void deletePhotoByFilename_WhenPhotoExists_ShouldDeletePhoto() throws Exception {
+    void deletePhotoByFilename_WhenPhotoExists_ShouldMovePhotoToTrash() throws Exception {
         // Arrange
         Photo photo = new Photo(1L, "test.jpg");
         when(photoRepository.findByFilename("test.jpg")).thenReturn(Optional.of(photo));
-        doNothing().when(photoRepository).delete(photo);
 
         // Act & Assert
         mockMvc.perform(delete("/photos/file/test.jpg"))
@@ -229,7 +470,8 @@ class PhotoControllerTest {
             .andExpect(content().string("Photo with filename 'test.jpg' deleted successfully."));
 
         verify(photoRepository, times(1)).findByFilename("test.jpg");
-        verify(photoRepository, times(1)).delete(photo);
+        verify(trashService, times(1)).trash(photo);
+        verify(photoRepository, never()).delete(any(Photo.class));
     }
 
     @Test
@@ -243,7 +485,30 @@ class PhotoControllerTest {
             .andExpect(content().string("Photo with filename 'test.jpg' not found."));
 
         verify(photoRepository, times(1)).findByFilename("test.jpg");
-        verify(photoRepository, never()).delete(any(Photo.class));
+        verify(trashService, never()).trash(any(Photo.class));
+    }
+
+    @Test
+    void restorePhoto_WhenPhotoInTrash_ShouldReturnPhoto() throws Exception {
+        // Arrange
+        when(trashService.restore(1L)).thenReturn(Optional.of(new Photo(1L, "test.jpg")));
+
+        // Act & Assert
+        mockMvc.perform(post("/photos/id/1/restore"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value(1))
+            .andExpect(jsonPath("$.filename").value("test.jpg"));
+    }
+
+    @Test
+    void restorePhoto_WhenPhotoNotInTrash_ShouldReturn404() throws Exception {
+        // Arrange
+        when(trashService.restore(1L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        mockMvc.perform(post("/photos/id/1/restore"))
+            .andExpect(status().isNotFound())
+            .andExpect(content().string("Deleted photo with ID 1 not found."));
     }
 
     @Test
@@ -278,6 +543,135 @@ class PhotoControllerTest {
         verify(photoRepository, times(1)).save(any(Photo.class));
     }
 
+    @Test
+    void uploadPhoto_WhenRepositoryBulkheadIsFull_ShouldReturnServiceUnavailableAndDeleteFile() throws Exception {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile(
+            "file",
+            "test.jpg",
+            MediaType.IMAGE_JPEG_VALUE,
+            "test image content".getBytes()
+        );
+
+        when(fileStorageService.storeFile(any())).thenReturn("uuid-test.jpg");
+        when(photoRepository.findByFilename("uuid-test.jpg")).thenReturn(Optional.empty());
+        when(photoRepository.save(any(Photo.class)))
+            .thenThrow(new BulkheadFullException("repository", "queue full", 2));
+
+        // Act & Assert
+        mockMvc.perform(multipart("/photos/upload")
+                .file(file))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string("Retry-After", "2"));
+
+        verify(fileStorageService, times(1)).deleteFile("uuid-test.jpg");
+    }
+
+    @Test
+    void createPhoto_WhenRepositoryBulkheadIsFull_ShouldReturnServiceUnavailable() throws Exception {
+        // Arrange
+        Photo photo = new Photo("new.jpg");
+        when(photoRepository.findByFilename("new.jpg")).thenReturn(Optional.empty());
+        when(photoRepository.save(any(Photo.class)))
+            .thenThrow(new BulkheadFullException("repository", "queue full", 2));
+
+        // Act & Assert
+        mockMvc.perform(post("/photos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(photo)))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string("Retry-After", "2"));
+    }
+
+    @Test
+    void uploadPhoto_ShouldStorePlaceholderOnPhoto() throws Exception {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile(
+            "file",
+            "test.jpg",
+            MediaType.IMAGE_JPEG_VALUE,
+            "test image content".getBytes()
+        );
+
+        String storedFilename = "uuid-test.jpg";
+        when(fileStorageService.storeFile(any())).thenReturn(storedFilename);
+        when(fileStorageService.getFileStorageLocation()).thenReturn(Paths.get("/uploads"));
+        when(photoRepository.findByFilename(storedFilename)).thenReturn(Optional.empty());
+        doAnswer(invocation -> {
+            invocation.<Photo>getArgument(0).setPlaceholder("LEHV6nWB2yk8pyo0adR*.7kCMdnj");
+            return null;
+        }).when(ingestService).analyze(any(Photo.class));
+        when(photoRepository.save(any(Photo.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act & Assert
+        mockMvc.perform(multipart("/photos/upload")
+                .file(file))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.photo.placeholder").value("LEHV6nWB2yk8pyo0adR*.7kCMdnj"));
+
+        verify(ingestService, times(1)).analyze(any(Photo.class));
+        verify(ingestService, times(1)).onSaved(any(Photo.class));
+    }
+
+    @Test
+    void uploadPhoto_WithAsync_ShouldReturnAcceptedWithJob() throws Exception {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile(
+            "file",
+            "test.jpg",
+            MediaType.IMAGE_JPEG_VALUE,
+            "test image content".getBytes()
+        );
+
+        String storedFilename = "uuid-test.jpg";
+        IngestJob job = new IngestJob(storedFilename, "test.jpg");
+        job.setId(42L);
+
+        when(fileStorageService.storeFile(any())).thenReturn(storedFilename);
+        when(photoRepository.findByFilename(storedFilename)).thenReturn(Optional.empty());
+        when(ingestJobService.submit(storedFilename, "test.jpg")).thenReturn(job);
+
+        // Act & Assert
+        mockMvc.perform(multipart("/photos/upload")
+                .file(file)
+                .param("async", "true"))
+            .andExpect(status().isAccepted())
+            .andExpect(header().string("Location", "/photos/jobs/42"))
+            .andExpect(jsonPath("$.jobId").value(42))
+            .andExpect(jsonPath("$.status").value("QUEUED"))
+            .andExpect(jsonPath("$.storedFilename").value(storedFilename));
+
+        verify(photoRepository, never()).save(any(Photo.class));
+        verify(ingestService, never()).analyze(any(Photo.class));
+    }
+
+    @Test
+    void getIngestJob_WhenJobExists_ShouldReturnJob() throws Exception {
+        // Arrange
+        IngestJob job = new IngestJob("uuid-test.jpg", "test.jpg");
+        job.setId(42L);
+        job.setStatus(IngestJob.Status.COMPLETED);
+        job.setPhotoId(7L);
+        when(ingestJobService.getJob(42L)).thenReturn(Optional.of(job));
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/jobs/42"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("COMPLETED"))
+            .andExpect(jsonPath("$.photoId").value(7));
+    }
+
+    @Test
+    void getIngestJob_WhenJobDoesNotExist_ShouldReturnNotFound() throws Exception {
+        // Arrange
+        when(ingestJobService.getJob(99L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/jobs/99"))
+            .andExpect(status().isNotFound())
+            .andExpect(content().string("Job with ID 99 not found."));
+    }
+
     @Test
     void uploadPhoto_WithOriginalName_ShouldUseOriginalFilename() throws Exception {
         // Arrange
@@ -290,6 +684,7 @@ class PhotoControllerTest {
 
         Photo savedPhoto = new Photo(1L, "test.jpg");
 
+        when(fileStorageService.originalFilename(any())).thenReturn("test.jpg");
         when(fileStorageService.storeFileWithOriginalName(any())).thenReturn("test.jpg");
         when(fileStorageService.getFileStorageLocation()).thenReturn(Paths.get("/uploads"));
         when(photoRepository.findByFilename("test.jpg")).thenReturn(Optional.empty());
@@ -303,7 +698,10 @@ class PhotoControllerTest {
             .andExpect(jsonPath("$.photo.filename").value("test.jpg"))
             .andExpect(jsonPath("$.storedFilename").value("test.jpg"));
 
-        verify(fileStorageService, times(1)).storeFileWithOriginalName(any());
+        // A deleted photo with this name gives it up before the new file is written
+        InOrder order = inOrder(trashService, fileStorageService);
+        order.verify(trashService).discard("test.jpg");
+        order.verify(fileStorageService).storeFileWithOriginalName(any());
         verify(photoRepository, times(1)).save(any(Photo.class));
     }
 
@@ -0,0 +1,195 @@
+package com.photoserve.photo_api.controller;
+
+import com.photoserve.photo_api.admission.Bulkheads;
+import com.photoserve.photo_api.admission.ClientKeys;
+import com.photoserve.photo_api.model.Photo;
+import com.photoserve.photo_api.model.PhotoChange;
+import com.photoserve.photo_api.repository.PhotoRepository;
+import com.photoserve.photo_api.service.ChangeLogService;
+import com.photoserve.photo_api.service.FilenameIndex;
+import com.photoserve.photo_api.service.GeoIndex;
+import com.photoserve.photo_api.service.PhotoEventBroadcaster;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(PhotoEventController.class)
+@Import({Bulkheads.class, ClientKeys.class, PhotoEventBroadcaster.class})
+@TestPropertySource(properties = "photo.events.poll-ms=50")
+@SuppressWarnings("null")
+class PhotoEventControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PhotoEventBroadcaster photoEventBroadcaster;
+
+    @MockitoBean
+    private ChangeLogService changeLogService;
+
+    @MockitoBean
+    private FilenameIndex filenameIndex;
+
+    @MockitoBean
+    private GeoIndex geoIndex;
+
+    @MockitoBean
+    private PhotoRepository photoRepository;
+
+    @BeforeEach
+    void setUp() {
+        when(changeLogService.changesSince(anyLong(), anyInt()))
+            .thenAnswer(invocation -> new ChangeLogService.ChangePage(List.of(), invocation.getArgument(0), false));
+    }
+
+    private MvcResult subscribe(String lastEventId) throws Exception {
+        var events = get("/photos/events");
+        if (lastEventId != null) {
+            events.header("Last-Event-ID", lastEventId);
+        }
+        return mockMvc.perform(events)
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    }
+
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            String content = result.getResponse().getContentAsString();
+            if (content.contains(expected)) {
+                return content;
+            }
+            Thread.sleep(20);
+        }
+        fail("Stream never contained " + expected + ": " + result.getResponse().getContentAsString());
+        return null;
+    }
+
+    private static int occurrences(String content, String text) {
+        int count = 0;
+        for (int index = content.indexOf(text); index >= 0; index = content.indexOf(text, index + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    void streamEvents_ShouldPushPublishedCreationOnce() throws Exception {
+        // Arrange
+        MvcResult result = subscribe(null);
+        Photo photo = new Photo(101L, "IMG_5586.jpg");
+
+        // Act: published by the controller, then seen again in the change log
+        photoEventBroadcaster.publish(PhotoEventBroadcaster.CREATED, photo);
+        photoEventBroadcaster.publish(PhotoEventBroadcaster.CREATED, photo);
+        photoEventBroadcaster.publish(PhotoEventBroadcaster.DELETED, new Photo(102L, "IMG_5629.jpg"));
+
+        // Assert
+        String content = awaitContent(result, "IMG_5629.jpg");
+        assertTrue(content.contains("event:photo-created"));
+        assertEquals(1, occurrences(content, "\"id\":101"));
+        assertTrue(content.contains("event:photo-deleted"));
+    }
+
+    @Test
+    void streamEvents_ShouldPushUpdatesFromChangeLog() throws Exception {
+        // Arrange
+        MvcResult result = subscribe(null);
+        PhotoChange renamed = new PhotoChange(103L, "IMG_0001.jpg", PhotoChange.Type.UPDATED, LocalDateTime.now());
+        renamed.setSeq(9L);
+
+        // Act: a HEIC conversion shows up in the change log
+        when(changeLogService.changesSince(anyLong(), anyInt()))
+            .thenReturn(new ChangeLogService.ChangePage(List.of(renamed), 9L, false))
+            .thenAnswer(invocation -> new ChangeLogService.ChangePage(List.of(), invocation.getArgument(0), false));
+
+        // Assert
+        String content = awaitContent(result, "IMG_0001.jpg");
+        assertTrue(content.contains("event:photo-updated"));
+        verify(filenameIndex, atLeastOnce()).add(103L, "IMG_0001.jpg");
+    }
+
+    @Test
+    void changeLogTail_ShouldMovePositionsAndRemoveTrashedAndDeletedPhotosFromGeoIndex() {
+        // Arrange: 106 got its coordinates from a HEIC conversion, 107 went to the trash, 108 was deleted
+        PhotoChange converted = new PhotoChange(106L, "IMG_0106.jpg", PhotoChange.Type.UPDATED, LocalDateTime.now());
+        PhotoChange trashed = new PhotoChange(107L, "IMG_0107.jpg", PhotoChange.Type.UPDATED, LocalDateTime.now());
+        PhotoChange deleted = new PhotoChange(108L, "IMG_0108.jpg", PhotoChange.Type.DELETED, LocalDateTime.now());
+        Photo photo = new Photo(106L, "IMG_0106.jpg");
+        photo.setLatitude(48.8584);
+        photo.setLongitude(2.2945);
+        // Trashed photos are filtered out of entity queries
+        when(photoRepository.findAllById(anyIterable())).thenReturn(List.of(photo));
+        when(changeLogService.changesSince(anyLong(), anyInt()))
+            .thenReturn(new ChangeLogService.ChangePage(List.of(converted, trashed, deleted), 12L, false))
+            .thenAnswer(invocation -> new ChangeLogService.ChangePage(List.of(), invocation.getArgument(0), false));
+
+        // Act & Assert: the change log is tailed every 50 ms
+        verify(geoIndex, timeout(2000)).add(106L, 48.8584, 2.2945);
+        verify(geoIndex, timeout(2000)).remove(107L);
+        verify(geoIndex, timeout(2000)).remove(108L);
+        verify(geoIndex, never()).remove(106L);
+    }
+
+    @Test
+    void streamEvents_WithUnknownLastEventId_ShouldAskToResync() throws Exception {
+        // Act
+        MvcResult result = subscribe("lz0abc-42");
+
+        // Assert
+        awaitContent(result, "event:resync");
+    }
+
+    @Test
+    void streamEvents_WithLastEventId_ShouldReplayMissedEvents() throws Exception {
+        // Arrange
+        MvcResult first = subscribe(null);
+        photoEventBroadcaster.publish(PhotoEventBroadcaster.CREATED, new Photo(104L, "a.jpg"));
+        String content = awaitContent(first, "a.jpg");
+        String lastId = content.lines().filter(line -> line.startsWith("id:")).reduce((a, b) -> b).orElseThrow().substring(3);
+        photoEventBroadcaster.publish(PhotoEventBroadcaster.CREATED, new Photo(105L, "b.jpg"));
+
+        // Act
+        MvcResult reconnected = subscribe(lastId);
+
+        // Assert
+        String replayed = awaitContent(reconnected, "b.jpg");
+        assertFalse(replayed.contains("a.jpg"));
+        assertFalse(replayed.contains("event:resync"));
+    }
+
+    @Test
+    void streamEvents_WithLastEventIdBeyondBuffer_ShouldReplayFromReplayWindow() throws Exception {
+        // Arrange: more missed events than a subscriber buffers (64), fewer than are kept (256)
+        MvcResult first = subscribe(null);
+        photoEventBroadcaster.publish(PhotoEventBroadcaster.CREATED, new Photo(200L, "first.jpg"));
+        String content = awaitContent(first, "first.jpg");
+        String lastId = content.lines().filter(line -> line.startsWith("id:")).reduce((a, b) -> b).orElseThrow().substring(3);
+        for (long id = 201; id <= 300; id++) {
+            photoEventBroadcaster.publish(PhotoEventBroadcaster.CREATED, new Photo(id, "missed-" + id + ".jpg"));
+        }
+
+        // Act
+        MvcResult reconnected = subscribe(lastId);
+
+        // Assert
+        String replayed = awaitContent(reconnected, "missed-300.jpg");
+        assertTrue(replayed.contains("missed-201.jpg"));
+        assertFalse(replayed.contains("event:resync"));
+    }
+}
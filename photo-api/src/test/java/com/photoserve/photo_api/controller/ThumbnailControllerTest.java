@@ -0,0 +1,173 @@
+package com.photoserve.photo_api.controller;
+
+import com.photoserve.photo_api.admission.BulkheadFullException;
+import com.photoserve.photo_api.admission.Bulkheads;
+import com.photoserve.photo_api.admission.ClientKeys;
+import com.photoserve.photo_api.model.Photo;
+import com.photoserve.photo_api.repository.PhotoRepository;
+import com.photoserve.photo_api.service.SpriteService;
+import com.photoserve.photo_api.service.ThumbnailService;
+import com.photoserve.photo_api.service.TileService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ThumbnailController.class)
+@Import({Bulkheads.class, ClientKeys.class})
+@SuppressWarnings("null")
+class ThumbnailControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private PhotoRepository photoRepository;
+
+    @MockitoBean
+    private ThumbnailService thumbnailService;
+
+    @MockitoBean
+    private SpriteService spriteService;
+
+    @MockitoBean
+    private TileService tileService;
+
+    @Test
+    void getThumbnail_WhenPhotoExists_ShouldReturnJpeg() throws Exception {
+        // Arrange
+        when(photoRepository.findById(1L)).thenReturn(Optional.of(new Photo(1L, "test.jpg")));
+        when(thumbnailService.getThumbnail("test.jpg", 256)).thenReturn(new byte[]{1, 2, 3});
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/id/1/thumbnail"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.IMAGE_JPEG))
+            .andExpect(content().bytes(new byte[]{1, 2, 3}));
+    }
+
+    @Test
+    void getThumbnail_WithInvalidSize_ShouldReturnBadRequest() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/photos/id/1/thumbnail").param("size", "5000"))
+            .andExpect(status().isBadRequest());
+
+        verify(thumbnailService, never()).getThumbnail(anyString(), anyInt());
+    }
+
+    @Test
+    void getThumbnail_WhenDecodeBudgetExhausted_ShouldReturnServiceUnavailable() throws Exception {
+        // Arrange
+        when(photoRepository.findById(1L)).thenReturn(Optional.of(new Photo(1L, "test.jpg")));
+        when(thumbnailService.getThumbnail("test.jpg", 256))
+            .thenThrow(new BulkheadFullException("decode", "no room", 2));
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/id/1/thumbnail"))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string("Retry-After", "2"));
+    }
+
+    @Test
+    void getTileDescriptor_ShouldReturnDeepZoomImage() throws Exception {
+        // Arrange
+        when(photoRepository.findById(1L)).thenReturn(Optional.of(new Photo(1L, "pano.jpg")));
+        when(tileService.getPyramid("pano.jpg")).thenReturn(new TileService.Pyramid(12000, 3000, 254, 1, 14));
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/id/1/tiles"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.Image.Url").value("/photos/id/1/tiles/"))
+            .andExpect(jsonPath("$.Image.TileSize").value(254))
+            .andExpect(jsonPath("$.Image.Overlap").value(1))
+            .andExpect(jsonPath("$.Image.Size.Width").value(12000))
+            .andExpect(jsonPath("$.Image.Size.Height").value(3000));
+    }
+
+    @Test
+    void getTile_WithOrWithoutExtension_ShouldReturnJpeg() throws Exception {
+        // Arrange
+        when(photoRepository.findById(1L)).thenReturn(Optional.of(new Photo(1L, "pano.jpg")));
+        when(tileService.getTile("pano.jpg", 12, 3, 5)).thenReturn(new byte[]{1, 2, 3});
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/id/1/tiles/12/3_5"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.IMAGE_JPEG))
+            .andExpect(content().bytes(new byte[]{1, 2, 3}));
+        mockMvc.perform(get("/photos/id/1/tiles/12/3_5.jpg"))
+            .andExpect(status().isOk())
+            .andExpect(content().bytes(new byte[]{1, 2, 3}));
+    }
+
+    @Test
+    void getTile_OutsidePyramid_ShouldReturn404() throws Exception {
+        // Arrange
+        when(photoRepository.findById(1L)).thenReturn(Optional.of(new Photo(1L, "pano.jpg")));
+        when(tileService.getTile("pano.jpg", 20, 0, 0)).thenThrow(new IllegalArgumentException("No tile"));
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/id/1/tiles/20/0_0"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getSprite_ShouldReturnCoordinateMapAndSpriteUrl() throws Exception {
+        // Arrange
+        Photo first = new Photo(1L, "a.jpg");
+        Photo second = new Photo(2L, "b.jpg");
+        when(photoRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(first, second));
+        when(spriteService.getLayout(List.of(second, first), 128)).thenReturn(new SpriteService.SpriteSheet(
+            128, 256, 128, Map.of(
+                2L, new SpriteService.Tile(0, 0, 128, 128),
+                1L, new SpriteService.Tile(128, 0, 128, 128))));
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/sprites").param("ids", "2,1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.sprite").value("/photos/sprites/image?ids=2,1&tile=128"))
+            .andExpect(jsonPath("$.width").value(256))
+            .andExpect(jsonPath("$.tiles.1.x").value(128))
+            .andExpect(jsonPath("$.tiles.2.x").value(0));
+    }
+
+    @Test
+    void getSpriteImage_ShouldReturnJpeg() throws Exception {
+        // Arrange
+        Photo photo = new Photo(1L, "a.jpg");
+        when(photoRepository.findAllById(List.of(1L))).thenReturn(List.of(photo));
+        when(spriteService.getImage(List.of(photo), 64)).thenReturn(new byte[]{9});
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/sprites/image").param("ids", "1").param("tile", "64"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.IMAGE_JPEG))
+            .andExpect(content().bytes(new byte[]{9}));
+    }
+
+    @Test
+    void getSprite_WithTooManyIds_ShouldReturnBadRequest() throws Exception {
+        // Arrange
+        StringBuilder ids = new StringBuilder("1");
+        for (int i = 2; i <= SpriteService.MAX_PHOTOS + 1; i++) {
+            ids.append(',').append(i);
+        }
+
+        // Act & Assert
+        mockMvc.perform(get("/photos/sprites").param("ids", ids.toString()))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.ids").exists());
+    }
+}
@@ -0,0 +1,88 @@
+package com.photoserve.photo_api.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings({"null", "unchecked"})
+class PhotoChangeListenerTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private PhotoChangeListener listener;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        ObjectProvider<JdbcTemplate> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(jdbcTemplate);
+        listener = new PhotoChangeListener(provider);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /** Ends the current simulated transaction the way the transaction manager does. */
+    private static void complete(int status) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(status);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private static Photo datedPhoto() {
+        Photo photo = new Photo(1L, "a.jpg");
+        photo.setCapturedAt(LocalDateTime.of(2025, 10, 3, 9, 0));
+        return photo;
+    }
+
+    @Test
+    void created_AfterRolledBackSave_ShouldCountAgain() {
+        // Arrange: the first insert of this instance rolls back, as in a failed import batch
+        Photo photo = datedPhoto();
+        TransactionSynchronizationManager.initSynchronization();
+        listener.created(photo);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Act
+        TransactionSynchronizationManager.initSynchronization();
+        listener.created(photo);
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        // Assert
+        verify(jdbcTemplate, times(2)).update(startsWith("MERGE"), eq("2025-10-03"), eq(1));
+    }
+
+    @Test
+    void updated_AfterCommittedSave_ShouldOnlyCountChangedDays() {
+        // Arrange
+        Photo photo = datedPhoto();
+        TransactionSynchronizationManager.initSynchronization();
+        listener.created(photo);
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        // Act: a rename, then a move to the trash
+        TransactionSynchronizationManager.initSynchronization();
+        photo.setFilename("b.jpg");
+        listener.updated(photo);
+        photo.setDeletedAt(LocalDateTime.now());
+        listener.updated(photo);
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        // Assert
+        verify(jdbcTemplate, times(1)).update(startsWith("MERGE"), eq("2025"), eq(1));
+        verify(jdbcTemplate, times(1)).update(startsWith("UPDATE photo_timeline"), eq(1), eq("2025"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.photoserve.photo_api.repository;
+
+import com.photoserve.photo_api.model.IngestJob;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@SuppressWarnings("null")
+class IngestJobRepositoryTest {
+
+    @Autowired
+    private IngestJobRepository ingestJobRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private IngestJob saveJob(IngestJob.Status status, LocalDateTime heartbeatAt) {
+        IngestJob job = new IngestJob("uuid-" + status + ".jpg", "original.jpg");
+        job.setStatus(status);
+        job.setHeartbeatAt(heartbeatAt);
+        return ingestJobRepository.saveAndFlush(job);
+    }
+
+    @Test
+    void claim_ShouldSucceedOnlyOnce() {
+        // Arrange
+        IngestJob job = saveJob(IngestJob.Status.QUEUED, null);
+        LocalDateTime now = LocalDateTime.now();
+
+        // Act
+        int first = ingestJobRepository.claim(job.getId(), IngestJob.Status.QUEUED, IngestJob.Status.RUNNING, now);
+        int second = ingestJobRepository.claim(job.getId(), IngestJob.Status.QUEUED, IngestJob.Status.RUNNING, now);
+
+        // Assert
+        assertEquals(1, first);
+        assertEquals(0, second);
+        entityManager.clear();
+        IngestJob claimed = ingestJobRepository.findById(job.getId()).orElseThrow();
+        assertEquals(IngestJob.Status.RUNNING, claimed.getStatus());
+        assertEquals(1, claimed.getAttempts());
+        assertNotNull(claimed.getHeartbeatAt());
+    }
+
+    @Test
+    void finish_ShouldOnlyRecordOutcomeOfAttemptThatStillOwnsJob() {
+        // Arrange: attempt 1 was requeued as stale and the job claimed again as attempt 2
+        IngestJob job = saveJob(IngestJob.Status.QUEUED, null);
+        LocalDateTime now = LocalDateTime.now();
+        ingestJobRepository.claim(job.getId(), IngestJob.Status.QUEUED, IngestJob.Status.RUNNING, now);
+        ingestJobRepository.requeueStale(IngestJob.Status.RUNNING, IngestJob.Status.QUEUED, now.plusMinutes(1));
+        ingestJobRepository.claim(job.getId(), IngestJob.Status.QUEUED, IngestJob.Status.RUNNING, now);
+
+        // Act
+        int stale = ingestJobRepository.finish(job.getId(), IngestJob.Status.RUNNING, 1,
+                IngestJob.Status.FAILED, 1, null, "from the first attempt", now);
+        int current = ingestJobRepository.finish(job.getId(), IngestJob.Status.RUNNING, 2,
+                IngestJob.Status.COMPLETED, 2, 7L, null, now);
+
+        // Assert
+        assertEquals(0, stale);
+        assertEquals(1, current);
+        entityManager.clear();
+        IngestJob finished = ingestJobRepository.findById(job.getId()).orElseThrow();
+        assertEquals(IngestJob.Status.COMPLETED, finished.getStatus());
+        assertEquals(7L, finished.getPhotoId());
+        assertNull(finished.getError());
+    }
+
+    @Test
+    void requeueStale_ShouldOnlyRequeueJobsWithoutRecentHeartbeat() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        IngestJob stale = saveJob(IngestJob.Status.RUNNING, now.minusMinutes(10));
+        IngestJob live = saveJob(IngestJob.Status.RUNNING, now.minusSeconds(10));
+
+        // Act
+        int requeued = ingestJobRepository.requeueStale(IngestJob.Status.RUNNING, IngestJob.Status.QUEUED,
+                now.minusMinutes(5));
+
+        // Assert
+        assertEquals(1, requeued);
+        entityManager.clear();
+        assertEquals(IngestJob.Status.QUEUED, ingestJobRepository.findById(stale.getId()).orElseThrow().getStatus());
+        assertEquals(IngestJob.Status.RUNNING, ingestJobRepository.findById(live.getId()).orElseThrow().getStatus());
+    }
+}
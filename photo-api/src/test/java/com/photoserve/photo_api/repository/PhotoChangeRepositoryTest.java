@@ -0,0 +1,94 @@
+package com.photoserve.photo_api.repository;
+
+import com.photoserve.photo_api.model.Photo;
+import com.photoserve.photo_api.model.PhotoChange;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@SuppressWarnings("null")
+class PhotoChangeRepositoryTest {
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private PhotoChangeRepository photoChangeRepository;
+
+    @Test
+    void photoWrites_ShouldAppendToChangeLog() {
+        // Arrange
+        Photo photo = photoRepository.saveAndFlush(new Photo("IMG_5586.heic"));
+
+        // Act
+        photo.setFilename("IMG_5586.jpg");
+        photoRepository.saveAndFlush(photo);
+        photoRepository.delete(photo);
+        photoRepository.flush();
+
+        // Assert
+        List<PhotoChange> changes = photoChangeRepository.findBySeqGreaterThanOrderBySeqAsc(0, PageRequest.of(0, 10));
+        assertEquals(List.of(PhotoChange.Type.CREATED, PhotoChange.Type.UPDATED, PhotoChange.Type.DELETED),
+            changes.stream().map(PhotoChange::getType).toList());
+        assertEquals("IMG_5586.heic", changes.get(0).getFilename());
+        assertEquals("IMG_5586.jpg", changes.get(1).getFilename());
+        assertEquals(photo.getId(), changes.get(2).getPhotoId());
+    }
+
+    @Test
+    void movingPhotoToTrash_ShouldLogDeletionAndRestoreAsUpdate() {
+        // Arrange
+        Photo photo = photoRepository.saveAndFlush(new Photo("test.jpg"));
+
+        // Act
+        photo.setDeletedAt(LocalDateTime.now());
+        photoRepository.saveAndFlush(photo);
+        photo.setDeletedAt(null);
+        photoRepository.saveAndFlush(photo);
+
+        // Assert
+        List<PhotoChange> changes = photoChangeRepository.findBySeqGreaterThanOrderBySeqAsc(0, PageRequest.of(0, 10));
+        assertEquals(List.of(PhotoChange.Type.CREATED, PhotoChange.Type.DELETED, PhotoChange.Type.UPDATED),
+            changes.stream().map(PhotoChange::getType).toList());
+    }
+
+    @Test
+    void findSupersededSeqs_ShouldKeepNewestPerPhotoAndOldestOverall() {
+        // Arrange
+        LocalDateTime old = LocalDateTime.now().minusDays(2);
+        PhotoChange first = photoChangeRepository.save(new PhotoChange(1L, "a.heic", PhotoChange.Type.CREATED, old));
+        PhotoChange renamed = photoChangeRepository.save(new PhotoChange(1L, "a.jpg", PhotoChange.Type.UPDATED, old));
+        PhotoChange other = photoChangeRepository.save(new PhotoChange(2L, "b.jpg", PhotoChange.Type.CREATED, old));
+        photoChangeRepository.save(new PhotoChange(2L, "b.jpg", PhotoChange.Type.UPDATED, old));
+        photoChangeRepository.save(new PhotoChange(1L, "a.jpg", PhotoChange.Type.DELETED, LocalDateTime.now()));
+
+        // Act
+        List<Long> superseded = photoChangeRepository.findSupersededSeqs(LocalDateTime.now().minusDays(1),
+            first.getSeq(), PageRequest.of(0, 100));
+
+        // Assert
+        assertEquals(List.of(renamed.getSeq(), other.getSeq()), superseded);
+    }
+
+    @Test
+    void deleteOlderThan_ShouldAlwaysKeepNewestEntry() {
+        // Arrange
+        LocalDateTime old = LocalDateTime.now().minusDays(60);
+        photoChangeRepository.save(new PhotoChange(1L, "a.jpg", PhotoChange.Type.CREATED, old));
+        PhotoChange newest = photoChangeRepository.save(new PhotoChange(1L, "a.jpg", PhotoChange.Type.DELETED, old));
+
+        // Act
+        int deleted = photoChangeRepository.deleteOlderThan(LocalDateTime.now().minusDays(30), newest.getSeq());
+
+        // Assert
+        assertEquals(1, deleted);
+        assertEquals(newest.getSeq(), photoChangeRepository.findMinSeq());
+    }
+}
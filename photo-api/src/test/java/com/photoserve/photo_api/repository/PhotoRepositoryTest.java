@@ -4,8 +4,11 @@ import com.photoserve.photo_api.model.Photo;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +21,15 @@ class PhotoRepositoryTest {
     @Autowired
     private PhotoRepository photoRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Photo saveDeleted(String filename, LocalDateTime deletedAt) {
+        Photo photo = new Photo(filename);
+        photo.setDeletedAt(deletedAt);
+        return photoRepository.saveAndFlush(photo);
+    }
+
     @Test
     void save_WithValidPhoto_ShouldPersistPhoto() {
         // Arrange
@@ -217,4 +229,57 @@ class PhotoRepositoryTest {
         // Assert
         assertFalse(exists);
     }
+
+    @Test
+    void deletedPhoto_ShouldBeHiddenFromQueries() {
+        // Arrange
+        photoRepository.saveAndFlush(new Photo("live.jpg"));
+        Photo deleted = saveDeleted("deleted.jpg", LocalDateTime.now());
+        entityManager.clear();
+
+        // Act & Assert
+        assertEquals(List.of("live.jpg"), photoRepository.findAll().stream().map(Photo::getFilename).toList());
+        assertFalse(photoRepository.findById(deleted.getId()).isPresent());
+        assertFalse(photoRepository.findByFilename("deleted.jpg").isPresent());
+        assertEquals(1, photoRepository.countDeleted());
+        assertTrue(photoRepository.findDeletedByIdForUpdate(deleted.getId()).isPresent());
+    }
+
+    @Test
+    void purgeDeleted_ShouldOnlyRemovePhotosPastGracePeriod() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        Photo expired = saveDeleted("expired.jpg", now.minusDays(10));
+        saveDeleted("recent.jpg", now.minusHours(1));
+        Photo live = photoRepository.saveAndFlush(new Photo("live.jpg"));
+        entityManager.clear();
+        LocalDateTime before = now.minusDays(7);
+
+        // Act
+        List<Photo> candidates = photoRepository.findDeletedBefore(before, PageRequest.of(0, 10));
+        int purgedLive = photoRepository.purgeDeleted(live.getId(), before);
+        int purgedExpired = photoRepository.purgeDeleted(expired.getId(), before);
+
+        // Assert
+        assertEquals(List.of("expired.jpg"), candidates.stream().map(Photo::getFilename).toList());
+        assertEquals(0, purgedLive);
+        assertEquals(1, purgedExpired);
+        assertEquals(1, photoRepository.countDeleted());
+        assertTrue(photoRepository.findById(live.getId()).isPresent());
+    }
+
+    @Test
+    void discardDeletedByFilename_ShouldFreeFilenameForNewPhoto() {
+        // Arrange
+        saveDeleted("test.jpg", LocalDateTime.now());
+
+        // Act
+        int discarded = photoRepository.discardDeletedByFilename("test.jpg");
+        Photo photo = photoRepository.saveAndFlush(new Photo("test.jpg"));
+
+        // Assert
+        assertEquals(1, discarded);
+        assertNotNull(photo.getId());
+        assertEquals(0, photoRepository.countDeleted());
+    }
 }
@@ -0,0 +1,125 @@
+package com.photoserve.photo_api.repository;
+
+import com.photoserve.photo_api.model.Photo;
+import com.photoserve.photo_api.model.TimelineCount;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@SuppressWarnings("null")
+class TimelineCountRepositoryTest {
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private TimelineCountRepository timelineCountRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Photo savePhoto(String filename, LocalDateTime capturedAt) {
+        Photo photo = new Photo(filename);
+        photo.setCapturedAt(capturedAt);
+        return photoRepository.saveAndFlush(photo);
+    }
+
+    private Map<String, Long> counts(String pattern) {
+        // The counters are written with JDBC; do not read them back from the persistence context
+        entityManager.clear();
+        return timelineCountRepository.findNonEmpty(pattern).stream()
+            .collect(Collectors.toMap(TimelineCount::getPeriod, TimelineCount::getCount));
+    }
+
+    @Test
+    void photoInserts_ShouldCountYearMonthAndDay() {
+        // Act
+        savePhoto("a.jpg", LocalDateTime.of(2025, 10, 3, 9, 0));
+        savePhoto("b.jpg", LocalDateTime.of(2025, 10, 3, 18, 30));
+        savePhoto("c.jpg", LocalDateTime.of(2025, 11, 1, 12, 0));
+        savePhoto("d.jpg", LocalDateTime.of(2024, 7, 14, 12, 0));
+        savePhoto("undated.jpg", null);
+
+        // Assert
+        assertEquals(Map.of("2024", 1L, "2025", 3L), counts("____"));
+        assertEquals(Map.of("2025-10", 2L, "2025-11", 1L), counts("2025-__"));
+        assertEquals(Map.of("2025-10-03", 2L), counts("2025-10-__"));
+    }
+
+    @Test
+    void findNonEmpty_ShouldReturnPeriodsInOrder() {
+        // Arrange
+        savePhoto("a.jpg", LocalDateTime.of(2025, 3, 1, 9, 0));
+        savePhoto("b.jpg", LocalDateTime.of(2023, 3, 1, 9, 0));
+        savePhoto("c.jpg", LocalDateTime.of(2024, 3, 1, 9, 0));
+
+        // Act
+        entityManager.clear();
+        List<TimelineCount> years = timelineCountRepository.findNonEmpty("____");
+
+        // Assert
+        assertEquals(List.of("2023", "2024", "2025"), years.stream().map(TimelineCount::getPeriod).toList());
+    }
+
+    @Test
+    void movingPhotoToTrash_ShouldUncountItUntilRestored() {
+        // Arrange
+        Photo photo = savePhoto("a.jpg", LocalDateTime.of(2025, 10, 3, 9, 0));
+        savePhoto("b.jpg", LocalDateTime.of(2025, 10, 4, 9, 0));
+
+        // Act
+        photo.setDeletedAt(LocalDateTime.now());
+        photoRepository.saveAndFlush(photo);
+
+        // Assert
+        assertEquals(Map.of("2025-10-04", 1L), counts("2025-10-__"));
+        assertEquals(Map.of("2025", 1L), counts("____"));
+
+        // Act: restored the way the trash does it, from a fresh load
+        Photo trashed = photoRepository.findDeletedByIdForUpdate(photo.getId()).orElseThrow();
+        trashed.setDeletedAt(null);
+        photoRepository.saveAndFlush(trashed);
+
+        // Assert
+        assertEquals(Map.of("2025-10-03", 1L, "2025-10-04", 1L), counts("2025-10-__"));
+        assertEquals(Map.of("2025", 2L), counts("____"));
+    }
+
+    @Test
+    void photoUpdates_ShouldMoveCountOnlyWhenCaptureDayChanges() {
+        // Arrange
+        Photo photo = savePhoto("a.jpg", LocalDateTime.of(2025, 10, 3, 9, 0));
+
+        // Act
+        photo.setFilename("renamed.jpg");
+        photo = photoRepository.saveAndFlush(photo);
+        photo.setCapturedAt(LocalDateTime.of(2025, 9, 30, 23, 0));
+        photoRepository.saveAndFlush(photo);
+
+        // Assert
+        assertEquals(Map.of("2025-09", 1L), counts("2025-__"));
+        assertEquals(Map.of("2025", 1L), counts("____"));
+    }
+
+    @Test
+    void photoRemoval_ShouldUncountIt() {
+        // Arrange
+        Photo photo = savePhoto("a.jpg", LocalDateTime.of(2025, 10, 3, 9, 0));
+
+        // Act
+        photoRepository.delete(photo);
+        photoRepository.flush();
+
+        // Assert
+        assertTrue(counts("____").isEmpty());
+    }
+}
@@ -0,0 +1,149 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.model.PhotoChange;
+import com.photoserve.photo_api.repository.PhotoChangeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("null")
+class ChangeLogServiceTest {
+
+    private PhotoChangeRepository photoChangeRepository;
+    private ChangeLogService changeLogService;
+
+    @BeforeEach
+    void setUp() {
+        photoChangeRepository = mock(PhotoChangeRepository.class);
+        changeLogService = new ChangeLogService(photoChangeRepository, 2000, 86_400_000L, 2_592_000_000L, 0);
+    }
+
+    private static PhotoChange change(long seq, LocalDateTime changedAt) {
+        PhotoChange change = new PhotoChange(seq * 10, "IMG_" + seq + ".jpg", PhotoChange.Type.CREATED, changedAt);
+        change.setSeq(seq);
+        return change;
+    }
+
+    @Test
+    void changesSince_ShouldReturnChangesAndNextPosition() {
+        // Arrange
+        LocalDateTime old = LocalDateTime.now().minusMinutes(5);
+        when(photoChangeRepository.findMinSeq()).thenReturn(1L);
+        when(photoChangeRepository.findBySeqGreaterThanOrderBySeqAsc(eq(5L), any(Pageable.class)))
+            .thenReturn(List.of(change(6, old), change(7, old)));
+
+        // Act
+        ChangeLogService.ChangePage page = changeLogService.changesSince(5, 10);
+
+        // Assert
+        assertEquals(2, page.changes().size());
+        assertEquals(7, page.next());
+        assertFalse(page.hasMore());
+    }
+
+    @Test
+    void changesSince_WhenMoreThanLimit_ShouldReportMore() {
+        // Arrange
+        LocalDateTime old = LocalDateTime.now().minusMinutes(5);
+        when(photoChangeRepository.findMinSeq()).thenReturn(1L);
+        when(photoChangeRepository.findBySeqGreaterThanOrderBySeqAsc(eq(0L), any(Pageable.class)))
+            .thenReturn(List.of(change(1, old), change(2, old), change(3, old)));
+
+        // Act
+        ChangeLogService.ChangePage page = changeLogService.changesSince(0, 2);
+
+        // Assert
+        assertEquals(2, page.changes().size());
+        assertEquals(2, page.next());
+        assertTrue(page.hasMore());
+    }
+
+    @Test
+    void changesSince_ShouldWaitOnGapUntilSettledThenSkipIt() {
+        // Arrange: 7 is missing while 8 is already the newest entry
+        long now = TimeUnit.SECONDS.toNanos(1000);
+        LocalDateTime recent = LocalDateTime.now();
+        when(photoChangeRepository.findMinSeq()).thenReturn(1L);
+        when(photoChangeRepository.findMaxSeq()).thenReturn(8L, 10L);
+        when(photoChangeRepository.findBySeqGreaterThanOrderBySeqAsc(eq(5L), any(Pageable.class)))
+            .thenReturn(List.of(change(6, recent), change(8, recent)))
+            .thenReturn(List.of(change(6, recent), change(8, recent), change(10, recent)));
+
+        // Act
+        ChangeLogService.ChangePage first = changeLogService.changesSince(5, 10, now);
+        // 7 has had the settle time to commit and never did; 9 was handed out after 8 was seen
+        ChangeLogService.ChangePage second = changeLogService.changesSince(5, 10, now + TimeUnit.SECONDS.toNanos(2));
+
+        // Assert
+        assertEquals(List.of(6L), first.changes().stream().map(PhotoChange::getSeq).toList());
+        assertEquals(6, first.next());
+        assertTrue(first.hasMore());
+        assertEquals(List.of(6L, 8L), second.changes().stream().map(PhotoChange::getSeq).toList());
+        assertEquals(8, second.next());
+        assertTrue(second.hasMore());
+    }
+
+    @Test
+    void changesSince_ShouldIgnoreTimestampsWrittenWithEntries() {
+        // Arrange: an entry stamped long ago by a skewed clock does not make the gap before it settled
+        long now = TimeUnit.SECONDS.toNanos(1000);
+        LocalDateTime skewed = LocalDateTime.now().minusHours(1);
+        when(photoChangeRepository.findMinSeq()).thenReturn(1L);
+        when(photoChangeRepository.findMaxSeq()).thenReturn(8L);
+        when(photoChangeRepository.findBySeqGreaterThanOrderBySeqAsc(eq(5L), any(Pageable.class)))
+            .thenReturn(List.of(change(6, skewed), change(8, skewed)));
+
+        // Act
+        ChangeLogService.ChangePage page = changeLogService.changesSince(5, 10, now);
+
+        // Assert
+        assertEquals(6, page.next());
+    }
+
+    @Test
+    void changesSince_WhenPositionIsBeforeRetainedLog_ShouldReturnNull() {
+        // Arrange
+        when(photoChangeRepository.findMinSeq()).thenReturn(100L);
+
+        // Act & Assert
+        assertNull(changeLogService.changesSince(50, 10));
+        assertNotNull(changeLogService.changesSince(99, 10));
+    }
+
+    @Test
+    void latestSeq_WhenLogIsEmpty_ShouldReturnZero() {
+        // Arrange
+        when(photoChangeRepository.findMaxSeq()).thenReturn(null);
+
+        // Act & Assert
+        assertEquals(0, changeLogService.latestSeq());
+    }
+
+    @Test
+    void compact_ShouldDropExpiredAndSupersededEntriesInBatches() {
+        // Arrange
+        when(photoChangeRepository.findMinSeq()).thenReturn(1L, 40L);
+        when(photoChangeRepository.findMaxSeq()).thenReturn(5000L);
+        when(photoChangeRepository.deleteOlderThan(any(), eq(5000L))).thenReturn(39);
+        List<Long> fullBatch = java.util.stream.LongStream.range(100, 1100).boxed().toList();
+        when(photoChangeRepository.findSupersededSeqs(any(), eq(40L), any(Pageable.class)))
+            .thenReturn(fullBatch)
+            .thenReturn(List.of(2000L, 2001L));
+
+        // Act
+        int removed = changeLogService.compact();
+
+        // Assert
+        assertEquals(39 + 1000 + 2, removed);
+        verify(photoChangeRepository).deleteAllByIdInBatch(fullBatch);
+        verify(photoChangeRepository).deleteAllByIdInBatch(List.of(2000L, 2001L));
+    }
+}
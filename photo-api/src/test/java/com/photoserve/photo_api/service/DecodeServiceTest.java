@@ -0,0 +1,132 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.admission.BulkheadFullException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("null")
+class DecodeServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final DecodeService decodeService = new DecodeService(64 * 1024 * 1024, 10_000);
+
+    private Path writeImage(String filename, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, (x * 255 / width) << 16 | 128);
+            }
+        }
+        Path file = tempDir.resolve(filename);
+        ImageIO.write(image, "png", file.toFile());
+        return file;
+    }
+
+    @Test
+    void readSize_ShouldReadHeaderOnly() throws Exception {
+        // Arrange
+        Path file = writeImage("pano.png", 1000, 300);
+
+        // Act
+        Dimension size = decodeService.readSize(file);
+
+        // Assert
+        assertEquals(new Dimension(1000, 300), size);
+        assertEquals(0, decodeService.getUsedBytes());
+    }
+
+    @Test
+    void decodeToFit_ShouldSubsampleToRequestedEdge() throws Exception {
+        // Arrange
+        Path file = writeImage("pano.png", 1000, 300);
+
+        // Act
+        Dimension decoded = decodeService.decodeToFit(file, 100,
+                image -> new Dimension(image.getWidth(), image.getHeight()));
+
+        // Assert
+        assertEquals(new Dimension(100, 30), decoded);
+        assertEquals(0, decodeService.getUsedBytes());
+    }
+
+    @Test
+    void decodeRegion_ShouldDecodeOnlyRegion() throws Exception {
+        // Arrange
+        Path file = writeImage("pano.png", 1000, 300);
+
+        // Act
+        BufferedImage decoded = decodeService.decodeRegion(file, new Rectangle(500, 0, 400, 300), 2, image -> image);
+
+        // Assert
+        assertEquals(200, decoded.getWidth());
+        assertEquals(150, decoded.getHeight());
+        // The gradient runs red from left to right, so the region starts half way
+        assertEquals(127, decoded.getRGB(0, 0) >> 16 & 0xff, 2);
+    }
+
+    @Test
+    void decodeFull_WhenNotAnImage_ShouldReturnNull() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("broken.jpg");
+        Files.writeString(file, "not an image");
+
+        // Act & Assert
+        assertNull(decodeService.decodeFull(file, image -> image));
+    }
+
+    @Test
+    void decode_WhenBudgetTaken_ShouldRejectAfterWaiting() throws Exception {
+        // Arrange
+        Path file = writeImage("pano.png", 1000, 300);
+        DecodeService smallBudget = new DecodeService(64 * 1024, 50);
+        CountDownLatch decoding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<BufferedImage> holder = executor.submit(() -> smallBudget.decodeFull(file, image -> {
+                decoding.countDown();
+                awaitQuietly(release);
+                return image;
+            }));
+            assertTrue(decoding.await(5, TimeUnit.SECONDS));
+
+            // Act & Assert
+            assertEquals(smallBudget.getBudgetBytes(), smallBudget.getUsedBytes());
+            assertThrows(BulkheadFullException.class, () -> smallBudget.decodeToFit(file, 100, image -> image));
+            assertEquals(1, smallBudget.getRejected());
+
+            release.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+            assertEquals(0, smallBudget.getUsedBytes());
+            assertNotNull(smallBudget.decodeToFit(file, 100, image -> image));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
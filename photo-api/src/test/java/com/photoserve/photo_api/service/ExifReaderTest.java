@@ -0,0 +1,163 @@
+package com.photoserve.photo_api.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExifReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * TIFF structure with a GPS IFD for 48 51' 29.64" N, 2 17' 40.2" W.
+     */
+    static byte[] gpsTiff(ByteOrder order) {
+        ByteBuffer tiff = ByteBuffer.allocate(128).order(order);
+        tiff.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        tiff.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        tiff.putShort((short) 42).putInt(8);
+        // IFD0: only the GPS IFD pointer
+        tiff.putShort((short) 1);
+        tiff.putShort((short) 0x8825).putShort((short) 4).putInt(1).putInt(26);
+        tiff.putInt(0);
+        // GPS IFD
+        tiff.putShort((short) 4);
+        tiff.putShort((short) 1).putShort((short) 2).putInt(2).put((byte) 'N').put((byte) 0).putShort((short) 0);
+        tiff.putShort((short) 2).putShort((short) 5).putInt(3).putInt(80);
+        tiff.putShort((short) 3).putShort((short) 2).putInt(2).put((byte) 'W').put((byte) 0).putShort((short) 0);
+        tiff.putShort((short) 4).putShort((short) 5).putInt(3).putInt(104);
+        tiff.putInt(0);
+        tiff.putInt(48).putInt(1).putInt(51).putInt(1).putInt(2964).putInt(100);
+        tiff.putInt(2).putInt(1).putInt(17).putInt(1).putInt(4020).putInt(100);
+        return tiff.array();
+    }
+
+    /**
+     * TIFF structure with an Exif IFD holding only DateTimeOriginal.
+     */
+    static byte[] dateTimeTiff(String dateTime) {
+        ByteBuffer tiff = ByteBuffer.allocate(64);
+        tiff.put((byte) 'M').put((byte) 'M').putShort((short) 42).putInt(8);
+        // IFD0: only the Exif IFD pointer
+        tiff.putShort((short) 1);
+        tiff.putShort((short) 0x8769).putShort((short) 4).putInt(1).putInt(26);
+        tiff.putInt(0);
+        // Exif IFD
+        tiff.putShort((short) 1);
+        tiff.putShort((short) 0x9003).putShort((short) 2).putInt(20).putInt(44);
+        tiff.putInt(0);
+        tiff.put(dateTime.getBytes(StandardCharsets.US_ASCII)).put((byte) 0);
+        return tiff.array();
+    }
+
+    /**
+     * Writes a small JPEG with {@code tiff} as its EXIF segment, right after the start marker.
+     */
+    static void writeJpegWithExif(Path file, byte[] tiff) throws IOException {
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB), "jpg", jpeg);
+        byte[] image = jpeg.toByteArray();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(image, 0, 2);
+        int length = 2 + 6 + tiff.length;
+        out.write(new byte[]{(byte) 0xFF, (byte) 0xE1, (byte) (length >> 8), (byte) length});
+        out.write(new byte[]{'E', 'x', 'i', 'f', 0, 0});
+        out.write(tiff);
+        out.write(image, 2, image.length - 2);
+        Files.write(file, out.toByteArray());
+    }
+
+    @Test
+    void read_ShouldReturnSignedGpsPosition() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("gps.jpg");
+        writeJpegWithExif(file, gpsTiff(ByteOrder.BIG_ENDIAN));
+
+        // Act
+        ExifReader.Exif exif = ExifReader.read(file);
+
+        // Assert
+        assertEquals(48.8582, exif.latitude(), 1e-4);
+        assertEquals(-2.2945, exif.longitude(), 1e-4);
+        assertNull(exif.capturedAt());
+    }
+
+    @Test
+    void read_WithIntelByteOrder_ShouldReturnGpsPosition() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("gps.jpg");
+        writeJpegWithExif(file, gpsTiff(ByteOrder.LITTLE_ENDIAN));
+
+        // Act
+        ExifReader.Exif exif = ExifReader.read(file);
+
+        // Assert
+        assertEquals(48.8582, exif.latitude(), 1e-4);
+        assertEquals(-2.2945, exif.longitude(), 1e-4);
+    }
+
+    @Test
+    void read_ShouldReturnCaptureTime() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("dated.jpg");
+        writeJpegWithExif(file, dateTimeTiff("2025:10:03 18:42:07"));
+
+        // Act
+        ExifReader.Exif exif = ExifReader.read(file);
+
+        // Assert
+        assertEquals(LocalDateTime.of(2025, 10, 3, 18, 42, 7), exif.capturedAt());
+        assertNull(exif.latitude());
+    }
+
+    @Test
+    void read_WithUnknownCaptureTime_ShouldReturnNoCaptureTime() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("undated.jpg");
+        writeJpegWithExif(file, dateTimeTiff("0000:00:00 00:00:00"));
+
+        // Act
+        ExifReader.Exif exif = ExifReader.read(file);
+
+        // Assert
+        assertNotNull(exif);
+        assertNull(exif.capturedAt());
+    }
+
+    @Test
+    void read_WithoutExif_ShouldReturnNull() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("plain.jpg");
+        ImageIO.write(new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB), "jpg", file.toFile());
+
+        // Act & Assert
+        assertNull(ExifReader.read(file));
+    }
+
+    @Test
+    void read_WithTruncatedExif_ShouldReturnNull() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("broken.jpg");
+        byte[] tiff = gpsTiff(ByteOrder.BIG_ENDIAN);
+        // GPS IFD pointer beyond the end of the segment
+        ByteBuffer.wrap(tiff).putInt(18, 4000);
+        writeJpegWithExif(file, tiff);
+
+        // Act & Assert
+        assertNull(ExifReader.read(file));
+    }
+}
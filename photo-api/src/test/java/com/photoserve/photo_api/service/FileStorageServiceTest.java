@@ -1,5 +1,7 @@
 package com.photoserve.photo_api.service;
 
+import com.photoserve.photo_api.storage.HotTier;
+import com.photoserve.photo_api.storage.LocalStorageBackend;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -236,4 +238,126 @@ class FileStorageServiceTest {
         // Assert
         assertEquals(tempDir.resolve("test.jpg").normalize(), loadedPath);
     }
+
+    @Test
+    void replaceFile_WithWorkFile_ShouldSwapContentAndConsumeWorkFile() throws IOException {
+        // Arrange
+        Files.writeString(tempDir.resolve("test.jpg"), "original content");
+        Path workFile = fileStorageService.createWorkFile(".jpg");
+        Files.writeString(workFile, "optimized");
+
+        // Act
+        fileStorageService.replaceFile("test.jpg", workFile);
+
+        // Assert
+        assertEquals("optimized", Files.readString(tempDir.resolve("test.jpg")));
+        assertFalse(Files.exists(workFile));
+    }
+
+    @Test
+    void replaceFile_WithNonExistentFile_ShouldThrowException() {
+        // Arrange
+        Path workFile = fileStorageService.createWorkFile(".jpg");
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
+            fileStorageService.replaceFile("nonexistent.jpg", workFile);
+        });
+        assertTrue(exception.getMessage().contains("File not found"));
+    }
+
+    @Test
+    void storeStream_ShouldStoreUnderGivenNameWithoutClosingStream() throws IOException {
+        // Arrange
+        java.io.ByteArrayInputStream input = new java.io.ByteArrayInputStream("archive entry".getBytes());
+
+        // Act
+        String storedFilename = fileStorageService.storeStream("IMG_5586.jpg", input);
+
+        // Assert
+        assertEquals("IMG_5586.jpg", storedFilename);
+        assertEquals("archive entry", Files.readString(tempDir.resolve("IMG_5586.jpg")));
+    }
+
+    @Test
+    void storeStream_WithExistingFile_ShouldNotOverwrite() throws IOException {
+        // Arrange
+        Files.writeString(tempDir.resolve("test.jpg"), "original content");
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
+            fileStorageService.storeStream("test.jpg", new java.io.ByteArrayInputStream("new".getBytes()));
+        });
+        assertTrue(exception.getMessage().contains("File already exists"));
+        assertEquals("original content", Files.readString(tempDir.resolve("test.jpg")));
+    }
+
+    @Test
+    void storeStream_WithPathTraversalAttempt_ShouldThrowException() {
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
+            fileStorageService.storeStream("../evil.jpg", new java.io.ByteArrayInputStream("x".getBytes()));
+        });
+        assertTrue(exception.getMessage().contains("Invalid path sequence"));
+    }
+
+    @Test
+    void storeFile_WithSeparateBackend_ShouldPublishAndFetchOnOtherNode() throws IOException {
+        // Arrange: two nodes with their own working copy sharing one backend
+        LocalStorageBackend shared = new LocalStorageBackend(tempDir.resolve("shared"));
+        FileStorageService nodeA = new FileStorageService(tempDir.resolve("node-a").toString(), shared);
+        FileStorageService nodeB = new FileStorageService(tempDir.resolve("node-b").toString(), shared);
+        MultipartFile file = new MockMultipartFile("file", "test.jpg", "image/jpeg", "shared content".getBytes());
+
+        // Act
+        String storedFilename = nodeA.storeFile(file);
+        Path fetched = nodeB.loadFile(storedFilename);
+
+        // Assert
+        assertEquals("shared content", Files.readString(tempDir.resolve("shared").resolve(storedFilename)));
+        assertEquals(tempDir.resolve("node-b").resolve(storedFilename), fetched);
+        assertEquals("shared content", Files.readString(fetched));
+    }
+
+    @Test
+    void deleteFile_WithSeparateBackend_ShouldDeleteFromBackend() throws IOException {
+        // Arrange
+        LocalStorageBackend shared = new LocalStorageBackend(tempDir.resolve("shared"));
+        FileStorageService node = new FileStorageService(tempDir.resolve("node").toString(), shared);
+        String storedFilename = node.storeStream("test.jpg", new java.io.ByteArrayInputStream("x".getBytes()));
+
+        // Act
+        node.deleteFile(storedFilename);
+
+        // Assert
+        assertNull(shared.stat(storedFilename));
+        assertThrows(RuntimeException.class, () -> node.loadFile(storedFilename));
+    }
+
+    @Test
+    void loadFile_WithHotTier_ShouldServePopularFileFromHotCopyUntilReplaced() throws Exception {
+        // Arrange
+        try (HotTier hotTier = new HotTier(tempDir.resolve("hot"), 1024 * 1024, 1)) {
+            FileStorageService node = new FileStorageService(tempDir.resolve("node").toString(), null, hotTier);
+            String storedFilename = node.storeStream("test.jpg", new java.io.ByteArrayInputStream("old".getBytes()));
+            Path replacement = node.createWorkFile(".jpg");
+            Files.writeString(replacement, "new");
+
+            // Act: the first read promotes the file in the background
+            Path first = node.loadFile(storedFilename);
+            for (int i = 0; i < 100 && hotTier.residentCount() == 0; i++) {
+                Thread.sleep(20);
+            }
+            Path hot = node.loadFile(storedFilename);
+            node.replaceFile(storedFilename, replacement);
+            Path afterReplace = node.loadFile(storedFilename);
+
+            // Assert
+            assertEquals(tempDir.resolve("node").resolve(storedFilename), first);
+            assertEquals(tempDir.resolve("hot").resolve(storedFilename), hot);
+            assertEquals("old", Files.readString(hot));
+            assertEquals(first, afterReplace);
+            assertEquals("new", Files.readString(afterReplace));
+        }
+    }
 }
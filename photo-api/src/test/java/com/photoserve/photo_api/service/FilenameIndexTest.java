@@ -0,0 +1,149 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.repository.PhotoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FilenameIndexTest {
+
+    private PhotoRepository photoRepository;
+    private FilenameIndex filenameIndex;
+
+    @BeforeEach
+    void setUp() {
+        photoRepository = mock(PhotoRepository.class);
+        filenameIndex = new FilenameIndex(photoRepository);
+    }
+
+    private static List<String> filenames(List<FilenameIndex.Suggestion> suggestions) {
+        return suggestions.stream().map(FilenameIndex.Suggestion::filename).toList();
+    }
+
+    @Test
+    void suggest_ShouldReturnPrefixMatchesInFilenameOrder() {
+        // Arrange
+        filenameIndex.add(1L, "PXL_20251003_101500.jpg");
+        filenameIndex.add(2L, "PXL_20250912_080000.jpg");
+        filenameIndex.add(3L, "PXL_20251001_120000.jpg");
+        filenameIndex.add(4L, "IMG_5801.jpg");
+
+        // Act
+        List<FilenameIndex.Suggestion> suggestions = filenameIndex.suggest("pxl_202510", 10);
+
+        // Assert
+        assertEquals(List.of("PXL_20251001_120000.jpg", "PXL_20251003_101500.jpg"), filenames(suggestions));
+        assertEquals(3L, suggestions.get(0).id());
+    }
+
+    @Test
+    void suggest_ShouldAppendNamesContainingQueryAfterPrefixMatches() {
+        // Arrange
+        filenameIndex.add(1L, "IMG_5801.jpg");
+        filenameIndex.add(2L, "holiday_IMG_5802.png");
+        filenameIndex.add(3L, "IMG_6000.jpg");
+
+        // Act
+        List<FilenameIndex.Suggestion> suggestions = filenameIndex.suggest("IMG_58", 10);
+
+        // Assert
+        assertEquals(List.of("IMG_5801.jpg", "holiday_IMG_5802.png"), filenames(suggestions));
+    }
+
+    @Test
+    void suggest_ShouldStopAtLimit() {
+        // Arrange
+        for (int i = 0; i < 100; i++) {
+            filenameIndex.add(i, "IMG_" + (1000 + i) + ".jpg");
+        }
+
+        // Act
+        List<FilenameIndex.Suggestion> suggestions = filenameIndex.suggest("img_10", 5);
+
+        // Assert
+        assertEquals(List.of("IMG_1000.jpg", "IMG_1001.jpg", "IMG_1002.jpg", "IMG_1003.jpg", "IMG_1004.jpg"),
+            filenames(suggestions));
+    }
+
+    @Test
+    void remove_ShouldDropPhotoButKeepSharedStems() {
+        // Arrange
+        filenameIndex.add(1L, "IMG_5801.jpg");
+        filenameIndex.add(2L, "IMG_5802.jpg");
+        filenameIndex.add(3L, "IMG_58.jpg");
+
+        // Act
+        filenameIndex.remove(2L);
+
+        // Assert
+        assertEquals(List.of("IMG_58.jpg", "IMG_5801.jpg"), filenames(filenameIndex.suggest("IMG_58", 10)));
+        assertTrue(filenameIndex.suggest("5802", 10).isEmpty());
+        assertEquals(2, filenameIndex.size());
+    }
+
+    @Test
+    void suggest_ShouldMatchBruteForce() {
+        // Arrange
+        java.util.Random random = new java.util.Random(7);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String name = (random.nextBoolean() ? "IMG_" : "PXL_2025") + random.nextInt(5000) + "_" + i + ".jpg";
+            names.add(name);
+            filenameIndex.add(i, name);
+        }
+        for (int i = 0; i < 2000; i += 3) {
+            filenameIndex.remove(i);
+        }
+
+        // Act
+        List<FilenameIndex.Suggestion> prefix = filenameIndex.suggest("PXL_20251", FilenameIndex.MAX_LIMIT);
+        List<FilenameIndex.Suggestion> infix = filenameIndex.suggest("12_", FilenameIndex.MAX_LIMIT);
+
+        // Assert
+        for (FilenameIndex.Suggestion suggestion : prefix) {
+            assertTrue(suggestion.id() % 3 != 0);
+            assertTrue(names.get((int) suggestion.id()).startsWith("PXL_20251"));
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (i % 3 != 0 && names.get(i).startsWith("PXL_20251")) {
+                expected.add(names.get(i));
+            }
+        }
+        expected.sort(null);
+        assertEquals(expected.subList(0, FilenameIndex.MAX_LIMIT), filenames(prefix));
+        long containing = 0;
+        for (int i = 0; i < names.size(); i++) {
+            if (i % 3 != 0 && names.get(i).contains("12_")) {
+                containing++;
+            }
+        }
+        for (FilenameIndex.Suggestion suggestion : infix) {
+            assertTrue(suggestion.id() % 3 != 0);
+            assertTrue(suggestion.filename().contains("12_"));
+        }
+        assertEquals(Math.min(containing, FilenameIndex.MAX_LIMIT), infix.size());
+    }
+
+    @Test
+    void rebuild_ShouldLoadFilenamesFromRepository() {
+        // Arrange
+        filenameIndex.add(9L, "stale.jpg");
+        when(photoRepository.findAllFilenames()).thenReturn(List.of(
+            new Object[]{1L, "IMG_5801.jpg"},
+            new Object[]{2L, "IMG_5802.jpg"}));
+
+        // Act
+        filenameIndex.rebuild();
+
+        // Assert
+        assertEquals(2, filenameIndex.size());
+        assertTrue(filenameIndex.suggest("stale", 10).isEmpty());
+        assertEquals(2, filenameIndex.suggest("img", 10).size());
+    }
+}
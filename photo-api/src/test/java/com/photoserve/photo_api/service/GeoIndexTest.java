@@ -0,0 +1,130 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.repository.PhotoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class GeoIndexTest {
+
+    private PhotoRepository photoRepository;
+    private GeoIndex geoIndex;
+
+    @BeforeEach
+    void setUp() {
+        photoRepository = mock(PhotoRepository.class);
+        geoIndex = new GeoIndex(photoRepository);
+        // Two photos in Paris, one in London, one in New York
+        geoIndex.add(1L, 48.8584, 2.2945);
+        geoIndex.add(2L, 48.8606, 2.3376);
+        geoIndex.add(3L, 51.5007, -0.1246);
+        geoIndex.add(4L, 40.6892, -74.0445);
+    }
+
+    @Test
+    void clusters_AtLowZoom_ShouldMergeNearbyPhotos() {
+        // Act
+        List<GeoIndex.Cluster> clusters = geoIndex.clusters(-180, -85, 180, 85, 2);
+
+        // Assert
+        assertEquals(3, clusters.size());
+        GeoIndex.Cluster paris = clusters.get(0);
+        assertEquals(2, paris.count());
+        assertEquals(48.8595, paris.latitude(), 1e-4);
+        assertNull(paris.photoId());
+        assertEquals(4, clusters.stream().mapToInt(GeoIndex.Cluster::count).sum());
+    }
+
+    @Test
+    void clusters_AtHighZoom_ShouldSeparatePhotos() {
+        // Act
+        List<GeoIndex.Cluster> clusters = geoIndex.clusters(2.2, 48.8, 2.4, 48.9, 14);
+
+        // Assert
+        assertEquals(2, clusters.size());
+        assertTrue(clusters.stream().allMatch(cluster -> cluster.count() == 1));
+        assertEquals(List.of(1L, 2L), clusters.stream().map(GeoIndex.Cluster::photoId).sorted().toList());
+    }
+
+    @Test
+    void clusters_ShouldOnlyReturnCellsInBox() {
+        // Act
+        List<GeoIndex.Cluster> clusters = geoIndex.clusters(-80, 35, -70, 45, 8);
+
+        // Assert
+        assertEquals(1, clusters.size());
+        assertEquals(Long.valueOf(4L), clusters.get(0).photoId());
+    }
+
+    @Test
+    void clusters_WithWideBoxAtDeepZoom_ShouldFilterIndexedCells() {
+        // Act: the box covers far more cells than there are photos
+        List<GeoIndex.Cluster> clusters = geoIndex.clusters(-10, 40, 10, 60, 20);
+
+        // Assert
+        assertEquals(3, clusters.size());
+    }
+
+    @Test
+    void clusters_AcrossAntimeridian_ShouldCoverBothSides() {
+        // Arrange
+        geoIndex.add(5L, -17.7134, 178.0650);
+        geoIndex.add(6L, -14.2756, -170.7020);
+
+        // Act
+        List<GeoIndex.Cluster> clusters = geoIndex.clusters(170, -30, -160, 0, 6);
+
+        // Assert
+        assertEquals(List.of(5L, 6L), clusters.stream().map(GeoIndex.Cluster::photoId).sorted().toList());
+    }
+
+    @Test
+    void remove_ShouldUpdateEveryLevel() {
+        // Act
+        geoIndex.remove(2L);
+
+        // Assert
+        List<GeoIndex.Cluster> clusters = geoIndex.clusters(-180, -85, 180, 85, 0);
+        assertEquals(3, clusters.stream().mapToInt(GeoIndex.Cluster::count).sum());
+        assertEquals(List.of(1L), geoIndex.clusters(2.2, 48.8, 2.4, 48.9, 14).stream()
+            .map(GeoIndex.Cluster::photoId).toList());
+        assertEquals(3, geoIndex.size());
+    }
+
+    @Test
+    void add_WhenPhotoIsIndexed_ShouldMoveItInsteadOfCountingItTwice() {
+        // Act: the upload path and the change log tail both report photo 4, then it is moved to Tokyo
+        geoIndex.add(4L, 40.6892, -74.0445);
+        geoIndex.add(4L, 35.6586, 139.7454);
+
+        // Assert
+        assertEquals(4, geoIndex.size());
+        assertTrue(geoIndex.clusters(-75, 40, -73, 41, 10).isEmpty());
+        assertEquals(List.of(4L), geoIndex.clusters(139, 35, 140, 36, 10).stream()
+            .map(GeoIndex.Cluster::photoId).toList());
+        geoIndex.remove(4L);
+        geoIndex.remove(4L);
+        assertEquals(3, geoIndex.size());
+        assertEquals(3, geoIndex.clusters(-180, -85, 180, 85, 0).stream().mapToInt(GeoIndex.Cluster::count).sum());
+    }
+
+    @Test
+    void rebuild_ShouldLoadLocationsFromRepository() {
+        // Arrange
+        when(photoRepository.findAllLocations()).thenReturn(List.<Object[]>of(
+            new Object[]{7L, 35.6586, 139.7454}));
+
+        // Act
+        geoIndex.rebuild();
+
+        // Assert
+        assertEquals(1, geoIndex.size());
+        List<GeoIndex.Cluster> clusters = geoIndex.clusters(-180, -85, 180, 85, 3);
+        assertEquals(1, clusters.size());
+        assertEquals(Long.valueOf(7L), clusters.get(0).photoId());
+    }
+}
@@ -0,0 +1,192 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.admission.BulkheadFullException;
+import com.photoserve.photo_api.model.Photo;
+import com.photoserve.photo_api.repository.PhotoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings({"null", "unchecked"})
+class ImportServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PhotoRepository photoRepository;
+    private IngestService ingestService;
+    private ImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        photoRepository = mock(PhotoRepository.class);
+        ingestService = mock(IngestService.class);
+        when(photoRepository.findByFilename(anyString())).thenReturn(Optional.empty());
+        when(photoRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        importService = new ImportService(photoRepository, new FileStorageService(tempDir.toString()),
+                ingestService, 2, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        importService.shutdown();
+    }
+
+    private static byte[] zip(String... namesAndContents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zip.write(namesAndContents[i + 1].getBytes());
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void importArchive_ShouldStoreImagesAndSaveInBatches() throws IOException {
+        // Arrange
+        byte[] archive = zip(
+            "trip/IMG_5586.jpg", "one",
+            "trip/IMG_5629.jpg", "two",
+            "trip/notes.txt", "not a photo",
+            "trip/PXL 20251018.jpg", "three");
+        ImportProgress progress = importService.begin("trip");
+
+        // Act
+        importService.importArchive(progress, new ByteArrayInputStream(archive));
+
+        // Assert
+        assertEquals(ImportProgress.Status.COMPLETED, progress.getStatus());
+        assertEquals(4, progress.getEntriesRead());
+        assertEquals(3, progress.getImported());
+        assertEquals(1, progress.getSkipped());
+        assertEquals("one", Files.readString(tempDir.resolve("IMG_5586.jpg")));
+        assertEquals("three", Files.readString(tempDir.resolve("PXL_20251018.jpg")));
+        verify(photoRepository, times(2)).saveAll(anyList());
+        verify(ingestService, times(3)).analyze(any(Photo.class));
+        verify(ingestService, times(3)).onSaved(any(Photo.class));
+    }
+
+    @Test
+    void importArchive_WhenDecodeBudgetIsTaken_ShouldRetryAnalysis() throws IOException {
+        // Arrange
+        doThrow(new BulkheadFullException("decode", "timed out", 0)).doNothing()
+            .when(ingestService).analyze(any(Photo.class));
+        ImportProgress progress = importService.begin("busy");
+
+        // Act
+        importService.importArchive(progress, new ByteArrayInputStream(zip("IMG_5586.jpg", "one")));
+
+        // Assert
+        assertEquals(1, progress.getImported());
+        assertEquals(0, progress.getFailed());
+        verify(ingestService, times(2)).analyze(any(Photo.class));
+        verify(ingestService, times(1)).onSaved(any(Photo.class));
+    }
+
+    @Test
+    void importArchive_ShouldSkipPhotosAlreadyInDatabase() throws IOException {
+        // Arrange
+        when(photoRepository.findByFilename("IMG_5586.jpg")).thenReturn(Optional.of(new Photo(1L, "IMG_5586.jpg")));
+        Files.writeString(tempDir.resolve("IMG_5586.jpg"), "existing");
+        ImportProgress progress = importService.begin("dup");
+
+        // Act
+        importService.importArchive(progress, new ByteArrayInputStream(zip("IMG_5586.jpg", "new")));
+
+        // Assert
+        assertEquals(1, progress.getSkipped());
+        assertEquals(0, progress.getImported());
+        assertEquals("existing", Files.readString(tempDir.resolve("IMG_5586.jpg")));
+    }
+
+    @Test
+    void importArchive_WhenBatchSaveFails_ShouldRetryRowsIndividually() throws IOException {
+        // Arrange
+        when(photoRepository.saveAll(anyList())).thenThrow(new RuntimeException("duplicate key"));
+        when(photoRepository.save(any(Photo.class))).thenAnswer(invocation -> {
+            Photo photo = invocation.getArgument(0);
+            if (photo.getFilename().equals("b.jpg")) {
+                throw new RuntimeException("duplicate key");
+            }
+            return photo;
+        });
+        ImportProgress progress = importService.begin("retry");
+
+        // Act
+        importService.importArchive(progress, new ByteArrayInputStream(zip("a.jpg", "a", "b.jpg", "b")));
+
+        // Assert
+        assertEquals(1, progress.getImported());
+        assertEquals(1, progress.getFailed());
+        assertFalse(Files.exists(tempDir.resolve("b.jpg")));
+    }
+
+    @Test
+    void importArchive_WhenBatchSaveFailsAfterAssigningIds_ShouldRetryWithUnsavedCopies() throws IOException {
+        // Arrange: the batch insert hands out identity ids before one row fails and it rolls back
+        when(photoRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            long id = 1;
+            for (Photo photo : (Iterable<Photo>) invocation.getArgument(0)) {
+                photo.setId(id++);
+            }
+            throw new RuntimeException("duplicate key");
+        });
+        when(photoRepository.save(any(Photo.class))).thenAnswer(invocation -> {
+            Photo photo = invocation.getArgument(0);
+            if (photo.getId() != null) {
+                throw new RuntimeException("Row was updated or deleted by another transaction");
+            }
+            if (photo.getFilename().equals("b.jpg")) {
+                throw new RuntimeException("duplicate key");
+            }
+            photo.setId(10L);
+            return photo;
+        });
+        ImportProgress progress = importService.begin("retry-ids");
+
+        // Act
+        importService.importArchive(progress, new ByteArrayInputStream(zip("a.jpg", "a", "b.jpg", "b")));
+
+        // Assert
+        assertEquals(1, progress.getImported());
+        assertEquals(1, progress.getFailed());
+        assertTrue(Files.exists(tempDir.resolve("a.jpg")));
+        assertFalse(Files.exists(tempDir.resolve("b.jpg")));
+    }
+
+    @Test
+    void begin_WhenSameImportRunning_ShouldReturnNull() {
+        // Act
+        importService.begin("same");
+
+        // Assert
+        assertNull(importService.begin("same"));
+        assertNotNull(importService.getProgress("same"));
+    }
+
+    @Test
+    void toFilename_ShouldFlattenAndSanitize() {
+        assertEquals("IMG_0728.jpeg", ImportService.toFilename("2024/iphone/IMG_0728.jpeg"));
+        assertEquals("my_photo.JPG", ImportService.toFilename("my photo.JPG"));
+        assertNull(ImportService.toFilename("__MACOSX/trip/._IMG_0728.jpeg"));
+        assertNull(ImportService.toFilename("trip/._IMG_0728.jpeg"));
+        assertNull(ImportService.toFilename("trip/readme.md"));
+    }
+}
@@ -0,0 +1,219 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.admission.BulkheadFullException;
+import com.photoserve.photo_api.model.IngestJob;
+import com.photoserve.photo_api.model.Photo;
+import com.photoserve.photo_api.repository.IngestJobRepository;
+import com.photoserve.photo_api.repository.PhotoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("null")
+class IngestJobServiceTest {
+
+    private IngestJobRepository ingestJobRepository;
+    private PhotoRepository photoRepository;
+    private IngestService ingestService;
+    private FileStorageService fileStorageService;
+    private IngestJobService ingestJobService;
+
+    @BeforeEach
+    void setUp() {
+        ingestJobRepository = mock(IngestJobRepository.class);
+        photoRepository = mock(PhotoRepository.class);
+        ingestService = mock(IngestService.class);
+        fileStorageService = mock(FileStorageService.class);
+        when(ingestJobRepository.save(any(IngestJob.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        // The job is still this attempt's unless a test says otherwise
+        when(ingestJobRepository.finish(anyLong(), any(), anyInt(), any(), anyInt(), any(), any(), any())).thenReturn(1);
+        ingestJobService = new IngestJobService(ingestJobRepository, photoRepository, ingestService, fileStorageService,
+                1, 1, 2, 60000, 300000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingestJobService.stop();
+    }
+
+    private IngestJob queuedJob(long id, String filename) {
+        IngestJob job = new IngestJob(filename, "original.jpg");
+        job.setId(id);
+        when(ingestJobRepository.findById(id)).thenReturn(Optional.of(job));
+        // The conditional update, applied to the job as the database would
+        when(ingestJobRepository.claim(eq(id), eq(IngestJob.Status.QUEUED), eq(IngestJob.Status.RUNNING), any()))
+            .thenAnswer(invocation -> {
+                if (job.getStatus() != IngestJob.Status.QUEUED) {
+                    return 0;
+                }
+                job.setStatus(IngestJob.Status.RUNNING);
+                job.setAttempts(job.getAttempts() + 1);
+                return 1;
+            });
+        return job;
+    }
+
+    @Test
+    void process_ShouldAnalyzeSaveAndCompleteJob() {
+        // Arrange
+        IngestJob job = queuedJob(1L, "uuid-test.jpg");
+        when(photoRepository.findByFilename("uuid-test.jpg")).thenReturn(Optional.empty());
+        when(photoRepository.save(any(Photo.class))).thenReturn(new Photo(7L, "uuid-test.jpg"));
+
+        // Act
+        ingestJobService.process(1L);
+
+        // Assert
+        assertEquals(IngestJob.Status.COMPLETED, job.getStatus());
+        assertEquals(7L, job.getPhotoId());
+        assertEquals(1, job.getAttempts());
+        assertNotNull(job.getFinishedAt());
+        verify(ingestService, times(1)).analyze(any(Photo.class));
+        verify(ingestService, times(1)).onSaved(any(Photo.class));
+    }
+
+    @Test
+    void process_WhenPhotoRowAlreadySaved_ShouldNotSaveTwice() {
+        // Arrange
+        IngestJob job = queuedJob(1L, "uuid-test.jpg");
+        when(photoRepository.findByFilename("uuid-test.jpg")).thenReturn(Optional.of(new Photo(7L, "uuid-test.jpg")));
+
+        // Act
+        ingestJobService.process(1L);
+
+        // Assert
+        assertEquals(IngestJob.Status.COMPLETED, job.getStatus());
+        assertEquals(7L, job.getPhotoId());
+        verify(photoRepository, never()).save(any(Photo.class));
+    }
+
+    @Test
+    void process_WhenSaveFails_ShouldRequeueUntilMaxAttempts() {
+        // Arrange
+        IngestJob job = queuedJob(1L, "uuid-test.jpg");
+        when(photoRepository.findByFilename("uuid-test.jpg")).thenReturn(Optional.empty());
+        when(photoRepository.save(any(Photo.class))).thenThrow(new RuntimeException("database unavailable"));
+
+        // Act & Assert
+        ingestJobService.process(1L);
+        assertEquals(IngestJob.Status.QUEUED, job.getStatus());
+        assertEquals("database unavailable", job.getError());
+        assertNull(job.getFinishedAt());
+
+        ingestJobService.process(1L);
+        assertEquals(IngestJob.Status.FAILED, job.getStatus());
+        assertEquals(2, job.getAttempts());
+        assertNotNull(job.getFinishedAt());
+    }
+
+    @Test
+    void process_WhenLastAttemptFails_ShouldDeleteStoredFile() {
+        // Arrange
+        IngestJob job = queuedJob(1L, "uuid-test.jpg");
+        job.setAttempts(1);
+        when(photoRepository.findByFilename("uuid-test.jpg")).thenReturn(Optional.empty());
+        when(photoRepository.save(any(Photo.class))).thenThrow(new RuntimeException("database unavailable"));
+
+        // Act
+        ingestJobService.process(1L);
+
+        // Assert
+        assertEquals(IngestJob.Status.FAILED, job.getStatus());
+        verify(ingestJobRepository, times(1)).finish(eq(1L), eq(IngestJob.Status.RUNNING), eq(2),
+                eq(IngestJob.Status.FAILED), eq(2), isNull(), eq("database unavailable"), notNull());
+        verify(fileStorageService, times(1)).deleteFile("uuid-test.jpg");
+    }
+
+    @Test
+    void process_WhenJobWasTakenOverMeanwhile_ShouldLeaveItToNewAttempt() {
+        // Arrange: requeued as stale while this node was paused, then claimed by another worker
+        IngestJob job = queuedJob(1L, "uuid-test.jpg");
+        job.setAttempts(1);
+        when(photoRepository.findByFilename("uuid-test.jpg")).thenReturn(Optional.empty());
+        when(photoRepository.save(any(Photo.class))).thenThrow(new RuntimeException("database unavailable"));
+        when(ingestJobRepository.finish(anyLong(), any(), anyInt(), any(), anyInt(), any(), any(), any())).thenReturn(0);
+
+        // Act
+        ingestJobService.process(1L);
+
+        // Assert
+        verify(ingestJobRepository, times(1)).finish(eq(1L), eq(IngestJob.Status.RUNNING), eq(2),
+                any(), anyInt(), any(), any(), any());
+        verify(fileStorageService, never()).deleteFile(anyString());
+    }
+
+    @Test
+    void process_WhenDecodeBudgetIsTaken_ShouldRequeueWithoutUsingAttempt() {
+        // Arrange
+        IngestJob job = queuedJob(1L, "uuid-test.jpg");
+        when(photoRepository.findByFilename("uuid-test.jpg")).thenReturn(Optional.empty());
+        doThrow(new BulkheadFullException("decode", "timed out", 2)).when(ingestService).analyze(any(Photo.class));
+
+        // Act
+        ingestJobService.process(1L);
+        ingestJobService.process(1L);
+
+        // Assert
+        assertEquals(IngestJob.Status.QUEUED, job.getStatus());
+        assertEquals(0, job.getAttempts());
+        assertNull(job.getFinishedAt());
+        verify(photoRepository, never()).save(any(Photo.class));
+    }
+
+    @Test
+    void process_WhenJobAlreadyCompleted_ShouldDoNothing() {
+        // Arrange
+        IngestJob job = queuedJob(1L, "uuid-test.jpg");
+        job.setStatus(IngestJob.Status.COMPLETED);
+
+        // Act
+        ingestJobService.process(1L);
+
+        // Assert
+        verifyNoInteractions(photoRepository, ingestService);
+    }
+
+    @Test
+    void process_WhenAnotherWorkerClaimedJob_ShouldNotRunIt() {
+        // Arrange: the job was queued when it was handed out, but another node claimed it first
+        IngestJob job = queuedJob(1L, "uuid-test.jpg");
+        job.setStatus(IngestJob.Status.RUNNING);
+
+        // Act
+        ingestJobService.process(1L);
+
+        // Assert
+        verify(ingestJobRepository, never()).finish(anyLong(), any(), anyInt(), any(), anyInt(), any(), any(), any());
+        verifyNoInteractions(photoRepository, ingestService);
+    }
+
+    @Test
+    void start_ShouldRequeueStaleRunningJobsAndRunThem() {
+        // Arrange: a job left RUNNING by a node that stopped reporting
+        IngestJob job = queuedJob(1L, "uuid-test.jpg");
+        job.setStatus(IngestJob.Status.RUNNING);
+        when(ingestJobRepository.requeueStale(eq(IngestJob.Status.RUNNING), eq(IngestJob.Status.QUEUED), any()))
+            .thenAnswer(invocation -> {
+                job.setStatus(IngestJob.Status.QUEUED);
+                return 1;
+            });
+        when(photoRepository.findByFilename("uuid-test.jpg")).thenReturn(Optional.of(new Photo(7L, "uuid-test.jpg")));
+        when(ingestJobRepository.findTop100ByStatusOrderByIdAsc(IngestJob.Status.QUEUED))
+            .thenAnswer(invocation -> job.getStatus() == IngestJob.Status.QUEUED ? List.of(job) : List.of());
+
+        // Act
+        ingestJobService.start();
+
+        // Assert
+        verify(ingestJobRepository, timeout(5000).atLeastOnce()).finish(eq(1L), eq(IngestJob.Status.RUNNING), eq(1),
+                eq(IngestJob.Status.COMPLETED), eq(1), eq(7L), isNull(), notNull());
+        assertEquals(7L, job.getPhotoId());
+    }
+}
@@ -0,0 +1,191 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.admission.BulkheadFullException;
+import com.photoserve.photo_api.model.Photo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("null")
+class IngestServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SimilarityIndex similarityIndex;
+    private FilenameIndex filenameIndex;
+    private GeoIndex geoIndex;
+    private ThumbnailService thumbnailService;
+    private final DecodeService decodeService = new DecodeService(64 * 1024 * 1024, 10_000);
+    private IngestService ingestService;
+
+    @BeforeEach
+    void setUp() {
+        similarityIndex = mock(SimilarityIndex.class);
+        filenameIndex = mock(FilenameIndex.class);
+        geoIndex = mock(GeoIndex.class);
+        thumbnailService = mock(ThumbnailService.class);
+        ingestService = new IngestService(new FileStorageService(tempDir.toString()), decodeService,
+                new PlaceholderService(4, 3), similarityIndex, filenameIndex, geoIndex, thumbnailService);
+    }
+
+    private void writeGradient(String filename, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8 | 128);
+            }
+        }
+        ImageIO.write(image, "jpg", tempDir.resolve(filename).toFile());
+    }
+
+    @Test
+    void analyze_WithJpeg_ShouldSetPlaceholderAndPerceptualHash() throws IOException {
+        // Arrange
+        writeGradient("test.jpg", 400, 300);
+        Photo photo = new Photo("test.jpg");
+
+        // Act
+        ingestService.analyze(photo);
+
+        // Assert
+        assertNotNull(photo.getPerceptualHash());
+        assertNotNull(photo.getPlaceholder());
+        // 1 size flag + 1 max AC + 4 DC + 2 per AC component
+        assertEquals(1 + 1 + 4 + 2 * (4 * 3 - 1), photo.getPlaceholder().length());
+    }
+
+    @Test
+    void analyze_WithResizedCopy_ShouldProduceNearbyHash() throws IOException {
+        // Arrange
+        writeGradient("original.jpg", 800, 600);
+        writeGradient("resized.jpg", 200, 150);
+        Photo original = new Photo("original.jpg");
+        Photo resized = new Photo("resized.jpg");
+
+        // Act
+        ingestService.analyze(original);
+        ingestService.analyze(resized);
+
+        // Assert
+        assertTrue(PerceptualHash.distance(original.getPerceptualHash(), resized.getPerceptualHash()) <= 4);
+    }
+
+    @Test
+    void analyze_WithGpsExif_ShouldSetPosition() throws IOException {
+        // Arrange
+        ExifReaderTest.writeJpegWithExif(tempDir.resolve("gps.jpg"), ExifReaderTest.gpsTiff(ByteOrder.BIG_ENDIAN));
+        Photo photo = new Photo("gps.jpg");
+
+        // Act
+        ingestService.analyze(photo);
+
+        // Assert
+        assertEquals(48.8582, photo.getLatitude(), 1e-4);
+        assertEquals(-2.2945, photo.getLongitude(), 1e-4);
+        assertNotNull(photo.getPerceptualHash());
+    }
+
+    @Test
+    void analyze_WithDatedExif_ShouldSetCaptureTime() throws IOException {
+        // Arrange
+        ExifReaderTest.writeJpegWithExif(tempDir.resolve("dated.jpg"), ExifReaderTest.dateTimeTiff("2025:10:03 18:42:07"));
+        Photo photo = new Photo("dated.jpg");
+
+        // Act
+        ingestService.analyze(photo);
+
+        // Assert
+        assertEquals(LocalDateTime.of(2025, 10, 3, 18, 42, 7), photo.getCapturedAt());
+        assertNull(photo.getLatitude());
+    }
+
+    @Test
+    void analyze_WithUndecodableFile_ShouldLeaveFieldsEmpty() throws IOException {
+        // Arrange
+        Files.writeString(tempDir.resolve("broken.jpg"), "not an image");
+        Photo photo = new Photo("broken.jpg");
+
+        // Act
+        ingestService.analyze(photo);
+
+        // Assert
+        assertNull(photo.getPlaceholder());
+        assertNull(photo.getPerceptualHash());
+        assertNull(photo.getLatitude());
+    }
+
+    @Test
+    void analyze_WithMissingFile_ShouldNotThrow() {
+        // Act & Assert
+        assertDoesNotThrow(() -> ingestService.analyze(new Photo("missing.jpg")));
+    }
+
+    @Test
+    void analyze_WhenDecodeBudgetIsTaken_ShouldThrow() throws IOException {
+        // Arrange
+        writeGradient("test.jpg", 400, 300);
+        DecodeService smallBudget = new DecodeService(1024 * 1024, 0);
+        IngestService budgeted = new IngestService(new FileStorageService(tempDir.toString()), smallBudget,
+                new PlaceholderService(4, 3), similarityIndex, filenameIndex, geoIndex, thumbnailService);
+
+        // Act & Assert: a photo saved without its analysis would never get it
+        smallBudget.drawCanvas(512, 256, canvas -> {
+            assertThrows(BulkheadFullException.class, () -> budgeted.analyze(new Photo("test.jpg")));
+            return null;
+        });
+    }
+
+    @Test
+    void onSaved_WithHash_ShouldAddToSimilarityIndex() {
+        // Arrange
+        Photo photo = new Photo(5L, "test.jpg");
+        photo.setPerceptualHash(42L);
+        photo.setLatitude(48.8584);
+        photo.setLongitude(2.2945);
+
+        // Act
+        ingestService.onSaved(photo);
+
+        // Assert
+        verify(similarityIndex, times(1)).add(5L, 42L);
+        verify(filenameIndex, times(1)).add(5L, "test.jpg");
+        verify(geoIndex, times(1)).add(5L, 48.8584, 2.2945);
+    }
+
+    @Test
+    void onSaved_WithoutHash_ShouldSkipSimilarityIndex() {
+        // Act
+        ingestService.onSaved(new Photo(5L, "test.heic"));
+
+        // Assert
+        verify(similarityIndex, never()).add(anyLong(), anyLong());
+        verify(geoIndex, never()).add(anyLong(), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void onDeleted_ShouldEvictThumbnailsAndRemoveFromIndex() {
+        // Arrange
+        Photo photo = new Photo(5L, "test.jpg");
+        photo.setPerceptualHash(42L);
+
+        // Act
+        ingestService.onDeleted(photo);
+
+        // Assert
+        verify(thumbnailService, times(1)).evict("test.jpg");
+        verify(similarityIndex, times(1)).remove(5L, 42L);
+        verify(filenameIndex, times(1)).remove(5L);
+    }
+}
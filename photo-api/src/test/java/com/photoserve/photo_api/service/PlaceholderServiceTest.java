@@ -0,0 +1,41 @@
+package com.photoserve.photo_api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaceholderServiceTest {
+
+    private final PlaceholderService placeholderService = new PlaceholderService(4, 3);
+
+    @Test
+    void compute_ShouldReturnBlurHashOfExpectedLength() {
+        // Arrange
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 48; y++) {
+            for (int x = 0; x < 64; x++) {
+                image.setRGB(x, y, (x * 4) << 16 | (y * 5) << 8 | 128);
+            }
+        }
+
+        // Act
+        String placeholder = placeholderService.compute(image);
+
+        // Assert
+        // 1 size flag + 1 max AC + 4 DC + 2 per AC component
+        assertEquals(1 + 1 + 4 + 2 * (4 * 3 - 1), placeholder.length());
+    }
+
+    @Test
+    void encode_WithSolidImage_ShouldBeDeterministic() {
+        // Arrange
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+
+        // Act & Assert
+        assertEquals(placeholderService.compute(image), placeholderService.compute(image));
+        assertEquals(BlurHash.encode(image, 4, 3), placeholderService.compute(image));
+        assertThrows(IllegalArgumentException.class, () -> BlurHash.encode(image, 0, 3));
+    }
+}
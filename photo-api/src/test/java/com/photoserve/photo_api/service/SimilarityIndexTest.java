@@ -0,0 +1,97 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.repository.PhotoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SimilarityIndexTest {
+
+    private PhotoRepository photoRepository;
+    private SimilarityIndex similarityIndex;
+
+    @BeforeEach
+    void setUp() {
+        photoRepository = mock(PhotoRepository.class);
+        similarityIndex = new SimilarityIndex(photoRepository);
+    }
+
+    @Test
+    void search_ShouldReturnPhotosWithinDistanceNearestFirst() {
+        // Arrange
+        similarityIndex.add(1L, 0b0000L);
+        similarityIndex.add(2L, 0b0111L);
+        similarityIndex.add(3L, 0b0001L);
+        similarityIndex.add(4L, 0xFFFF_0000L);
+
+        // Act
+        List<SimilarityIndex.Match> matches = similarityIndex.search(0b0000L, 3);
+
+        // Assert
+        assertEquals(3, matches.size());
+        assertEquals(new SimilarityIndex.Match(1L, 0), matches.get(0));
+        assertEquals(new SimilarityIndex.Match(3L, 1), matches.get(1));
+        assertEquals(new SimilarityIndex.Match(2L, 3), matches.get(2));
+    }
+
+    @Test
+    void search_ShouldMatchBruteForce() {
+        // Arrange
+        java.util.Random random = new java.util.Random(7);
+        long[] hashes = new long[2000];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = random.nextLong();
+            similarityIndex.add(i, hashes[i]);
+        }
+        long query = hashes[123] ^ 0b1011L;
+
+        // Act
+        List<SimilarityIndex.Match> matches = similarityIndex.search(query, 24);
+
+        // Assert
+        long expected = java.util.Arrays.stream(hashes)
+            .filter(hash -> PerceptualHash.distance(hash, query) <= 24)
+            .count();
+        assertEquals(expected, matches.size());
+        assertEquals(new SimilarityIndex.Match(123L, 3), matches.get(0));
+    }
+
+    @Test
+    void remove_ShouldDropPhotoButKeepOthersReachable() {
+        // Arrange
+        similarityIndex.add(1L, 0b0000L);
+        similarityIndex.add(2L, 0b0011L);
+        similarityIndex.add(3L, 0b0111L);
+
+        // Act
+        similarityIndex.remove(2L, 0b0011L);
+
+        // Assert
+        List<SimilarityIndex.Match> matches = similarityIndex.search(0b0000L, 3);
+        assertEquals(2, matches.size());
+        assertEquals(3L, matches.get(1).photoId());
+        assertEquals(2, similarityIndex.size());
+    }
+
+    @Test
+    void rebuild_ShouldLoadHashesFromRepository() {
+        // Arrange
+        when(photoRepository.findAllPerceptualHashes()).thenReturn(List.of(
+            new Object[]{1L, 5L},
+            new Object[]{2L, 5L}
+        ));
+        similarityIndex.add(99L, 5L);
+
+        // Act
+        similarityIndex.rebuild();
+
+        // Assert
+        assertEquals(2, similarityIndex.size());
+        assertEquals(List.of(new SimilarityIndex.Match(1L, 0), new SimilarityIndex.Match(2L, 0)),
+            similarityIndex.search(5L, 0));
+    }
+}
@@ -0,0 +1,113 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.admission.BulkheadFullException;
+import com.photoserve.photo_api.model.Photo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("null")
+class SpriteServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final DecodeService decodeService = new DecodeService(64 * 1024 * 1024, 10_000);
+    private ThumbnailService thumbnailService;
+    private SpriteService spriteService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        thumbnailService = new ThumbnailService(new FileStorageService(tempDir.toString()), decodeService, null, null,
+                16 * 1024 * 1024);
+        spriteService = new SpriteService(thumbnailService, decodeService, 16 * 1024 * 1024);
+        for (int i = 1; i <= 12; i++) {
+            BufferedImage image = new BufferedImage(300 + i * 10, 200, BufferedImage.TYPE_INT_RGB);
+            ImageIO.write(image, "jpg", tempDir.resolve("photo" + i + ".jpg").toFile());
+        }
+    }
+
+    private List<Photo> photos(int count) {
+        List<Photo> photos = new java.util.ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            photos.add(new Photo((long) i, "photo" + i + ".jpg"));
+        }
+        return photos;
+    }
+
+    @Test
+    void getLayout_ShouldPlaceTilesOnGridInRequestOrder() {
+        // Act
+        SpriteService.SpriteSheet layout = spriteService.getLayout(photos(12), 64);
+
+        // Assert
+        assertEquals(12, layout.tiles().size());
+        assertEquals(10 * 64, layout.width());
+        assertEquals(2 * 64, layout.height());
+        assertEquals(new SpriteService.Tile(0, 0, 64, 64), layout.tiles().get(1L));
+        assertEquals(new SpriteService.Tile(64, 0, 64, 64), layout.tiles().get(2L));
+        assertEquals(new SpriteService.Tile(0, 64, 64, 64), layout.tiles().get(11L));
+    }
+
+    @Test
+    void getImage_ShouldMatchLayoutDimensions() throws IOException {
+        // Act
+        SpriteService.SpriteSheet layout = spriteService.getLayout(photos(3), 64);
+        byte[] image = spriteService.getImage(photos(3), 64);
+
+        // Assert
+        BufferedImage sprite = ImageIO.read(new ByteArrayInputStream(image));
+        assertEquals(layout.width(), sprite.getWidth());
+        assertEquals(layout.height(), sprite.getHeight());
+    }
+
+    @Test
+    void getLayout_ShouldSkipMissingPhotos() {
+        // Arrange
+        List<Photo> photos = photos(2);
+        photos.add(new Photo(99L, "missing.jpg"));
+
+        // Act
+        SpriteService.SpriteSheet layout = spriteService.getLayout(photos, 64);
+
+        // Assert
+        assertEquals(2, layout.tiles().size());
+        assertFalse(layout.tiles().containsKey(99L));
+    }
+
+    @Test
+    void getImage_SecondCall_ShouldBeServedFromCache() {
+        // Act
+        byte[] first = spriteService.getImage(photos(4), 64);
+        long thumbnailMisses = thumbnailService.getCache().getMisses();
+        byte[] second = spriteService.getImage(photos(4), 64);
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(thumbnailMisses, thumbnailService.getCache().getMisses());
+    }
+
+    @Test
+    void getImage_WhenDecodeBudgetIsTaken_ShouldRejectInsteadOfAllocatingCanvas() throws IOException {
+        // Arrange
+        DecodeService smallBudget = new DecodeService(1024 * 1024, 0);
+        SpriteService budgeted = new SpriteService(thumbnailService, smallBudget, 16 * 1024 * 1024);
+
+        // Act & Assert: a canvas the size of the whole budget is held while the sprite is built
+        smallBudget.drawCanvas(512, 256, canvas -> {
+            assertThrows(BulkheadFullException.class, () -> budgeted.getImage(photos(12), 64));
+            return null;
+        });
+        assertEquals(0, smallBudget.getUsedBytes());
+        assertNotNull(budgeted.getImage(photos(12), 64));
+    }
+}
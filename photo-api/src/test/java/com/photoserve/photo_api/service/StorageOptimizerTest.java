@@ -0,0 +1,115 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.model.Photo;
+import com.photoserve.photo_api.repository.PhotoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("null")
+class StorageOptimizerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PhotoRepository photoRepository;
+    private FileStorageService fileStorageService;
+    private final DecodeService decodeService = new DecodeService(64 * 1024 * 1024, 10_000);
+    private StorageOptimizer storageOptimizer;
+
+    @BeforeEach
+    void setUp() {
+        photoRepository = mock(PhotoRepository.class);
+        fileStorageService = new FileStorageService(tempDir.toString());
+        storageOptimizer = new StorageOptimizer(photoRepository, fileStorageService, decodeService,
+                false, 1000, 0, "jpegtran-that-does-not-exist", false, 0);
+    }
+
+    @Test
+    void runBatch_WhenJpegtranMissing_ShouldLeaveFileUntouchedAndRetryLater() throws Exception {
+        // Arrange
+        Files.writeString(tempDir.resolve("test.jpg"), "not really a jpeg");
+        Photo photo = new Photo(1L, "test.jpg");
+        when(photoRepository.findTop20ByOptimizedAtIsNullAndIdGreaterThanOrderByIdAsc(0L)).thenReturn(List.of(photo));
+
+        // Act
+        int visited = storageOptimizer.runBatch();
+
+        // Assert
+        assertEquals(1, visited);
+        assertEquals("not really a jpeg", Files.readString(tempDir.resolve("test.jpg")));
+        verify(photoRepository, never()).markOptimized(anyLong(), any(), anyLong());
+        verify(photoRepository, never()).save(any(Photo.class));
+    }
+
+    @Test
+    void runBatch_WhenFileMissing_ShouldNotMarkPhoto() throws Exception {
+        // Arrange
+        Photo photo = new Photo(1L, "missing.jpg");
+        when(photoRepository.findTop20ByOptimizedAtIsNullAndIdGreaterThanOrderByIdAsc(0L)).thenReturn(List.of(photo));
+
+        // Act
+        storageOptimizer.runBatch();
+
+        // Assert
+        verify(photoRepository, never()).markOptimized(anyLong(), any(), anyLong());
+    }
+
+    @Test
+    void runBatch_WithFinalOutcome_ShouldOnlyUpdateOptimizerColumns() throws Exception {
+        // Arrange
+        Files.writeString(tempDir.resolve("test.gif"), "GIF89a");
+        Photo photo = new Photo(3L, "test.gif");
+        when(photoRepository.findTop20ByOptimizedAtIsNullAndIdGreaterThanOrderByIdAsc(0L)).thenReturn(List.of(photo));
+
+        // Act
+        storageOptimizer.runBatch();
+
+        // Assert
+        verify(photoRepository).markOptimized(eq(3L), any(LocalDateTime.class), eq(0L));
+        verify(photoRepository, never()).save(any(Photo.class));
+    }
+
+    @Test
+    void runBatch_ShouldContinueAfterPhotosLeftForLater() throws Exception {
+        // Arrange
+        when(photoRepository.findTop20ByOptimizedAtIsNullAndIdGreaterThanOrderByIdAsc(0L))
+            .thenReturn(List.of(new Photo(1L, "missing.jpg"), new Photo(2L, "missing2.jpg")));
+        when(photoRepository.findTop20ByOptimizedAtIsNullAndIdGreaterThanOrderByIdAsc(2L)).thenReturn(Collections.emptyList());
+
+        // Act & Assert
+        assertEquals(2, storageOptimizer.runBatch());
+        assertEquals(0, storageOptimizer.runBatch());
+    }
+
+    @Test
+    void runBatch_WhenNothingLeft_ShouldReturnZero() throws Exception {
+        // Arrange
+        when(photoRepository.findTop20ByOptimizedAtIsNullAndIdGreaterThanOrderByIdAsc(0L)).thenReturn(Collections.emptyList());
+
+        // Act & Assert
+        assertEquals(0, storageOptimizer.runBatch());
+        verify(photoRepository, never()).markOptimized(anyLong(), any(), anyLong());
+    }
+
+    @Test
+    void optimize_WithNonImageExtension_ShouldReturnZero() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("test.gif");
+        Files.writeString(file, "gif content");
+
+        // Act & Assert
+        assertEquals(0, storageOptimizer.optimize("test.gif", file));
+        assertEquals("gif content", Files.readString(file));
+    }
+}
@@ -0,0 +1,129 @@
+package com.photoserve.photo_api.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("null")
+class TileServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final DecodeService decodeService = new DecodeService(64 * 1024 * 1024, 10_000);
+    private TileService tileService;
+
+    @BeforeEach
+    void setUp() {
+        tileService = new TileService(new FileStorageService(tempDir.toString()), decodeService, null, 254, 1,
+                16 * 1024 * 1024);
+    }
+
+    private void writeGradient(String filename, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8 | 128);
+            }
+        }
+        ImageIO.write(image, "png", tempDir.resolve(filename).toFile());
+    }
+
+    private static BufferedImage decode(byte[] jpeg) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(jpeg));
+    }
+
+    @Test
+    void getPyramid_ShouldHalveDownToOnePixel() throws Exception {
+        // Arrange
+        writeGradient("pano.png", 1000, 300);
+
+        // Act
+        TileService.Pyramid pyramid = tileService.getPyramid("pano.png");
+
+        // Assert
+        assertEquals(10, pyramid.maxLevel());
+        assertEquals(1000, pyramid.levelWidth(10));
+        assertEquals(4, pyramid.columns(10));
+        assertEquals(2, pyramid.rows(10));
+        assertEquals(500, pyramid.levelWidth(9));
+        assertEquals(150, pyramid.levelHeight(9));
+        assertEquals(1, pyramid.levelWidth(0));
+        assertEquals(1, pyramid.levelHeight(0));
+    }
+
+    @Test
+    void getTile_ShouldCoverTileWithOverlapOnInnerEdges() throws Exception {
+        // Arrange
+        writeGradient("pano.png", 1000, 300);
+
+        // Act
+        BufferedImage first = decode(tileService.getTile("pano.png", 10, 0, 0));
+        BufferedImage inner = decode(tileService.getTile("pano.png", 10, 1, 1));
+        BufferedImage last = decode(tileService.getTile("pano.png", 10, 3, 1));
+
+        // Assert
+        assertEquals(255, first.getWidth());
+        assertEquals(255, first.getHeight());
+        assertEquals(256, inner.getWidth());
+        assertEquals(300 - 253, inner.getHeight());
+        assertEquals(1000 - 761, last.getWidth());
+    }
+
+    @Test
+    void getTile_AtLowerLevel_ShouldScaleWholeImageIntoOneTile() throws Exception {
+        // Arrange
+        writeGradient("pano.png", 1000, 300);
+
+        // Act
+        BufferedImage tile = decode(tileService.getTile("pano.png", 8, 0, 0));
+
+        // Assert
+        assertEquals(250, tile.getWidth());
+        assertEquals(75, tile.getHeight());
+        // The gradient runs red from left to right
+        assertTrue((tile.getRGB(240, 40) >> 16 & 0xff) > (tile.getRGB(10, 40) >> 16 & 0xff) + 150);
+    }
+
+    @Test
+    void getTile_OutsidePyramid_ShouldThrow() throws Exception {
+        // Arrange
+        writeGradient("pano.png", 1000, 300);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> tileService.getTile("pano.png", 10, 4, 0));
+        assertThrows(IllegalArgumentException.class, () -> tileService.getTile("pano.png", 11, 0, 0));
+    }
+
+    @Test
+    void getTile_WhenCached_ShouldNotReadFileAgain() throws Exception {
+        // Arrange
+        writeGradient("pano.png", 1000, 300);
+        byte[] first = tileService.getTile("pano.png", 9, 0, 0);
+        Files.delete(tempDir.resolve("pano.png"));
+
+        // Act
+        byte[] second = tileService.getTile("pano.png", 9, 0, 0);
+
+        // Assert
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    void getPyramid_WhenNotAnImage_ShouldReturnNull() throws Exception {
+        // Arrange
+        Files.writeString(tempDir.resolve("broken.jpg"), "not an image");
+
+        // Act & Assert
+        assertNull(tileService.getPyramid("broken.jpg"));
+    }
+}
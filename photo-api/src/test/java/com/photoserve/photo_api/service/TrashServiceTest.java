@@ -0,0 +1,159 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.model.Photo;
+import com.photoserve.photo_api.repository.PhotoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("null")
+class TrashServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PhotoRepository photoRepository;
+    private IngestService ingestService;
+    private ThumbnailService thumbnailService;
+    private TileService tileService;
+    private TrashService trashService;
+
+    @BeforeEach
+    void setUp() {
+        photoRepository = mock(PhotoRepository.class);
+        ingestService = mock(IngestService.class);
+        thumbnailService = mock(ThumbnailService.class);
+        tileService = mock(TileService.class);
+        trashService = new TrashService(photoRepository, new FileStorageService(tempDir.toString()),
+                ingestService, thumbnailService, tileService, 86_400_000, 0, 10, 0);
+    }
+
+    @Test
+    void trash_ShouldKeepFileAndStampDeletedAt() throws Exception {
+        // Arrange
+        Files.writeString(tempDir.resolve("test.jpg"), "image");
+        Photo photo = new Photo(1L, "test.jpg");
+
+        // Act
+        trashService.trash(photo);
+
+        // Assert
+        assertNotNull(photo.getDeletedAt());
+        assertTrue(Files.exists(tempDir.resolve("test.jpg")));
+        verify(photoRepository, times(1)).save(photo);
+        verify(ingestService, times(1)).onDeleted(photo);
+    }
+
+    @Test
+    void restore_WhenPhotoInTrash_ShouldClearDeletedAt() {
+        // Arrange
+        Photo photo = new Photo(1L, "test.jpg");
+        photo.setDeletedAt(LocalDateTime.now());
+        when(photoRepository.findDeletedByIdForUpdate(1L)).thenReturn(Optional.of(photo));
+
+        // Act
+        Optional<Photo> restored = trashService.restore(1L);
+
+        // Assert
+        assertTrue(restored.isPresent());
+        assertNull(photo.getDeletedAt());
+        verify(photoRepository, times(1)).save(photo);
+        verify(ingestService, times(1)).onSaved(photo);
+    }
+
+    @Test
+    void collect_ShouldDeleteFileAndDerivativesOfExpiredPhotos() throws Exception {
+        // Arrange
+        Files.writeString(tempDir.resolve("test.jpg"), "image");
+        Photo photo = new Photo(1L, "test.jpg");
+        photo.setDeletedAt(LocalDateTime.now().minusDays(2));
+        when(photoRepository.findDeletedBefore(any(LocalDateTime.class), any())).thenReturn(List.of(photo));
+        when(photoRepository.purgeDeleted(eq(1L), any(LocalDateTime.class))).thenReturn(1);
+
+        // Act
+        int purged = trashService.collect();
+
+        // Assert
+        assertEquals(1, purged);
+        assertFalse(Files.exists(tempDir.resolve("test.jpg")));
+        verify(thumbnailService, times(1)).evict("test.jpg");
+        verify(tileService, times(1)).evict("test.jpg");
+        assertEquals(1, trashService.getPurged());
+    }
+
+    @Test
+    void collect_WhenRestoredMeanwhile_ShouldKeepFile() throws Exception {
+        // Arrange
+        Files.writeString(tempDir.resolve("test.jpg"), "image");
+        Photo photo = new Photo(1L, "test.jpg");
+        photo.setDeletedAt(LocalDateTime.now().minusDays(2));
+        when(photoRepository.findDeletedBefore(any(LocalDateTime.class), any())).thenReturn(List.of(photo));
+        when(photoRepository.purgeDeleted(eq(1L), any(LocalDateTime.class))).thenReturn(0);
+
+        // Act
+        int purged = trashService.collect();
+
+        // Assert
+        assertEquals(0, purged);
+        assertTrue(Files.exists(tempDir.resolve("test.jpg")));
+        verify(thumbnailService, never()).evict(anyString());
+    }
+
+    @Test
+    void discard_WhilePurgeOfSameFilenameRuns_ShouldWaitUntilOldFileIsDeleted() throws Exception {
+        // Arrange: the collector has removed the row and is about to delete the file
+        Files.writeString(tempDir.resolve("test.jpg"), "old image");
+        Photo photo = new Photo(1L, "test.jpg");
+        photo.setDeletedAt(LocalDateTime.now().minusDays(2));
+        CountDownLatch purging = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        when(photoRepository.findDeletedBefore(any(LocalDateTime.class), any())).thenReturn(List.of(photo));
+        when(photoRepository.purgeDeleted(eq(1L), any(LocalDateTime.class))).thenAnswer(invocation -> {
+            purging.countDown();
+            proceed.await(5, TimeUnit.SECONDS);
+            return 1;
+        });
+        Thread collector = new Thread(() -> {
+            try {
+                trashService.collect();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        collector.start();
+        assertTrue(purging.await(5, TimeUnit.SECONDS));
+
+        // Act: an upload takes over the name while the purge is in progress
+        Thread upload = new Thread(() -> {
+            trashService.discard("test.jpg");
+            try {
+                Files.writeString(tempDir.resolve("test.jpg"), "new image");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        upload.start();
+        Thread.sleep(100);
+        proceed.countDown();
+        collector.join(5000);
+        upload.join(5000);
+
+        // Assert
+        assertEquals("new image", Files.readString(tempDir.resolve("test.jpg")));
+        verify(photoRepository, times(1)).discardDeletedByFilename("test.jpg");
+    }
+}
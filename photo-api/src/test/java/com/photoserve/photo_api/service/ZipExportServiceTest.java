@@ -0,0 +1,75 @@
+package com.photoserve.photo_api.service;
+
+import com.photoserve.photo_api.model.Photo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipExportServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ZipExportService zipExportService;
+
+    @BeforeEach
+    void setUp() {
+        zipExportService = new ZipExportService(new FileStorageService(tempDir.toString()));
+    }
+
+    @Test
+    void writeZip_ShouldStoreImagesWithoutCompression() throws IOException {
+        // Arrange
+        byte[] jpeg = new byte[200_000];
+        new java.util.Random(1).nextBytes(jpeg);
+        Files.write(tempDir.resolve("a.jpg"), jpeg);
+        Files.writeString(tempDir.resolve("b.png"), "png content");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        int written = zipExportService.writeZip(List.of(new Photo(1L, "a.jpg"), new Photo(2L, "b.png")), out);
+
+        // Assert
+        assertEquals(2, written);
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry first = zip.getNextEntry();
+            assertEquals("a.jpg", first.getName());
+            assertEquals(ZipEntry.STORED, first.getMethod());
+            assertArrayEquals(jpeg, zip.readAllBytes());
+
+            ZipEntry second = zip.getNextEntry();
+            assertEquals("b.png", second.getName());
+            assertEquals("png content", new String(zip.readAllBytes()));
+
+            assertNull(zip.getNextEntry());
+        }
+    }
+
+    @Test
+    void writeZip_ShouldSkipMissingFiles() throws IOException {
+        // Arrange
+        Files.writeString(tempDir.resolve("a.jpg"), "content");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        int written = zipExportService.writeZip(List.of(new Photo(1L, "missing.jpg"), new Photo(2L, "a.jpg")), out);
+
+        // Assert
+        assertEquals(1, written);
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals("a.jpg", zip.getNextEntry().getName());
+            assertNull(zip.getNextEntry());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.photoserve.photo_api.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotTierTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path cold(String filename, int size) throws IOException {
+        Path coldDir = Files.createDirectories(tempDir.resolve("cold"));
+        return Files.write(coldDir.resolve(filename), new byte[size]);
+    }
+
+    @Test
+    void promote_ShouldServeCopyFromHotDirectory() throws IOException {
+        // Arrange
+        Path cold = cold("IMG_5586.jpg", 1000);
+        try (HotTier tier = new HotTier(tempDir.resolve("hot"), 10_000, 2)) {
+            assertNull(tier.lookup("IMG_5586.jpg"));
+
+            // Act
+            tier.promote("IMG_5586.jpg", cold);
+
+            // Assert
+            Path hot = tier.lookup("IMG_5586.jpg");
+            assertEquals(tempDir.resolve("hot").resolve("IMG_5586.jpg"), hot);
+            assertEquals(1000, Files.size(hot));
+            assertEquals(Files.getLastModifiedTime(cold).toMillis(), Files.getLastModifiedTime(hot).toMillis());
+            assertEquals(1000, tier.getResidentBytes());
+            assertEquals(1, tier.getHits());
+            assertEquals(1, tier.getMisses());
+            assertEquals(1, tier.getPromotions());
+        }
+    }
+
+    @Test
+    void promote_WhenFull_ShouldEvictLeastRecentlyUsed() throws IOException {
+        // Arrange
+        try (HotTier tier = new HotTier(tempDir.resolve("hot"), 2500, 2)) {
+            tier.promote("a.jpg", cold("a.jpg", 1000));
+            tier.promote("b.jpg", cold("b.jpg", 1000));
+            tier.lookup("a.jpg");
+
+            // Act
+            tier.promote("c.jpg", cold("c.jpg", 1000));
+
+            // Assert
+            assertNotNull(tier.lookup("a.jpg"));
+            assertNull(tier.lookup("b.jpg"));
+            assertNotNull(tier.lookup("c.jpg"));
+            assertEquals(2000, tier.getResidentBytes());
+        }
+    }
+
+    @Test
+    void promote_WhenLargerThanTier_ShouldSkip() throws IOException {
+        // Arrange
+        try (HotTier tier = new HotTier(tempDir.resolve("hot"), 500, 1)) {
+            // Act
+            tier.promote("big.jpg", cold("big.jpg", 1000));
+
+            // Assert
+            assertNull(tier.lookup("big.jpg"));
+            assertEquals(0, tier.residentCount());
+        }
+    }
+
+    @Test
+    void invalidate_ShouldDropHotCopy() throws IOException {
+        // Arrange
+        try (HotTier tier = new HotTier(tempDir.resolve("hot"), 10_000, 2)) {
+            tier.promote("IMG_5586.jpg", cold("IMG_5586.jpg", 1000));
+
+            // Act
+            tier.invalidate("IMG_5586.jpg");
+
+            // Assert
+            assertNull(tier.lookup("IMG_5586.jpg"));
+            assertEquals(0, tier.getResidentBytes());
+        }
+    }
+
+    @Test
+    void promote_WhenInvalidatedWhileCopying_ShouldNotAdmitCopy() throws IOException {
+        // Arrange: the original is replaced (and invalidated) while its first copy is being made
+        Path cold = cold("IMG_5586.jpg", 1000);
+        AtomicBoolean replaced = new AtomicBoolean();
+        try (HotTier tier = new HotTier(tempDir.resolve("hot"), 10_000, 2) {
+            @Override
+            void copy(Path from, Path to) throws IOException {
+                super.copy(from, to);
+                if (replaced.compareAndSet(false, true)) {
+                    invalidate("IMG_5586.jpg");
+                }
+            }
+        }) {
+            // Act
+            tier.promote("IMG_5586.jpg", cold);
+
+            // Assert
+            assertNull(tier.lookup("IMG_5586.jpg"));
+            assertFalse(Files.exists(tempDir.resolve("hot").resolve("IMG_5586.jpg")));
+            assertEquals(0, tier.getPromotions());
+
+            // The next promotion copies the new version and is admitted
+            tier.promote("IMG_5586.jpg", cold);
+            assertNotNull(tier.lookup("IMG_5586.jpg"));
+            assertEquals(1, tier.getPromotions());
+        }
+    }
+
+    @Test
+    void recover_ShouldKeepOnlyCopiesMatchingTheOriginal() throws IOException {
+        // Arrange
+        Path hotDir = tempDir.resolve("hot");
+        Path kept = cold("kept.jpg", 1000);
+        Path changed = cold("changed.jpg", 1000);
+        try (HotTier tier = new HotTier(hotDir, 10_000, 1)) {
+            tier.promote("kept.jpg", kept);
+            tier.promote("changed.jpg", changed);
+        }
+        Files.write(changed, new byte[2000]);
+        Files.write(hotDir.resolve("orphan.jpg"), new byte[10]);
+
+        // Act
+        try (HotTier tier = new HotTier(hotDir, 10_000, 1)) {
+            tier.recover(kept.getParent());
+
+            // Assert
+            assertNotNull(tier.lookup("kept.jpg"));
+            assertNull(tier.lookup("changed.jpg"));
+            assertEquals(1000, tier.getResidentBytes());
+            assertFalse(Files.exists(hotDir.resolve("changed.jpg")));
+            assertFalse(Files.exists(hotDir.resolve("orphan.jpg")));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.photoserve.photo_api.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackStoreTest {
+
+    private static final int SEGMENT_BYTES = 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private PackStore open() throws IOException {
+        return new PackStore(tempDir, "thumbs", SEGMENT_BYTES, 0, 0.5, 0);
+    }
+
+    private static byte[] blob(int size, int seed) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) (i * 31 + seed);
+        }
+        return bytes;
+    }
+
+    @Test
+    void putAndGet_ShouldReturnStoredBytes() throws IOException {
+        try (PackStore store = open()) {
+            // Act
+            store.put("IMG_5586.jpg@256", blob(5000, 1));
+            store.put("IMG_5586.jpg@128", blob(1200, 2));
+
+            // Assert
+            assertArrayEquals(blob(5000, 1), store.getBytes("IMG_5586.jpg@256"));
+            ByteBuffer view = store.get("IMG_5586.jpg@128");
+            assertEquals(1200, view.remaining());
+            assertTrue(view.isReadOnly());
+            assertNull(store.get("IMG_5629.jpg@256"));
+        }
+    }
+
+    @Test
+    void reopen_ShouldRecoverIndexIncludingOverwritesAndDeletes() throws IOException {
+        // Arrange
+        try (PackStore store = open()) {
+            store.put("a.jpg@256", blob(100, 1));
+            store.put("b.jpg@256", blob(100, 2));
+            store.put("a.jpg@256", blob(200, 3));
+            store.delete("b.jpg@256");
+        }
+
+        // Act
+        try (PackStore store = open()) {
+            // Assert
+            assertEquals(1, store.size());
+            assertArrayEquals(blob(200, 3), store.getBytes("a.jpg@256"));
+            assertNull(store.get("b.jpg@256"));
+        }
+    }
+
+    @Test
+    void reopen_AfterTornWrite_ShouldDropIncompleteRecordAndKeepAppending() throws IOException {
+        // Arrange: corrupt the value of the last record as a crash mid-write would
+        try (PackStore store = open()) {
+            store.put("a.jpg@256", blob(100, 1));
+            store.put("b.jpg@256", blob(100, 2));
+        }
+        int recordBytes = 14 + "a.jpg@256".length() + 100;
+        int secondValueOffset = recordBytes + 14 + "b.jpg@256".length();
+        try (FileChannel channel = FileChannel.open(tempDir.resolve("thumbs-000001.pack"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42, 42, 42}), secondValueOffset + 50);
+        }
+
+        // Act
+        try (PackStore store = open()) {
+            store.put("c.jpg@256", blob(100, 3));
+        }
+
+        // Assert
+        try (PackStore store = open()) {
+            assertArrayEquals(blob(100, 1), store.getBytes("a.jpg@256"));
+            assertNull(store.get("b.jpg@256"));
+            assertArrayEquals(blob(100, 3), store.getBytes("c.jpg@256"));
+        }
+    }
+
+    @Test
+    void deletePrefix_ShouldRemoveEverySizeOfAFile() throws IOException {
+        try (PackStore store = open()) {
+            // Arrange
+            store.put("a.jpg@128", blob(10, 1));
+            store.put("a.jpg@256", blob(10, 2));
+            store.put("ab.jpg@256", blob(10, 3));
+
+            // Act
+            int deleted = store.deletePrefix("a.jpg@");
+
+            // Assert
+            assertEquals(2, deleted);
+            assertNotNull(store.get("ab.jpg@256"));
+        }
+    }
+
+    @Test
+    void compact_ShouldRemoveMostlyDeadSegmentsAndKeepLiveBlobs() throws IOException {
+        // Arrange: fill several segments, then delete most of what is in them
+        try (PackStore store = open()) {
+            for (int i = 0; i < 40; i++) {
+                store.put("photo-" + i + ".jpg@256", blob(100_000, i));
+            }
+            int segmentsBefore = store.segmentCount();
+            for (int i = 0; i < 40; i++) {
+                if (i % 5 != 0) {
+                    store.delete("photo-" + i + ".jpg@256");
+                }
+            }
+
+            // Act
+            int removed = store.compact();
+
+            // Assert
+            assertTrue(removed > 0);
+            assertTrue(store.segmentCount() < segmentsBefore);
+            for (int i = 0; i < 40; i += 5) {
+                assertArrayEquals(blob(100_000, i), store.getBytes("photo-" + i + ".jpg@256"));
+            }
+        }
+
+        // Deleted keys stay deleted after recovery from the compacted segments
+        try (PackStore store = open()) {
+            assertEquals(8, store.size());
+            assertNull(store.get("photo-1.jpg@256"));
+            assertNotNull(store.get("photo-35.jpg@256"));
+        }
+    }
+
+    @Test
+    void put_OverMaxBytes_ShouldEvictOldestSegment() throws IOException {
+        // Arrange: room for three segments of about ten blobs each
+        try (PackStore store = new PackStore(tempDir, "thumbs", SEGMENT_BYTES, 3L * SEGMENT_BYTES, 0.5, 0)) {
+            // Act
+            for (int i = 0; i < 40; i++) {
+                store.put("photo-" + i + ".jpg@256", blob(100_000, i));
+            }
+
+            // Assert
+            assertEquals(3, store.segmentCount());
+            assertEquals(3L * SEGMENT_BYTES, store.diskBytes());
+            assertNull(store.get("photo-0.jpg@256"));
+            assertArrayEquals(blob(100_000, 39), store.getBytes("photo-39.jpg@256"));
+            assertTrue(store.size() < 40);
+        }
+
+        // A smaller limit on reopen trims the store on startup
+        try (PackStore store = new PackStore(tempDir, "thumbs", SEGMENT_BYTES, 2L * SEGMENT_BYTES, 0.5, 0)) {
+            assertEquals(2, store.segmentCount());
+            assertNotNull(store.get("photo-39.jpg@256"));
+            try (var files = Files.list(tempDir)) {
+                assertEquals(2, files.count());
+            }
+        }
+    }
+
+    @Test
+    void put_WhenBlobLargerThanSegment_ShouldThrow() throws IOException {
+        try (PackStore store = open()) {
+            assertThrows(IllegalArgumentException.class, () -> store.put("huge", new byte[SEGMENT_BYTES]));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.photoserve.photo_api.tracing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTraceTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestTrace.clear();
+    }
+
+    @Test
+    void time_WithActiveTrace_ShouldRecordStageAndReturnResult() {
+        // Arrange
+        RequestTrace trace = RequestTrace.begin("POST", "/photos/upload");
+
+        // Act
+        String result = RequestTrace.time("storage.copy", () -> "done");
+
+        // Assert
+        assertEquals("done", result);
+        List<RequestTrace.Stage> stages = trace.getStages();
+        assertEquals(1, stages.size());
+        assertEquals("storage.copy", stages.get(0).name());
+        assertFalse(stages.get(0).failed());
+    }
+
+    @Test
+    void time_WhenCallThrows_ShouldRecordFailedStageAndRethrow() {
+        // Arrange
+        RequestTrace trace = RequestTrace.begin("GET", "/photos");
+
+        // Act & Assert
+        IOException exception = assertThrows(IOException.class, () ->
+            RequestTrace.time("storage.copy", () -> {
+                throw new IOException("disk full");
+            })
+        );
+        assertEquals("disk full", exception.getMessage());
+        assertTrue(trace.getStages().get(0).failed());
+    }
+
+    @Test
+    void time_WithoutActiveTrace_ShouldStillRunCall() {
+        // Act
+        Integer result = RequestTrace.time("repository.count", () -> 42);
+
+        // Assert
+        assertEquals(42, result);
+        assertNull(RequestTrace.current());
+    }
+
+    @Test
+    void mark_ShouldRecordElapsedSinceRequestStart() {
+        // Arrange
+        RequestTrace trace = RequestTrace.begin("POST", "/photos/upload");
+
+        // Act
+        RequestTrace.mark("request.dispatch");
+
+        // Assert
+        assertEquals("request.dispatch", trace.getStages().get(0).name());
+        assertTrue(trace.getStages().get(0).nanos() >= 0);
+    }
+
+    @Test
+    void format_ShouldProduceKeyValueLine() {
+        // Arrange
+        RequestTrace trace = RequestTrace.begin("POST", "/photos/upload");
+        RequestTrace.run("repository.save", () -> { });
+
+        // Act
+        String line = trace.format(201, 8_000_000_000L);
+
+        // Assert
+        assertTrue(line.startsWith("method=POST uri=/photos/upload status=201 total_ms=8000"));
+        assertTrue(line.contains("repository.save="));
+    }
+}
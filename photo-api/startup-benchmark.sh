@@ -0,0 +1,84 @@
+#!/bin/bash
+# Time from JVM launch to the first successful GET /photos, for the plain jar and for the
+# fast-startup build (Spring AOT + class data sharing archive). Runs alternate between the two.
+#
+# Build first with: ./mvnw -Pfast-startup package
+# Both runs use the database from SPRING_DATASOURCE_URL, SPRING_DATASOURCE_USERNAME and
+# SPRING_DATASOURCE_PASSWORD, like the application itself.
+#
+# Usage: ./startup-benchmark.sh [runs]    (default 5, plus one discarded warm-up run each)
+set -euo pipefail
+
+cd "$(dirname "$0")"
+
+RUNS=${1:-5}
+PORT=${BENCHMARK_PORT:-18080}
+JAR_NAME=photo-api-0.0.1-SNAPSHOT.jar
+FAST_DIR=target/fast-startup
+
+for file in "target/$JAR_NAME" "$FAST_DIR/$JAR_NAME" "$FAST_DIR/application.jsa"; do
+    if [ ! -f "$file" ]; then
+        echo "Missing $file, build with: ./mvnw -Pfast-startup package" >&2
+        exit 1
+    fi
+done
+if curl -s -o /dev/null "http://localhost:$PORT/"; then
+    echo "Port $PORT is already in use, set BENCHMARK_PORT" >&2
+    exit 1
+fi
+
+UPLOADS=$(mktemp -d)
+trap 'rm -rf "$UPLOADS"' EXIT
+
+# Prints the milliseconds from launch until /photos answers with a 2xx status
+time_to_first_response() {
+    local dir=$1
+    shift
+    local start end pid
+    start=$(date +%s%N)
+    (cd "$dir" && exec java "$@" --server.port="$PORT" --file.upload-dir="$UPLOADS" > /dev/null 2>&1) &
+    pid=$!
+    until curl -sf -o /dev/null "http://localhost:$PORT/photos"; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "The application exited before answering, run it by hand to see why" >&2
+            exit 1
+        fi
+        sleep 0.02
+    done
+    end=$(date +%s%N)
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+    echo $(( (end - start) / 1000000 ))
+}
+
+plain() {
+    time_to_first_response target -jar "$JAR_NAME"
+}
+
+fast() {
+    time_to_first_response "$FAST_DIR" -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true -jar "$JAR_NAME"
+}
+
+report() {
+    local name=$1
+    shift
+    printf '%s\n' "$@" | sort -n | awk -v name="$name" '
+        { t[NR] = $1 }
+        END { printf "%-14s min %6d ms   median %6d ms   max %6d ms\n", name, t[1], t[int((NR + 1) / 2)], t[NR] }'
+}
+
+plain > /dev/null
+fast > /dev/null
+
+plain_times=()
+fast_times=()
+for ((run = 1; run <= RUNS; run++)); do
+    plain_times+=("$(plain)")
+    fast_times+=("$(fast)")
+    echo "run $run/$RUNS: plain ${plain_times[-1]} ms, fast-startup ${fast_times[-1]} ms"
+done
+
+echo
+echo "Time to first successful GET /photos over $RUNS runs"
+report "plain" "${plain_times[@]}"
+report "fast-startup" "${fast_times[@]}"
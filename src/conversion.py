@@ -1,5 +1,6 @@
 import os
 import time
+from datetime import datetime
 import mysql.connector
 from mysql.connector import Error
 from PIL import Image
@@ -8,6 +9,10 @@ from pillow_heif import register_heif_opener
 
 register_heif_opener()
 
+GPS_IFD = 0x8825
+EXIF_IFD = 0x8769
+DATE_TIME_ORIGINAL = 0x9003
+
 def connect_to_database():
     while True:
         try:
@@ -23,6 +28,35 @@ def connect_to_database():
             print(f"Error connecting to the database: {e}")
             time.sleep(5)
 
+def gps_coordinates(image):
+    """Signed latitude and longitude in degrees from the EXIF GPS tags, or (None, None)."""
+    gps = image.getexif().get_ifd(GPS_IFD)
+    try:
+        latitude = to_degrees(gps[2], gps[1], "S", 90)
+        longitude = to_degrees(gps[4], gps[3], "W", 180)
+    except (KeyError, TypeError, ValueError, ZeroDivisionError):
+        return None, None
+    return latitude, longitude
+
+def capture_time(image):
+    """EXIF DateTimeOriginal, the camera's local time, or None."""
+    value = image.getexif().get_ifd(EXIF_IFD).get(DATE_TIME_ORIGINAL)
+    try:
+        return datetime.strptime(str(value).strip("\x00 ")[:19], "%Y:%m:%d %H:%M:%S")
+    except ValueError:
+        return None
+
+def timeline_periods(captured_at):
+    """Year, month and day rollup keys, in the order the API updates them."""
+    day = captured_at.date().isoformat()
+    return [day[:4], day[:7], day]
+
+def to_degrees(dms, ref, negative, limit):
+    degrees = float(dms[0]) + float(dms[1]) / 60 + float(dms[2]) / 3600
+    if not 0 <= degrees <= limit:
+        raise ValueError(degrees)
+    return -degrees if ref == negative else degrees
+
 def run_conversion(folder_path):
     conn = connect_to_database()
     if conn is None:
@@ -31,7 +65,7 @@ def run_conversion(folder_path):
 
     try:
         cursor = conn.cursor(dictionary=True)
-        cursor.execute("SELECT id, filename FROM photos WHERE filename LIKE '%.heic' OR filename LIKE '%.HEIC'")
+        cursor.execute("SELECT id, filename, captured_at FROM photos WHERE deleted_at IS NULL AND (filename LIKE '%.heic' OR filename LIKE '%.HEIC')")
         rows = cursor.fetchall()
 
         for row in rows:
@@ -45,13 +79,30 @@ def run_conversion(folder_path):
             if os.path.exists(heic_path):
                 try:
                     image = Image.open(heic_path)
-                    image.save(jpg_path, "JPEG", quality=90)
+                    # Keep the EXIF block, GPS position included, in the converted file
+                    image.save(jpg_path, "JPEG", quality=90, exif=image.info.get("exif", b""))
+                    latitude, longitude = gps_coordinates(image)
 
-                    sql = "UPDATE photos SET filename = %s WHERE id = %s"
-                    cursor.execute(sql, (new_filename, photo_id))
+                    # The API cannot read HEIC metadata, so the position is filled in here
+                    sql = ("UPDATE photos SET filename = %s, latitude = COALESCE(latitude, %s), "
+                           "longitude = COALESCE(longitude, %s) WHERE id = %s")
+                    cursor.execute(sql, (new_filename, latitude, longitude, photo_id))
+                    captured_at = capture_time(image)
+                    if row["captured_at"] is None and captured_at is not None:
+                        cursor.execute("UPDATE photos SET captured_at = %s WHERE id = %s", (captured_at, photo_id))
+                        # Count the photo in the timeline rollups the API keeps (table created by the API)
+                        sql = ("INSERT INTO photo_timeline (period, photo_count) VALUES (%s, 1) "
+                               "ON DUPLICATE KEY UPDATE photo_count = photo_count + 1")
+                        for period in timeline_periods(captured_at):
+                            cursor.execute(sql, (period,))
+                    # Same transaction, so sync clients see the rename (table created by the API)
+                    sql = ("INSERT INTO photo_changes (photo_id, filename, change_type, changed_at) "
+                           "VALUES (%s, %s, 'UPDATED', NOW())")
+                    cursor.execute(sql, (photo_id, new_filename))
                     conn.commit()
                 
                 except Exception as e:
+                    conn.rollback()
                     print(f"Error converting {filename}: {e}")
     except Error as e:
         print(f"Error executing query: {e}")
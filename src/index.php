@@ -21,11 +21,36 @@
 </html>
 
 <body>
-    <input type="text" id="photoFilename" placeholder="Enter Photo filename">
+    <input type="text" id="photoFilename" placeholder="Enter Photo filename" list="filenameSuggestions" autocomplete="off">
+    <datalist id="filenameSuggestions"></datalist>
     <button onclick="handleInput()">Get Photo</button>
     <p id="display"></p>
 
     <script>
+        let suggestRequest = null;
+
+        document.getElementById("photoFilename").addEventListener("input", event => {
+            const query = event.target.value.trim();
+            if (suggestRequest) {
+                suggestRequest.abort();
+            }
+            if (!query) {
+                return;
+            }
+            suggestRequest = new AbortController();
+            fetch("http://localhost:8081/photos/suggest?q=" + encodeURIComponent(query), { signal: suggestRequest.signal })
+                .then(response => response.ok ? response.json() : [])
+                .then(suggestions => {
+                    const list = document.getElementById("filenameSuggestions");
+                    list.replaceChildren(...suggestions.map(suggestion => {
+                        const option = document.createElement("option");
+                        option.value = suggestion.filename;
+                        return option;
+                    }));
+                })
+                .catch(() => {});
+        });
+
         function handleInput() {
             const photoFile = document.getElementById("photoFilename").value;
 
@@ -79,7 +104,7 @@
                     if(response.ok) {
                         return response.text().then(text => {
                             alert(text || "Photo deleted successfully.");
-                            window.location.reload();
+                            refreshGallery();
                         });
                     } else {
                         return response.text().then(text => {
@@ -101,7 +126,7 @@
                     if(response.ok) {
                         return response.text().then(text => {
                             alert(text || "Photo deleted successfully.");
-                            window.location.reload();
+                            refreshGallery();
                         });
                     } else {
                         return response.text().then(text => {
@@ -162,7 +187,7 @@
                     if(response.ok){
                         return response.text().then(text => {
                             alert(text || "Photo uploaded successfully.");
-                            window.location.reload();
+                            refreshGallery();
                         });
                     } else {
                         return response.text().then(text => {
@@ -196,7 +221,7 @@ if ($conn->connect_error) {
     exit;
 }
 
-$sql = "SELECT id, filename FROM photos";
+$sql = "SELECT id, filename FROM photos WHERE deleted_at IS NULL";
 $result = $conn->query($sql);
 
 if ($result) {
@@ -205,7 +230,7 @@ if ($result) {
         // Escape output to prevent XSS
         $id = htmlspecialchars($row['id'], ENT_QUOTES, 'UTF-8');
         $filename = htmlspecialchars($row['filename'], ENT_QUOTES, 'UTF-8');
-        echo "<div style= 'text-align: center; margin-bottom: 10px;'>";
+        echo "<div class='photo' data-id='" . $id . "' style= 'text-align: center; margin-bottom: 10px;'>";
         echo "<img src='images/" . $filename . "' alt='Photo' />";
         echo "<p style ='margin: 5px 0; font-size: 0.9em;'><strong>ID:</strong> " . $id . "<br><strong>Filename:</strong> " . $filename . "</p>";
         echo "</div>";
@@ -219,3 +244,72 @@ if ($result) {
 $conn->close();
 ?>
 
+<script>
+    // Live updates pushed by the API, so the page no longer reloads after every change
+    const gallery = document.querySelector(".gallery");
+    let photoEvents = null;
+
+    function photoTile(photo) {
+        const tile = document.createElement("div");
+        tile.className = "photo";
+        tile.dataset.id = photo.id;
+        tile.style.textAlign = "center";
+        tile.style.marginBottom = "10px";
+
+        const img = document.createElement("img");
+        img.src = "images/" + encodeURIComponent(photo.filename);
+        img.alt = "Photo";
+
+        const caption = document.createElement("p");
+        caption.style.margin = "5px 0";
+        caption.style.fontSize = "0.9em";
+        const idLabel = document.createElement("strong");
+        idLabel.textContent = "ID:";
+        const filenameLabel = document.createElement("strong");
+        filenameLabel.textContent = "Filename:";
+        caption.append(idLabel, " " + photo.id, document.createElement("br"), filenameLabel, " " + photo.filename);
+
+        tile.append(img, caption);
+        return tile;
+    }
+
+    function findTile(id) {
+        return gallery.querySelector(`.photo[data-id="${CSS.escape(String(id))}"]`);
+    }
+
+    // Without a live connection, fall back to reloading the page
+    function refreshGallery() {
+        if (!photoEvents || photoEvents.readyState !== EventSource.OPEN) {
+            window.location.reload();
+        }
+    }
+
+    if (gallery && window.EventSource) {
+        photoEvents = new EventSource("http://localhost:8081/photos/events");
+        photoEvents.addEventListener("photo-created", event => {
+            const photo = JSON.parse(event.data);
+            if (!findTile(photo.id)) {
+                gallery.appendChild(photoTile(photo));
+            }
+        });
+        photoEvents.addEventListener("photo-updated", event => {
+            const photo = JSON.parse(event.data);
+            const tile = findTile(photo.id);
+            if (tile) {
+                tile.replaceWith(photoTile(photo));
+            } else {
+                // A deleted photo was restored
+                gallery.appendChild(photoTile(photo));
+            }
+        });
+        photoEvents.addEventListener("photo-deleted", event => {
+            const tile = findTile(JSON.parse(event.data).id);
+            if (tile) {
+                tile.remove();
+            }
+        });
+        // Events were missed (server restart or this page fell behind)
+        photoEvents.addEventListener("resync", () => window.location.reload());
+    }
+</script>
+